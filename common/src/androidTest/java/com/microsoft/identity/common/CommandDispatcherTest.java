@@ -45,6 +45,7 @@ import com.microsoft.identity.common.java.commands.parameters.SilentTokenCommand
 import com.microsoft.identity.common.java.controllers.BaseController;
 import com.microsoft.identity.common.java.controllers.CommandDispatcher;
 import com.microsoft.identity.common.java.controllers.CommandResult;
+import com.microsoft.identity.common.java.controllers.ThreadPoolCommandExecutorStrategy;
 import com.microsoft.identity.common.java.dto.AccessTokenRecord;
 import com.microsoft.identity.common.java.dto.AccountRecord;
 import com.microsoft.identity.common.java.dto.IdTokenRecord;
@@ -75,7 +76,6 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -381,16 +381,94 @@ public class CommandDispatcherTest {
         CommandResult result = future1.get();
         Assert.assertEquals(ICommandResult.ResultStatus.ERROR, result.getStatus());
 
-        // try scheduling a new command
+        // try scheduling a new command, it should be rejected
+        final CommandResult rejectedResult = CommandDispatcher.submitSilentReturningFuture(
+                new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback())).get();
+        Assert.assertEquals(ICommandResult.ResultStatus.ERROR, rejectedResult.getStatus());
+        Assert.assertEquals(ClientException.REQUEST_REJECTED, ((ClientException) rejectedResult.getResult()).getErrorCode());
+
+        // Restart the silentRequestExecutor again
+        CommandDispatcher.resetSilentRequestExecutor();
+    }
+
+    @Test
+    public void testStopSilentRequestExecutorRejectsQueuedRequests() throws Exception {
+        CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder()
+                .silentThreadCount(1)
+                .build());
+        try {
+            final FinalizableResultFuture<CommandResult> running = CommandDispatcher.submitSilentReturningFuture(
+                    new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
+            final FinalizableResultFuture<CommandResult> queued = CommandDispatcher.submitSilentReturningFuture(
+                    new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
+
+            CommandDispatcher.stopSilentRequestExecutor();
+
+            Assert.assertEquals(ICommandResult.ResultStatus.ERROR, running.get().getStatus());
+            // The queued command never runs, but must still complete.
+            final CommandResult queuedResult = queued.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(ICommandResult.ResultStatus.ERROR, queuedResult.getStatus());
+            Assert.assertEquals(ClientException.REQUEST_REJECTED, ((ClientException) queuedResult.getResult()).getErrorCode());
+        } finally {
+            CommandDispatcher.resetSilentRequestExecutor();
+            CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder().build());
+        }
+    }
+
+    @Test
+    public void testRejectedSilentRequestIsCompletedAndForgotten() throws Exception {
+        CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder()
+                .silentThreadCount(1)
+                .maxQueuedTasks(1)
+                .build());
         try {
+            // Saturate the silent executor: one command running, one queued.
+            CommandDispatcher.submitSilentReturningFuture(new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
             CommandDispatcher.submitSilentReturningFuture(new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
-            Assert.fail("Should not reach here");
-        } catch (final Exception e) {
-            // Should be rejected to get scheduled
-            Assert.assertTrue(e instanceof RejectedExecutionException);
+
+            final CommandParameters parameters = getEmptyTestParams();
+            final BaseCommand rejectedCommand = new CacheableLongRunningTestCommand(parameters, new EmptyCommandCallback());
+            final FinalizableResultFuture<CommandResult> rejectedFuture = CommandDispatcher.submitSilentReturningFuture(rejectedCommand);
+
+            Assert.assertTrue(rejectedFuture.isDone());
+            final CommandResult result = rejectedFuture.get();
+            Assert.assertEquals(ICommandResult.ResultStatus.ERROR, result.getStatus());
+            Assert.assertEquals(ClientException.REQUEST_REJECTED, ((ClientException) result.getResult()).getErrorCode());
+            Assert.assertTrue(rejectedFuture.isCleanedUp());
+            Assert.assertFalse(CommandDispatcher.isCommandOutstanding(rejectedCommand));
+
+            // An equal command submitted later must not be handed the future of the rejected one.
+            final FinalizableResultFuture<CommandResult> laterFuture = CommandDispatcher.submitSilentReturningFuture(
+                    new CacheableLongRunningTestCommand(parameters, new EmptyCommandCallback()));
+            Assert.assertNotSame(rejectedFuture, laterFuture);
+        } finally {
+            CommandDispatcher.clearState();
+            CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder().build());
+        }
+    }
+
+    @Test
+    public void testRejectedSubmitAndForgetIsCompletedInsteadOfThrowing() throws Exception {
+        CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder()
+                .silentThreadCount(1)
+                .maxQueuedTasks(1)
+                .build());
+        try {
+            // Saturate the silent executor: one command running, one queued.
+            CommandDispatcher.submitSilentReturningFuture(new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
+            CommandDispatcher.submitSilentReturningFuture(new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
+
+            final FinalizableResultFuture<CommandResult> rejectedFuture = CommandDispatcher.submitAndForgetReturningFuture(
+                    new LongRunningTestCommand(getEmptyTestParams(), new EmptyCommandCallback()));
+
+            Assert.assertTrue(rejectedFuture.isDone());
+            final CommandResult result = rejectedFuture.get();
+            Assert.assertEquals(ICommandResult.ResultStatus.ERROR, result.getStatus());
+            Assert.assertEquals(ClientException.REQUEST_REJECTED, ((ClientException) result.getResult()).getErrorCode());
+        } finally {
+            CommandDispatcher.clearState();
+            CommandDispatcher.setExecutorStrategy(ThreadPoolCommandExecutorStrategy.builder().build());
         }
-        // Restart the silentRequestExecutor again
-        CommandDispatcher.resetSilentRequestExecutor();
     }
 
     @Test
@@ -925,6 +1003,18 @@ public class CommandDispatcherTest {
             return false;
         }
     }
+    public static class CacheableLongRunningTestCommand extends LongRunningTestCommand {
+        public CacheableLongRunningTestCommand(@NonNull final CommandParameters parameters,
+                                               @NonNull final CommandCallback callback) {
+            super(parameters, callback);
+        }
+
+        @Override
+        public boolean isEligibleForCaching() {
+            return true;
+        }
+    }
+
     private static BaseController getTestController() {
         return new TestBaseController() {
         };
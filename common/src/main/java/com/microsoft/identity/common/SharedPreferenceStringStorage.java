@@ -27,6 +27,8 @@ import android.content.Context;
 import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
 import com.microsoft.identity.common.internal.util.AbstractSharedPrefNameValueStorage;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.Iterator;
@@ -61,6 +63,12 @@ public class SharedPreferenceStringStorage extends AbstractSharedPrefNameValueSt
         return mManager.getAllFilteredByKey(keyPredicate);
     }
 
+    @Override
+    public @NonNull BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                            @NonNull final BiConsumer<String, String> consumer) {
+        return mManager.forEachFilteredByKey(keyFilter, consumer);
+    }
+
     @Override
     public @NonNull Map<String, String> getAll() {
         return mManager.getAll();
@@ -37,15 +37,22 @@ import com.microsoft.identity.common.java.cache.IMultiTypeNameValueStorage;
 import com.microsoft.identity.common.java.crypto.IKeyAccessor;
 import com.microsoft.identity.common.java.crypto.KeyAccessorStringAdapter;
 import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.storage.BulkEntryDecoder;
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 import com.microsoft.identity.common.logging.Logger;
 
 import java.security.ProviderException;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -238,6 +245,13 @@ public class SharedPreferencesFileManager implements IMultiTypeNameValueStorage
         return entries;
     }
 
+    @Override
+    public final Set<String> keySet() {
+        // SharedPreferences hands out a copy of its map, so the keys can be listed without
+        // decrypting anything.
+        return new HashSet<>(mSharedPreferences.getAll().keySet());
+    }
+
     @Override
     public final Iterator<Map.Entry<String, String>> getAllFilteredByKey(final @NonNull Predicate<String> keyFilter) {
         // We're not synchronizing this access, since we're not modifying it here.
@@ -289,6 +303,57 @@ public class SharedPreferencesFileManager implements IMultiTypeNameValueStorage
         };
     }
 
+    /**
+     * Unlike {@link #getAllFilteredByKey(Predicate)}, which decrypts each value while holding
+     * the cache lock, this snapshots the raw entries under the lock and then decrypts them outside
+     * of it on a bounded pool of worker threads, see {@link BulkEntryDecoder}. The consumer is
+     * called concurrently.
+     */
+    @Override
+    public final BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                         @NonNull final BiConsumer<String, String> consumer) {
+        final long readStart = System.nanoTime();
+        final List<Map.Entry<String, String>> entries = new ArrayList<>();
+        final Set<String> plainTextKeys = new HashSet<>();
+
+        synchronized (cacheLock) {
+            // Suppressing unchecked warnings due to casting Map<String,?> to Map<String,String>
+            @SuppressWarnings(WarningType.unchecked_warning) final Map<String, String> storedEntries = (Map<String, String>) mSharedPreferences.getAll();
+
+            for (final Map.Entry<String, String> entry : storedEntries.entrySet()) {
+                if (!keyFilter.test(entry.getKey())) {
+                    continue;
+                }
+
+                // Same lookup order as getString(): the in-memory cache holds plain text values.
+                final String memCache = fileCache.get(entry.getKey());
+                if (memCache != null) {
+                    plainTextKeys.add(entry.getKey());
+                    entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(), memCache));
+                } else if (!StringUtil.isNullOrEmpty(entry.getValue())) {
+                    entries.add(entry);
+                }
+            }
+        }
+        final long readNanos = System.nanoTime() - readStart;
+
+        return BulkEntryDecoder.decodeAll(entries, readNanos, new BulkEntryDecoder.IDecoder<String>() {
+            @Override
+            public String decode(@NonNull final String name, @Nullable final String rawValue) {
+                if (mEncryptionManager == null || plainTextKeys.contains(name)) {
+                    return rawValue;
+                }
+
+                try {
+                    final String decryptedValue = mEncryptionManager.decrypt(rawValue);
+                    return StringUtil.isNullOrEmpty(decryptedValue) ? null : decryptedValue;
+                } catch (final ClientException e) {
+                    Logger.error(TAG + ":forEachFilteredByKey", "Failed to decrypt value", null);
+                    return null;
+                }
+            }
+        }, consumer);
+    }
 
     @Override
     public final boolean contains(final String key) {
@@ -49,6 +49,6 @@ public abstract class AbstractSharedPrefNameValueStorage<T> implements INameValu
 
     @Override
     public @NonNull Set<String> keySet() {
-        return mManager.getAll().keySet();
+        return mManager.keySet();
     }
 }
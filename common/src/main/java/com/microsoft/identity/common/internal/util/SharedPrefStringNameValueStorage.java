@@ -24,6 +24,8 @@
 package com.microsoft.identity.common.internal.util;
 
 import com.microsoft.identity.common.java.cache.IMultiTypeNameValueStorage;
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.Iterator;
@@ -57,4 +59,10 @@ public class SharedPrefStringNameValueStorage extends AbstractSharedPrefNameValu
     public Iterator<Map.Entry<String, String>> getAllFilteredByKey(Predicate<String> keyFilter) {
         return mManager.getAllFilteredByKey(keyFilter);
     }
+
+    @Override
+    public @NonNull BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                            @NonNull final BiConsumer<String, String> consumer) {
+        return mManager.forEachFilteredByKey(keyFilter, consumer);
+    }
 }
@@ -61,6 +61,7 @@ import com.microsoft.identity.common.java.cache.IBrokerApplicationMetadataCache;
 import com.microsoft.identity.common.java.cache.MicrosoftFamilyOAuth2TokenCache;
 import com.microsoft.identity.common.java.cache.MsalOAuth2TokenCache;
 import com.microsoft.identity.common.java.cache.NameValueStorageBrokerApplicationMetadataCache;
+import com.microsoft.identity.common.java.cache.ProcessUidCacheRegistry;
 import com.microsoft.identity.common.java.cache.SharedPreferencesAccountCredentialCache;
 import com.microsoft.identity.common.java.cache.AccountDeletionRecord;
 import com.microsoft.identity.common.java.cache.ICacheRecord;
@@ -95,6 +96,7 @@ import java.util.UUID;
 public class BrokerOAuth2TokenCacheTest {
 
     private static final int TEST_APP_UID = 1337;
+    private static final int UNRELATED_APP_UID = 1400;
 
     private Context mContext;
     private IPlatformComponents mPlatformComponents;
@@ -755,6 +757,28 @@ public class BrokerOAuth2TokenCacheTest {
         assertEquals(0, mBrokerOAuth2TokenCache.getAccounts().size());
     }
 
+    @Test
+    public void testRemoveAccountFromDeviceKeepsOtherUidCachesResident() throws ClientException {
+        saveOtherAppCacheRecords();
+
+        final ProcessUidCacheRegistry registry = new ProcessUidCacheRegistry();
+        final BrokerOAuth2TokenCache brokerOAuth2TokenCache = new BrokerOAuth2TokenCache(
+                mPlatformComponents,
+                TEST_APP_UID,
+                mApplicationMetadataCache,
+                registry
+        );
+        registry.getTokenCache(mPlatformComponents, UNRELATED_APP_UID);
+
+        final List<AccountRecord> xAppAccounts = brokerOAuth2TokenCache.getAccounts();
+        brokerOAuth2TokenCache.removeAccountFromDevice(xAppAccounts.get(0));
+        assertEquals(0, brokerOAuth2TokenCache.getAccounts().size());
+
+        final long missCount = registry.getMissCount();
+        registry.getTokenCache(mPlatformComponents, UNRELATED_APP_UID);
+        assertEquals(missCount, registry.getMissCount());
+    }
+
     @Test
     public void testGetAccountsAdal() throws ClientException {
         // Load up the 'other caches' which a bunch of test credentials, see if we can get them out...
@@ -1183,6 +1207,45 @@ public class BrokerOAuth2TokenCacheTest {
         );
     }
 
+    @Test
+    public void testClearAllKeepsOtherUidCachesResident() throws ClientException {
+        saveOtherAppCacheRecords();
+
+        final ProcessUidCacheRegistry registry = new ProcessUidCacheRegistry();
+        final BrokerOAuth2TokenCache brokerOAuth2TokenCache = new BrokerOAuth2TokenCache(
+                mPlatformComponents,
+                TEST_APP_UID,
+                mApplicationMetadataCache,
+                registry
+        );
+        registry.getTokenCache(mPlatformComponents, UNRELATED_APP_UID);
+
+        assertEquals(true, brokerOAuth2TokenCache.getAccounts().size() > 0);
+        brokerOAuth2TokenCache.clearAll();
+        assertEquals(0, brokerOAuth2TokenCache.getAccounts().size());
+
+        final long missCount = registry.getMissCount();
+        registry.getTokenCache(mPlatformComponents, UNRELATED_APP_UID);
+        assertEquals(missCount, registry.getMissCount());
+    }
+
+    private void saveOtherAppCacheRecords() throws ClientException {
+        int appIndex = 0;
+        for (final OAuth2TokenCache cache : mOtherAppTokenCaches) {
+            configureMocks(mOtherCacheTestBundles.get(appIndex));
+
+            final ICacheRecord cacheRecord = cache.save(mockStrategy, mockRequest, mockResponse);
+
+            final BrokerApplicationMetadata applicationMetadata = new BrokerApplicationMetadata();
+            applicationMetadata.setClientId(cacheRecord.getIdToken().getClientId());
+            applicationMetadata.setEnvironment(cacheRecord.getIdToken().getEnvironment());
+            applicationMetadata.setFoci(cacheRecord.getRefreshToken().getFamilyId());
+            applicationMetadata.setUid(testAppUids[appIndex++]);
+
+            mApplicationMetadataCache.insert(applicationMetadata);
+        }
+    }
+
     @Test
     public void testClearAll() throws ClientException {
         int appIndex = 0;
@@ -39,7 +39,13 @@ import com.microsoft.identity.common.java.dto.CredentialType;
 import com.microsoft.identity.common.java.dto.IdTokenRecord;
 import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
 import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.exception.TerminalException;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
+import com.microsoft.identity.common.java.util.ported.InMemoryStorage;
+import com.microsoft.identity.common.java.util.ported.Predicate;
 import com.microsoft.identity.common.shadows.ShadowAndroidSdkStorageEncryptionManager;
 
 import org.junit.After;
@@ -50,17 +56,25 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.microsoft.identity.common.java.cache.CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowAndroidSdkStorageEncryptionManager.class})
@@ -2515,4 +2529,265 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCacheTest {
         creds1.get(0).setCachedAt("banana");
         assertNotEquals(creds1.get(0), creds2.get(0));
     }
+
+    @Test
+    public void testWriteBehindSaveIsVisibleBeforeFlushAndPersistedAfter() {
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache writeBehindCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, mSharedPreferencesFileManager, true);
+
+        final RefreshTokenRecord rt = buildDefaultRefreshToken();
+        writeBehindCache.saveCredential(rt);
+
+        final String cacheKey = mDelegate.generateCacheKey(rt);
+        assertEquals(rt, writeBehindCache.getCredential(cacheKey));
+
+        writeBehindCache.flush();
+        assertNotNull(mSharedPreferencesFileManager.get(cacheKey));
+        assertEquals(rt, mDelegate.fromCacheValue(mSharedPreferencesFileManager.get(cacheKey), RefreshTokenRecord.class));
+
+        writeBehindCache.clearAll();
+    }
+
+    @Test
+    public void testWriteBehindRemoveAccountIsDurable() {
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache writeBehindCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, mSharedPreferencesFileManager, true);
+
+        final AccountRecord account = buildDefaultAccountRecord();
+        writeBehindCache.saveAccount(account);
+
+        // Removal must see the not-yet-persisted save, and leave nothing behind in storage.
+        assertTrue(writeBehindCache.removeAccount(account));
+        assertNull(mSharedPreferencesFileManager.get(mDelegate.generateCacheKey(account)));
+        assertNull(writeBehindCache.getAccount(mDelegate.generateCacheKey(account)));
+
+        writeBehindCache.clearAll();
+    }
+
+    @Test
+    public void testWriteBehindRemoveCredential() {
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache writeBehindCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, mSharedPreferencesFileManager, true);
+
+        final RefreshTokenRecord rt = buildDefaultRefreshToken();
+        writeBehindCache.saveCredential(rt);
+        assertTrue(writeBehindCache.removeCredential(rt));
+        assertFalse(writeBehindCache.removeCredential(rt));
+
+        writeBehindCache.flush();
+        assertNull(mSharedPreferencesFileManager.get(mDelegate.generateCacheKey(rt)));
+        assertTrue(writeBehindCache.getCredentials().isEmpty());
+
+        writeBehindCache.clearAll();
+    }
+
+    @Test
+    public void testWriteBehindClearAllDropsPendingWrites() {
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache writeBehindCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, mSharedPreferencesFileManager, true);
+
+        writeBehindCache.saveAccount(buildDefaultAccountRecord());
+        writeBehindCache.saveCredential(buildDefaultRefreshToken());
+        writeBehindCache.clearAll();
+        writeBehindCache.flush();
+
+        assertTrue(mSharedPreferencesFileManager.keySet().isEmpty());
+        assertTrue(writeBehindCache.getAccounts().isEmpty());
+        assertTrue(writeBehindCache.getCredentials().isEmpty());
+    }
+
+    @Test
+    public void testWriteBehindFailedWriteIsKeptPendingAndSurfacedByFlush() {
+        final AtomicBoolean failWrites = new AtomicBoolean(true);
+        final InMemoryStorage<String> failingStorage = new InMemoryStorage<String>() {
+            @Override
+            public void put(final String key, final String value) {
+                if (failWrites.get()) {
+                    throw new IllegalStateException("Storage unavailable.");
+                }
+                super.put(key, value);
+            }
+        };
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache writeBehindCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, failingStorage, true);
+
+        final RefreshTokenRecord rt = buildDefaultRefreshToken();
+        final String cacheKey = mDelegate.generateCacheKey(rt);
+        writeBehindCache.saveCredential(rt);
+
+        try {
+            writeBehindCache.flush();
+            fail("Expected the flush to fail.");
+        } catch (final TerminalException e) {
+            assertEquals(ClientException.IO_ERROR, e.getErrorCode());
+        }
+        assertNull(failingStorage.get(cacheKey));
+        assertEquals(rt, writeBehindCache.getCredential(cacheKey));
+
+        // The failed write is retried by the next flush.
+        failWrites.set(false);
+        writeBehindCache.flush();
+        assertEquals(rt, mDelegate.fromCacheValue(failingStorage.get(cacheKey), RefreshTokenRecord.class));
+
+        writeBehindCache.clearAll();
+    }
+
+    private AccessTokenRecord buildDefaultAccessToken() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setHomeAccountId(HOME_ACCOUNT_ID);
+        accessToken.setRealm(REALM);
+        accessToken.setEnvironment(ENVIRONMENT);
+        accessToken.setClientId(CLIENT_ID);
+        accessToken.setTarget(TARGET);
+        accessToken.setCachedAt(CACHED_AT);
+        accessToken.setExpiresOn(EXPIRES_ON);
+        accessToken.setSecret(SECRET);
+        return accessToken;
+    }
+
+    @Test
+    public void testProgressiveLoadServesLookupsBeforeAccessTokensAreLoaded() throws InterruptedException {
+        final AccountRecord account = buildDefaultAccountRecord();
+        final RefreshTokenRecord rt = buildDefaultRefreshToken();
+        final AccessTokenRecord at = buildDefaultAccessToken();
+        mSharedPreferencesAccountCredentialCache.saveAccount(account);
+        mSharedPreferencesAccountCredentialCache.saveCredential(rt);
+        mSharedPreferencesAccountCredentialCache.saveCredential(at);
+
+        // Holds the load back once accounts, refresh and ID tokens are in.
+        final BlockingStorage storage = new BlockingStorage(mSharedPreferencesFileManager, 2);
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache progressiveCache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, storage, false, true);
+        assertTrue(storage.mBlocked.await(10, TimeUnit.SECONDS));
+
+        try {
+            assertEquals(account, progressiveCache.getAccount(mDelegate.generateCacheKey(account)));
+            assertEquals(1, progressiveCache.getAccounts().size());
+            assertEquals(rt, progressiveCache.getCredential(mDelegate.generateCacheKey(rt)));
+
+            // Not resident yet, read from storage.
+            assertEquals(at, progressiveCache.getCredential(mDelegate.generateCacheKey(at)));
+            final List<Credential> accessTokens = progressiveCache.getCredentialsFilteredBy(
+                    HOME_ACCOUNT_ID,
+                    ENVIRONMENT,
+                    CredentialType.AccessToken,
+                    CLIENT_ID,
+                    null,
+                    null,
+                    REALM,
+                    TARGET,
+                    BEARER_AUTHENTICATION_SCHEME.getName()
+            );
+            assertEquals(1, accessTokens.size());
+            assertEquals(at, accessTokens.get(0));
+            assertTrue(progressiveCache.getCredentialsFilteredBy(
+                    HOME_ACCOUNT_ID + "2",
+                    ENVIRONMENT,
+                    CredentialType.AccessToken,
+                    CLIENT_ID,
+                    null,
+                    null,
+                    REALM,
+                    TARGET,
+                    BEARER_AUTHENTICATION_SCHEME.getName()
+            ).isEmpty());
+            assertNull(progressiveCache.getCredential(mDelegate.generateCacheKey(buildDefaultAccessToken()) + "2"));
+        } finally {
+            storage.mRelease.countDown();
+        }
+
+        assertEquals(2, progressiveCache.getCredentials().size());
+        assertEquals(at, progressiveCache.getCredential(mDelegate.generateCacheKey(at)));
+    }
+
+    @Test
+    public void testDefaultLoadWaitsForAllCredentials() throws InterruptedException {
+        mSharedPreferencesAccountCredentialCache.saveAccount(buildDefaultAccountRecord());
+        mSharedPreferencesAccountCredentialCache.saveCredential(buildDefaultAccessToken());
+
+        final BlockingStorage storage = new BlockingStorage(mSharedPreferencesFileManager, 2);
+        final SharedPreferencesAccountCredentialCacheWithMemoryCache cache =
+                new SharedPreferencesAccountCredentialCacheWithMemoryCache(mDelegate, storage);
+        assertTrue(storage.mBlocked.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch accountsRead = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.getAccounts();
+                accountsRead.countDown();
+            }
+        }).start();
+
+        assertFalse(accountsRead.await(200, TimeUnit.MILLISECONDS));
+        storage.mRelease.countDown();
+        assertTrue(accountsRead.await(10, TimeUnit.SECONDS));
+        assertEquals(1, cache.getCredentials().size());
+    }
+
+    /**
+     * Delegates to another storage, but blocks bulk reads after the first few until released.
+     */
+    private static class BlockingStorage implements INameValueStorage<String> {
+        private final INameValueStorage<String> mDelegate;
+        private final int mUnblockedReads;
+        private final AtomicInteger mReads = new AtomicInteger();
+        final CountDownLatch mBlocked = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+
+        BlockingStorage(final INameValueStorage<String> delegate, final int unblockedReads) {
+            mDelegate = delegate;
+            mUnblockedReads = unblockedReads;
+        }
+
+        @Override
+        public String get(final String name) {
+            return mDelegate.get(name);
+        }
+
+        @Override
+        public Map<String, String> getAll() {
+            return mDelegate.getAll();
+        }
+
+        @Override
+        public void put(final String name, final String value) {
+            mDelegate.put(name, value);
+        }
+
+        @Override
+        public void remove(final String name) {
+            mDelegate.remove(name);
+        }
+
+        @Override
+        public void clear() {
+            mDelegate.clear();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return mDelegate.keySet();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> getAllFilteredByKey(final Predicate<String> keyFilter) {
+            return mDelegate.getAllFilteredByKey(keyFilter);
+        }
+
+        @Override
+        public BulkReadStatistics forEachFilteredByKey(final Predicate<String> keyFilter,
+                                                       final BiConsumer<String, String> consumer) {
+            if (mReads.incrementAndGet() > mUnblockedReads) {
+                mBlocked.countDown();
+                try {
+                    mRelease.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return mDelegate.forEachFilteredByKey(keyFilter, consumer);
+        }
+    }
 }
@@ -22,8 +22,6 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.java.cache;
 
-import static com.microsoft.identity.common.java.AuthenticationConstants.DEFAULT_SCOPES;
-
 import com.microsoft.identity.common.java.authscheme.PopAuthenticationSchemeInternal;
 import com.microsoft.identity.common.java.authscheme.PopAuthenticationSchemeWithClientKeyInternal;
 import com.microsoft.identity.common.java.dto.AccessTokenRecord;
@@ -33,16 +31,14 @@ import com.microsoft.identity.common.java.dto.CredentialType;
 import com.microsoft.identity.common.java.dto.IdTokenRecord;
 import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
 import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.ScopeSet;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
 import com.microsoft.identity.common.java.logging.Logger;
 import com.microsoft.identity.common.java.providers.oauth2.TokenRequest;
 import com.microsoft.identity.common.java.util.StringUtil;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Set;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.NonNull;
@@ -103,11 +99,13 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
         final boolean mustMatchOnEnvironment = !StringUtil.isNullOrEmpty(environment);
         final boolean mustMatchOnRealm = !StringUtil.isNullOrEmpty(realm);
 
-        Logger.verbose(
+        Logger.verboseFormat(
                 TAG,
-                "Account lookup filtered by home_account_id? [" + mustMatchOnHomeAccountId + "]"
+                "Account lookup filtered by home_account_id? [{}]"
                         + NEW_LINE
-                        + "Account lookup filtered by realm? [" + mustMatchOnRealm + "]"
+                        + "Account lookup filtered by realm? [{}]",
+                mustMatchOnHomeAccountId,
+                mustMatchOnRealm
         );
 
         final List<AccountRecord> matchingAccounts = new ArrayList<>();
@@ -132,10 +130,7 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
             }
         }
 
-        Logger.verbose(
-                TAG,
-                "Found [" + matchingAccounts.size() + "] matching accounts"
-        );
+        Logger.verboseFormat(TAG, "Found [{}] matching accounts", matchingAccounts.size());
 
         return matchingAccounts;
     }
@@ -167,28 +162,31 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
         final boolean mustMatchOnKid = !StringUtil.isNullOrEmpty(kid);
         final boolean mustMatchOnRequestedClaims = !StringUtil.isNullOrEmpty(requestedClaims);
 
-        Logger.verbose(
-                TAG,
-                "Credential lookup filtered by home_account_id? [" + mustMatchOnHomeAccountId + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by realm? [" + mustMatchOnRealm + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by target? [" + mustMatchOnTarget + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by clientId? [" + mustMatchOnClientId + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by applicationIdentifier? [" + mustMatchOnApplicationIdentifier + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by mamEnrollmentIdentifier? [" + mustMatchOnMamEnrollmentIdentifier + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by credential type? [" + mustMatchOnCredentialType + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by auth scheme? [" + mustMatchOnAuthScheme + "]"
-                        + NEW_LINE
-                        + "Credential lookup filtered by requested claims? [" + mustMatchOnRequestedClaims + "]"
-        );
+        if (Logger.isLoggable(Logger.LogLevel.VERBOSE)) {
+            Logger.verbose(
+                    TAG,
+                    "Credential lookup filtered by home_account_id? [" + mustMatchOnHomeAccountId + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by realm? [" + mustMatchOnRealm + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by target? [" + mustMatchOnTarget + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by clientId? [" + mustMatchOnClientId + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by applicationIdentifier? [" + mustMatchOnApplicationIdentifier + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by mamEnrollmentIdentifier? [" + mustMatchOnMamEnrollmentIdentifier + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by credential type? [" + mustMatchOnCredentialType + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by auth scheme? [" + mustMatchOnAuthScheme + "]"
+                            + NEW_LINE
+                            + "Credential lookup filtered by requested claims? [" + mustMatchOnRequestedClaims + "]"
+            );
+        }
 
         final List<Credential> matchingCredentials = new ArrayList<>();
+        final ScopeSet soughtScopes = mustMatchOnTarget ? ScopeSet.parse(target) : ScopeSet.EMPTY;
 
         for (final Credential credential : allCredentials) {
             boolean matches = true;
@@ -240,10 +238,10 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
             if (mustMatchOnTarget) {
                 if (credential instanceof AccessTokenRecord) {
                     final AccessTokenRecord accessToken = (AccessTokenRecord) credential;
-                    matches = matches && targetsIntersect(target, accessToken.getTarget(), true);
+                    matches = matches && accessToken.getScopeSet().containsAll(soughtScopes, true);
                 } else if (credential instanceof RefreshTokenRecord) {
                     final RefreshTokenRecord refreshToken = (RefreshTokenRecord) credential;
-                    matches = matches && targetsIntersect(target, refreshToken.getTarget(), true);
+                    matches = matches && refreshToken.getScopeSet().containsAll(soughtScopes, true);
                 } else {
                     Logger.verbose(TAG, "Query specified target-match, but no target to match.");
                 }
@@ -307,28 +305,6 @@ public abstract class AbstractAccountCredentialCache implements IAccountCredenti
         // The credentialTarget must contain all of the scopes in the targetToMatch
         // It may contain more, but it must contain minimally those
         // Matching is case-insensitive
-        final String splitCriteria = "\\s+";
-        final String[] targetToMatchArray = targetToMatch.trim().split(splitCriteria);
-        final String[] credentialTargetArray = credentialTarget.trim().split(splitCriteria);
-
-        // Declare Sets to contain these scopes
-        final Set<String> soughtTargetSet = new HashSet<>();
-        final Set<String> credentialTargetSet = new HashSet<>();
-
-        // Add the array values to these sets, lowercasing them
-        for (final String target : targetToMatchArray) {
-            soughtTargetSet.add(target.toLowerCase(Locale.ROOT));
-        }
-
-        for (final String target : credentialTargetArray) {
-            credentialTargetSet.add(target.toLowerCase(Locale.ROOT));
-        }
-
-        if (omitDefaultScopes) {
-            soughtTargetSet.removeAll(DEFAULT_SCOPES);
-            credentialTargetSet.removeAll(DEFAULT_SCOPES);
-        }
-
-        return credentialTargetSet.containsAll(soughtTargetSet);
+        return ScopeSet.parse(credentialTarget).containsAll(ScopeSet.parse(targetToMatch), omitDefaultScopes);
     }
 }
@@ -0,0 +1,388 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.interfaces.IPlatformComponents;
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.net.HttpResponse;
+import com.microsoft.identity.common.java.util.ThreadUtils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Caches authority metadata documents, such as the OpenID provider configuration and the AAD
+ * instance discovery response, keyed by the URL they were fetched from.
+ * <p>
+ * Entries are kept in memory and, once {@link #setUp} has been called, written through to an
+ * unencrypted {@link INameValueStorage} so that they survive process restarts. How long an entry
+ * is fresh follows the Cache-Control (max-age) and Expires headers of the response it came from.
+ * After that it may still be served while {@link #refreshInBackground} fetches a new one, but only
+ * for as long as the response's stale-while-revalidate directive allows. Responses marked no-store
+ * are not cached at all, and no-cache ones are never served stale. Readers never take a lock.
+ */
+public class AuthorityMetadataCache {
+    private static final String TAG = AuthorityMetadataCache.class.getSimpleName();
+
+    public static final String AUTHORITY_METADATA_CACHE_STORAGE_NAME =
+            "com.microsoft.identity.client.authority_metadata_cache";
+
+    /**
+     * How long an entry is fresh if its response did not say.
+     */
+    static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    static final String CACHE_CONTROL = "Cache-Control";
+    static final String EXPIRES = "Expires";
+    private static final String MAX_AGE = "max-age";
+    private static final String STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+    private static final String NO_CACHE = "no-cache";
+    private static final String NO_STORE = "no-store";
+
+    private static final Gson GSON = new Gson();
+
+    private static final AuthorityMetadataCache INSTANCE = new AuthorityMetadataCache();
+
+    private final ConcurrentMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> mRefreshesInFlight = new ConcurrentHashMap<>();
+    private final ExecutorService mRefreshExecutor = ThreadUtils.getNamedThreadPoolExecutor(
+            0, 1, -1, 30, TimeUnit.SECONDS, "authority-metadata-refresh");
+
+    private volatile INameValueStorage<String> mStorage;
+
+    public static AuthorityMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    //@VisibleForTesting
+    AuthorityMetadataCache() {
+    }
+
+    /**
+     * Persists entries to the storage of the given platform. Only the first call has an effect.
+     */
+    public void setUp(@NonNull final IPlatformComponents platformComponents) {
+        if (mStorage == null) {
+            setStorage(platformComponents.getStorageSupplier().getUnencryptedNameValueStore(
+                    AUTHORITY_METADATA_CACHE_STORAGE_NAME, String.class));
+        }
+    }
+
+    //@VisibleForTesting
+    synchronized void setStorage(@Nullable final INameValueStorage<String> storage) {
+        if (mStorage == null || storage == null) {
+            mStorage = storage;
+        }
+    }
+
+    /**
+     * @return the entry cached for the key, fresh or not, or null if there is none which can still be served.
+     */
+    @Nullable
+    public Entry get(@NonNull final String key) {
+        final long nowMillis = System.currentTimeMillis();
+
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = load(key);
+            if (entry != null) {
+                final Entry raced = mEntries.putIfAbsent(key, entry);
+                if (raced != null) {
+                    entry = raced;
+                }
+            }
+        }
+
+        if (entry == null || !entry.isUsable(nowMillis)) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the body of a successful response, for as long as its headers allow.
+     *
+     * @return the new entry.
+     */
+    @NonNull
+    public Entry put(@NonNull final String key, @NonNull final HttpResponse response) {
+        final String methodTag = TAG + ":put";
+
+        final long nowMillis = System.currentTimeMillis();
+        final String cacheControl = getHeaderValue(response, CACHE_CONTROL);
+        final long maxAgeMillis = getMaxAgeMillis(response, cacheControl, nowMillis);
+        final long staleMillis = getStaleWhileRevalidateMillis(cacheControl);
+
+        final Entry entry = new Entry(response.getBody(), nowMillis + maxAgeMillis,
+                nowMillis + maxAgeMillis + staleMillis);
+
+        final INameValueStorage<String> storage = mStorage;
+        if (hasDirective(cacheControl, NO_STORE)) {
+            // Still handed to the caller, but neither kept nor allowed to shadow the new response.
+            Logger.verbose(methodTag, "Not caching entry.");
+            mEntries.remove(key);
+            if (storage != null) {
+                storage.remove(key);
+            }
+            return entry;
+        }
+
+        mEntries.put(key, entry);
+        if (storage != null) {
+            storage.put(key, GSON.toJson(new PersistedEntry(entry)));
+        }
+        return entry;
+    }
+
+    /**
+     * Runs the refresh on a background thread, unless one is already running for the key.
+     */
+    public void refreshInBackground(@NonNull final String key, @NonNull final Runnable refresh) {
+        final String methodTag = TAG + ":refreshInBackground";
+
+        if (mRefreshesInFlight.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            mRefreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh.run();
+                    } catch (final RuntimeException e) {
+                        Logger.warn(methodTag, "Refreshing authority metadata failed: " + e.getMessage());
+                    } finally {
+                        mRefreshesInFlight.remove(key);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            mRefreshesInFlight.remove(key);
+            Logger.warn(methodTag, "Could not schedule refresh.");
+        }
+    }
+
+    /**
+     * Removes every entry, from memory and storage.
+     */
+    public void clear() {
+        mEntries.clear();
+        final INameValueStorage<String> storage = mStorage;
+        if (storage != null) {
+            storage.clear();
+        }
+    }
+
+    @Nullable
+    private Entry load(@NonNull final String key) {
+        final String methodTag = TAG + ":load";
+
+        final INameValueStorage<String> storage = mStorage;
+        if (storage == null) {
+            return null;
+        }
+
+        final String json = storage.get(key);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            final PersistedEntry persisted = GSON.fromJson(json, PersistedEntry.class);
+            if (persisted != null && persisted.mBody != null) {
+                return new Entry(persisted.mBody, persisted.mExpiresAtMillis, persisted.mStaleUntilMillis);
+            }
+        } catch (final JsonParseException e) {
+            Logger.warn(methodTag, "Dropping unreadable entry.");
+        }
+        storage.remove(key);
+        return null;
+    }
+
+    private static long getMaxAgeMillis(@NonNull final HttpResponse response,
+                                        @Nullable final String cacheControl,
+                                        final long nowMillis) {
+        if (hasDirective(cacheControl, NO_CACHE) || hasDirective(cacheControl, NO_STORE)) {
+            return 0;
+        }
+
+        final long maxAgeSeconds = getDirectiveSeconds(cacheControl, MAX_AGE);
+        if (maxAgeSeconds >= 0) {
+            return TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        }
+
+        final String expires = getHeaderValue(response, EXPIRES);
+        if (expires != null) {
+            final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+            try {
+                return Math.max(0, httpDateFormat.parse(expires.trim()).getTime() - nowMillis);
+            } catch (final ParseException e) {
+                // An invalid date means already expired.
+                return 0;
+            }
+        }
+
+        return DEFAULT_MAX_AGE_MILLIS;
+    }
+
+    /**
+     * @return how long an entry may be served after it stopped being fresh: only as long as the
+     * response's stale-while-revalidate directive says, and never if it must be revalidated.
+     */
+    private static long getStaleWhileRevalidateMillis(@Nullable final String cacheControl) {
+        if (hasDirective(cacheControl, NO_CACHE) || hasDirective(cacheControl, NO_STORE)) {
+            return 0;
+        }
+
+        final long staleSeconds = getDirectiveSeconds(cacheControl, STALE_WHILE_REVALIDATE);
+        return staleSeconds >= 0 ? TimeUnit.SECONDS.toMillis(staleSeconds) : 0;
+    }
+
+    private static boolean hasDirective(@Nullable final String cacheControl, @NonNull final String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (final String part : cacheControl.split(",")) {
+            if (directive.equalsIgnoreCase(part.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the value of a "directive=seconds" entry of the Cache-Control header, or -1.
+     */
+    private static long getDirectiveSeconds(@Nullable final String cacheControl, @NonNull final String directive) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        for (final String part : cacheControl.split(",")) {
+            final String trimmed = part.trim();
+            final int equals = trimmed.indexOf('=');
+            if (equals > 0 && directive.equalsIgnoreCase(trimmed.substring(0, equals).trim())) {
+                try {
+                    return Math.max(0, Long.parseLong(trimmed.substring(equals + 1).trim().replace("\"", "")));
+                } catch (final NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    private static String getHeaderValue(@NonNull final HttpResponse response, @NonNull final String name) {
+        if (response.getHeaders() == null) {
+            return null;
+        }
+        for (final Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())
+                    && header.getValue() != null
+                    && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A cached document. Also holds the object it was parsed into by its first reader, so that
+     * it is not parsed again on every read.
+     */
+    public static final class Entry {
+        private final String mBody;
+        private final long mExpiresAtMillis;
+        private final long mStaleUntilMillis;
+        private volatile Object mParsedValue;
+
+        Entry(@NonNull final String body, final long expiresAtMillis, final long staleUntilMillis) {
+            mBody = body;
+            mExpiresAtMillis = expiresAtMillis;
+            mStaleUntilMillis = staleUntilMillis;
+        }
+
+        @NonNull
+        public String getBody() {
+            return mBody;
+        }
+
+        /**
+         * @return true if the entry may be used without refreshing it.
+         */
+        public boolean isFresh(final long nowMillis) {
+            return nowMillis < mExpiresAtMillis;
+        }
+
+        boolean isUsable(final long nowMillis) {
+            return nowMillis < mStaleUntilMillis;
+        }
+
+        /**
+         * @return the parsed object previously set, if it is of the given type.
+         */
+        @Nullable
+        public <T> T getParsedValue(@NonNull final Class<T> type) {
+            final Object parsedValue = mParsedValue;
+            return type.isInstance(parsedValue) ? type.cast(parsedValue) : null;
+        }
+
+        public void setParsedValue(@NonNull final Object parsedValue) {
+            mParsedValue = parsedValue;
+        }
+    }
+
+    private static final class PersistedEntry {
+        @SerializedName("body")
+        private String mBody;
+
+        @SerializedName("expires_at")
+        private long mExpiresAtMillis;
+
+        @SerializedName("stale_until")
+        private long mStaleUntilMillis;
+
+        PersistedEntry(@NonNull final Entry entry) {
+            mBody = entry.mBody;
+            mExpiresAtMillis = entry.mExpiresAtMillis;
+            mStaleUntilMillis = entry.mStaleUntilMillis;
+        }
+    }
+}
@@ -100,6 +100,7 @@ public class BrokerOAuth2TokenCache
     private final MicrosoftFamilyOAuth2TokenCache mFociCache;
     private final int mUid;
     private ProcessUidCacheFactory mDelegate = null;
+    private ProcessUidCacheRegistry mUidCacheRegistry = null;
 
     /**
      * Constructs a new BrokerOAuth2TokenCache.
@@ -123,6 +124,23 @@ public class BrokerOAuth2TokenCache
         mApplicationMetadataCache = applicationMetadataCache;
     }
 
+    /**
+     * Constructs a new BrokerOAuth2TokenCache whose per-uid caches are served from the supplied
+     * {@link ProcessUidCacheRegistry}.
+     *
+     * @param components               The current platform components.
+     * @param uid                      UID of the current unix user.
+     * @param applicationMetadataCache The metadata cache to use.
+     * @param uidCacheRegistry         The process-wide registry of per-uid caches.
+     */
+    public BrokerOAuth2TokenCache(@NonNull final IPlatformComponents components,
+                                  int uid,
+                                  @NonNull IBrokerApplicationMetadataCache applicationMetadataCache,
+                                  @NonNull final ProcessUidCacheRegistry uidCacheRegistry) {
+        this(components, uid, applicationMetadataCache);
+        mUidCacheRegistry = uidCacheRegistry;
+    }
+
     /**
      * Interface used to inject process-uid based caches into the broker.
      */
@@ -1243,6 +1261,7 @@ public class BrokerOAuth2TokenCache
         );
 
         final List<AccountDeletionRecord> deletionRecordList = new ArrayList<>();
+        final Set<Integer> affectedUids = new HashSet<>();
 
         for (final String clientId : allClientIds) {
             deletionRecordList.add(
@@ -1251,7 +1270,8 @@ public class BrokerOAuth2TokenCache
                             clientId,
                             accountRecord.getHomeAccountId(),
                             null,
-                            true
+                            true,
+                            affectedUids
                     )
             );
         }
@@ -1270,6 +1290,8 @@ public class BrokerOAuth2TokenCache
                         + "] AccountRecords."
         );
 
+        invalidateUidCaches(affectedUids);
+
         return new AccountDeletionRecord(deletedAccountRecords);
     }
 
@@ -1297,7 +1319,8 @@ public class BrokerOAuth2TokenCache
                 clientId,
                 homeAccountId,
                 realm,
-                false
+                false,
+                null
         );
     }
 
@@ -1319,6 +1342,7 @@ public class BrokerOAuth2TokenCache
     @Override
     public void clearAll() {
         final List<BrokerApplicationMetadata> allClientsMetadata = mApplicationMetadataCache.getAll();
+        final Set<Integer> clearedUids = new HashSet<>();
         for (final BrokerApplicationMetadata clientMetadata : allClientsMetadata) {
             final OAuth2TokenCache clientTokenCache = getTokenCacheForClient(
                     clientMetadata.getClientId(),
@@ -1328,11 +1352,27 @@ public class BrokerOAuth2TokenCache
 
             if (clientTokenCache != null) {
                 clientTokenCache.clearAll();
+                clearedUids.add(clientMetadata.getUid());
             }
         }
 
         this.mFociCache.clearAll();
         this.mApplicationMetadataCache.clear();
+
+        invalidateUidCaches(clearedUids);
+    }
+
+    /**
+     * Drops the in-memory caches of the supplied uids, if a {@link ProcessUidCacheRegistry} is in
+     * use, so that subsequent requests for them observe the persisted state. The caches of other
+     * uids stay resident.
+     */
+    private void invalidateUidCaches(@NonNull final Set<Integer> uids) {
+        if (null != mUidCacheRegistry) {
+            for (final int uid : uids) {
+                mUidCacheRegistry.invalidate(uid);
+            }
+        }
     }
 
     /**
@@ -1481,30 +1521,35 @@ public class BrokerOAuth2TokenCache
                                                         @Nullable final String clientId,
                                                         @Nullable final String homeAccountId,
                                                         @Nullable final String realm,
-                                                        boolean deviceWide) {
+                                                        boolean deviceWide,
+                                                        @Nullable final Set<Integer> affectedUids) {
         final String methodName = ":removeAccountInternal";
 
         final List<BrokerApplicationMetadata> allMetadata = mApplicationMetadataCache.getAll();
         final List<AccountDeletionRecord> deletionRecordList = new ArrayList<>();
 
         for (final BrokerApplicationMetadata metadata : allMetadata) {
+            final int uid = deviceWide
+                    ? metadata.getUid() // Supports the removeAccountFromDevice() function
+                    : mUid;
             final OAuth2TokenCache candidateCache = getTokenCacheForClient(
                     metadata.getClientId(),
                     metadata.getEnvironment(),
-                    deviceWide
-                            ? metadata.getUid() // Supports the removeAccountFromDevice() function
-                            : mUid
+                    uid
             );
 
             if (null != candidateCache) {
-                deletionRecordList.add(
-                        candidateCache.removeAccount(
-                                environment,
-                                clientId,
-                                homeAccountId,
-                                realm
-                        )
+                final AccountDeletionRecord deletionRecord = candidateCache.removeAccount(
+                        environment,
+                        clientId,
+                        homeAccountId,
+                        realm
                 );
+                deletionRecordList.add(deletionRecord);
+
+                if (null != affectedUids && !deletionRecord.isEmpty()) {
+                    affectedUids.add(uid);
+                }
             }
         }
 
@@ -1598,6 +1643,10 @@ public class BrokerOAuth2TokenCache
                 "Initializing uid cache."
         );
 
+        if (null != mUidCacheRegistry) {
+            return mUidCacheRegistry.getTokenCache(components, uid);
+        }
+
         if (null != mDelegate) {
             Logger.warn(
                     TAG + methodName,
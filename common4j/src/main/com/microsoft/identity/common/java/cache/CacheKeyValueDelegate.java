@@ -24,10 +24,15 @@ package com.microsoft.identity.common.java.cache;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.microsoft.identity.common.java.WarningType;
 import com.microsoft.identity.common.java.dto.AccessTokenRecord;
 import com.microsoft.identity.common.java.dto.AccountCredentialBase;
@@ -40,6 +45,9 @@ import com.microsoft.identity.common.java.logging.Logger;
 import com.microsoft.identity.common.java.providers.oauth2.TokenRequest;
 import com.microsoft.identity.common.java.util.StringUtil;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -61,6 +69,7 @@ import static com.microsoft.identity.common.java.cache.CacheKeyValueDelegate.Cac
 import static com.microsoft.identity.common.java.cache.CacheKeyValueDelegate.CacheKeyReplacements.TARGET;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
 
 /**
  * Uses Gson to serialize instances into {@link String}s.
@@ -75,6 +84,13 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
     public static final String CACHE_VALUE_SEPARATOR = "-";
     private static final String FOCI_PREFIX = "foci-";
 
+    /**
+     * Initial capacity for building a cache key, large enough for most keys.
+     */
+    private static final int CACHE_KEY_CAPACITY = 256;
+    private static final char PLACEHOLDER_START = '<';
+    private static final char ASCII_LIMIT = 0x80;
+
     private final Gson mGson;
 
     /**
@@ -100,6 +116,24 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
 
     @Override
     public String generateCacheKey(AccountRecord account) {
+        final StringBuilder builder = new StringBuilder(CACHE_KEY_CAPACITY);
+
+        boolean placeholderFree = appendSanitized(builder, account.getHomeAccountId());
+        builder.append(CACHE_VALUE_SEPARATOR);
+        placeholderFree &= appendSanitized(builder, account.getEnvironment());
+        builder.append(CACHE_VALUE_SEPARATOR);
+        placeholderFree &= appendSanitized(builder, account.getRealm());
+
+        return placeholderFree ? builder.toString() : generateCacheKeyFromTemplate(account);
+    }
+
+    /**
+     * Builds the cache key of the supplied Account by substituting its fields into a template.
+     * Every key must stay identical to the ones produced by this method, which older versions
+     * used to persist the cache.
+     */
+    //@VisibleForTesting
+    String generateCacheKeyFromTemplate(AccountRecord account) {
         String cacheKey = HOME_ACCOUNT_ID
                 + CACHE_VALUE_SEPARATOR
                 + ENVIRONMENT
@@ -112,7 +146,33 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
         return cacheKey;
     }
 
-    private String generateCacheValueInternal(final Object baseObject) {
+    private String generateCacheValueInternal(final AccountCredentialBase baseObject) {
+        final CacheRecordTypeAdapter<AccountCredentialBase> adapter =
+                CacheRecordTypeAdapter.forClass(baseObject.getClass());
+
+        if (null == adapter || !adapter.canWrite(baseObject)) {
+            return generateCacheValueWithObjectModel(baseObject);
+        }
+
+        try {
+            final StringWriter stringWriter = new StringWriter();
+            final JsonWriter jsonWriter = mGson.newJsonWriter(stringWriter);
+            // Match the settings Gson applies when writing a JsonElement.
+            jsonWriter.setLenient(true);
+            jsonWriter.setHtmlSafe(mGson.htmlSafe());
+            adapter.write(jsonWriter, baseObject);
+            return stringWriter.toString();
+        } catch (final IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Serializes the supplied object through a Gson object model, then merges its additional
+     * fields into it. Used for the records which {@link CacheRecordTypeAdapter} does not cover.
+     */
+    //@VisibleForTesting
+    String generateCacheValueWithObjectModel(final Object baseObject) {
         JsonElement outboundElement = mGson.toJsonTree(baseObject);
         JsonObject outboundObject = outboundElement.getAsJsonObject();
 
@@ -137,9 +197,82 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
         return result;
     }
 
-    @SuppressWarnings("checkstyle:innerassignment")
     @Override
     public String generateCacheKey(Credential credential) {
+        final StringBuilder builder = new StringBuilder(CACHE_KEY_CAPACITY);
+
+        boolean placeholderFree = appendSanitized(builder, credential.getHomeAccountId());
+        builder.append(CACHE_VALUE_SEPARATOR);
+        placeholderFree &= appendSanitized(builder, credential.getEnvironment());
+        builder.append(CACHE_VALUE_SEPARATOR);
+        placeholderFree &= appendSanitized(builder, credential.getCredentialType());
+        builder.append(CACHE_VALUE_SEPARATOR);
+
+        final String familyId = credential instanceof RefreshTokenRecord
+                ? ((RefreshTokenRecord) credential).getFamilyId()
+                : null;
+
+        if (!StringUtil.isNullOrEmpty(familyId)) {
+            final String familyIdForCacheKey = familyId.startsWith(FOCI_PREFIX)
+                    ? familyId.replace(FOCI_PREFIX, "")
+                    : familyId;
+            builder.append(familyIdForCacheKey);
+            placeholderFree &= familyIdForCacheKey.indexOf(PLACEHOLDER_START) < 0;
+        } else {
+            placeholderFree &= appendSanitized(builder, credential.getClientId());
+        }
+        builder.append(CACHE_VALUE_SEPARATOR);
+
+        if (credential instanceof AccessTokenRecord) {
+            final AccessTokenRecord accessToken = (AccessTokenRecord) credential;
+            placeholderFree &= appendSanitized(builder, accessToken.getRealm());
+            builder.append(CACHE_VALUE_SEPARATOR);
+            placeholderFree &= appendSanitized(builder, accessToken.getTarget());
+
+            if (!StringUtil.isNullOrEmpty(accessToken.getApplicationIdentifier())) {
+                builder.append(CACHE_VALUE_SEPARATOR);
+                placeholderFree &= appendSanitized(builder, accessToken.getApplicationIdentifier());
+            }
+
+            if (!StringUtil.isNullOrEmpty(accessToken.getMamEnrollmentIdentifier())) {
+                builder.append(CACHE_VALUE_SEPARATOR);
+                placeholderFree &= appendSanitized(builder, accessToken.getMamEnrollmentIdentifier());
+            }
+
+            if (TokenRequest.TokenType.POP.equalsIgnoreCase(accessToken.getAccessTokenType())) {
+                builder.append(CACHE_VALUE_SEPARATOR);
+                placeholderFree &= appendSanitized(builder, accessToken.getAccessTokenType());
+            }
+
+            if (!StringUtil.isNullOrEmpty(accessToken.getRequestedClaims())) {
+                // The Requested Claims string has no guarantee it doesn't contain a delimiter, so we hash it
+                builder.append(CACHE_VALUE_SEPARATOR);
+                builder.append(StringUtil.sanitizeNullAndLowercaseAndTrim(accessToken.getRequestedClaims()).hashCode());
+            }
+        } else if (credential instanceof RefreshTokenRecord) {
+            builder.append(CACHE_VALUE_SEPARATOR);
+            placeholderFree &= appendSanitized(builder, ((RefreshTokenRecord) credential).getTarget());
+        } else if (credential instanceof IdTokenRecord) {
+            placeholderFree &= appendSanitized(builder, ((IdTokenRecord) credential).getRealm());
+            builder.append(CACHE_VALUE_SEPARATOR);
+        } else if (credential instanceof PrimaryRefreshTokenRecord) {
+            builder.append(CACHE_VALUE_SEPARATOR);
+        } else {
+            // Unknown credential types keep the realm and target placeholders, as the template does.
+            builder.append(REALM).append(CACHE_VALUE_SEPARATOR).append(TARGET);
+        }
+
+        return placeholderFree ? builder.toString() : generateCacheKeyFromTemplate(credential);
+    }
+
+    /**
+     * Builds the cache key of the supplied Credential by substituting its fields into a template.
+     * Every key must stay identical to the ones produced by this method, which older versions
+     * used to persist the cache.
+     */
+    @SuppressWarnings("checkstyle:innerassignment")
+    //@VisibleForTesting
+    String generateCacheKeyFromTemplate(Credential credential) {
         String cacheKey =
                 HOME_ACCOUNT_ID + CACHE_VALUE_SEPARATOR
                         + ENVIRONMENT + CACHE_VALUE_SEPARATOR
@@ -208,6 +341,58 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
         return cacheKey;
     }
 
+    /**
+     * Appends the value to the builder the way {@link StringUtil#sanitizeNullAndLowercaseAndTrim(String)}
+     * would produce it, without creating intermediate Strings for ASCII values.
+     *
+     * @return False if the value contains the start of a template placeholder. The template
+     * substitutes placeholders found inside previously substituted values too, so such keys
+     * must be built from the template to stay identical.
+     */
+    private static boolean appendSanitized(@NonNull final StringBuilder builder,
+                                           @Nullable final String value) {
+        if (null == value) {
+            return true;
+        }
+
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        boolean hasUpperCase = false;
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c >= ASCII_LIMIT) {
+                // Leave locale-sensitive lowercasing to String.toLowerCase.
+                final String sanitized = StringUtil.sanitizeNullAndLowercaseAndTrim(value);
+                builder.append(sanitized);
+                return sanitized.indexOf(PLACEHOLDER_START) < 0;
+            }
+            if (c == PLACEHOLDER_START) {
+                builder.append(StringUtil.sanitizeNullAndLowercaseAndTrim(value));
+                return false;
+            }
+            hasUpperCase |= c >= 'A' && c <= 'Z';
+        }
+
+        if (!hasUpperCase) {
+            builder.append(value, start, end);
+            return true;
+        }
+
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            builder.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+
+        return true;
+    }
+
     @Override
     public String generateCacheValue(Credential credential) {
         final String result = generateCacheValueInternal(credential);
@@ -219,6 +404,46 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
     public <T extends AccountCredentialBase> T fromCacheValue(String string, Class<? extends AccountCredentialBase> t) {
         final String methodName = "fromCacheValue";
 
+        final CacheRecordTypeAdapter<T> adapter = CacheRecordTypeAdapter.forClass(t);
+
+        if (null == adapter) {
+            return fromCacheValueWithObjectModel(string, t);
+        }
+
+        if (StringUtil.isNullOrEmpty(string)) {
+            return null;
+        }
+
+        try {
+            final JsonReader jsonReader = mGson.newJsonReader(new StringReader(string));
+            // Gson parses leniently when reading into an object or a JsonElement.
+            jsonReader.setLenient(true);
+            final T resultObject = adapter.read(jsonReader);
+
+            if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+
+            return resultObject;
+        } catch (final IOException | IllegalStateException | JsonParseException e) {
+            Logger.error(
+                    TAG + ":" + methodName,
+                    "Failed to parse cache value.",
+                    null
+            );
+            return null;
+        }
+    }
+
+    /**
+     * Deserializes the supplied value with Gson's reflective adapter, then parses it again to
+     * collect the additional fields. Used for the records which {@link CacheRecordTypeAdapter}
+     * does not cover.
+     */
+    //@VisibleForTesting
+    <T extends AccountCredentialBase> T fromCacheValueWithObjectModel(String string, Class<? extends AccountCredentialBase> t) {
+        final String methodName = "fromCacheValueWithObjectModel";
+
         try {
             @SuppressWarnings(WarningType.unchecked_warning)
             final T resultObject = (T) mGson.fromJson(string, t);
@@ -0,0 +1,568 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.AccountCredentialBase;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Streaming, reflection-free (de)serializer for the cache records.
+ * <p>
+ * Produces the same JSON as serializing a record through a Gson object model and merging its
+ * additional fields into it: declared fields in Gson's reflective order (the record's own fields
+ * first, then those it inherits), null fields omitted, then the additional fields. On read, every
+ * name which is not a declared field is kept in the record's additional fields.
+ */
+abstract class CacheRecordTypeAdapter<T extends AccountCredentialBase> extends TypeAdapter<T> {
+
+    private static final Gson GSON = new Gson();
+    private static final TypeAdapter<String> STRING_ADAPTER = GSON.getAdapter(String.class);
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT_ADAPTER = GSON.getAdapter(JsonElement.class);
+
+    private static final String[] CREDENTIAL_FIELDS = {
+            Credential.SerializedNames.CLIENT_ID,
+            Credential.SerializedNames.CREDENTIAL_TYPE,
+            Credential.SerializedNames.ENVIRONMENT,
+            Credential.SerializedNames.SECRET,
+            Credential.SerializedNames.HOME_ACCOUNT_ID,
+            Credential.SerializedNames.CACHED_AT
+    };
+
+    private static final Map<Class<?>, CacheRecordTypeAdapter<?>> ADAPTERS;
+
+    static {
+        final Map<Class<?>, CacheRecordTypeAdapter<?>> adapters = new HashMap<>();
+        adapters.put(AccountRecord.class, new AccountRecordAdapter());
+        adapters.put(AccessTokenRecord.class, new AccessTokenRecordAdapter());
+        adapters.put(RefreshTokenRecord.class, new RefreshTokenRecordAdapter());
+        adapters.put(IdTokenRecord.class, new IdTokenRecordAdapter());
+        adapters.put(PrimaryRefreshTokenRecord.class, new PrimaryRefreshTokenRecordAdapter());
+        ADAPTERS = Collections.unmodifiableMap(adapters);
+    }
+
+    private final Set<String> mDeclaredFields;
+
+    CacheRecordTypeAdapter(@NonNull final String... declaredFields) {
+        mDeclaredFields = new HashSet<>(Arrays.asList(declaredFields));
+    }
+
+    /**
+     * Returns the adapter for records of exactly the supplied class, or null if there is none.
+     * Subclasses of the record types are not covered, since they may declare more fields.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static <T extends AccountCredentialBase> CacheRecordTypeAdapter<T> forClass(@NonNull final Class<?> clazz) {
+        return (CacheRecordTypeAdapter<T>) ADAPTERS.get(clazz);
+    }
+
+    /**
+     * The object model path replaces a declared field in place when an additional field has the
+     * same name. Such records are rare, and are left to that path.
+     *
+     * @return True if the supplied record can be written by this adapter.
+     */
+    boolean canWrite(@NonNull final T record) {
+        final Map<String, JsonElement> additionalFields = record.getAdditionalFields();
+
+        synchronized (additionalFields) {
+            for (final String name : additionalFields.keySet()) {
+                if (mDeclaredFields.contains(name)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public void write(@NonNull final JsonWriter out, @NonNull final T record) throws IOException {
+        out.beginObject();
+        writeDeclaredFields(out, record);
+
+        final Map<String, JsonElement> additionalFields = record.getAdditionalFields();
+
+        synchronized (additionalFields) {
+            for (final Map.Entry<String, JsonElement> additionalField : additionalFields.entrySet()) {
+                out.name(additionalField.getKey());
+                JSON_ELEMENT_ADAPTER.write(out, additionalField.getValue());
+            }
+        }
+
+        out.endObject();
+    }
+
+    @Override
+    @Nullable
+    public T read(@NonNull final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        final T record = newRecord();
+        final Map<String, JsonElement> additionalFields = new HashMap<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            final String name = in.nextName();
+
+            if (!readDeclaredField(name, in, record)) {
+                final JsonElement value = JSON_ELEMENT_ADAPTER.read(in);
+                additionalFields.put(name, value);
+                onAdditionalField(name, value, record);
+            }
+        }
+        in.endObject();
+
+        record.setAdditionalFields(additionalFields);
+        return record;
+    }
+
+    abstract T newRecord();
+
+    /**
+     * Writes the non-null declared fields of the record, in Gson's reflective order.
+     */
+    abstract void writeDeclaredFields(@NonNull JsonWriter out, @NonNull T record) throws IOException;
+
+    /**
+     * Reads the value of the named field into the record, if it is a declared field.
+     *
+     * @return True if the value was consumed.
+     */
+    abstract boolean readDeclaredField(@NonNull String name, @NonNull JsonReader in, @NonNull T record) throws IOException;
+
+    /**
+     * Called for each value kept in the additional fields.
+     */
+    void onAdditionalField(@NonNull final String name, @NonNull final JsonElement value, @NonNull final T record) {
+        // Nothing by default.
+    }
+
+    private static void writeString(@NonNull final JsonWriter out,
+                                    @NonNull final String name,
+                                    @Nullable final String value) throws IOException {
+        if (null != value) {
+            out.name(name).value(value);
+        }
+    }
+
+    /**
+     * Reads a String the same way Gson's reflective adapter reads a String field.
+     */
+    @Nullable
+    private static String readString(@NonNull final JsonReader in) throws IOException {
+        return STRING_ADAPTER.read(in);
+    }
+
+    private static void writeCredentialFields(@NonNull final JsonWriter out,
+                                              @NonNull final Credential credential) throws IOException {
+        writeString(out, Credential.SerializedNames.CLIENT_ID, credential.getClientId());
+        writeString(out, Credential.SerializedNames.CREDENTIAL_TYPE, credential.getCredentialType());
+        writeString(out, Credential.SerializedNames.ENVIRONMENT, credential.getEnvironment());
+        writeString(out, Credential.SerializedNames.SECRET, credential.getSecret());
+        writeString(out, Credential.SerializedNames.HOME_ACCOUNT_ID, credential.getHomeAccountId());
+        writeString(out, Credential.SerializedNames.CACHED_AT, credential.getCachedAt());
+    }
+
+    private static boolean readCredentialField(@NonNull final String name,
+                                               @NonNull final JsonReader in,
+                                               @NonNull final Credential credential) throws IOException {
+        switch (name) {
+            case Credential.SerializedNames.CLIENT_ID:
+                credential.setClientId(readString(in));
+                return true;
+            case Credential.SerializedNames.CREDENTIAL_TYPE:
+                credential.setCredentialType(readString(in));
+                return true;
+            case Credential.SerializedNames.ENVIRONMENT:
+                credential.setEnvironment(readString(in));
+                return true;
+            case Credential.SerializedNames.SECRET:
+                credential.setSecret(readString(in));
+                return true;
+            case Credential.SerializedNames.HOME_ACCOUNT_ID:
+                credential.setHomeAccountId(readString(in));
+                return true;
+            case Credential.SerializedNames.CACHED_AT:
+                credential.setCachedAt(readString(in));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String[] withCredentialFields(@NonNull final String... declaredFields) {
+        final String[] result = Arrays.copyOf(declaredFields, declaredFields.length + CREDENTIAL_FIELDS.length);
+        System.arraycopy(CREDENTIAL_FIELDS, 0, result, declaredFields.length, CREDENTIAL_FIELDS.length);
+        return result;
+    }
+
+    private static final class AccountRecordAdapter extends CacheRecordTypeAdapter<AccountRecord> {
+
+        AccountRecordAdapter() {
+            super(
+                    AccountRecord.SerializedNames.HOME_ACCOUNT_ID,
+                    AccountRecord.SerializedNames.ENVIRONMENT,
+                    AccountRecord.SerializedNames.REALM,
+                    AccountRecord.SerializedNames.LOCAL_ACCOUNT_ID,
+                    AccountRecord.SerializedNames.USERNAME,
+                    AccountRecord.SerializedNames.AUTHORITY_TYPE,
+                    AccountRecord.SerializedNames.ALTERNATIVE_ACCOUNT_ID,
+                    AccountRecord.SerializedNames.FIRST_NAME,
+                    AccountRecord.SerializedNames.FAMILY_NAME,
+                    AccountRecord.SerializedNames.MIDDLE_NAME,
+                    AccountRecord.SerializedNames.NAME,
+                    AccountRecord.SerializedNames.AVATAR_URL,
+                    AccountRecord.SerializedNames.CLIENT_INFO
+            );
+        }
+
+        @Override
+        AccountRecord newRecord() {
+            return new AccountRecord();
+        }
+
+        @Override
+        void writeDeclaredFields(@NonNull final JsonWriter out, @NonNull final AccountRecord record) throws IOException {
+            writeString(out, AccountRecord.SerializedNames.HOME_ACCOUNT_ID, record.getHomeAccountId());
+            writeString(out, AccountRecord.SerializedNames.ENVIRONMENT, record.getEnvironment());
+            writeString(out, AccountRecord.SerializedNames.REALM, record.getRealm());
+            writeString(out, AccountRecord.SerializedNames.LOCAL_ACCOUNT_ID, record.getLocalAccountId());
+            writeString(out, AccountRecord.SerializedNames.USERNAME, record.getUsername());
+            writeString(out, AccountRecord.SerializedNames.AUTHORITY_TYPE, record.getAuthorityType());
+            writeString(out, AccountRecord.SerializedNames.ALTERNATIVE_ACCOUNT_ID, record.getAlternativeAccountId());
+            writeString(out, AccountRecord.SerializedNames.FIRST_NAME, record.getFirstName());
+            writeString(out, AccountRecord.SerializedNames.FAMILY_NAME, record.getFamilyName());
+            writeString(out, AccountRecord.SerializedNames.MIDDLE_NAME, record.getMiddleName());
+            writeString(out, AccountRecord.SerializedNames.NAME, record.getName());
+            writeString(out, AccountRecord.SerializedNames.AVATAR_URL, record.getAvatarUrl());
+            writeString(out, AccountRecord.SerializedNames.CLIENT_INFO, record.getClientInfo());
+        }
+
+        @Override
+        boolean readDeclaredField(@NonNull final String name,
+                                  @NonNull final JsonReader in,
+                                  @NonNull final AccountRecord record) throws IOException {
+            switch (name) {
+                case AccountRecord.SerializedNames.HOME_ACCOUNT_ID:
+                    record.setHomeAccountId(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.ENVIRONMENT:
+                    record.setEnvironment(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.REALM:
+                    record.setRealm(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.LOCAL_ACCOUNT_ID:
+                    record.setLocalAccountId(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.USERNAME:
+                    record.setUsername(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.AUTHORITY_TYPE:
+                    record.setAuthorityType(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.ALTERNATIVE_ACCOUNT_ID:
+                    record.setAlternativeAccountId(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.FIRST_NAME:
+                    record.setFirstName(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.FAMILY_NAME:
+                    record.setFamilyName(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.MIDDLE_NAME:
+                    record.setMiddleName(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.NAME:
+                    record.setName(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.AVATAR_URL:
+                    record.setAvatarUrl(readString(in));
+                    return true;
+                case AccountRecord.SerializedNames.CLIENT_INFO:
+                    record.setClientInfo(readString(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static final class AccessTokenRecordAdapter extends CacheRecordTypeAdapter<AccessTokenRecord> {
+
+        AccessTokenRecordAdapter() {
+            super(withCredentialFields(
+                    AccessTokenRecord.SerializedNames.REQUESTED_CLAIMS,
+                    AccessTokenRecord.SerializedNames.KID,
+                    AccessTokenRecord.SerializedNames.TOKEN_TYPE,
+                    AccessTokenRecord.SerializedNames.AUTHORITY,
+                    AccessTokenRecord.SerializedNames.EXTENDED_EXPIRES_ON,
+                    AccessTokenRecord.SerializedNames.REALM,
+                    AccessTokenRecord.SerializedNames.TARGET,
+                    AccessTokenRecord.SerializedNames.EXPIRES_ON,
+                    AccessTokenRecord.SerializedNames.REFRESH_ON,
+                    AccessTokenRecord.SerializedNames.APPLICATION_IDENTIFIER,
+                    AccessTokenRecord.SerializedNames.MAM_ENROLLMENT_IDENTIFIER
+            ));
+        }
+
+        @Override
+        AccessTokenRecord newRecord() {
+            return new AccessTokenRecord();
+        }
+
+        @Override
+        void writeDeclaredFields(@NonNull final JsonWriter out, @NonNull final AccessTokenRecord record) throws IOException {
+            writeString(out, AccessTokenRecord.SerializedNames.REQUESTED_CLAIMS, record.getRequestedClaims());
+            writeString(out, AccessTokenRecord.SerializedNames.KID, record.getKid());
+            writeString(out, AccessTokenRecord.SerializedNames.TOKEN_TYPE, record.getAccessTokenType());
+            writeString(out, AccessTokenRecord.SerializedNames.AUTHORITY, record.getAuthority());
+            writeString(out, AccessTokenRecord.SerializedNames.EXTENDED_EXPIRES_ON, record.getExtendedExpiresOn());
+            writeString(out, AccessTokenRecord.SerializedNames.REALM, record.getRealm());
+            writeString(out, AccessTokenRecord.SerializedNames.TARGET, record.getTarget());
+            writeString(out, AccessTokenRecord.SerializedNames.EXPIRES_ON, record.getExpiresOn());
+            writeString(out, AccessTokenRecord.SerializedNames.REFRESH_ON, record.getRefreshOn());
+            writeString(out, AccessTokenRecord.SerializedNames.APPLICATION_IDENTIFIER, record.getApplicationIdentifier());
+            writeString(out, AccessTokenRecord.SerializedNames.MAM_ENROLLMENT_IDENTIFIER, record.getMamEnrollmentIdentifier());
+            writeCredentialFields(out, record);
+        }
+
+        @Override
+        boolean readDeclaredField(@NonNull final String name,
+                                  @NonNull final JsonReader in,
+                                  @NonNull final AccessTokenRecord record) throws IOException {
+            switch (name) {
+                case AccessTokenRecord.SerializedNames.REQUESTED_CLAIMS:
+                    record.setRequestedClaims(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.KID:
+                    record.setKid(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.TOKEN_TYPE:
+                    record.setAccessTokenType(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.AUTHORITY:
+                    record.setAuthority(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.EXTENDED_EXPIRES_ON:
+                    record.setExtendedExpiresOn(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.REALM:
+                    record.setRealm(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.TARGET:
+                    record.setTarget(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.EXPIRES_ON:
+                    record.setExpiresOn(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.REFRESH_ON:
+                    record.setRefreshOn(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.APPLICATION_IDENTIFIER:
+                    record.setApplicationIdentifier(readString(in));
+                    return true;
+                case AccessTokenRecord.SerializedNames.MAM_ENROLLMENT_IDENTIFIER:
+                    record.setMamEnrollmentIdentifier(readString(in));
+                    return true;
+                default:
+                    return readCredentialField(name, in, record);
+            }
+        }
+
+        /**
+         * The legacy access_token_type name is an alternate name of token_type. Gson reads it into
+         * the token type, but it is not an expected field, so it is kept in the additional fields too.
+         */
+        @Override
+        void onAdditionalField(@NonNull final String name,
+                               @NonNull final JsonElement value,
+                               @NonNull final AccessTokenRecord record) {
+            if (AccessTokenRecord.SerializedNames.ACCESS_TOKEN_TYPE.equals(name)) {
+                if (value.isJsonNull()) {
+                    record.setAccessTokenType(null);
+                } else if (value.isJsonPrimitive()) {
+                    record.setAccessTokenType(value.getAsString());
+                } else {
+                    throw new JsonSyntaxException("Expected a string for " + name);
+                }
+            }
+        }
+    }
+
+    private static final class RefreshTokenRecordAdapter extends CacheRecordTypeAdapter<RefreshTokenRecord> {
+
+        RefreshTokenRecordAdapter() {
+            super(withCredentialFields(
+                    RefreshTokenRecord.SerializedNames.FAMILY_ID,
+                    RefreshTokenRecord.SerializedNames.TARGET
+            ));
+        }
+
+        @Override
+        RefreshTokenRecord newRecord() {
+            return new RefreshTokenRecord();
+        }
+
+        @Override
+        void writeDeclaredFields(@NonNull final JsonWriter out, @NonNull final RefreshTokenRecord record) throws IOException {
+            writeString(out, RefreshTokenRecord.SerializedNames.FAMILY_ID, record.getFamilyId());
+            writeString(out, RefreshTokenRecord.SerializedNames.TARGET, record.getTarget());
+            writeCredentialFields(out, record);
+        }
+
+        @Override
+        boolean readDeclaredField(@NonNull final String name,
+                                  @NonNull final JsonReader in,
+                                  @NonNull final RefreshTokenRecord record) throws IOException {
+            switch (name) {
+                case RefreshTokenRecord.SerializedNames.FAMILY_ID:
+                    record.setFamilyId(readString(in));
+                    return true;
+                case RefreshTokenRecord.SerializedNames.TARGET:
+                    record.setTarget(readString(in));
+                    return true;
+                default:
+                    return readCredentialField(name, in, record);
+            }
+        }
+    }
+
+    private static final class IdTokenRecordAdapter extends CacheRecordTypeAdapter<IdTokenRecord> {
+
+        IdTokenRecordAdapter() {
+            super(withCredentialFields(
+                    IdTokenRecord.SerializedNames.REALM,
+                    IdTokenRecord.SerializedNames.AUTHORITY
+            ));
+        }
+
+        @Override
+        IdTokenRecord newRecord() {
+            return new IdTokenRecord();
+        }
+
+        @Override
+        void writeDeclaredFields(@NonNull final JsonWriter out, @NonNull final IdTokenRecord record) throws IOException {
+            writeString(out, IdTokenRecord.SerializedNames.REALM, record.getRealm());
+            writeString(out, IdTokenRecord.SerializedNames.AUTHORITY, record.getAuthority());
+            writeCredentialFields(out, record);
+        }
+
+        @Override
+        boolean readDeclaredField(@NonNull final String name,
+                                  @NonNull final JsonReader in,
+                                  @NonNull final IdTokenRecord record) throws IOException {
+            switch (name) {
+                case IdTokenRecord.SerializedNames.REALM:
+                    record.setRealm(readString(in));
+                    return true;
+                case IdTokenRecord.SerializedNames.AUTHORITY:
+                    record.setAuthority(readString(in));
+                    return true;
+                default:
+                    return readCredentialField(name, in, record);
+            }
+        }
+    }
+
+    private static final class PrimaryRefreshTokenRecordAdapter extends CacheRecordTypeAdapter<PrimaryRefreshTokenRecord> {
+
+        PrimaryRefreshTokenRecordAdapter() {
+            super(withCredentialFields(
+                    PrimaryRefreshTokenRecord.SerializedNames.FAMILY_ID,
+                    PrimaryRefreshTokenRecord.SerializedNames.EXPIRES_ON,
+                    PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY,
+                    PrimaryRefreshTokenRecord.SerializedNames.PRT_PROTOCOL_VERSION,
+                    PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY_ROLLING_DATE
+            ));
+        }
+
+        @Override
+        PrimaryRefreshTokenRecord newRecord() {
+            return new PrimaryRefreshTokenRecord();
+        }
+
+        @Override
+        void writeDeclaredFields(@NonNull final JsonWriter out, @NonNull final PrimaryRefreshTokenRecord record) throws IOException {
+            writeString(out, PrimaryRefreshTokenRecord.SerializedNames.FAMILY_ID, record.getFamilyId());
+            writeString(out, PrimaryRefreshTokenRecord.SerializedNames.EXPIRES_ON, record.getExpiresOn());
+            writeString(out, PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY, record.getSessionKey());
+            writeString(out, PrimaryRefreshTokenRecord.SerializedNames.PRT_PROTOCOL_VERSION, record.getPrtProtocolVersion());
+            writeString(out, PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY_ROLLING_DATE, record.getSessionKeyRollingDate());
+            writeCredentialFields(out, record);
+        }
+
+        @Override
+        boolean readDeclaredField(@NonNull final String name,
+                                  @NonNull final JsonReader in,
+                                  @NonNull final PrimaryRefreshTokenRecord record) throws IOException {
+            switch (name) {
+                case PrimaryRefreshTokenRecord.SerializedNames.FAMILY_ID:
+                    record.setFamilyId(readString(in));
+                    return true;
+                case PrimaryRefreshTokenRecord.SerializedNames.EXPIRES_ON:
+                    record.setExpiresOn(readString(in));
+                    return true;
+                case PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY:
+                    record.setSessionKey(readString(in));
+                    return true;
+                case PrimaryRefreshTokenRecord.SerializedNames.PRT_PROTOCOL_VERSION:
+                    record.setPrtProtocolVersion(readString(in));
+                    return true;
+                case PrimaryRefreshTokenRecord.SerializedNames.SESSION_KEY_ROLLING_DATE:
+                    record.setSessionKeyRollingDate(readString(in));
+                    return true;
+                default:
+                    return readCredentialField(name, in, record);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.AccountCredentialBase;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.exception.TerminalException;
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.ThreadUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Coalescing write-behind queue in front of an account/credential {@link INameValueStorage}.
+ * <p>
+ * Saves and removals are recorded per cache key (the latest one wins) and persisted in batches on
+ * a background thread. Serialization via {@link ICacheKeyValueDelegate} happens at persist time,
+ * so the enqueued records must not be modified after being handed to this queue.
+ * <p>
+ * {@link #flush()} is a durability barrier: when it returns, everything enqueued before the call
+ * has been written to storage. Writes which fail stay pending and make {@link #flush()} throw. They
+ * are retried in the background after a delay which doubles with each consecutive failed batch, up
+ * to {@link #MAX_RETRY_DELAY_MILLIS}; new writes made meanwhile wait for that retry.
+ */
+class CacheWriteBehindQueue {
+
+    private static final String TAG = CacheWriteBehindQueue.class.getSimpleName();
+    private static final String THREAD_POOL_NAME = "cache-write-behind";
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * The delay before the first retry of a failed batch.
+     */
+    static final long INITIAL_RETRY_DELAY_MILLIS = 1000;
+
+    /**
+     * The longest delay between two retries of a failed batch.
+     */
+    static final long MAX_RETRY_DELAY_MILLIS = 60000;
+
+    /**
+     * Only used to wait out retry delays; the batches themselves are written by {@link #mExecutor}.
+     */
+    private static final ScheduledExecutorService sRetryScheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    final Thread thread = new Thread(r, THREAD_POOL_NAME + "-retry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final INameValueStorage<String> mStorage;
+    private final ICacheKeyValueDelegate mCacheValueDelegate;
+    private final ExecutorService mExecutor;
+    private final long mInitialRetryDelayMillis;
+
+    /**
+     * Held for the whole duration of a batch being written, so that batches (and {@link #clear()})
+     * hit the storage in order.
+     */
+    private final Object mPersistLock = new Object();
+
+    /**
+     * Guards {@link #mPendingWrites}, {@link #mDrainScheduled} and {@link #mRetryDelayMillis}.
+     */
+    private final Object mPendingLock = new Object();
+
+    /**
+     * Pending writes keyed on cache key. A null value denotes a removal.
+     */
+    private Map<String, AccountCredentialBase> mPendingWrites = new LinkedHashMap<>();
+    private boolean mDrainScheduled = false;
+
+    /**
+     * The delay before the next retry, should the next batch fail.
+     */
+    private long mRetryDelayMillis;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (final TerminalException e) {
+                // Already logged. The failed writes stay pending and a retry has been scheduled.
+            }
+        }
+    };
+
+    CacheWriteBehindQueue(@NonNull final INameValueStorage<String> storage,
+                          @NonNull final ICacheKeyValueDelegate cacheValueDelegate) {
+        this(storage, cacheValueDelegate, INITIAL_RETRY_DELAY_MILLIS);
+    }
+
+    //@VisibleForTesting
+    CacheWriteBehindQueue(@NonNull final INameValueStorage<String> storage,
+                          @NonNull final ICacheKeyValueDelegate cacheValueDelegate,
+                          final long initialRetryDelayMillis) {
+        mStorage = storage;
+        mCacheValueDelegate = cacheValueDelegate;
+        mInitialRetryDelayMillis = initialRetryDelayMillis;
+        mRetryDelayMillis = initialRetryDelayMillis;
+        // A single worker which goes away when idle.
+        mExecutor = ThreadUtils.getNamedThreadPoolExecutor(
+                0, 1, -1, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, THREAD_POOL_NAME
+        );
+    }
+
+    /**
+     * Enqueues the persistence of the supplied record, replacing any pending write for its key.
+     */
+    void enqueueSave(@NonNull final String cacheKey, @NonNull final AccountCredentialBase record) {
+        enqueue(cacheKey, record);
+    }
+
+    /**
+     * Enqueues the removal of the supplied key, replacing any pending write for it.
+     */
+    void enqueueRemove(@NonNull final String cacheKey) {
+        enqueue(cacheKey, null);
+    }
+
+    private void enqueue(@NonNull final String cacheKey, @Nullable final AccountCredentialBase record) {
+        synchronized (mPendingLock) {
+            // Re-insert so the iteration order reflects the latest write.
+            mPendingWrites.remove(cacheKey);
+            mPendingWrites.put(cacheKey, record);
+
+            if (!mDrainScheduled) {
+                mDrainScheduled = true;
+                mExecutor.execute(mDrain);
+            }
+        }
+    }
+
+    /**
+     * Persists every pending write on the calling thread, waiting for any batch already in flight.
+     *
+     * @throws TerminalException if any write failed. Those writes are kept pending, unless a newer
+     *                           write for the same key has been enqueued since.
+     */
+    void flush() {
+        final String methodTag = TAG + ":flush";
+
+        synchronized (mPersistLock) {
+            final Map<String, AccountCredentialBase> batch;
+            synchronized (mPendingLock) {
+                batch = mPendingWrites;
+                mPendingWrites = new LinkedHashMap<>();
+                mDrainScheduled = false;
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final Map<String, AccountCredentialBase> failedWrites = new LinkedHashMap<>();
+            RuntimeException firstFailure = null;
+            for (final Map.Entry<String, AccountCredentialBase> entry : batch.entrySet()) {
+                try {
+                    persist(entry.getKey(), entry.getValue());
+                } catch (final RuntimeException e) {
+                    Logger.error(methodTag, "Failed to persist cache entry.", e);
+                    failedWrites.put(entry.getKey(), entry.getValue());
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    }
+                }
+            }
+
+            if (firstFailure != null) {
+                synchronized (mPendingLock) {
+                    for (final Map.Entry<String, AccountCredentialBase> entry : failedWrites.entrySet()) {
+                        if (!mPendingWrites.containsKey(entry.getKey())) {
+                            mPendingWrites.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    scheduleRetryLocked();
+                }
+                throw new TerminalException(
+                        "Failed to persist [" + failedWrites.size() + "] of [" + batch.size()
+                                + "] cache writes, they are kept pending.",
+                        firstFailure,
+                        ClientException.IO_ERROR
+                );
+            }
+
+            synchronized (mPendingLock) {
+                mRetryDelayMillis = mInitialRetryDelayMillis;
+            }
+            Logger.verbose(methodTag, "Persisted a batch of [" + batch.size() + "] cache writes.");
+        }
+    }
+
+    /**
+     * Schedules the pending writes to be retried after the current retry delay, and doubles it.
+     * Until then, new writes do not trigger a drain of their own.
+     */
+    private void scheduleRetryLocked() {
+        final String methodTag = TAG + ":scheduleRetryLocked";
+
+        if (mDrainScheduled) {
+            // A drain is already on its way, it will retry these writes.
+            return;
+        }
+
+        mDrainScheduled = true;
+        Logger.info(methodTag, "Retrying the pending cache writes in [" + mRetryDelayMillis + "] ms.");
+        sRetryScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mExecutor.execute(mDrain);
+            }
+        }, mRetryDelayMillis, TimeUnit.MILLISECONDS);
+        mRetryDelayMillis = Math.min(mRetryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Drops every pending write and clears the storage, after any batch already in flight.
+     */
+    void clear() {
+        synchronized (mPersistLock) {
+            synchronized (mPendingLock) {
+                mPendingWrites = new LinkedHashMap<>();
+            }
+            mStorage.clear();
+        }
+    }
+
+    /**
+     * Drops the pending write for the supplied key, if any.
+     */
+    void discardPendingWrite(@NonNull final String cacheKey) {
+        synchronized (mPendingLock) {
+            mPendingWrites.remove(cacheKey);
+        }
+    }
+
+    /**
+     * @return true if a write for the supplied key has not been persisted yet.
+     */
+    boolean hasPendingWrite(@NonNull final String cacheKey) {
+        synchronized (mPendingLock) {
+            return mPendingWrites.containsKey(cacheKey);
+        }
+    }
+
+    private void persist(@NonNull final String cacheKey, @Nullable final AccountCredentialBase record) {
+        if (record == null) {
+            mStorage.remove(cacheKey);
+        } else if (record instanceof AccountRecord) {
+            mStorage.put(cacheKey, mCacheValueDelegate.generateCacheValue((AccountRecord) record));
+        } else {
+            mStorage.put(cacheKey, mCacheValueDelegate.generateCacheValue((Credential) record));
+        }
+    }
+}
@@ -0,0 +1,364 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.ScopeSet;
+import com.microsoft.identity.common.java.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Secondary indexes over the cache keys of in-memory {@link Credential}s, keyed on
+ * home_account_id, environment, credential_type, client_id, realm and on each scope of the target.
+ * <p>
+ * Lookups follow the matching rules of
+ * {@link AbstractAccountCredentialCache#getCredentialsFilteredByInternal}: values are compared
+ * case-insensitively after trimming, realm only constrains {@link AccessTokenRecord}s and
+ * {@link IdTokenRecord}s, and target only constrains {@link AccessTokenRecord}s and
+ * {@link RefreshTokenRecord}s, ignoring MSAL's default scopes. The index only narrows the set of
+ * candidates; callers are expected to run the full filter over the returned keys.
+ * <p>
+ * This class is not thread-safe for writes. The indexes and their key sets are persistent (see
+ * {@link PersistentHashMap}), so {@link #copy()} returns an index which shares all of them with
+ * the original, and adding or removing a key only copies the paths to it. A writer can thus
+ * derive a new index while readers keep using the current one, as long as the current one is no
+ * longer modified.
+ */
+class CredentialCacheIndex {
+
+    /**
+     * Orders unions of key sets by their total size.
+     */
+    private static final Comparator<List<Set<String>>> SEED_SIZE_ORDER = new Comparator<List<Set<String>>>() {
+        @Override
+        public int compare(final List<Set<String>> a, final List<Set<String>> b) {
+            return Integer.compare(size(a), size(b));
+        }
+
+        private int size(final List<Set<String>> seed) {
+            int size = 0;
+            for (final Set<String> keys : seed) {
+                size += keys.size();
+            }
+            return size;
+        }
+    };
+
+    // Keyed on the folded values, see toIndexKey().
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByHomeAccountId = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByEnvironment = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByCredentialType = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByClientId = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByRealm = PersistentHashMap.empty();
+    private PersistentHashMap<String, PersistentHashSet<String>> mKeysByScope = PersistentHashMap.empty();
+
+    /**
+     * Keys of credentials which are not filtered on realm (e.g. refresh tokens).
+     */
+    private PersistentHashSet<String> mRealmAgnosticKeys = PersistentHashSet.empty();
+
+    /**
+     * Keys of credentials which are not filtered on target (e.g. id tokens).
+     */
+    private PersistentHashSet<String> mTargetAgnosticKeys = PersistentHashSet.empty();
+
+    CredentialCacheIndex() {
+    }
+
+    private CredentialCacheIndex(@NonNull final CredentialCacheIndex other) {
+        mKeysByHomeAccountId = other.mKeysByHomeAccountId;
+        mKeysByEnvironment = other.mKeysByEnvironment;
+        mKeysByCredentialType = other.mKeysByCredentialType;
+        mKeysByClientId = other.mKeysByClientId;
+        mKeysByRealm = other.mKeysByRealm;
+        mKeysByScope = other.mKeysByScope;
+        mRealmAgnosticKeys = other.mRealmAgnosticKeys;
+        mTargetAgnosticKeys = other.mTargetAgnosticKeys;
+    }
+
+    /**
+     * Returns a copy of this index in O(1); everything is shared until one of them is modified.
+     */
+    @NonNull
+    CredentialCacheIndex copy() {
+        return new CredentialCacheIndex(this);
+    }
+
+    /**
+     * Folds the case of the trimmed value the same way as {@link String#CASE_INSENSITIVE_ORDER},
+     * which the equalsIgnoreCase() comparison of the linear filter agrees with.
+     */
+    @NonNull
+    private static String toIndexKey(@NonNull final String value) {
+        final String trimmed = value.trim();
+        final char[] chars = new char[trimmed.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(trimmed.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Adds the supplied credential to the index.
+     *
+     * @param cacheKey   The cache key of the credential.
+     * @param credential The credential to index.
+     */
+    void add(@NonNull final String cacheKey, @NonNull final Credential credential) {
+        mKeysByHomeAccountId = addToIndex(mKeysByHomeAccountId, credential.getHomeAccountId(), cacheKey);
+        mKeysByEnvironment = addToIndex(mKeysByEnvironment, credential.getEnvironment(), cacheKey);
+        mKeysByCredentialType = addToIndex(mKeysByCredentialType, credential.getCredentialType(), cacheKey);
+        mKeysByClientId = addToIndex(mKeysByClientId, credential.getClientId(), cacheKey);
+
+        if (isRealmScoped(credential)) {
+            mKeysByRealm = addToIndex(mKeysByRealm, getRealm(credential), cacheKey);
+        } else {
+            mRealmAgnosticKeys = mRealmAgnosticKeys.plus(cacheKey);
+        }
+
+        final ScopeSet scopes = getScopeSet(credential);
+        if (scopes != null) {
+            for (final String scope : scopes.getScopes(true)) {
+                mKeysByScope = addToIndex(mKeysByScope, scope, cacheKey);
+            }
+        } else {
+            mTargetAgnosticKeys = mTargetAgnosticKeys.plus(cacheKey);
+        }
+    }
+
+    /**
+     * Removes the supplied credential from the index.
+     *
+     * @param cacheKey   The cache key of the credential.
+     * @param credential The credential previously passed to {@link #add(String, Credential)}.
+     */
+    void remove(@NonNull final String cacheKey, @NonNull final Credential credential) {
+        mKeysByHomeAccountId = removeFromIndex(mKeysByHomeAccountId, credential.getHomeAccountId(), cacheKey);
+        mKeysByEnvironment = removeFromIndex(mKeysByEnvironment, credential.getEnvironment(), cacheKey);
+        mKeysByCredentialType = removeFromIndex(mKeysByCredentialType, credential.getCredentialType(), cacheKey);
+        mKeysByClientId = removeFromIndex(mKeysByClientId, credential.getClientId(), cacheKey);
+
+        if (isRealmScoped(credential)) {
+            mKeysByRealm = removeFromIndex(mKeysByRealm, getRealm(credential), cacheKey);
+        } else {
+            mRealmAgnosticKeys = mRealmAgnosticKeys.minus(cacheKey);
+        }
+
+        final ScopeSet scopes = getScopeSet(credential);
+        if (scopes != null) {
+            for (final String scope : scopes.getScopes(true)) {
+                mKeysByScope = removeFromIndex(mKeysByScope, scope, cacheKey);
+            }
+        } else {
+            mTargetAgnosticKeys = mTargetAgnosticKeys.minus(cacheKey);
+        }
+    }
+
+    /**
+     * Removes every entry from the index.
+     */
+    void clear() {
+        mKeysByHomeAccountId = PersistentHashMap.empty();
+        mKeysByEnvironment = PersistentHashMap.empty();
+        mKeysByCredentialType = PersistentHashMap.empty();
+        mKeysByClientId = PersistentHashMap.empty();
+        mKeysByRealm = PersistentHashMap.empty();
+        mKeysByScope = PersistentHashMap.empty();
+        mRealmAgnosticKeys = PersistentHashSet.empty();
+        mTargetAgnosticKeys = PersistentHashSet.empty();
+    }
+
+    /**
+     * Returns the cache keys of the credentials which may match the supplied criteria.
+     * Null or empty criteria are ignored.
+     *
+     * @param target The sought scopes. A credential with a target matches if it has all of them.
+     * @return The candidate keys, or null if none of the criteria are set (i.e. every
+     * credential is a candidate).
+     */
+    @Nullable
+    Set<String> getCandidateKeys(@Nullable final String homeAccountId,
+                                 @Nullable final String environment,
+                                 @Nullable final CredentialType credentialType,
+                                 @Nullable final String clientId,
+                                 @Nullable final String realm,
+                                 @Nullable final String target) {
+        final List<Set<String>> constraints = new ArrayList<>();
+
+        if (!addConstraint(constraints, mKeysByHomeAccountId, homeAccountId)
+                || !addConstraint(constraints, mKeysByEnvironment, environment)
+                || !addConstraint(constraints, mKeysByCredentialType, credentialType == null ? null : credentialType.name())
+                || !addConstraint(constraints, mKeysByClientId, clientId)) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> realmMatches = StringUtil.isNullOrEmpty(realm) ? null : lookup(mKeysByRealm, realm);
+
+        final List<Set<String>> scopeMatches = new ArrayList<>();
+        if (!StringUtil.isNullOrEmpty(target)) {
+            for (final String scope : ScopeSet.parse(target).getScopes(true)) {
+                scopeMatches.add(lookup(mKeysByScope, scope));
+            }
+        }
+
+        if (constraints.isEmpty() && realmMatches == null && scopeMatches.isEmpty()) {
+            return null;
+        }
+
+        // Walk the smallest superset of the result, and probe every other criterion.
+        // A realm or scope criterion is also met by the keys it does not apply to.
+        final List<List<Set<String>>> seeds = new ArrayList<>();
+        for (final Set<String> constraint : constraints) {
+            seeds.add(Collections.singletonList(constraint));
+        }
+        if (realmMatches != null) {
+            seeds.add(Arrays.asList(realmMatches, mRealmAgnosticKeys));
+        }
+        for (final Set<String> scopeMatch : scopeMatches) {
+            seeds.add(Arrays.asList(scopeMatch, mTargetAgnosticKeys));
+        }
+
+        final Set<String> result = new HashSet<>();
+        for (final Set<String> seed : Collections.min(seeds, SEED_SIZE_ORDER)) {
+            for (final String cacheKey : seed) {
+                if (matchesAll(cacheKey, constraints)
+                        && (realmMatches == null || realmMatches.contains(cacheKey) || mRealmAgnosticKeys.contains(cacheKey))
+                        && (mTargetAgnosticKeys.contains(cacheKey) || matchesAll(cacheKey, scopeMatches))) {
+                    result.add(cacheKey);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean matchesAll(@NonNull final String cacheKey,
+                                      @NonNull final List<Set<String>> constraints) {
+        for (final Set<String> constraint : constraints) {
+            if (!constraint.contains(cacheKey)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the criterion is set and nothing can match it, true otherwise.
+     */
+    private static boolean addConstraint(@NonNull final List<Set<String>> constraints,
+                                         @NonNull final Map<String, PersistentHashSet<String>> index,
+                                         @Nullable final String value) {
+        if (StringUtil.isNullOrEmpty(value)) {
+            return true;
+        }
+
+        final Set<String> keys = lookup(index, value);
+        if (keys.isEmpty()) {
+            return false;
+        }
+
+        constraints.add(keys);
+        return true;
+    }
+
+    @NonNull
+    private static Set<String> lookup(@NonNull final Map<String, PersistentHashSet<String>> index,
+                                      @NonNull final String value) {
+        final Set<String> keys = index.get(toIndexKey(value));
+        return keys == null ? Collections.<String>emptySet() : keys;
+    }
+
+    @NonNull
+    private static PersistentHashMap<String, PersistentHashSet<String>> addToIndex(
+            @NonNull final PersistentHashMap<String, PersistentHashSet<String>> index,
+            @Nullable final String value,
+            @NonNull final String cacheKey) {
+        if (value == null) {
+            return index;
+        }
+
+        final String indexKey = toIndexKey(value);
+        final PersistentHashSet<String> keys = index.get(indexKey);
+        return index.plus(indexKey, (keys == null ? PersistentHashSet.<String>empty() : keys).plus(cacheKey));
+    }
+
+    @NonNull
+    private static PersistentHashMap<String, PersistentHashSet<String>> removeFromIndex(
+            @NonNull final PersistentHashMap<String, PersistentHashSet<String>> index,
+            @Nullable final String value,
+            @NonNull final String cacheKey) {
+        if (value == null) {
+            return index;
+        }
+
+        final String indexKey = toIndexKey(value);
+        final PersistentHashSet<String> keys = index.get(indexKey);
+        if (keys == null) {
+            return index;
+        }
+
+        final PersistentHashSet<String> remainingKeys = keys.minus(cacheKey);
+        return remainingKeys.isEmpty() ? index.minus(indexKey) : index.plus(indexKey, remainingKeys);
+    }
+
+    private static boolean isRealmScoped(@NonNull final Credential credential) {
+        return credential instanceof AccessTokenRecord || credential instanceof IdTokenRecord;
+    }
+
+    /**
+     * @return The scopes of the credential, or null if it is not filtered on target.
+     */
+    @Nullable
+    private static ScopeSet getScopeSet(@NonNull final Credential credential) {
+        if (credential instanceof AccessTokenRecord) {
+            return ((AccessTokenRecord) credential).getScopeSet();
+        }
+        if (credential instanceof RefreshTokenRecord) {
+            return ((RefreshTokenRecord) credential).getScopeSet();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String getRealm(@NonNull final Credential credential) {
+        if (credential instanceof AccessTokenRecord) {
+            return ((AccessTokenRecord) credential).getRealm();
+        }
+        return ((IdTokenRecord) credential).getRealm();
+    }
+}
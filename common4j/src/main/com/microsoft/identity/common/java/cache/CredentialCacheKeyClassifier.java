@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.util.StringUtil;
+
+import java.util.Locale;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Resolves the {@link CredentialType} encoded in a cache key produced by
+ * {@link CacheKeyValueDelegate}.
+ * <p>
+ * A key names a credential type if one of its separator-delimited segments (never the first or
+ * the last one) equals the lowercased name of a supported type. The lowercased names are computed
+ * once and bucketed by length, so classifying a key is a single pass over its separators that
+ * only compares the segments whose length matches a candidate, without allocating.
+ */
+final class CredentialCacheKeyClassifier {
+
+    private static final char SEPARATOR = CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR.charAt(0);
+
+    /**
+     * The types which may appear in a credential cache key. Other {@link CredentialType}s are
+     * not stored in this cache, so keys which only name those are treated as accounts.
+     */
+    private static final CredentialType[] SUPPORTED_TYPES = {
+            CredentialType.AccessToken,
+            CredentialType.AccessToken_With_AuthScheme,
+            CredentialType.RefreshToken,
+            CredentialType.IdToken,
+            CredentialType.V1IdToken,
+            CredentialType.PrimaryRefreshToken
+    };
+
+    /**
+     * Candidate types and their lowercased names, indexed by name length.
+     */
+    private static final CredentialType[][] TYPES_BY_LENGTH;
+    private static final String[][] NAMES_BY_LENGTH;
+
+    static {
+        int maxLength = 0;
+        for (final CredentialType type : SUPPORTED_TYPES) {
+            maxLength = Math.max(maxLength, type.name().length());
+        }
+
+        TYPES_BY_LENGTH = new CredentialType[maxLength + 1][];
+        NAMES_BY_LENGTH = new String[maxLength + 1][];
+
+        for (final CredentialType type : SUPPORTED_TYPES) {
+            final String name = type.name().toLowerCase(Locale.US);
+            final int length = name.length();
+            final int count = null == TYPES_BY_LENGTH[length] ? 0 : TYPES_BY_LENGTH[length].length;
+
+            final CredentialType[] types = new CredentialType[count + 1];
+            final String[] names = new String[count + 1];
+            if (count > 0) {
+                System.arraycopy(TYPES_BY_LENGTH[length], 0, types, 0, count);
+                System.arraycopy(NAMES_BY_LENGTH[length], 0, names, 0, count);
+            }
+            types[count] = type;
+            names[count] = name;
+
+            TYPES_BY_LENGTH[length] = types;
+            NAMES_BY_LENGTH[length] = names;
+        }
+    }
+
+    private CredentialCacheKeyClassifier() {
+        // Utility class.
+    }
+
+    /**
+     * Inspects the supplied cache key to determine the target CredentialType.
+     *
+     * @param cacheKey The cache key to inspect.
+     * @return The CredentialType or null if a proper type cannot be resolved.
+     */
+    @Nullable
+    static CredentialType getCredentialType(@NonNull final String cacheKey) {
+        if (StringUtil.isNullOrEmpty(cacheKey)) {
+            throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
+        }
+
+        int segmentStart = cacheKey.indexOf(SEPARATOR) + 1;
+        if (segmentStart == 0) {
+            return null;
+        }
+
+        int segmentEnd = cacheKey.indexOf(SEPARATOR, segmentStart);
+        while (segmentEnd >= 0) {
+            final int length = segmentEnd - segmentStart;
+
+            if (length < NAMES_BY_LENGTH.length && null != NAMES_BY_LENGTH[length]) {
+                final String[] names = NAMES_BY_LENGTH[length];
+                for (int i = 0; i < names.length; i++) {
+                    if (cacheKey.regionMatches(segmentStart, names[i], 0, length)) {
+                        return TYPES_BY_LENGTH[length][i];
+                    }
+                }
+            }
+
+            segmentStart = segmentEnd + 1;
+            segmentEnd = cacheKey.indexOf(SEPARATOR, segmentStart);
+        }
+
+        return null;
+    }
+}
@@ -310,4 +310,12 @@ public interface IAccountCredentialCache {
      * Clear the contents of the cache.
      */
     void clearAll();
+
+    /**
+     * Blocks until every write accepted by this cache so far has been persisted to the underlying
+     * storage. A no-op for implementations which write through synchronously.
+     */
+    default void flush() {
+        // Writes go straight to storage; nothing is pending.
+    }
 }
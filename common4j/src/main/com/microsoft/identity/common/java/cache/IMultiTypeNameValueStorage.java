@@ -22,10 +22,13 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.java.cache;
 
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * The interface for a key-value store with multiple types.  This should be roughly equivalent to Android
@@ -74,15 +77,66 @@ public interface IMultiTypeNameValueStorage {
      */
     Map<String, String> getAll();
 
+    /**
+     * Returns the keys of all entries in the named resource, without reading or decrypting any
+     * value.
+     * <p>
+     * The default implementation falls back to {@link #getAll()}. Implementations which decrypt
+     * their values should override it.
+     *
+     * @return A Set of all keys.
+     */
+    default Set<String> keySet() {
+        return getAll().keySet();
+    }
+
     /**
      * Returns an iterator on the shared preferences entries that views only those entries that
      * the predicate evaluates to true on the key.
+     * <p>
+     * Values are only read (and decrypted) for entries which pass the predicate, as the iterator
+     * reaches them.
      *
      * @param keyFilter A predicate to use to evaluate the key, return true to include key value pair.
      * @return an iterator as a view on the shared preferences file.
      */
     Iterator<Map.Entry<String, String>> getAllFilteredByKey(Predicate<String> keyFilter);
 
+    /**
+     * Passes every entry whose key the predicate evaluates to true on to the consumer.
+     * <p>
+     * Implementations which decrypt their values may do so on several threads at once, in which
+     * case the consumer is called concurrently and must be thread-safe. Either way, this returns
+     * only once every entry has been passed to the consumer.
+     * <p>
+     * The default implementation walks {@link #getAllFilteredByKey(Predicate)} on the calling
+     * thread.
+     *
+     * @param keyFilter A predicate to use to evaluate the key, return true to include key value pair.
+     * @param consumer  receives each matching entry.
+     * @return the timings of the read.
+     */
+    default BulkReadStatistics forEachFilteredByKey(final Predicate<String> keyFilter,
+                                                    final BiConsumer<String, String> consumer) {
+        final long start = System.nanoTime();
+        long consumerNanos = 0;
+        int count = 0;
+
+        final Iterator<Map.Entry<String, String>> iterator = getAllFilteredByKey(keyFilter);
+        while (iterator != null && iterator.hasNext()) {
+            final Map.Entry<String, String> entry = iterator.next();
+            if (entry.getValue() != null) {
+                final long consumerStart = System.nanoTime();
+                consumer.accept(entry.getKey(), entry.getValue());
+                consumerNanos += System.nanoTime() - consumerStart;
+                count++;
+            }
+        }
+
+        final long totalNanos = System.nanoTime() - start;
+        return new BulkReadStatistics(count, 1, totalNanos - consumerNanos, 0, totalNanos);
+    }
+
     /**
      * Tests if the store backed by the named resource contains an entry for the supplied key.
      *
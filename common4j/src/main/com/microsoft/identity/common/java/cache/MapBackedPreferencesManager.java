@@ -25,8 +25,10 @@ package com.microsoft.identity.common.java.cache;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.experimental.Accessors;
 
@@ -65,6 +67,11 @@ public class MapBackedPreferencesManager implements IMultiTypeNameValueStorage {
         return new HashMap<>(mBackingStore);
     }
 
+    @Override
+    public Set<String> keySet() {
+        return new HashSet<>(mBackingStore.keySet());
+    }
+
     @Override
     public Iterator<Map.Entry<String, String>> getAllFilteredByKey(Predicate<String> keyFilter) {
         Map<String, String> newMap = new HashMap<>();
@@ -30,7 +30,6 @@ import static com.microsoft.identity.common.java.dto.CredentialType.V1IdToken;
 import static com.microsoft.identity.common.java.exception.ErrorStrings.ACCOUNT_IS_SCHEMA_NONCOMPLIANT;
 import static com.microsoft.identity.common.java.exception.ErrorStrings.CREDENTIAL_IS_SCHEMA_NONCOMPLIANT;
 
-import com.microsoft.identity.common.java.AuthenticationConstants;
 import com.microsoft.identity.common.java.BaseAccount;
 import com.microsoft.identity.common.java.WarningType;
 import com.microsoft.identity.common.java.authscheme.AbstractAuthenticationScheme;
@@ -41,6 +40,7 @@ import com.microsoft.identity.common.java.dto.Credential;
 import com.microsoft.identity.common.java.dto.CredentialType;
 import com.microsoft.identity.common.java.dto.IdTokenRecord;
 import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.ScopeSet;
 import com.microsoft.identity.common.java.exception.ClientException;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
 import com.microsoft.identity.common.java.interfaces.IPlatformComponents;
@@ -64,7 +64,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -1720,8 +1719,7 @@ public class MsalOAuth2TokenCache
                 referenceToken.getRealm(),
                 null, // Wildcard (*)
                 referenceToken.getAccessTokenType(),
-                referenceToken.getRequestedClaims(),
-                mAccountCredentialCache.getCredentials()
+                referenceToken.getRequestedClaims()
         );
 
         Logger.verbose(
@@ -1745,49 +1743,21 @@ public class MsalOAuth2TokenCache
                                     boolean omitDefaultScopes) {
         final String methodName = "scopesIntersect";
 
-        final Set<String> token1Scopes = scopesAsSet(token1);
-        final Set<String> token2Scopes = scopesAsSet(token2);
+        final ScopeSet token1Scopes = token1.getScopeSet();
+        final ScopeSet token2Scopes = token2.getScopeSet();
 
-        if (omitDefaultScopes) {
-            // Remove the default scopes (if present), do not consider them in lookup criteria
-            token1Scopes.removeAll(AuthenticationConstants.DEFAULT_SCOPES);
-            token2Scopes.removeAll(AuthenticationConstants.DEFAULT_SCOPES);
-        }
-
-        boolean result = false;
-        for (final String scope : token2Scopes) {
-            if (token1Scopes.contains(scope)) {
-                Logger.info(TAG + ":" + methodName, "Scopes intersect.");
-                Logger.infoPII(
-                        TAG + ":" + methodName,
-                        token1Scopes.toString() + " contains [" + scope + "]"
-                );
-                result = true;
-                break;
-            }
+        final boolean result = token1Scopes.intersects(token2Scopes, omitDefaultScopes);
+        if (result) {
+            Logger.info(TAG + ":" + methodName, "Scopes intersect.");
+            Logger.infoPII(
+                    TAG + ":" + methodName,
+                    token1Scopes + " intersects " + token2Scopes
+            );
         }
 
         return result;
     }
 
-    /**
-     * Normalizes scope values (converts to lower case)
-     * and returns as set.
-     */
-    private Set<String> scopesAsSet(final AccessTokenRecord token) {
-        final String scopeString = token.getTarget();
-        if (!StringUtil.isNullOrEmpty(scopeString)) {
-            final String[] scopeArray = scopeString.split("\\s+");
-            final Set<String> scopesAsSet = new HashSet<>();
-            for (final String scope : scopeArray) {
-                scopesAsSet.add(scope.toLowerCase(Locale.US));
-            }
-            return scopesAsSet;
-        }
-
-        return new HashSet<>();
-    }
-
     private static boolean isSchemaCompliant(final Class<?> clazz, final String[][] params) {
         final String methodName = "isSchemaCompliant";
 
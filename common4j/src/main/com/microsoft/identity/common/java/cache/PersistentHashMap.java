@@ -0,0 +1,447 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * An immutable hash map which shares its structure with the map it was derived from.
+ * {@link #plus} and {@link #minus} return a new map and only copy the nodes on the path to the
+ * key, at most 7 levels of 32 slots, instead of every entry. The original map is unchanged, so
+ * readers of a published map never see a write in progress.
+ * <p>
+ * This is a hash array mapped trie (Bagwell, "Ideal Hash Trees"): each level consumes 5 bits of
+ * the hash of the key, and keys whose hashes are equal share a collision node. Null keys and null
+ * values are not supported. The {@link Map} mutators throw {@link UnsupportedOperationException}.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Levels of bitmap nodes needed to consume a 32 bit hash, plus one level of collision nodes.
+     */
+    private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS + 1;
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<>(null, 0);
+
+    @Nullable
+    private final Node mRoot;
+    private final int mSize;
+
+    private PersistentHashMap(@Nullable final Node root, final int size) {
+        mRoot = root;
+        mSize = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @return a map holding the entries of the supplied one.
+     */
+    @NonNull
+    static <K, V> PersistentHashMap<K, V> copyOf(@NonNull final Map<? extends K, ? extends V> source) {
+        PersistentHashMap<K, V> map = empty();
+        for (final Map.Entry<? extends K, ? extends V> entry : source.entrySet()) {
+            map = map.plus(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    /**
+     * @return a map which maps the key to the value, and holds every other entry of this map.
+     * This map if it already does.
+     */
+    @NonNull
+    PersistentHashMap<K, V> plus(@NonNull final K key, @NonNull final V value) {
+        final boolean[] added = new boolean[1];
+        final Node root = (mRoot == null ? BitmapNode.EMPTY : mRoot).put(0, hash(key), key, value, added);
+        if (root == mRoot) {
+            return this;
+        }
+        return new PersistentHashMap<>(root, added[0] ? mSize + 1 : mSize);
+    }
+
+    /**
+     * @return a map which holds every entry of this map but the one of the key. This map if it
+     * holds no such entry.
+     */
+    @NonNull
+    PersistentHashMap<K, V> minus(@NonNull final Object key) {
+        if (mRoot == null) {
+            return this;
+        }
+        final Node root = mRoot.remove(0, hash(key), key);
+        if (root == mRoot) {
+            return this;
+        }
+        return root == null ? PersistentHashMap.<K, V>empty() : new PersistentHashMap<K, V>(root, mSize - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Nullable
+    public V get(@Nullable final Object key) {
+        if (key == null || mRoot == null) {
+            return null;
+        }
+        return (V) mRoot.get(0, hash(key), key);
+    }
+
+    @Override
+    public boolean containsKey(@Nullable final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    @NonNull
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            @NonNull
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(mRoot);
+            }
+
+            @Override
+            public int size() {
+                return mSize;
+            }
+        };
+    }
+
+    private static int hash(@NonNull final Object key) {
+        // Spread the high bits over the low ones, which pick the slots near the root.
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A node of the trie. Its entries are stored in pairs in {@link #mArray}: either a key and its
+     * value, or null and a child node.
+     */
+    private abstract static class Node {
+        final Object[] mArray;
+
+        Node(@NonNull final Object[] array) {
+            mArray = array;
+        }
+
+        @Nullable
+        abstract Object get(int shift, int hash, @NonNull Object key);
+
+        /**
+         * @return this node if it already maps the key to the value, otherwise a new node which does.
+         */
+        @NonNull
+        abstract Node put(int shift, int hash, @NonNull Object key, @NonNull Object value, @NonNull boolean[] added);
+
+        /**
+         * @return this node if it does not hold the key, null if the key was its only entry,
+         * otherwise a new node without it.
+         */
+        @Nullable
+        abstract Node remove(int shift, int hash, @NonNull Object key);
+    }
+
+    /**
+     * Holds the entries whose hashes share the bits consumed by the levels above. Slot i of the
+     * level is used if bit i of {@link #mBitmap} is set; the used slots are stored in order.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int mBitmap;
+
+        BitmapNode(final int bitmap, @NonNull final Object[] array) {
+            super(array);
+            mBitmap = bitmap;
+        }
+
+        private int index(final int bit) {
+            return 2 * Integer.bitCount(mBitmap & (bit - 1));
+        }
+
+        @Override
+        @Nullable
+        Object get(final int shift, final int hash, @NonNull final Object key) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((mBitmap & bit) == 0) {
+                return null;
+            }
+            final int index = index(bit);
+            final Object entryKey = mArray[index];
+            if (entryKey == null) {
+                return ((Node) mArray[index + 1]).get(shift + BITS, hash, key);
+            }
+            return key.equals(entryKey) ? mArray[index + 1] : null;
+        }
+
+        @Override
+        @NonNull
+        Node put(final int shift, final int hash, @NonNull final Object key, @NonNull final Object value,
+                 @NonNull final boolean[] added) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            final int index = index(bit);
+            if ((mBitmap & bit) == 0) {
+                final Object[] array = new Object[mArray.length + 2];
+                System.arraycopy(mArray, 0, array, 0, index);
+                array[index] = key;
+                array[index + 1] = value;
+                System.arraycopy(mArray, index, array, index + 2, mArray.length - index);
+                added[0] = true;
+                return new BitmapNode(mBitmap | bit, array);
+            }
+
+            final Object entryKey = mArray[index];
+            final Object entryValue = mArray[index + 1];
+            if (entryKey == null) {
+                final Node child = ((Node) entryValue).put(shift + BITS, hash, key, value, added);
+                return child == entryValue ? this : with(index, null, child);
+            }
+            if (key.equals(entryKey)) {
+                return value == entryValue ? this : with(index, key, value);
+            }
+
+            added[0] = true;
+            return with(index, null, newNode(shift + BITS, entryKey, entryValue, hash, key, value));
+        }
+
+        @Override
+        @Nullable
+        Node remove(final int shift, final int hash, @NonNull final Object key) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((mBitmap & bit) == 0) {
+                return this;
+            }
+
+            final int index = index(bit);
+            final Object entryKey = mArray[index];
+            if (entryKey == null) {
+                final Node child = ((Node) mArray[index + 1]).remove(shift + BITS, hash, key);
+                if (child == mArray[index + 1]) {
+                    return this;
+                }
+                if (child != null) {
+                    // Pull a lone entry up, so that removals leave no chains of single entry nodes.
+                    return child.mArray.length == 2 && child.mArray[0] != null
+                            ? with(index, child.mArray[0], child.mArray[1])
+                            : with(index, null, child);
+                }
+            } else if (!key.equals(entryKey)) {
+                return this;
+            }
+
+            if (mBitmap == bit) {
+                return null;
+            }
+            final Object[] array = new Object[mArray.length - 2];
+            System.arraycopy(mArray, 0, array, 0, index);
+            System.arraycopy(mArray, index + 2, array, index, array.length - index);
+            return new BitmapNode(mBitmap & ~bit, array);
+        }
+
+        @NonNull
+        private BitmapNode with(final int index, @Nullable final Object key, @NonNull final Object value) {
+            final Object[] array = mArray.clone();
+            array[index] = key;
+            array[index + 1] = value;
+            return new BitmapNode(mBitmap, array);
+        }
+    }
+
+    /**
+     * Holds the entries of keys which have the same hash.
+     */
+    private static final class CollisionNode extends Node {
+        final int mHash;
+
+        CollisionNode(final int hash, @NonNull final Object[] array) {
+            super(array);
+            mHash = hash;
+        }
+
+        private int indexOf(@NonNull final Object key) {
+            for (int i = 0; i < mArray.length; i += 2) {
+                if (key.equals(mArray[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        @Nullable
+        Object get(final int shift, final int hash, @NonNull final Object key) {
+            final int index = indexOf(key);
+            return index < 0 ? null : mArray[index + 1];
+        }
+
+        @Override
+        @NonNull
+        Node put(final int shift, final int hash, @NonNull final Object key, @NonNull final Object value,
+                 @NonNull final boolean[] added) {
+            if (hash != mHash) {
+                // Only reachable above the last level, where the hashes still differ in the bits left.
+                final BitmapNode parent = new BitmapNode(1 << ((mHash >>> shift) & MASK), new Object[]{null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+
+            final int index = indexOf(key);
+            if (index >= 0) {
+                if (value == mArray[index + 1]) {
+                    return this;
+                }
+                final Object[] array = mArray.clone();
+                array[index + 1] = value;
+                return new CollisionNode(mHash, array);
+            }
+
+            final Object[] array = new Object[mArray.length + 2];
+            System.arraycopy(mArray, 0, array, 0, mArray.length);
+            array[mArray.length] = key;
+            array[mArray.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(mHash, array);
+        }
+
+        @Override
+        @Nullable
+        Node remove(final int shift, final int hash, @NonNull final Object key) {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (mArray.length == 2) {
+                return null;
+            }
+            final Object[] array = new Object[mArray.length - 2];
+            System.arraycopy(mArray, 0, array, 0, index);
+            System.arraycopy(mArray, index + 2, array, index, array.length - index);
+            return new CollisionNode(mHash, array);
+        }
+    }
+
+    /**
+     * @return a node at the supplied level holding both entries.
+     */
+    @NonNull
+    private static Node newNode(final int shift,
+                                @NonNull final Object key1, @NonNull final Object value1,
+                                final int hash2, @NonNull final Object key2, @NonNull final Object value2) {
+        final int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        final boolean[] added = new boolean[1];
+        return BitmapNode.EMPTY
+                .put(shift, hash1, key1, value1, added)
+                .put(shift, hash2, key2, value2, added);
+    }
+
+    /**
+     * Walks the trie depth first.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] mArrays = new Object[MAX_DEPTH][];
+        private final int[] mIndexes = new int[MAX_DEPTH];
+        private int mDepth;
+
+        @Nullable
+        private Map.Entry<K, V> mNext;
+
+        EntryIterator(@Nullable final Node root) {
+            if (root == null) {
+                mDepth = -1;
+            } else {
+                mArrays[0] = root.mArray;
+                advance();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            mNext = null;
+            while (mDepth >= 0) {
+                final Object[] array = mArrays[mDepth];
+                final int index = mIndexes[mDepth];
+                if (index >= array.length) {
+                    mDepth--;
+                    continue;
+                }
+
+                mIndexes[mDepth] = index + 2;
+                if (array[index] == null) {
+                    mDepth++;
+                    mArrays[mDepth] = ((Node) array[index + 1]).mArray;
+                    mIndexes[mDepth] = 0;
+                } else {
+                    mNext = new AbstractMap.SimpleImmutableEntry<>((K) array[index], (V) array[index + 1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mNext != null;
+        }
+
+        @Override
+        @NonNull
+        public Map.Entry<K, V> next() {
+            final Map.Entry<K, V> next = mNext;
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * An immutable hash set which shares its structure with the set it was derived from, see
+ * {@link PersistentHashMap}.
+ *
+ * @param <E> the type of the elements.
+ */
+final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final PersistentHashSet<Object> EMPTY =
+            new PersistentHashSet<>(PersistentHashMap.<Object, Object>empty());
+
+    private final PersistentHashMap<E, E> mMap;
+
+    private PersistentHashSet(@NonNull final PersistentHashMap<E, E> map) {
+        mMap = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * @return a set which holds the element and every element of this set. This set if it
+     * already holds the element.
+     */
+    @NonNull
+    PersistentHashSet<E> plus(@NonNull final E element) {
+        final PersistentHashMap<E, E> map = mMap.plus(element, element);
+        return map == mMap ? this : new PersistentHashSet<>(map);
+    }
+
+    /**
+     * @return a set which holds every element of this set but the supplied one. This set if it
+     * does not hold the element.
+     */
+    @NonNull
+    PersistentHashSet<E> minus(@NonNull final Object element) {
+        final PersistentHashMap<E, E> map = mMap.minus(element);
+        return map == mMap ? this : new PersistentHashSet<>(map);
+    }
+
+    @Override
+    public boolean contains(@Nullable final Object element) {
+        return mMap.containsKey(element);
+    }
+
+    @Override
+    public int size() {
+        return mMap.size();
+    }
+
+    @Override
+    @NonNull
+    public Iterator<E> iterator() {
+        return mMap.keySet().iterator();
+    }
+}
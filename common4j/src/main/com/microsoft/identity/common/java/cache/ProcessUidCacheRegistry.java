@@ -0,0 +1,516 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.WarningType;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.interfaces.IPlatformComponents;
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.ported.Function;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * A bounded, least-recently-used registry of the per-uid {@link MsalOAuth2TokenCache} instances
+ * used by {@link BrokerOAuth2TokenCache}.
+ * <p>
+ * Each resident cache is backed by a {@link SharedPreferencesAccountCredentialCacheWithMemoryCache},
+ * so repeat requests for the same uid are served from memory instead of re-reading and
+ * re-decrypting the uid-sequestered file. A registry is meant to be created once per process and
+ * handed to every {@link BrokerOAuth2TokenCache} created in that process, so that all writes to a
+ * given uid's file go through the same cache instance.
+ * <p>
+ * The {@link MsalOAuth2TokenCache} handed out for a uid does not hold the in-memory cache itself;
+ * it resolves the uid's resident cache on every call, reloading it if it was evicted. A caller
+ * which still holds a token cache after its uid was evicted or invalidated therefore keeps
+ * reading and writing the same state as everyone else. A write which races with an eviction
+ * is replayed on the replacement cache, which may have loaded before the write reached storage.
+ */
+// Suppressing rawtype warnings due to the generic type MsalOAuth2TokenCache
+@SuppressWarnings(WarningType.rawtype_warning)
+public class ProcessUidCacheRegistry implements BrokerOAuth2TokenCache.ProcessUidCacheFactory {
+
+    private static final String TAG = ProcessUidCacheRegistry.class.getSimpleName();
+
+    /**
+     * The default number of uids whose caches are held in memory at any given time.
+     */
+    public static final int DEFAULT_MAX_RESIDENT_UIDS = 16;
+
+    private final Object mCacheLock = new Object();
+    private final Map<Integer, ResidentCache> mCaches;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    public ProcessUidCacheRegistry() {
+        this(DEFAULT_MAX_RESIDENT_UIDS);
+    }
+
+    /**
+     * Constructs a new ProcessUidCacheRegistry.
+     *
+     * @param maxResidentUids The maximum number of uids whose caches are held in memory. Once
+     *                        exceeded, the least recently used cache is evicted.
+     */
+    public ProcessUidCacheRegistry(final int maxResidentUids) {
+        if (maxResidentUids < 1) {
+            throw new IllegalArgumentException("maxResidentUids must be positive.");
+        }
+
+        mCaches = new LinkedHashMap<Integer, ResidentCache>(maxResidentUids + 1, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, ResidentCache> eldest) {
+                if (size() > maxResidentUids) {
+                    mEvictionCount++;
+                    Logger.verbose(
+                            TAG + ":removeEldestEntry",
+                            "Evicting cache for uid: " + eldest.getKey()
+                    );
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public MsalOAuth2TokenCache getTokenCache(@NonNull final IPlatformComponents components,
+                                              final int uid) {
+        synchronized (mCacheLock) {
+            final ResidentCache cache = mCaches.get(uid);
+
+            if (null != cache) {
+                mHitCount++;
+                return cache.mTokenCache;
+            }
+
+            return loadResidentCache(components, uid).mTokenCache;
+        }
+    }
+
+    /**
+     * Returns the resident account credential cache of the supplied uid, reloading it from
+     * storage if it was evicted or invalidated.
+     */
+    private IAccountCredentialCache getResidentAccountCredentialCache(@NonNull final IPlatformComponents components,
+                                                                      final int uid) {
+        synchronized (mCacheLock) {
+            final ResidentCache cache = mCaches.get(uid);
+
+            if (null != cache) {
+                return cache.mAccountCredentialCache;
+            }
+
+            return loadResidentCache(components, uid).mAccountCredentialCache;
+        }
+    }
+
+    /**
+     * Returns the resident account credential cache of the supplied uid without reloading it or
+     * touching its recency, or null if it is not resident.
+     */
+    @Nullable
+    private IAccountCredentialCache peekResidentAccountCredentialCache(final int uid) {
+        synchronized (mCacheLock) {
+            for (final Map.Entry<Integer, ResidentCache> entry : mCaches.entrySet()) {
+                if (entry.getKey() == uid) {
+                    return entry.getValue().mAccountCredentialCache;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    // Must be called while holding mCacheLock.
+    private ResidentCache loadResidentCache(@NonNull final IPlatformComponents components,
+                                            final int uid) {
+        mMissCount++;
+        final ResidentCache cache = new ResidentCache(
+                createAccountCredentialCache(components, uid),
+                new MsalOAuth2TokenCache<>(
+                        components,
+                        new UidAccountCredentialCache(components, uid),
+                        new MicrosoftStsAccountCredentialAdapter()
+                )
+        );
+        mCaches.put(uid, cache);
+        return cache;
+    }
+
+    /**
+     * Drops the resident cache for the supplied uid, if any. The next request for this uid
+     * reloads it from storage.
+     *
+     * @param uid The uid whose cache should be dropped.
+     */
+    public void invalidate(final int uid) {
+        synchronized (mCacheLock) {
+            mCaches.remove(uid);
+        }
+    }
+
+    /**
+     * Drops every resident cache. The next request for any uid reloads it from storage.
+     */
+    public void invalidateAll() {
+        synchronized (mCacheLock) {
+            mCaches.clear();
+        }
+    }
+
+    /**
+     * @return The number of uids whose caches are currently held in memory.
+     */
+    public int getResidentUidCount() {
+        synchronized (mCacheLock) {
+            return mCaches.size();
+        }
+    }
+
+    /**
+     * @return The number of requests served by a resident cache.
+     */
+    public long getHitCount() {
+        synchronized (mCacheLock) {
+            return mHitCount;
+        }
+    }
+
+    /**
+     * @return The number of requests which required a cache to be (re)loaded from storage.
+     */
+    public long getMissCount() {
+        synchronized (mCacheLock) {
+            return mMissCount;
+        }
+    }
+
+    /**
+     * @return The number of caches evicted to stay within the configured bound.
+     */
+    public long getEvictionCount() {
+        synchronized (mCacheLock) {
+            return mEvictionCount;
+        }
+    }
+
+    /**
+     * @return The fraction of requests served by a resident cache, or 0 if none were made.
+     */
+    public double getHitRate() {
+        synchronized (mCacheLock) {
+            final long total = mHitCount + mMissCount;
+            return total == 0 ? 0 : (double) mHitCount / total;
+        }
+    }
+
+    private static IAccountCredentialCache createAccountCredentialCache(@NonNull final IPlatformComponents components,
+                                                                        final int uid) {
+        Logger.verbose(
+                TAG + ":createAccountCredentialCache",
+                "Loading cache for uid: " + uid
+        );
+
+        final INameValueStorage<String> sharedPreferencesFileManager =
+                components.getStorageSupplier().getEncryptedNameValueStore(
+                        SharedPreferencesAccountCredentialCache.getBrokerUidSequesteredFilename(uid),
+                        String.class
+                );
+
+        return new SharedPreferencesAccountCredentialCacheWithMemoryCache(
+                new CacheKeyValueDelegate(),
+                sharedPreferencesFileManager
+        );
+    }
+
+    private static final class ResidentCache {
+        private final IAccountCredentialCache mAccountCredentialCache;
+        private final MsalOAuth2TokenCache mTokenCache;
+
+        private ResidentCache(@NonNull final IAccountCredentialCache accountCredentialCache,
+                              @NonNull final MsalOAuth2TokenCache tokenCache) {
+            mAccountCredentialCache = accountCredentialCache;
+            mTokenCache = tokenCache;
+        }
+    }
+
+    /**
+     * The account credential cache behind every token cache handed out for a uid. Each call goes
+     * to the uid's current resident cache.
+     */
+    private final class UidAccountCredentialCache implements IAccountCredentialCache {
+        private final IPlatformComponents mComponents;
+        private final int mUid;
+
+        private UidAccountCredentialCache(@NonNull final IPlatformComponents components,
+                                          final int uid) {
+            mComponents = components;
+            mUid = uid;
+        }
+
+        private IAccountCredentialCache resident() {
+            return getResidentAccountCredentialCache(mComponents, mUid);
+        }
+
+        /**
+         * Applies the supplied write to the resident cache. If that cache was replaced while
+         * the write was in progress, the replacement may have loaded without it, so the write
+         * is applied again until it has reached the cache which is resident afterwards.
+         */
+        private <T> T write(@NonNull final Function<IAccountCredentialCache, T> write) {
+            IAccountCredentialCache target = resident();
+            final T result = write.apply(target);
+
+            IAccountCredentialCache current;
+            while (null != (current = peekResidentAccountCredentialCache(mUid)) && current != target) {
+                Logger.verbose(
+                        TAG + ":write",
+                        "Cache for uid: " + mUid + " was reloaded during a write, replaying it."
+                );
+                target = current;
+                write.apply(target);
+            }
+
+            return result;
+        }
+
+        @Override
+        public void saveAccount(final AccountRecord account) {
+            write(new Function<IAccountCredentialCache, Void>() {
+                @Override
+                public Void apply(final IAccountCredentialCache cache) {
+                    cache.saveAccount(account);
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public void saveCredential(final Credential credential) {
+            write(new Function<IAccountCredentialCache, Void>() {
+                @Override
+                public Void apply(final IAccountCredentialCache cache) {
+                    cache.saveCredential(credential);
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public AccountRecord getAccount(final String cacheKey) {
+            return resident().getAccount(cacheKey);
+        }
+
+        @Override
+        public Credential getCredential(final String cacheKey) {
+            return resident().getCredential(cacheKey);
+        }
+
+        @Override
+        public List<AccountRecord> getAccounts() {
+            return resident().getAccounts();
+        }
+
+        @Override
+        public List<AccountRecord> getAccountsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final String realm) {
+            return resident().getAccountsFilteredBy(homeAccountId, environment, realm);
+        }
+
+        @Override
+        public List<Credential> getCredentials() {
+            return resident().getCredentials();
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialType,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final List<Credential> inputCredentials) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialType,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme,
+                    inputCredentials);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final String requestedClaims) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialType,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme,
+                    requestedClaims);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final String requestedClaims,
+                                                         final List<Credential> inputCredentials) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialType,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme,
+                    requestedClaims, inputCredentials);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final String requestedClaims,
+                                                         final boolean mustMatchExactClaims,
+                                                         final List<Credential> inputCredentials) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialType,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme,
+                    requestedClaims, mustMatchExactClaims, inputCredentials);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final String homeAccountId,
+                                                         final String environment,
+                                                         final Set<CredentialType> credentialTypes,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final String requestedClaims) {
+            return resident().getCredentialsFilteredBy(homeAccountId, environment, credentialTypes,
+                    clientId, applicationIdentifier, mamEnrollmentIdentifier, realm, target, authScheme,
+                    requestedClaims);
+        }
+
+        @Override
+        public List<Credential> getCredentialsFilteredBy(final List<Credential> inputCredentials,
+                                                         final String homeAccountId,
+                                                         final String environment,
+                                                         final CredentialType credentialType,
+                                                         final String clientId,
+                                                         final String applicationIdentifier,
+                                                         final String mamEnrollmentIdentifier,
+                                                         final String realm,
+                                                         final String target,
+                                                         final String authScheme,
+                                                         final String requestedClaims,
+                                                         final String kid) {
+            return resident().getCredentialsFilteredBy(inputCredentials, homeAccountId, environment,
+                    credentialType, clientId, applicationIdentifier, mamEnrollmentIdentifier, realm,
+                    target, authScheme, requestedClaims, kid);
+        }
+
+        @Override
+        public boolean removeAccount(final AccountRecord accountToRemove) {
+            return write(new Function<IAccountCredentialCache, Boolean>() {
+                @Override
+                public Boolean apply(final IAccountCredentialCache cache) {
+                    return cache.removeAccount(accountToRemove);
+                }
+            });
+        }
+
+        @Override
+        public boolean removeCredential(final Credential credentialToRemove) {
+            return write(new Function<IAccountCredentialCache, Boolean>() {
+                @Override
+                public Boolean apply(final IAccountCredentialCache cache) {
+                    return cache.removeCredential(credentialToRemove);
+                }
+            });
+        }
+
+        @Override
+        public void clearAll() {
+            write(new Function<IAccountCredentialCache, Void>() {
+                @Override
+                public Void apply(final IAccountCredentialCache cache) {
+                    cache.clearAll();
+                    return null;
+                }
+            });
+        }
+
+        @Override
+        public void flush() {
+            write(new Function<IAccountCredentialCache, Void>() {
+                @Override
+                public Void apply(final IAccountCredentialCache cache) {
+                    cache.flush();
+                    return null;
+                }
+            });
+        }
+    }
+}
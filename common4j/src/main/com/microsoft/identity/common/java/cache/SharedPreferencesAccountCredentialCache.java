@@ -30,15 +30,12 @@ import com.microsoft.identity.common.java.dto.IdTokenRecord;
 import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
 import com.microsoft.identity.common.java.logging.Logger;
-import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -648,46 +645,7 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
      */
     @Nullable
     public static CredentialType getCredentialTypeForCredentialCacheKey(@NonNull final String cacheKey) {
-        final String methodTag = TAG + ":getCredentialTypeForCredentialCacheKey";
-        if (StringUtil.isNullOrEmpty(cacheKey)) {
-            throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
-        }
-
-        final Set<String> credentialTypesLowerCase = new HashSet<>();
-
-        for (final String credentialTypeStr : CredentialType.valueSet()) {
-            credentialTypesLowerCase.add(credentialTypeStr.toLowerCase(Locale.US));
-        }
-
-        CredentialType type = null;
-        for (final String credentialTypeStr : credentialTypesLowerCase) {
-            if (cacheKey.contains(CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR + credentialTypeStr + CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR)) {
-                if (CredentialType.AccessToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.AccessToken;
-                    break;
-                } else if (CredentialType.AccessToken_With_AuthScheme.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.AccessToken_With_AuthScheme;
-                    break;
-                } else if (CredentialType.RefreshToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.RefreshToken;
-                    break;
-                } else if (CredentialType.IdToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.IdToken;
-                    break;
-                } else if (CredentialType.V1IdToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.V1IdToken;
-                    break;
-                } else if (CredentialType.PrimaryRefreshToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.PrimaryRefreshToken;
-                    break;
-                } else {
-                    // TODO Log a warning and skip this value?
-                    Logger.warn(methodTag, "Unexpected credential type.");
-                }
-            }
-        }
-
-        return type;
+        return CredentialCacheKeyClassifier.getCredentialType(cacheKey);
     }
 
     private static boolean isAccount(@NonNull final String cacheKey) {
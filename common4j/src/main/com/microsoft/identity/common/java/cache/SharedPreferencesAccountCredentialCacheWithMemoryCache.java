@@ -29,19 +29,28 @@ import com.microsoft.identity.common.java.dto.Credential;
 import com.microsoft.identity.common.java.dto.CredentialType;
 import com.microsoft.identity.common.java.dto.IdTokenRecord;
 import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.exception.TerminalException;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
 import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.NonNull;
@@ -49,6 +58,24 @@ import lombok.NonNull;
 /**
  * Alternative version of {@link SharedPreferencesAccountCredentialCache} that assumes all writes and reads
  * are done through a single-instance and can thereforce be cached in memory.
+ * <p>
+ * The in-memory image is held in an immutable {@link CacheSnapshot} which is replaced (copy-on-write)
+ * on every save/remove. Lookups read the current snapshot without taking any lock, so they never
+ * wait on a concurrent write or on the underlying {@link INameValueStorage}. Writes are serialized
+ * among themselves. The snapshot shares its structure with the previous one (see
+ * {@link PersistentHashMap}), so a write copies O(log n) nodes rather than the whole cache.
+ * <p>
+ * Optionally, persistence can be made write-behind: saves then only update the in-memory image
+ * and hand the record to a {@link CacheWriteBehindQueue}, which serializes and writes batches in the
+ * background. {@link #flush()} waits for pending writes; {@link #removeAccount(AccountRecord)} and
+ * {@link #clearAll()} act as durability barriers.
+ * <p>
+ * The cache is loaded in the background, in priority order: accounts first, then refresh and ID
+ * tokens, then everything else (mostly access tokens). By default every lookup waits for the whole
+ * load. With progressive load, lookups only wait for the accounts; credential lookups are served
+ * from memory for the types already loaded and read straight from storage for the others, so that
+ * the first silent request of an app with a large cache doesn't wait for all of it. Writes always
+ * wait for the whole load.
  */
 @SuppressWarnings("PMD.AvoidDuplicateLiterals")
 public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends AbstractAccountCredentialCache {
@@ -57,10 +84,85 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
 
     private final ICacheKeyValueDelegate mCacheValueDelegate;
 
+    /**
+     * Null unless write-behind persistence was requested.
+     */
+    @Nullable
+    private final CacheWriteBehindQueue mWriteBehindQueue;
+
+    /**
+     * Serializes writers. Readers never take this lock.
+     */
     private final Object mCacheLock = new Object();
-    private boolean mLoaded = false;
-    private Map<String, AccountRecord> mCachedAccountRecordsWithKeys = new HashMap<>();
-    private Map<String, Credential> mCachedCredentialsWithKeys = new HashMap<>();
+    private final CountDownLatch mInitialLoadLatch = new CountDownLatch(1);
+    private final CountDownLatch mAccountsLoadLatch = new CountDownLatch(1);
+    private final boolean mProgressiveLoad;
+    private volatile CacheSnapshot mSnapshot = new CacheSnapshot(
+            PersistentHashMap.<String, AccountRecord>empty(),
+            PersistentHashMap.<String, Credential>empty(),
+            new CredentialCacheIndex(),
+            EnumSet.noneOf(CredentialType.class)
+    );
+
+    /**
+     * The credential types loaded right after the accounts, as a silent request needs them to
+     * find an account and redeem its refresh token.
+     */
+    private static final Set<CredentialType> PRIORITY_CREDENTIAL_TYPES = Collections.unmodifiableSet(EnumSet.of(
+            CredentialType.RefreshToken,
+            CredentialType.PrimaryRefreshToken,
+            CredentialType.IdToken,
+            CredentialType.V1IdToken
+    ));
+
+    /**
+     * Immutable view of the cached records. Instances (and the maps/index they hold) must not be
+     * modified once published to {@link #mSnapshot}; writers derive a new snapshot instead.
+     */
+    private static final class CacheSnapshot {
+        final PersistentHashMap<String, AccountRecord> mAccountRecordsWithKeys;
+        final PersistentHashMap<String, Credential> mCredentialsWithKeys;
+        final CredentialCacheIndex mCredentialIndex;
+
+        /**
+         * The credential types all records of which are in this snapshot, or null once the
+         * initial load has completed.
+         */
+        @Nullable
+        final Set<CredentialType> mResidentCredentialTypes;
+
+        CacheSnapshot(@NonNull final PersistentHashMap<String, AccountRecord> accountRecordsWithKeys,
+                      @NonNull final PersistentHashMap<String, Credential> credentialsWithKeys,
+                      @NonNull final CredentialCacheIndex credentialIndex) {
+            this(accountRecordsWithKeys, credentialsWithKeys, credentialIndex, null);
+        }
+
+        CacheSnapshot(@NonNull final PersistentHashMap<String, AccountRecord> accountRecordsWithKeys,
+                      @NonNull final PersistentHashMap<String, Credential> credentialsWithKeys,
+                      @NonNull final CredentialCacheIndex credentialIndex,
+                      @Nullable final Set<CredentialType> residentCredentialTypes) {
+            mAccountRecordsWithKeys = accountRecordsWithKeys;
+            mCredentialsWithKeys = credentialsWithKeys;
+            mCredentialIndex = credentialIndex;
+            mResidentCredentialTypes = residentCredentialTypes;
+        }
+
+        /**
+         * @return true once every record is in this snapshot.
+         */
+        boolean isComplete() {
+            return null == mResidentCredentialTypes;
+        }
+
+        /**
+         * @return true if every record of the supplied type is in this snapshot. If the type is
+         * null, true only once every type is.
+         */
+        boolean isResident(@Nullable final CredentialType credentialType) {
+            return null == mResidentCredentialTypes
+                    || (null != credentialType && mResidentCredentialTypes.contains(credentialType));
+        }
+    }
 
     /**
      * Constructor of SharedPreferencesAccountCredentialCacheWithMemoryCache.
@@ -71,42 +173,138 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
     public SharedPreferencesAccountCredentialCacheWithMemoryCache(
             @NonNull final ICacheKeyValueDelegate accountCacheValueDelegate,
             @NonNull final INameValueStorage<String> sharedPreferencesFileManager) {
+        this(accountCacheValueDelegate, sharedPreferencesFileManager, false);
+    }
+
+    /**
+     * Constructor of SharedPreferencesAccountCredentialCacheWithMemoryCache.
+     *
+     * @param accountCacheValueDelegate    ICacheKeyValueDelegate
+     * @param sharedPreferencesFileManager INameValueStorage
+     * @param useWriteBehind               true to persist saves asynchronously, in batches.
+     */
+    public SharedPreferencesAccountCredentialCacheWithMemoryCache(
+            @NonNull final ICacheKeyValueDelegate accountCacheValueDelegate,
+            @NonNull final INameValueStorage<String> sharedPreferencesFileManager,
+            final boolean useWriteBehind) {
+        this(accountCacheValueDelegate, sharedPreferencesFileManager, useWriteBehind, false);
+    }
+
+    /**
+     * Constructor of SharedPreferencesAccountCredentialCacheWithMemoryCache.
+     *
+     * @param accountCacheValueDelegate    ICacheKeyValueDelegate
+     * @param sharedPreferencesFileManager INameValueStorage
+     * @param useWriteBehind               true to persist saves asynchronously, in batches.
+     * @param useProgressiveLoad           true to serve lookups while the cache is still being
+     *                                     loaded, see the class documentation.
+     */
+    public SharedPreferencesAccountCredentialCacheWithMemoryCache(
+            @NonNull final ICacheKeyValueDelegate accountCacheValueDelegate,
+            @NonNull final INameValueStorage<String> sharedPreferencesFileManager,
+            final boolean useWriteBehind,
+            final boolean useProgressiveLoad) {
         super(sharedPreferencesFileManager);
-        Logger.verbose(TAG, "Init: " + TAG);
+        Logger.verbose(TAG, "Init: " + TAG + ", write-behind: " + useWriteBehind
+                + ", progressive load: " + useProgressiveLoad);
         mCacheValueDelegate = accountCacheValueDelegate;
+        mProgressiveLoad = useProgressiveLoad;
+        mWriteBehindQueue = useWriteBehind
+                ? new CacheWriteBehindQueue(sharedPreferencesFileManager, accountCacheValueDelegate)
+                : null;
         new Thread(() -> load()).start();
     }
 
     private void load() {
         final String methodTag = TAG + ":load";
 
-        synchronized (mCacheLock) {
-            try {
-                mCachedAccountRecordsWithKeys = loadAccountsWithKeys();
-                Logger.info(methodTag, "Loaded " + mCachedAccountRecordsWithKeys.size() + " AccountRecords");
-                mCachedCredentialsWithKeys = loadCredentialsWithKeys();
-                Logger.info(methodTag, "Loaded " + mCachedCredentialsWithKeys.size() + " Credentials");
-            } catch (final Throwable t) {
-                Logger.error(methodTag, "Failed to load initial accounts or credentials from SharedPreferences", t);
-            } finally {
-                mLoaded = true;
-                mCacheLock.notifyAll();
+        // Writers wait for the latch before taking mCacheLock, so nothing else touches the
+        // snapshot until we're done here.
+        try {
+            final long start = System.nanoTime();
+            final PersistentHashMap<String, AccountRecord> accounts =
+                    PersistentHashMap.copyOf(loadAccountsWithKeys());
+            mSnapshot = new CacheSnapshot(
+                    accounts,
+                    PersistentHashMap.<String, Credential>empty(),
+                    new CredentialCacheIndex(),
+                    EnumSet.noneOf(CredentialType.class)
+            );
+            mAccountsLoadLatch.countDown();
+
+            final PersistentHashMap<String, Credential> priorityCredentials =
+                    PersistentHashMap.copyOf(loadCredentialsWithKeys(true));
+            final CredentialCacheIndex priorityIndex = new CredentialCacheIndex();
+            for (final Map.Entry<String, Credential> entry : priorityCredentials.entrySet()) {
+                priorityIndex.add(entry.getKey(), entry.getValue());
+            }
+            mSnapshot = new CacheSnapshot(accounts, priorityCredentials, priorityIndex, PRIORITY_CREDENTIAL_TYPES);
+            Logger.info(methodTag, "Loaded " + accounts.size() + " AccountRecords and "
+                    + priorityCredentials.size() + " refresh/ID tokens in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+            // Published snapshots are immutable, so the rest goes into copies.
+            final Map<String, Credential> otherCredentials = loadCredentialsWithKeys(false);
+            PersistentHashMap<String, Credential> credentials = priorityCredentials;
+            final CredentialCacheIndex credentialIndex = priorityIndex.copy();
+            for (final Map.Entry<String, Credential> entry : otherCredentials.entrySet()) {
+                credentials = credentials.plus(entry.getKey(), entry.getValue());
+                credentialIndex.add(entry.getKey(), entry.getValue());
             }
+            mSnapshot = new CacheSnapshot(accounts, credentials, credentialIndex);
+            Logger.info(methodTag, "Loaded " + accounts.size() + " AccountRecords and "
+                    + credentials.size() + " Credentials in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (final Throwable t) {
+            Logger.error(methodTag, "Failed to load initial accounts or credentials from SharedPreferences", t);
+            // Serve whatever was loaded, and stop falling back to storage.
+            final CacheSnapshot snapshot = mSnapshot;
+            mSnapshot = new CacheSnapshot(
+                    snapshot.mAccountRecordsWithKeys,
+                    snapshot.mCredentialsWithKeys,
+                    snapshot.mCredentialIndex
+            );
+        } finally {
+            mAccountsLoadLatch.countDown();
+            mInitialLoadLatch.countDown();
         }
     }
 
     private void waitForInitialLoad() {
-        final String methodTag = TAG + ":waitForInitialLoad";
+        await(mInitialLoadLatch);
+    }
+
+    private static void await(@NonNull final CountDownLatch latch) {
+        final String methodTag = TAG + ":await";
 
-        while (!mLoaded) {
+        while (latch.getCount() > 0) {
             try {
-                mCacheLock.wait();
+                latch.await();
             } catch (final InterruptedException e) {
                 Logger.error(methodTag, "Caught InterruptedException while waiting", e);
             }
         }
     }
 
+    /**
+     * @return the current snapshot, once the initial load has completed.
+     */
+    @NonNull
+    private CacheSnapshot getSnapshot() {
+        waitForInitialLoad();
+        return mSnapshot;
+    }
+
+    /**
+     * @return the current snapshot, once it holds every account. With progressive load, some
+     * credential types may not be resident yet, see {@link CacheSnapshot#isResident}.
+     */
+    @NonNull
+    private CacheSnapshot getPartialSnapshot() {
+        await(mProgressiveLoad ? mAccountsLoadLatch : mInitialLoadLatch);
+        return mSnapshot;
+    }
+
     @Override
     public void saveAccount(@NonNull final AccountRecord accountInput) {
         final String methodTag = TAG + ":saveAccount";
@@ -120,23 +318,33 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         }
 
         Logger.verbose(methodTag, "Saving Account...");
-        Logger.verbose(methodTag, "Account type: [" + accountToSave.getClass().getSimpleName() + "]");
+        Logger.verboseFormat(methodTag, "Account type: [{}]", accountToSave.getClass().getSimpleName());
         final String cacheKey = mCacheValueDelegate.generateCacheKey(accountToSave);
-        Logger.verbosePII(methodTag, "Generated cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(methodTag, "Generated cache key: [{}]", cacheKey);
 
+        waitForInitialLoad();
         synchronized (mCacheLock) {
-            waitForInitialLoad();
+            final CacheSnapshot snapshot = mSnapshot;
 
             // Perform any necessary field merging on the Account to save...
-            final AccountRecord existingAccount = getAccount(cacheKey);
+            final AccountRecord existingAccount = snapshot.mAccountRecordsWithKeys.get(cacheKey);
 
             if (null != existingAccount) {
                 accountToSave.mergeAdditionalFields(existingAccount);
             }
 
-            final String cacheValue = mCacheValueDelegate.generateCacheValue(accountToSave);
-            mSharedPreferencesFileManager.put(cacheKey, cacheValue);
-            mCachedAccountRecordsWithKeys.put(cacheKey, accountToSave);
+            if (null != mWriteBehindQueue) {
+                mWriteBehindQueue.enqueueSave(cacheKey, accountToSave);
+            } else {
+                final String cacheValue = mCacheValueDelegate.generateCacheValue(accountToSave);
+                mSharedPreferencesFileManager.put(cacheKey, cacheValue);
+            }
+
+            mSnapshot = new CacheSnapshot(
+                    snapshot.mAccountRecordsWithKeys.plus(cacheKey, accountToSave),
+                    snapshot.mCredentialsWithKeys,
+                    snapshot.mCredentialIndex
+            );
         }
     }
 
@@ -154,21 +362,36 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
 
         Logger.verbose(methodTag, "Saving credential...");
         final String cacheKey = mCacheValueDelegate.generateCacheKey(credentialToSave);
-        Logger.verbosePII(methodTag, "Generated cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(methodTag, "Generated cache key: [{}]", cacheKey);
 
+        waitForInitialLoad();
         synchronized (mCacheLock) {
-            waitForInitialLoad();
+            final CacheSnapshot snapshot = mSnapshot;
 
             // Perform any necessary field merging on the Credential to save...
-            final Credential existingCredential = getCredential(cacheKey);
+            final Credential existingCredential = snapshot.mCredentialsWithKeys.get(cacheKey);
 
             if (null != existingCredential) {
                 credentialToSave.mergeAdditionalFields(existingCredential);
             }
 
-            final String cacheValue = mCacheValueDelegate.generateCacheValue(credentialToSave);
-            mSharedPreferencesFileManager.put(cacheKey, cacheValue);
-            mCachedCredentialsWithKeys.put(cacheKey, credentialToSave);
+            if (null != mWriteBehindQueue) {
+                mWriteBehindQueue.enqueueSave(cacheKey, credentialToSave);
+            } else {
+                final String cacheValue = mCacheValueDelegate.generateCacheValue(credentialToSave);
+                mSharedPreferencesFileManager.put(cacheKey, cacheValue);
+            }
+
+            final CredentialCacheIndex credentialIndex = snapshot.mCredentialIndex.copy();
+            if (null != existingCredential) {
+                credentialIndex.remove(cacheKey, existingCredential);
+            }
+            credentialIndex.add(cacheKey, credentialToSave);
+            mSnapshot = new CacheSnapshot(
+                    snapshot.mAccountRecordsWithKeys,
+                    snapshot.mCredentialsWithKeys.plus(cacheKey, credentialToSave),
+                    credentialIndex
+            );
         }
     }
 
@@ -176,12 +399,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
     public AccountRecord getAccount(@NonNull final String cacheKey) {
         final String methodTag = TAG + ":getAccount";
 
-        AccountRecord foundValue;
-
-        synchronized (mCacheLock) {
-            waitForInitialLoad();
-            foundValue = mCachedAccountRecordsWithKeys.get(cacheKey);
-        }
+        AccountRecord foundValue = getPartialSnapshot().mAccountRecordsWithKeys.get(cacheKey);
 
         try {
             if (foundValue != null) {
@@ -198,11 +416,15 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
     public Credential getCredential(@NonNull final String cacheKey) {
         final String methodTag = TAG + ":getCredential";
 
-        Credential foundValue;
+        final CacheSnapshot snapshot = getPartialSnapshot();
+        Credential foundValue = snapshot.mCredentialsWithKeys.get(cacheKey);
 
-        synchronized (mCacheLock) {
-            waitForInitialLoad();
-            foundValue = mCachedCredentialsWithKeys.get(cacheKey);
+        if (null == foundValue && !snapshot.isComplete() && !StringUtil.isNullOrEmpty(cacheKey)) {
+            final CredentialType credentialType = getCredentialTypeForCredentialCacheKey(cacheKey);
+            if (null != credentialType && !snapshot.isResident(credentialType)) {
+                // Not loaded yet, this is a fresh instance.
+                return readCredentialFromStorage(cacheKey);
+            }
         }
 
         try {
@@ -221,34 +443,45 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         final String methodTag = TAG + ":loadAccountsWithKeys";
 
         Logger.verbose(methodTag, "Loading Accounts + keys...");
-        final Iterator<Map.Entry<String, String>> cacheValues = mSharedPreferencesFileManager.getAllFilteredByKey(new Predicate<String>() {
-            @Override
-            public boolean test(String value) {
-                return isAccount(value);
-            }
-        });
-        final Map<String, AccountRecord> accounts = new HashMap<>();
-        if (cacheValues != null) {
-            while (cacheValues.hasNext()) {
-                Map.Entry<String, ?> cacheValue = cacheValues.next();
-                final String cacheKey = cacheValue.getKey();
-                final AccountRecord account = mCacheValueDelegate.fromCacheValue(
-                        cacheValue.getValue().toString(),
-                        AccountRecord.class
-                );
-
-                if (null == account) {
-                    Logger.warn(methodTag, SharedPreferencesAccountCredentialCache.ACCOUNT_RECORD_DESERIALIZATION_FAILED);
-                } else if (SharedPreferencesAccountCredentialCache.EMPTY_ACCOUNT.equals(account)) {
-                    Logger.warn(methodTag, "The returned Account was uninitialized. Removing...");
-                    mSharedPreferencesFileManager.remove(cacheKey);
-                } else {
-                    accounts.put(cacheKey, account);
+        final Map<String, AccountRecord> accounts = new ConcurrentHashMap<>();
+        final Queue<String> uninitializedKeys = new ConcurrentLinkedQueue<>();
+        final AtomicLong parseNanos = new AtomicLong();
+
+        // Entries are decrypted and parsed on several threads at once.
+        final BulkReadStatistics statistics = mSharedPreferencesFileManager.forEachFilteredByKey(
+                new Predicate<String>() {
+                    @Override
+                    public boolean test(String value) {
+                        return isAccount(value);
+                    }
+                },
+                new BiConsumer<String, String>() {
+                    @Override
+                    public void accept(final String cacheKey, final String cacheValue) {
+                        final long parseStart = System.nanoTime();
+                        final AccountRecord account = mCacheValueDelegate.fromCacheValue(
+                                cacheValue,
+                                AccountRecord.class
+                        );
+                        parseNanos.addAndGet(System.nanoTime() - parseStart);
+
+                        if (null == account) {
+                            Logger.warn(methodTag, SharedPreferencesAccountCredentialCache.ACCOUNT_RECORD_DESERIALIZATION_FAILED);
+                        } else if (SharedPreferencesAccountCredentialCache.EMPTY_ACCOUNT.equals(account)) {
+                            uninitializedKeys.add(cacheKey);
+                        } else {
+                            accounts.put(cacheKey, account);
+                        }
+                    }
                 }
-            }
+        );
+
+        for (final String cacheKey : uninitializedKeys) {
+            Logger.warn(methodTag, "The returned Account was uninitialized. Removing...");
+            mSharedPreferencesFileManager.remove(cacheKey);
         }
 
-        Logger.verbose(methodTag, "Returning [" + accounts.size() + "] Accounts w/ keys...");
+        logLoadStatistics(methodTag, accounts.size() + " Accounts", statistics, parseNanos.get());
 
         return accounts;
     }
@@ -259,19 +492,9 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         final String methodTag = TAG + ":getAccounts";
         Logger.verbose(methodTag, "Loading Accounts...(no arg)");
 
-        synchronized (mCacheLock) {
-            waitForInitialLoad();
-            final List<AccountRecord> accounts = new ArrayList<>();
-            for (AccountRecord record : mCachedAccountRecordsWithKeys.values()) {
-                try {
-                    accounts.add((AccountRecord) record.clone());
-                } catch (final CloneNotSupportedException e) {
-                    Logger.error(methodTag, "Failed to clone AccountRecord", e);
-                }
-            }
-            Logger.info(methodTag, "Found [" + accounts.size() + "] Accounts...");
-            return accounts;
-        }
+        final List<AccountRecord> accounts = cloneAccounts(getPartialSnapshot().mAccountRecordsWithKeys.values());
+        Logger.infoFormat(methodTag, "Found [{}] Accounts...", accounts.size());
+        return accounts;
     }
 
     @Override
@@ -283,80 +506,286 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         final String methodTag = TAG + ":getAccountsFilteredBy";
         Logger.verbose(methodTag, "Loading Accounts...");
 
-        final List<AccountRecord> allAccounts = getAccounts();
+        final List<AccountRecord> allAccounts = new ArrayList<>(getPartialSnapshot().mAccountRecordsWithKeys.values());
 
-        final List<AccountRecord> matchingAccounts = getAccountsFilteredByInternal(
+        // Filter the cached instances and clone only the ones we hand out.
+        final List<AccountRecord> matchingAccounts = cloneAccounts(getAccountsFilteredByInternal(
                 homeAccountId,
                 environment,
                 realm,
                 allAccounts
-        );
+        ));
 
-        Logger.verbose(methodTag, "Found [" + matchingAccounts.size() + "] matching Accounts...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Accounts...", matchingAccounts.size());
 
         return matchingAccounts;
     }
 
+    /**
+     * Loads either the credentials of the {@link #PRIORITY_CREDENTIAL_TYPES}, or all others.
+     */
     @NonNull
-    private Map<String, Credential> loadCredentialsWithKeys() {
+    private Map<String, Credential> loadCredentialsWithKeys(final boolean priority) {
         final String methodTag = TAG + ":getCredentialsWithKeys";
         Logger.verbose(methodTag, "Loading Credentials with keys...");
 
-        final Map<String, Credential> credentials = new HashMap<>();
-        final Iterator<Map.Entry<String, String>> cacheValues = mSharedPreferencesFileManager.getAllFilteredByKey(new Predicate<String>() {
-            @Override
-            public boolean test(String value) {
-                return isCredential(value);
-            }
-        });
-
-        while (cacheValues.hasNext()) {
-            Map.Entry<String, ?> cacheValue = cacheValues.next();
-            final String cacheKey = cacheValue.getKey();
-            final Class<? extends AccountCredentialBase> clazz = credentialClassForType(cacheKey);
-            final Credential credential = mCacheValueDelegate.fromCacheValue(
-                    cacheValue.getValue().toString(),
-                    clazz
-            );
+        final Map<String, Credential> credentials = new ConcurrentHashMap<>();
+        final Queue<String> uninitializedKeys = new ConcurrentLinkedQueue<>();
+        final AtomicLong parseNanos = new AtomicLong();
+
+        // Entries are decrypted and parsed on several threads at once.
+        final BulkReadStatistics statistics = mSharedPreferencesFileManager.forEachFilteredByKey(
+                new Predicate<String>() {
+                    @Override
+                    public boolean test(String value) {
+                        final CredentialType credentialType = getCredentialTypeForCredentialCacheKey(value);
+                        return null != credentialType
+                                && priority == PRIORITY_CREDENTIAL_TYPES.contains(credentialType);
+                    }
+                },
+                new BiConsumer<String, String>() {
+                    @Override
+                    public void accept(final String cacheKey, final String cacheValue) {
+                        final long parseStart = System.nanoTime();
+                        final Credential credential = parseCredential(cacheKey, cacheValue, uninitializedKeys);
+                        parseNanos.addAndGet(System.nanoTime() - parseStart);
+
+                        if (null != credential) {
+                            credentials.put(cacheKey, credential);
+                        }
+                    }
+                }
+        );
+
+        for (final String cacheKey : uninitializedKeys) {
+            Logger.warn(methodTag, "The returned Credential was uninitialized. Removing...");
+            mSharedPreferencesFileManager.remove(cacheKey);
+        }
+
+        logLoadStatistics(methodTag, credentials.size() + (priority ? " refresh/ID tokens" : " other Credentials"),
+                statistics, parseNanos.get());
+
+        return credentials;
+    }
+
+    /**
+     * Deserializes a credential read from storage.
+     *
+     * @param uninitializedKeys if not null, receives the key of an uninitialized credential.
+     * @return the credential, or null if it is malformed or uninitialized.
+     */
+    @Nullable
+    private Credential parseCredential(@NonNull final String cacheKey,
+                                       @NonNull final String cacheValue,
+                                       @Nullable final Queue<String> uninitializedKeys) {
+        final String methodTag = TAG + ":parseCredential";
+
+        final Class<? extends AccountCredentialBase> clazz = credentialClassForType(cacheKey);
+        final Credential credential = mCacheValueDelegate.fromCacheValue(
+                cacheValue,
+                clazz
+        );
 
-            if (null == credential) {
-                Logger.warn(methodTag, SharedPreferencesAccountCredentialCache.CREDENTIAL_DESERIALIZATION_FAILED);
-            } else if ((AccessTokenRecord.class == clazz && SharedPreferencesAccountCredentialCache.EMPTY_AT.equals(credential))
+        if (null == credential) {
+            Logger.warn(methodTag, SharedPreferencesAccountCredentialCache.CREDENTIAL_DESERIALIZATION_FAILED);
+            return null;
+        } else if ((AccessTokenRecord.class == clazz && SharedPreferencesAccountCredentialCache.EMPTY_AT.equals(credential))
                 || (RefreshTokenRecord.class == clazz && SharedPreferencesAccountCredentialCache.EMPTY_RT.equals(credential))
                 || (IdTokenRecord.class == clazz) && SharedPreferencesAccountCredentialCache.EMPTY_ID.equals(credential)) {
-                // The returned credential came back uninitialized...
-                // Remove the entry and return null...
-                Logger.warn(methodTag, "The returned Credential was uninitialized. Removing...");
-                mSharedPreferencesFileManager.remove(cacheKey);
-            }
-            else {
-                credentials.put(cacheKey, credential);
+            // The returned credential came back uninitialized...
+            if (null != uninitializedKeys) {
+                uninitializedKeys.add(cacheKey);
             }
+            return null;
         }
 
-        Logger.verbose(methodTag, "Loaded [" + credentials.size() + "] Credentials...");
+        return credential;
+    }
+
+    /**
+     * Reads a credential which hasn't been loaded yet straight from storage.
+     */
+    @Nullable
+    private Credential readCredentialFromStorage(@NonNull final String cacheKey) {
+        final String methodTag = TAG + ":readCredentialFromStorage";
+        Logger.verbose(methodTag, "Credential type not loaded yet, reading from storage...");
 
+        final String cacheValue = mSharedPreferencesFileManager.get(cacheKey);
+        if (null == cacheValue) {
+            return null;
+        }
+
+        // Any uninitialized entry is removed by the load.
+        return parseCredential(cacheKey, cacheValue, null);
+    }
+
+    /**
+     * Reads the credentials of a type which hasn't been loaded yet straight from storage. Only the
+     * entries whose key may match are decrypted; the caller still has to filter the result.
+     */
+    @NonNull
+    private List<Credential> readCredentialsFromStorage(@Nullable final String homeAccountId,
+                                                        @Nullable final String environment,
+                                                        @Nullable final CredentialType credentialType) {
+        final String methodTag = TAG + ":readCredentialsFromStorage";
+        Logger.verbose(methodTag, "Credential type not loaded yet, reading from storage...");
+
+        final String keyPrefix = getCredentialCacheKeyPrefix(homeAccountId, environment);
+        final Iterator<Map.Entry<String, String>> cacheValues = mSharedPreferencesFileManager.getAllFilteredByKey(
+                new Predicate<String>() {
+                    @Override
+                    public boolean test(String value) {
+                        if (null != keyPrefix && !value.startsWith(keyPrefix)) {
+                            return false;
+                        }
+                        final CredentialType type = getCredentialTypeForCredentialCacheKey(value);
+                        return null != type && (null == credentialType || credentialType == type);
+                    }
+                });
+
+        final List<Credential> credentials = new ArrayList<>();
+        while (null != cacheValues && cacheValues.hasNext()) {
+            final Map.Entry<String, String> cacheValue = cacheValues.next();
+            final Credential credential = parseCredential(cacheValue.getKey(), cacheValue.getValue(), null);
+            if (null != credential) {
+                credentials.add(credential);
+            }
+        }
+
+        Logger.verboseFormat(methodTag, "Read [{}] Credentials from storage...", credentials.size());
         return credentials;
     }
 
+    /**
+     * Credential cache keys start with the sanitized home account id and environment, see
+     * {@link CacheKeyValueDelegate#generateCacheKey(Credential)}.
+     *
+     * @return the prefix every key of a matching credential starts with, or null if it can't be
+     * told apart from the filter alone.
+     */
+    @Nullable
+    private static String getCredentialCacheKeyPrefix(@Nullable final String homeAccountId,
+                                                      @Nullable final String environment) {
+        if (!isPlainAscii(homeAccountId)) {
+            return null;
+        }
+
+        final String prefix = StringUtil.sanitizeNullAndLowercaseAndTrim(homeAccountId)
+                + CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
+        if (!isPlainAscii(environment)) {
+            return prefix;
+        }
+
+        return prefix
+                + StringUtil.sanitizeNullAndLowercaseAndTrim(environment)
+                + CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
+    }
+
+    /**
+     * @return true if the value is not empty and sanitizes the same way in the cache key and in
+     * the case insensitive filter, i.e. is ASCII without template placeholders.
+     */
+    private static boolean isPlainAscii(@Nullable final String value) {
+        if (StringUtil.isNullOrEmpty(value)) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80 || c == '<') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void logLoadStatistics(@NonNull final String methodTag,
+                                          @NonNull final String loaded,
+                                          @NonNull final BulkReadStatistics statistics,
+                                          final long parseNanos) {
+        Logger.info(methodTag, "Loaded " + loaded
+                + ": read " + statistics.getReadTimeMillis() + " ms"
+                + ", decrypt " + statistics.getDecodeTimeMillis() + " ms"
+                + ", parse " + TimeUnit.NANOSECONDS.toMillis(parseNanos) + " ms"
+                + " (decrypt and parse summed across " + statistics.getThreadCount() + " threads)"
+                + ", total " + statistics.getTotalTimeMillis() + " ms");
+    }
+
     @Override
     @NonNull
     public List<Credential> getCredentials() {
         final String methodTag = TAG + ":getCredentials";
         Logger.verbose(methodTag, "Loading Credentials...");
 
-        synchronized (mCacheLock) {
-            waitForInitialLoad();
-            ArrayList<Credential> credentials = new ArrayList<>();
-            for (Credential credential : mCachedCredentialsWithKeys.values()) {
-                try {
-                    credentials.add((Credential)credential.clone());
-                } catch (final CloneNotSupportedException e) {
-                    Logger.error(methodTag, "Failed to clone Credential", e);
-                }
+        return cloneCredentials(getSnapshot().mCredentialsWithKeys.values());
+    }
+
+    /**
+     * Returns the cached (uncloned) Credentials which may match the supplied criteria, as
+     * narrowed down by {@link CredentialCacheIndex}. The returned instances must not be handed
+     * out to callers without being cloned first.
+     */
+    @NonNull
+    private List<Credential> getCandidateCredentials(@Nullable final String homeAccountId,
+                                                     @Nullable final String environment,
+                                                     @Nullable final CredentialType credentialType,
+                                                     @Nullable final String clientId,
+                                                     @Nullable final String realm,
+                                                     @Nullable final String target) {
+        final CacheSnapshot snapshot = getPartialSnapshot();
+        if (!snapshot.isResident(credentialType)) {
+            return readCredentialsFromStorage(homeAccountId, environment, credentialType);
+        }
+
+        final Set<String> candidateKeys = snapshot.mCredentialIndex.getCandidateKeys(
+                homeAccountId,
+                environment,
+                credentialType,
+                clientId,
+                realm,
+                target
+        );
+
+        if (null == candidateKeys) {
+            return new ArrayList<>(snapshot.mCredentialsWithKeys.values());
+        }
+
+        final List<Credential> candidates = new ArrayList<>(candidateKeys.size());
+        for (final String cacheKey : candidateKeys) {
+            final Credential credential = snapshot.mCredentialsWithKeys.get(cacheKey);
+            if (null != credential) {
+                candidates.add(credential);
             }
-            return credentials;
         }
+        return candidates;
+    }
+
+    @NonNull
+    private static List<Credential> cloneCredentials(@NonNull final Collection<Credential> credentials) {
+        final String methodTag = TAG + ":cloneCredentials";
+        final List<Credential> result = new ArrayList<>(credentials.size());
+        for (final Credential credential : credentials) {
+            try {
+                result.add((Credential) credential.clone());
+            } catch (final CloneNotSupportedException e) {
+                Logger.error(methodTag, "Failed to clone Credential", e);
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    private static List<AccountRecord> cloneAccounts(@NonNull final Collection<AccountRecord> accounts) {
+        final String methodTag = TAG + ":cloneAccounts";
+        final List<AccountRecord> result = new ArrayList<>(accounts.size());
+        for (final AccountRecord account : accounts) {
+            try {
+                result.add((AccountRecord) account.clone());
+            } catch (final CloneNotSupportedException e) {
+                Logger.error(methodTag, "Failed to clone AccountRecord", e);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -374,10 +803,17 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         final String methodTag = TAG + ":getCredentialsFilteredBy";
         Logger.verbose(methodTag, "getCredentialsFilteredBy()");
 
-        final List<Credential> allCredentials = getCredentials();
+        final List<Credential> candidateCredentials = getCandidateCredentials(
+                homeAccountId,
+                environment,
+                credentialType,
+                clientId,
+                realm,
+                target
+        );
 
-        final List<Credential> matchingCredentials = getCredentialsFilteredByInternal(
-                allCredentials,
+        final List<Credential> matchingCredentials = cloneCredentials(getCredentialsFilteredByInternal(
+                candidateCredentials,
                 homeAccountId,
                 environment,
                 credentialType,
@@ -390,9 +826,9 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                 null,
                 null,
                 false
-        );
+        ));
 
-        Logger.verbose(methodTag, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -428,7 +864,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                 false
         );
 
-        Logger.verbose(methodTag, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -449,10 +885,17 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
         final String methodTag = TAG + ":getCredentialsFilteredBy";
         Logger.verbose(methodTag, "getCredentialsFilteredBy()");
 
-        final List<Credential> allCredentials = getCredentials();
+        final List<Credential> candidateCredentials = getCandidateCredentials(
+                homeAccountId,
+                environment,
+                credentialType,
+                clientId,
+                realm,
+                target
+        );
 
-        final List<Credential> matchingCredentials = getCredentialsFilteredByInternal(
-                allCredentials,
+        final List<Credential> matchingCredentials = cloneCredentials(getCredentialsFilteredByInternal(
+                candidateCredentials,
                 homeAccountId,
                 environment,
                 credentialType,
@@ -465,9 +908,9 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                 requestedClaims,
                 null,
                 false
-        );
+        ));
 
-        Logger.verbose(methodTag, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -505,7 +948,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                 false
         );
 
-        Logger.verbose(methodTag, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -544,7 +987,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                 mustMatchExactClaims
         );
 
-        Logger.verbose(methodTag, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        Logger.verboseFormat(methodTag, "Found [{}] matching Credentials...", matchingCredentials.size());
 
         return matchingCredentials;
     }
@@ -560,13 +1003,20 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
                                                      @Nullable final String target,
                                                      @Nullable final String authScheme,
                                                      @Nullable final String requestedClaims) {
-        final List<Credential> allCredentials = getCredentials();
-
         final List<Credential> result = new ArrayList<>();
         for (final CredentialType type : credentialTypes) {
+            final List<Credential> candidateCredentials = getCandidateCredentials(
+                    homeAccountId,
+                    environment,
+                    type,
+                    clientId,
+                    realm,
+                    target
+            );
+
             result.addAll(
                     getCredentialsFilteredByInternal(
-                            allCredentials,
+                            candidateCredentials,
                             homeAccountId,
                             environment,
                             type,
@@ -583,7 +1033,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
             );
         }
 
-        return result;
+        return cloneCredentials(result);
     }
 
     @Override
@@ -631,17 +1081,35 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
 
         final String cacheKey = mCacheValueDelegate.generateCacheKey(accountToRemove);
 
+        waitForInitialLoad();
         synchronized (mCacheLock) {
-            waitForInitialLoad();
+            // Removal is a durability barrier: settle pending writes before touching the storage.
+            if (null != mWriteBehindQueue) {
+                try {
+                    mWriteBehindQueue.flush();
+                } catch (final TerminalException e) {
+                    // The other failed writes stay pending; this one must not come back after the removal.
+                    Logger.warn(methodTag, "Removing account with cache writes still pending.");
+                }
+                mWriteBehindQueue.discardPendingWrite(cacheKey);
+            }
+
             boolean accountRemoved = false;
             if (mSharedPreferencesFileManager.keySet().contains(cacheKey))
             {
                 mSharedPreferencesFileManager.remove(cacheKey);
                 accountRemoved = true;
             }
-            Logger.info(methodTag, "Account was removed? [" + accountRemoved + "]");
-
-            mCachedAccountRecordsWithKeys.remove(cacheKey);
+            Logger.infoFormat(methodTag, "Account was removed? [{}]", accountRemoved);
+
+            final CacheSnapshot snapshot = mSnapshot;
+            if (snapshot.mAccountRecordsWithKeys.containsKey(cacheKey)) {
+                mSnapshot = new CacheSnapshot(
+                        snapshot.mAccountRecordsWithKeys.minus(cacheKey),
+                        snapshot.mCredentialsWithKeys,
+                        snapshot.mCredentialIndex
+                );
+            }
 
             return accountRemoved;
         }
@@ -658,17 +1126,33 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
 
         final String cacheKey = mCacheValueDelegate.generateCacheKey(credentialToRemove);
 
+        waitForInitialLoad();
         synchronized (mCacheLock) {
-            waitForInitialLoad();
             boolean credentialRemoved = false;
-            if (mSharedPreferencesFileManager.keySet().contains(cacheKey)) {
+            if (null != mWriteBehindQueue) {
+                // The memory image is authoritative for anything still pending.
+                credentialRemoved = mSnapshot.mCredentialsWithKeys.containsKey(cacheKey)
+                        || (!mWriteBehindQueue.hasPendingWrite(cacheKey)
+                        && mSharedPreferencesFileManager.keySet().contains(cacheKey));
+                mWriteBehindQueue.enqueueRemove(cacheKey);
+            } else if (mSharedPreferencesFileManager.keySet().contains(cacheKey)) {
                 mSharedPreferencesFileManager.remove(cacheKey);
                 credentialRemoved = true;
             }
 
-            Logger.info(methodTag, "Credential was removed? [" + credentialRemoved + "]");
-
-            mCachedCredentialsWithKeys.remove(cacheKey);
+            Logger.infoFormat(methodTag, "Credential was removed? [{}]", credentialRemoved);
+
+            final CacheSnapshot snapshot = mSnapshot;
+            final Credential removedCredential = snapshot.mCredentialsWithKeys.get(cacheKey);
+            if (null != removedCredential) {
+                final CredentialCacheIndex credentialIndex = snapshot.mCredentialIndex.copy();
+                credentialIndex.remove(cacheKey, removedCredential);
+                mSnapshot = new CacheSnapshot(
+                        snapshot.mAccountRecordsWithKeys,
+                        snapshot.mCredentialsWithKeys.minus(cacheKey),
+                        credentialIndex
+                );
+            }
 
             return credentialRemoved;
         }
@@ -679,20 +1163,40 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
     public void clearAll() {
         final String methodTag = TAG + ":clearAll";
         Logger.info(methodTag, "Clearing all SharedPreferences entries...");
+        waitForInitialLoad();
         synchronized (mCacheLock) {
-            waitForInitialLoad();
-            mSharedPreferencesFileManager.clear();
-            mCachedCredentialsWithKeys.clear();
-            mCachedAccountRecordsWithKeys.clear();
+            if (null != mWriteBehindQueue) {
+                mWriteBehindQueue.clear();
+            } else {
+                mSharedPreferencesFileManager.clear();
+            }
+            mSnapshot = new CacheSnapshot(
+                    PersistentHashMap.<String, AccountRecord>empty(),
+                    PersistentHashMap.<String, Credential>empty(),
+                    new CredentialCacheIndex()
+            );
         }
         Logger.info(methodTag, "SharedPreferences cleared.");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws TerminalException if some writes could not be persisted. They are kept pending and
+     *                           retried by the next flush.
+     */
+    @Override
+    public void flush() {
+        if (null != mWriteBehindQueue) {
+            mWriteBehindQueue.flush();
+        }
+    }
+
     @Nullable
     private Class<? extends Credential> credentialClassForType(@NonNull final String cacheKey) {
         final String methodTag = TAG + ":credentialClassForType";
         Logger.verbose(methodTag, "Resolving class for key/CredentialType...");
-        Logger.verbosePII(methodTag, "Supplied key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(methodTag, "Supplied key: [{}]", cacheKey);
 
         final CredentialType targetType = getCredentialTypeForCredentialCacheKey(cacheKey);
 
@@ -700,7 +1204,7 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
             return null;
         }
 
-        Logger.verbose(methodTag, "CredentialType matched: [" + targetType + "]");
+        Logger.verboseFormat(methodTag, "CredentialType matched: [{}]", targetType);
 
         return getTargetClassForCredentialType(cacheKey, targetType);
     }
@@ -713,61 +1217,22 @@ public class SharedPreferencesAccountCredentialCacheWithMemoryCache extends Abst
      */
     @Nullable
     public static CredentialType getCredentialTypeForCredentialCacheKey(@NonNull final String cacheKey) {
-        final String methodTag = TAG + ":getCredentialTypeForCredentialCacheKey";
-        if (StringUtil.isNullOrEmpty(cacheKey)) {
-            throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
-        }
-
-        final Set<String> credentialTypesLowerCase = new HashSet<>();
-
-        for (final String credentialTypeStr : CredentialType.valueSet()) {
-            credentialTypesLowerCase.add(credentialTypeStr.toLowerCase(Locale.US));
-        }
-
-        CredentialType type = null;
-        for (final String credentialTypeStr : credentialTypesLowerCase) {
-            if (cacheKey.contains(CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR + credentialTypeStr + CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR)) {
-                if (CredentialType.AccessToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.AccessToken;
-                    break;
-                } else if (CredentialType.AccessToken_With_AuthScheme.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.AccessToken_With_AuthScheme;
-                    break;
-                } else if (CredentialType.RefreshToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.RefreshToken;
-                    break;
-                } else if (CredentialType.IdToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.IdToken;
-                    break;
-                } else if (CredentialType.V1IdToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.V1IdToken;
-                    break;
-                } else if (CredentialType.PrimaryRefreshToken.name().equalsIgnoreCase(credentialTypeStr)) {
-                    type = CredentialType.PrimaryRefreshToken;
-                    break;
-                } else {
-                    // TODO Log a warning and skip this value?
-                    Logger.warn(methodTag, "Unexpected credential type.");
-                }
-            }
-        }
-
-        return type;
+        return CredentialCacheKeyClassifier.getCredentialType(cacheKey);
     }
 
     private static boolean isAccount(@NonNull final String cacheKey) {
         final String methodTag = TAG + ":isAccount";
-        Logger.verbosePII(methodTag, "Evaluating cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(methodTag, "Evaluating cache key: [{}]", cacheKey);
         boolean isAccount = null == getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.verbose(methodTag, "isAccount? [" + isAccount + "]");
+        Logger.verboseFormat(methodTag, "isAccount? [{}]", isAccount);
         return isAccount;
     }
 
     private static boolean isCredential(@NonNull String cacheKey) {
         final String methodTag = TAG + ":isCredential";
-        Logger.verbosePII(methodTag, "Evaluating cache key: [" + cacheKey + "]");
+        Logger.verbosePIIFormat(methodTag, "Evaluating cache key: [{}]", cacheKey);
         boolean isCredential = null != getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.verbose(methodTag, "isCredential? [" + isCredential + "]");
+        Logger.verboseFormat(methodTag, "isCredential? [{}]", isCredential);
         return isCredential;
     }
 }
@@ -41,6 +41,9 @@ import static com.microsoft.identity.common.java.marker.PerfConstants.CodeMarker
 
 import com.microsoft.identity.common.java.BuildConfig;
 import com.microsoft.identity.common.java.WarningType;
+import com.microsoft.identity.common.java.authorities.Authority;
+import com.microsoft.identity.common.java.authscheme.BearerAuthenticationSchemeInternal;
+import com.microsoft.identity.common.java.cache.AuthorityMetadataCache;
 import com.microsoft.identity.common.java.commands.BaseCommand;
 import com.microsoft.identity.common.java.commands.DeviceCodeFlowAuthResultCommand;
 import com.microsoft.identity.common.java.commands.DeviceCodeFlowCommand;
@@ -52,6 +55,7 @@ import com.microsoft.identity.common.java.commands.parameters.BrokerInteractiveT
 import com.microsoft.identity.common.java.commands.parameters.CommandParameters;
 import com.microsoft.identity.common.java.commands.parameters.SilentTokenCommandParameters;
 import com.microsoft.identity.common.java.configuration.LibraryConfiguration;
+import com.microsoft.identity.common.java.dto.IAccountRecord;
 import com.microsoft.identity.common.java.eststelemetry.EstsTelemetry;
 import com.microsoft.identity.common.java.exception.BaseException;
 import com.microsoft.identity.common.java.exception.ClientException;
@@ -80,15 +84,18 @@ import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.LocalBroadcaster;
 import com.microsoft.identity.common.java.util.ported.PropertyBag;
 
-import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -98,14 +105,16 @@ import lombok.NonNull;
 public class CommandDispatcher {
 
     private static final String TAG = CommandDispatcher.class.getSimpleName();
-    private static final int SILENT_REQUEST_THREAD_POOL_SIZE = 5;
-    private static final int DCF_REQUEST_THREAD_POOL_SIZE = 5;
-    private static ExecutorService sInteractiveExecutor = Executors.newSingleThreadExecutor();
-    private static ExecutorService sSilentExecutor = Executors.newFixedThreadPool(SILENT_REQUEST_THREAD_POOL_SIZE);
-    private static final ExecutorService sDCFExecutor = Executors.newFixedThreadPool(DCF_REQUEST_THREAD_POOL_SIZE);
+    private static final Map<CommandExecutorType, CommandExecutorMetrics> sExecutorMetrics = newExecutorMetrics();
+    private static volatile ICommandExecutorStrategy sExecutorStrategy = ThreadPoolCommandExecutorStrategy.builder().build();
+    private static volatile CommandExecutor sInteractiveExecutor = newExecutor(CommandExecutorType.INTERACTIVE);
+    private static volatile CommandExecutor sSilentExecutor = newExecutor(CommandExecutorType.SILENT);
+    private static volatile CommandExecutor sDCFExecutor = newExecutor(CommandExecutorType.DEVICE_CODE_FLOW);
     private static final Object sLock = new Object();
     private static InteractiveTokenCommand sCommand = null;
     private static final CommandResultCache sCommandResultCache = new CommandResultCache();
+    private static final SilentTokenRequestCoalescer sSilentTokenRequestCoalescer = new SilentTokenRequestCoalescer();
+    private static final String SINGLE_FLIGHT_KEY_SEPARATOR = "|";
 
     private static final Object mapAccessLock = new Object();
 
@@ -158,17 +167,107 @@ public class CommandDispatcher {
         synchronized (mapAccessLock) {
             sExecutingCommandMap.clear();
         }
-        sSilentExecutor.shutdownNow();
+        rejectDroppedSilentRequests(sSilentExecutor.shutdownNow());
         sInteractiveExecutor.shutdownNow();
-        Field f = CommandDispatcher.class.getDeclaredField("sSilentExecutor");
-        f.setAccessible(true);
-        f.set(null, Executors.newFixedThreadPool(SILENT_REQUEST_THREAD_POOL_SIZE));
-        f.setAccessible(false);
-
-        f = CommandDispatcher.class.getDeclaredField("sInteractiveExecutor");
-        f.setAccessible(true);
-        f.set(null, Executors.newSingleThreadExecutor());
-        f.setAccessible(false);
+        sSilentExecutor = newExecutor(CommandExecutorType.SILENT);
+        sInteractiveExecutor = newExecutor(CommandExecutorType.INTERACTIVE);
+    }
+
+    @NonNull
+    private static Map<CommandExecutorType, CommandExecutorMetrics> newExecutorMetrics() {
+        final Map<CommandExecutorType, CommandExecutorMetrics> metrics = new EnumMap<>(CommandExecutorType.class);
+        for (final CommandExecutorType type : CommandExecutorType.values()) {
+            metrics.put(type, new CommandExecutorMetrics(type));
+        }
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    @NonNull
+    private static CommandExecutor newExecutor(@NonNull final CommandExecutorType type) {
+        return new CommandExecutor(sExecutorStrategy.createExecutor(type), sExecutorMetrics.get(type));
+    }
+
+    /**
+     * Returns an executor which hands each task to the executor current for the type at the time
+     * the task is executed. Parked silent requests are executed when released, and must not go to
+     * an executor which has been replaced or reset since they were submitted.
+     */
+    @NonNull
+    private static Executor getCurrentExecutor(@NonNull final CommandExecutorType type,
+                                               @NonNull final CommandExecutor.Priority priority) {
+        return new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable task) {
+                final CommandExecutor executor;
+                switch (type) {
+                    case INTERACTIVE:
+                        executor = sInteractiveExecutor;
+                        break;
+                    case DEVICE_CODE_FLOW:
+                        executor = sDCFExecutor;
+                        break;
+                    default:
+                        executor = sSilentExecutor;
+                        break;
+                }
+                executor.execute(task, priority);
+            }
+        };
+    }
+
+    /**
+     * Rejects the silent requests which will not run because the silent executor was shut down
+     * before getting to them, along with the requests parked behind silent requests in flight.
+     *
+     * @param droppedTasks The tasks returned by {@link CommandExecutor#shutdownNow()}.
+     */
+    private static void rejectDroppedSilentRequests(@NonNull final List<Runnable> droppedTasks) {
+        sSilentTokenRequestCoalescer.clear();
+
+        final RejectedExecutionException e = new RejectedExecutionException("The silent executor was shut down.");
+        for (final Runnable droppedTask : droppedTasks) {
+            if (droppedTask instanceof IRejectableTask) {
+                ((IRejectableTask) droppedTask).reject(e);
+            }
+        }
+    }
+
+    /**
+     * Replaces the strategy creating the executors commands run on. The current executors are
+     * shut down once they have run the commands already submitted to them.
+     *
+     * @param strategy The strategy to create executors with.
+     */
+    public static void setExecutorStrategy(@NonNull final ICommandExecutorStrategy strategy) {
+        Logger.info(TAG + ":setExecutorStrategy", "Replacing command executors.");
+        final CommandExecutor interactiveExecutor;
+        final CommandExecutor silentExecutor;
+        final CommandExecutor dcfExecutor;
+
+        synchronized (sLock) {
+            sExecutorStrategy = strategy;
+            interactiveExecutor = sInteractiveExecutor;
+            silentExecutor = sSilentExecutor;
+            dcfExecutor = sDCFExecutor;
+            sInteractiveExecutor = newExecutor(CommandExecutorType.INTERACTIVE);
+            sSilentExecutor = newExecutor(CommandExecutorType.SILENT);
+            sDCFExecutor = newExecutor(CommandExecutorType.DEVICE_CODE_FLOW);
+        }
+
+        interactiveExecutor.shutdown();
+        silentExecutor.shutdown();
+        dcfExecutor.shutdown();
+    }
+
+    /**
+     * Returns the metrics of the executor running the supplied type of commands.
+     *
+     * @param type The type of commands.
+     * @return The metrics, accumulated across executor resets.
+     */
+    @NonNull
+    public static CommandExecutorMetrics getExecutorMetrics(@NonNull final CommandExecutorType type) {
+        return sExecutorMetrics.get(type);
     }
 
     /**
@@ -280,7 +379,7 @@ public class CommandDispatcher {
                                                                                      @NonNull final BaseCommand command) {
         final CodeMarkerManager codeMarkerManager = CodeMarkerManager.getInstance();
         final String methodName;
-        final ExecutorService commandExecutor;
+        final CommandExecutorType executorType;
 
         final CommandParameters commandParameters = command.getParameters();
         final String correlationId = initializeDiagnosticContext(commandParameters.getCorrelationId(),
@@ -294,11 +393,11 @@ public class CommandDispatcher {
         // Use DCF thread pool for DCF requests so that in case user chooses to follow interactive sign in,
         // future silent calls are not blocked
         if (isDeviceCodeFlowRequest) {
-            commandExecutor = sDCFExecutor;
+            executorType = CommandExecutorType.DEVICE_CODE_FLOW;
             codeMarkerManager.markCode(ACQUIRE_TOKEN_DCF_START);
             methodName = ":submitDCF";
         } else {
-            commandExecutor = sSilentExecutor;
+            executorType = CommandExecutorType.SILENT;
             codeMarkerManager.markCode(ACQUIRE_TOKEN_SILENT_START);
             methodName = ":submitSilent";
         }
@@ -338,7 +437,7 @@ public class CommandDispatcher {
                     sExecutingCommandMap.size()
             );
 
-            commandExecutor.execute(OtelContextExtension.wrap(new Runnable() {
+            final Runnable commandRunnable = OtelContextExtension.wrap(new Runnable() {
                 @Override
                 public void run() {
                     codeMarkerManager.markCode(isDeviceCodeFlowRequest ? ACQUIRE_TOKEN_DCF_EXECUTOR_START : ACQUIRE_TOKEN_SILENT_EXECUTOR_START);
@@ -349,6 +448,7 @@ public class CommandDispatcher {
                                 commandParameters.getSdkVersion());
 
                         initTelemetryForCommand(command);
+                        setUpPlatformCaches(command);
 
                         EstsTelemetry.getInstance().emitApiId(command.getPublicApiId());
 
@@ -365,14 +465,14 @@ public class CommandDispatcher {
                         } finally {
                             codeMarkerManager.markCode(isDeviceCodeFlowRequest ? ACQUIRE_TOKEN_DCF_COMMAND_EXECUTION_END : ACQUIRE_TOKEN_SILENT_COMMAND_EXECUTION_END);
                         }
-                        Logger.info(TAG + methodName, "Completed silent request as owner for correlation id : **"
-                                + correlationId + ", with the status : " + commandResult.getStatus().getLogStatus()
-                                + " is cacheable : " + command.isEligibleForCaching());
+                        Logger.infoFormat(TAG + methodName, "Completed silent request as owner for correlation id : **{}"
+                                        + ", with the status : {} is cacheable : {}",
+                                correlationId, commandResult.getStatus().getLogStatus(), command.isEligibleForCaching());
                         // TODO 1309671 : change required to stop the LocalAuthenticationResult object from mutating in cases of cached command.
                         EstsTelemetry.getInstance().flush(command, commandResult);
                         finalFuture.setResult(commandResult);
                     } catch (final Throwable t) {
-                        Logger.info(TAG + methodName, "Request encountered an exception with correlation id : **" + correlationId);
+                        Logger.infoFormat(TAG + methodName, "Request encountered an exception with correlation id : **{}", correlationId);
                         finalFuture.setException(new ExecutionException(t));
                     } finally {
                         synchronized (mapAccessLock) {
@@ -394,11 +494,61 @@ public class CommandDispatcher {
                     }
                     codeMarkerManager.markCode(isDeviceCodeFlowRequest ? ACQUIRE_TOKEN_DCF_FUTURE_OBJECT_CREATION_END : ACQUIRE_TOKEN_SILENT_FUTURE_OBJECT_CREATION_END);
                 }
-            }));
+            });
+
+            final IRejectableTask commandTask = new IRejectableTask() {
+                @Override
+                public void run() {
+                    commandRunnable.run();
+                }
+
+                @Override
+                public void reject(@NonNull final RejectedExecutionException e) {
+                    failRejectedCommand(correlationId, finalFuture, e);
+                }
+            };
+
+            // Requests which would redeem the same refresh token wait for the one in flight,
+            // and are then served from the tokens it saved.
+            sSilentTokenRequestCoalescer.execute(
+                    getSingleFlightKey(command),
+                    commandTask,
+                    finalFuture,
+                    getCurrentExecutor(executorType, CommandExecutor.Priority.FOREGROUND)
+            );
             return finalFuture;
         }
     }
 
+    /**
+     * Completes a command its executor did not accept with an error result, and forgets it, so
+     * that equal commands submitted later are not handed its future.
+     * <p>
+     * This may run while another command's future is being completed, so it must not take
+     * {@link #mapAccessLock}. The entry is removed by future rather than by command, in case the
+     * command has mutated. Once the future is complete, an equal command which still picks it up
+     * gets the error right away.
+     */
+    private static void failRejectedCommand(@NonNull final String correlationId,
+                                            @NonNull final FinalizableResultFuture<CommandResult> finalFuture,
+                                            @NonNull final RejectedExecutionException e) {
+        Logger.warn(TAG + ":failRejectedCommand",
+                "Request was not accepted by its executor, correlation id : **" + correlationId);
+        finalFuture.setResult(getRejectedCommandResult(correlationId, e));
+        sExecutingCommandMap.values().remove(finalFuture);
+        finalFuture.setCleanedUp();
+    }
+
+    @NonNull
+    private static CommandResult getRejectedCommandResult(@Nullable final String correlationId,
+                                                          @NonNull final RejectedExecutionException e) {
+        return CommandResult.of(
+                CommandResult.ResultStatus.ERROR,
+                new ClientException(ClientException.REQUEST_REJECTED, "The request was not accepted for execution.", e),
+                correlationId
+        );
+    }
+
     public static void submitAndForget(@NonNull final BaseCommand command){
         submitAndForgetReturningFuture(command);
     }
@@ -416,16 +566,12 @@ public class CommandDispatcher {
         commandParameters.setCorrelationId(correlationId);
 
         logParameters(TAG + methodName, correlationId, commandParameters, command.getPublicApiId());
-        Logger.info(
-                TAG,
-                "RefreshOnCommand with CorrelationId: "
-                        + correlationId
-        );
+        Logger.infoFormat(TAG, "RefreshOnCommand with CorrelationId: {}", correlationId);
 
         synchronized (mapAccessLock) {
             final FinalizableResultFuture<CommandResult> finalFuture = new FinalizableResultFuture<>();
             finalFuture.whenComplete(getCommandResultConsumer(command));
-            sSilentExecutor.execute(OtelContextExtension.wrap(new Runnable() {
+            final Runnable refreshTask = OtelContextExtension.wrap(new Runnable() {
                 @Override
                 public void run() {
 
@@ -438,39 +584,88 @@ public class CommandDispatcher {
                         EstsTelemetry.getInstance().emitApiId(command.getPublicApiId());
 
                         CommandResult commandResult = executeCommand(command);
-                        Logger.info(TAG + methodName, "Completed as owner for correlation id : **"
-                                + correlationId + statusMsg(commandResult.getStatus().getLogStatus())
-                                + " is cacheable : " + command.isEligibleForCaching());
+                        Logger.infoFormat(TAG + methodName, "Completed as owner for correlation id : **{}{} is cacheable : {}",
+                                correlationId, statusMsg(commandResult.getStatus().getLogStatus()), command.isEligibleForCaching());
                         EstsTelemetry.getInstance().flush(command, commandResult);
                         finalFuture.setResult(commandResult);
                     } catch (final Throwable t) {
-                        Logger.info(TAG + methodName, "Request encountered an exception with correlation id : **" + correlationId);
+                        Logger.infoFormat(TAG + methodName, "Request encountered an exception with correlation id : **{}", correlationId);
                         finalFuture.setException(new ExecutionException(t));
                     } finally {
                         DiagnosticContext.INSTANCE.clear();
                     }
 
                 }
-            }));
+            });
+            try {
+                sSilentExecutor.execute(refreshTask, CommandExecutor.Priority.BACKGROUND);
+            } catch (final RejectedExecutionException e) {
+                // A refresh which cannot be queued must not fail the request which triggered it.
+                failRejectedCommand(correlationId, finalFuture, e);
+            }
             return finalFuture;
         }
     }
 
+    /**
+     * Returns the key under which concurrent silent requests are coalesced. Only identical bearer
+     * requests share a key: same account, authority, client, calling app, scopes and claims. Their
+     * cache lookup would hit or miss together, so a parked request only waits for the request
+     * whose result it would need anyway. Requests which skip the cache are never coalesced.
+     *
+     * @return The key, or null if the command must not be coalesced.
+     */
+    @Nullable
+    private static String getSingleFlightKey(@SuppressWarnings(WarningType.rawtype_warning) @NonNull final BaseCommand command) {
+        if (!(command instanceof SilentTokenCommand)
+                || !(command.getParameters() instanceof SilentTokenCommandParameters)
+                || !CommonFlightsManager.INSTANCE.getFlightsProvider().isFlightEnabled(CommonFlight.ENABLE_SILENT_REQUEST_SINGLE_FLIGHT)) {
+            return null;
+        }
+
+        final SilentTokenCommandParameters parameters = (SilentTokenCommandParameters) command.getParameters();
+        final IAccountRecord account = parameters.getAccount();
+        final Authority authority = parameters.getAuthority();
+
+        if (null == account || null == authority || StringUtil.isNullOrEmpty(account.getHomeAccountId())
+                || parameters.isForceRefresh()
+                || !(parameters.getAuthenticationScheme() instanceof BearerAuthenticationSchemeInternal)) {
+            return null;
+        }
+
+        final Set<String> scopes = null == parameters.getScopes()
+                ? Collections.<String>emptySet()
+                : new TreeSet<>(parameters.getScopes());
+
+        return account.getHomeAccountId()
+                + SINGLE_FLIGHT_KEY_SEPARATOR + authority.getAuthorityUri()
+                + SINGLE_FLIGHT_KEY_SEPARATOR + parameters.getClientId()
+                + SINGLE_FLIGHT_KEY_SEPARATOR + parameters.getCallerPackageName()
+                + SINGLE_FLIGHT_KEY_SEPARATOR + scopes
+                + SINGLE_FLIGHT_KEY_SEPARATOR + parameters.getClaimsRequestJson();
+    }
+
     private static void initTelemetryForCommand(@NonNull final BaseCommand<?> command) {
         EstsTelemetry.getInstance().setUp(
                 command.getParameters().getPlatformComponents());
         EstsTelemetry.getInstance().initTelemetryForCommand(command);
     }
 
+    private static void setUpPlatformCaches(@NonNull final BaseCommand<?> command) {
+        AuthorityMetadataCache.getInstance().setUp(
+                command.getParameters().getPlatformComponents());
+    }
+
     private static void logParameters(@NonNull String tag, @NonNull String correlationId,
                                       @NonNull CommandParameters parameters,
                                       @Nullable String publicApiId) {
         final String TAG = tag + ":" + parameters.getClass().getSimpleName();
 
         //TODO:1315871 - conversion of PublicApiId in readable form.
-        Logger.info(TAG, "Starting request with request context: "
-                        + DiagnosticContext.INSTANCE.getRequestContext().toJsonString()
-                        + ", with PublicApiId: " + publicApiId);
+        if (Logger.isLoggable(Logger.LogLevel.INFO)) {
+            Logger.infoFormat(TAG, "Starting request with request context: {}, with PublicApiId: {}",
+                    DiagnosticContext.INSTANCE.getRequestContext().toJsonString(), publicApiId);
+        }
 
         parameters.logParameters(TAG, correlationId);
     }
@@ -498,11 +693,11 @@ public class CommandDispatcher {
 
                 if (!StringUtil.isNullOrEmpty(result.getCorrelationId())
                         && !command.getParameters().getCorrelationId().equals(result.getCorrelationId())) {
-                    Logger.info(TAG + methodName,
-                            "Completed duplicate request with correlation id : **"
-                                    + command.getParameters().getCorrelationId() + ", having the same result as : "
-                                    + result.getCorrelationId() + ", with the status : "
-                                    + result.getStatus().getLogStatus());
+                    Logger.infoFormat(TAG + methodName,
+                            "Completed duplicate request with correlation id : **{}, having the same result as : {}"
+                                    + ", with the status : {}",
+                            command.getParameters().getCorrelationId(), result.getCorrelationId(),
+                            result.getStatus().getLogStatus());
                 }
                 // Return command result will post() result for us.
                 returnCommandResult(command, result);
@@ -588,11 +783,10 @@ public class CommandDispatcher {
         } else if (commandResult.getResult() instanceof BaseException) {
             ((BaseException) commandResult.getResult()).setTelemetry(telemetryMap);
         } else if (commandResult.getResult() != null) {
-            Logger.verbose(
+            Logger.verboseFormat(
                     TAG + ":setTelemetryOnResult",
-                    "Not setting telemetry on result as result type is " +
-                            commandResult.getResult().getClass().getCanonicalName() +
-                            " and doesn't support telemetry at this time."
+                    "Not setting telemetry on result as result type is {} and doesn't support telemetry at this time.",
+                    commandResult.getResult().getClass().getCanonicalName()
             );
         }
 
@@ -724,12 +918,12 @@ public class CommandDispatcher {
                                 "The previous interactive request was queued but never got processed and is blocking the interactive thread. " +
                                         "Restarting the interactive executor service to enable processing interactive requests again.");
                         List<Runnable> cancelledRequests = sInteractiveExecutor.shutdownNow();
-                        sInteractiveExecutor = Executors.newSingleThreadExecutor();
+                        sInteractiveExecutor = newExecutor(CommandExecutorType.INTERACTIVE);
                         Logger.info(TAG + methodName, "Cancelled execution of " + cancelledRequests.size() + " interactive requests.");
                     }
                 }
 
-                sInteractiveExecutor.execute(OtelContextExtension.wrap(new Runnable() {
+                final Runnable interactiveTask = OtelContextExtension.wrap(new Runnable() {
                     @Override
                     public void run() {
                         final CommandParameters commandParameters = command.getParameters();
@@ -746,6 +940,7 @@ public class CommandDispatcher {
                             logParameters(TAG + methodName, correlationId, commandParameters, command.getPublicApiId());
 
                             initTelemetryForCommand(command);
+                            setUpPlatformCaches(command);
 
                             EstsTelemetry.getInstance().emitApiId(command.getPublicApiId());
 
@@ -781,9 +976,9 @@ public class CommandDispatcher {
                                 commandResult = CommandResult.of(CommandResult.ResultStatus.ERROR, receiverException[0], correlationId);
                             }
 
-                            Logger.info(TAG + methodName,
-                                    "Completed interactive request for correlation id : **" + correlationId +
-                                            statusMsg(commandResult.getStatus().getLogStatus()));
+                            Logger.infoFormat(TAG + methodName,
+                                    "Completed interactive request for correlation id : **{}{}",
+                                    correlationId, statusMsg(commandResult.getStatus().getLogStatus()));
 
                             EstsTelemetry.getInstance().flush(command, commandResult);
                             returnCommandResult(command, commandResult);
@@ -791,7 +986,15 @@ public class CommandDispatcher {
                             DiagnosticContext.INSTANCE.clear();
                         }
                     }
-                }));
+                });
+                try {
+                    sInteractiveExecutor.execute(interactiveTask, CommandExecutor.Priority.FOREGROUND);
+                } catch (final RejectedExecutionException e) {
+                    final String correlationId = command.getParameters().getCorrelationId();
+                    Logger.warn(TAG + methodName,
+                            "Interactive request was not accepted by its executor, correlation id : **" + correlationId);
+                    returnCommandResult(command, getRejectedCommandResult(correlationId, e));
+                }
             }
         }
 
@@ -867,12 +1070,15 @@ public class CommandDispatcher {
         try {
             if (!sSilentExecutor.awaitTermination(1000, TimeUnit.MILLISECONDS)) {
                 Logger.warn(methodTag, "terminating now");
-                sSilentExecutor.shutdownNow();
+                rejectDroppedSilentRequests(sSilentExecutor.shutdownNow());
             }
         } catch (final InterruptedException e) {
             Logger.warn(methodTag, "terminating again");
-            sSilentExecutor.shutdownNow();
+            rejectDroppedSilentRequests(sSilentExecutor.shutdownNow());
         }
+
+        // Write out whatever the silent requests left in the last request telemetry.
+        EstsTelemetry.getInstance().persistLastRequestTelemetry();
     }
     /***
      * Resets the SilentRequestsExecutor.
@@ -882,7 +1088,7 @@ public class CommandDispatcher {
      */
     public static void resetSilentRequestExecutor() {
         Logger.info(TAG + ":resetSilentRequestExecutor", "Resetting silent Executor");
-        sSilentExecutor = Executors.newFixedThreadPool(SILENT_REQUEST_THREAD_POOL_SIZE);
+        sSilentExecutor = newExecutor(CommandExecutorType.SILENT);
     }
 }
 
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.NonNull;
+
+/**
+ * An executor created by an {@link ICommandExecutorStrategy}, which records
+ * {@link CommandExecutorMetrics} for the tasks run on it.
+ */
+class CommandExecutor {
+
+    /**
+     * Relative priority of a task. Only honored by executors which order their queue.
+     */
+    enum Priority {
+        FOREGROUND,
+        BACKGROUND
+    }
+
+    private static final AtomicLong sSequence = new AtomicLong();
+
+    private final ExecutorService mDelegate;
+    private final CommandExecutorMetrics mMetrics;
+
+    CommandExecutor(@NonNull final ExecutorService delegate,
+                    @NonNull final CommandExecutorMetrics metrics) {
+        mDelegate = delegate;
+        mMetrics = metrics;
+    }
+
+    /**
+     * Executes the supplied task.
+     *
+     * @throws RejectedExecutionException if the underlying executor does not accept the task.
+     */
+    void execute(@NonNull final Runnable task, @NonNull final Priority priority) {
+        final CommandTask commandTask = new CommandTask(task, priority, mMetrics);
+        mMetrics.onSubmitted();
+        try {
+            mDelegate.execute(commandTask);
+        } catch (final RejectedExecutionException e) {
+            mMetrics.onRejected();
+            throw e;
+        }
+    }
+
+    void shutdown() {
+        mDelegate.shutdown();
+    }
+
+    /**
+     * Shuts the executor down, interrupting running tasks.
+     *
+     * @return The tasks which were queued and will not run, as handed to {@link #execute}.
+     */
+    @NonNull
+    List<Runnable> shutdownNow() {
+        final List<Runnable> droppedTasks = new ArrayList<>();
+        for (final Runnable droppedTask : mDelegate.shutdownNow()) {
+            droppedTasks.add(droppedTask instanceof CommandTask ? ((CommandTask) droppedTask).mTask : droppedTask);
+        }
+        mMetrics.onDropped(droppedTasks.size());
+        return droppedTasks;
+    }
+
+    boolean awaitTermination(final long timeout, @NonNull final TimeUnit unit) throws InterruptedException {
+        return mDelegate.awaitTermination(timeout, unit);
+    }
+
+    @NonNull
+    CommandExecutorMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * A task as handed to the underlying executor. Orders by priority, then by submission order.
+     */
+    private static final class CommandTask implements Runnable, Comparable<CommandTask> {
+        private final Runnable mTask;
+        private final Priority mPriority;
+        private final long mSequence;
+        private final CommandExecutorMetrics mMetrics;
+        private final long mSubmittedAtNanos;
+
+        private CommandTask(@NonNull final Runnable task,
+                            @NonNull final Priority priority,
+                            @NonNull final CommandExecutorMetrics metrics) {
+            mTask = task;
+            mPriority = priority;
+            mSequence = sSequence.getAndIncrement();
+            mMetrics = metrics;
+            mSubmittedAtNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            final long startedAtNanos = System.nanoTime();
+            mMetrics.onStarted(startedAtNanos - mSubmittedAtNanos);
+            try {
+                mTask.run();
+            } finally {
+                mMetrics.onFinished(System.nanoTime() - startedAtNanos);
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull final CommandTask other) {
+            final int byPriority = mPriority.compareTo(other.mPriority);
+            return byPriority != 0 ? byPriority : Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link CommandDispatcher} executor. Kept across executor resets, so they describe
+ * the whole lifetime of the dispatcher.
+ * <p>
+ * Wait time runs from the submission of a task to the executor until the task starts; run time
+ * is how long the task ran.
+ */
+public class CommandExecutorMetrics {
+
+    private final CommandExecutorType mType;
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mActiveCount = new AtomicInteger();
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private final AtomicLong mTotalWaitNanos = new AtomicLong();
+    private final AtomicLong mMaxWaitNanos = new AtomicLong();
+    private final AtomicLong mTotalRunNanos = new AtomicLong();
+    private final AtomicLong mMaxRunNanos = new AtomicLong();
+
+    CommandExecutorMetrics(final CommandExecutorType type) {
+        mType = type;
+    }
+
+    void onSubmitted() {
+        mSubmittedCount.incrementAndGet();
+        mQueueDepth.incrementAndGet();
+    }
+
+    void onRejected() {
+        mQueueDepth.decrementAndGet();
+        mRejectedCount.incrementAndGet();
+    }
+
+    /**
+     * Records tasks which were queued, but dropped without running (e.g. by shutdownNow()).
+     */
+    void onDropped(final int count) {
+        mQueueDepth.addAndGet(-count);
+    }
+
+    void onStarted(final long waitNanos) {
+        mQueueDepth.decrementAndGet();
+        mActiveCount.incrementAndGet();
+        mTotalWaitNanos.addAndGet(waitNanos);
+        updateMax(mMaxWaitNanos, waitNanos);
+    }
+
+    void onFinished(final long runNanos) {
+        mActiveCount.decrementAndGet();
+        mCompletedCount.incrementAndGet();
+        mTotalRunNanos.addAndGet(runNanos);
+        updateMax(mMaxRunNanos, runNanos);
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return The type of the executor these metrics describe.
+     */
+    public CommandExecutorType getType() {
+        return mType;
+    }
+
+    /**
+     * @return The number of tasks submitted but not yet started.
+     */
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * @return The number of tasks currently running.
+     */
+    public int getActiveCount() {
+        return mActiveCount.get();
+    }
+
+    /**
+     * @return The number of tasks accepted by the executor.
+     */
+    public long getSubmittedCount() {
+        return mSubmittedCount.get() - mRejectedCount.get();
+    }
+
+    /**
+     * @return The number of tasks which ran to completion (successfully or not).
+     */
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /**
+     * @return The number of tasks the executor refused to run.
+     */
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    /**
+     * @return The average time a started task waited for a thread, in milliseconds.
+     */
+    public double getAverageWaitTimeMillis() {
+        return average(mTotalWaitNanos.get(), mCompletedCount.get() + mActiveCount.get());
+    }
+
+    /**
+     * @return The longest time a started task waited for a thread, in milliseconds.
+     */
+    public long getMaxWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mMaxWaitNanos.get());
+    }
+
+    /**
+     * @return The average run time of a completed task, in milliseconds.
+     */
+    public double getAverageRunTimeMillis() {
+        return average(mTotalRunNanos.get(), mCompletedCount.get());
+    }
+
+    /**
+     * @return The longest run time of a completed task, in milliseconds.
+     */
+    public long getMaxRunTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mMaxRunNanos.get());
+    }
+
+    private static double average(final long totalNanos, final long count) {
+        return count <= 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandExecutorMetrics{" +
+                "type=" + mType +
+                ", queueDepth=" + getQueueDepth() +
+                ", active=" + getActiveCount() +
+                ", submitted=" + getSubmittedCount() +
+                ", completed=" + getCompletedCount() +
+                ", rejected=" + getRejectedCount() +
+                ", avgWaitMs=" + getAverageWaitTimeMillis() +
+                ", maxWaitMs=" + getMaxWaitTimeMillis() +
+                ", avgRunMs=" + getAverageRunTimeMillis() +
+                ", maxRunMs=" + getMaxRunTimeMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import lombok.NonNull;
+
+/**
+ * Creates the executors {@link CommandDispatcher} runs commands on.
+ * <p>
+ * Every task handed to these executors is {@link Comparable}: tasks of foreground requests order
+ * before background ones (e.g. {@link CommandDispatcher#submitAndForget}), then by submission
+ * order. An executor backed by a {@link PriorityBlockingQueue} therefore starts foreground work
+ * first. Executors may reject tasks, e.g. when their queue is full; the rejection is surfaced to
+ * the caller and counted in {@link CommandExecutorMetrics#getRejectedCount()}.
+ */
+public interface ICommandExecutorStrategy {
+
+    /**
+     * Creates a new executor for the supplied type of commands. Called again whenever the
+     * dispatcher has to replace an executor which was shut down.
+     *
+     * @param type The type of commands the executor will run.
+     * @return A new executor.
+     */
+    @NonNull
+    ExecutorService createExecutor(@NonNull CommandExecutorType type);
+}
@@ -0,0 +1,221 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.BiConsumer;
+import com.microsoft.identity.common.java.util.ResultFuture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Single-flight layer for identical silent token requests.
+ * <p>
+ * The first request for a key (the leader) is executed right away. Requests for the same key which
+ * arrive while the leader is in flight are parked, without holding an executor thread. Once the
+ * leader completes, every parked request is released at once. After a success they are served
+ * from the tokens the leader has just saved to the cache; after a failure they run in parallel,
+ * rather than one after the other.
+ * <p>
+ * A request which its executor does not accept is rejected through {@link IRejectableTask#reject},
+ * so that its command still completes.
+ */
+class SilentTokenRequestCoalescer {
+
+    private static final String TAG = SilentTokenRequestCoalescer.class.getSimpleName();
+
+    private final Object mLock = new Object();
+
+    /**
+     * Requests parked behind the in-flight leader of each key. A key is present while its leader
+     * is in flight. Each flight gets its own deque, so that a leader which completes after its
+     * flight was cleared does not release the requests of the next flight.
+     */
+    //@GuardedBy("mLock")
+    private final Map<String, Deque<ParkedRequest>> mParkedRequests = new HashMap<>();
+
+    private static final class ParkedRequest {
+        private final IRejectableTask mTask;
+        private final ResultFuture<CommandResult> mResult;
+        private final Executor mExecutor;
+
+        private ParkedRequest(@NonNull final IRejectableTask task,
+                              @NonNull final ResultFuture<CommandResult> result,
+                              @NonNull final Executor executor) {
+            mTask = task;
+            mResult = result;
+            mExecutor = executor;
+        }
+    }
+
+    /**
+     * Executes the supplied task, or parks it if a request with the same key is in flight.
+     *
+     * @param key      The single-flight key of the request, or null if it must not be coalesced.
+     * @param task     The task executing the request.
+     * @param result   The future completed by the task.
+     * @param executor The executor to run the task on. A parked task is handed to it when it is
+     *                 released, so it should resolve the executor current at that time.
+     */
+    void execute(@Nullable final String key,
+                 @NonNull final IRejectableTask task,
+                 @NonNull final ResultFuture<CommandResult> result,
+                 @NonNull final Executor executor) {
+        final String methodTag = TAG + ":execute";
+
+        if (null == key) {
+            try {
+                executor.execute(task);
+            } catch (final RejectedExecutionException e) {
+                task.reject(e);
+            }
+            return;
+        }
+
+        final ParkedRequest request = new ParkedRequest(task, result, executor);
+        final Deque<ParkedRequest> flight;
+
+        synchronized (mLock) {
+            final Deque<ParkedRequest> parkedRequests = mParkedRequests.get(key);
+            if (null != parkedRequests) {
+                parkedRequests.addLast(request);
+                Logger.info(methodTag, "An identical request is in flight, "
+                        + "parking request. Parked requests: " + parkedRequests.size());
+                return;
+            }
+
+            flight = new ArrayDeque<>();
+            mParkedRequests.put(key, flight);
+        }
+
+        lead(key, flight, request);
+    }
+
+    /**
+     * Executes the supplied request as the leader of its key. If the executor rejects it, the
+     * request is rejected, and requests parked behind it are released.
+     */
+    private void lead(@NonNull final String key,
+                      @NonNull final Deque<ParkedRequest> flight,
+                      @NonNull final ParkedRequest leader) {
+        try {
+            leader.mExecutor.execute(leader.mTask);
+        } catch (final RejectedExecutionException e) {
+            onLeaderCompleted(key, flight);
+            leader.mTask.reject(e);
+            return;
+        }
+
+        leader.mResult.whenComplete(new BiConsumer<CommandResult, Throwable>() {
+            @Override
+            public void accept(@Nullable final CommandResult commandResult, @Nullable final Throwable throwable) {
+                onLeaderCompleted(key, flight);
+            }
+        });
+    }
+
+    private void onLeaderCompleted(@NonNull final String key,
+                                   @NonNull final Deque<ParkedRequest> flight) {
+        final String methodTag = TAG + ":onLeaderCompleted";
+        final List<ParkedRequest> released = new ArrayList<>();
+
+        synchronized (mLock) {
+            if (mParkedRequests.get(key) != flight) {
+                // The flight was cleared.
+                return;
+            }
+
+            mParkedRequests.remove(key);
+            released.addAll(flight);
+        }
+
+        if (!released.isEmpty()) {
+            Logger.info(methodTag, "Releasing " + released.size() + " parked request[s].");
+        }
+
+        for (final ParkedRequest request : released) {
+            try {
+                request.mExecutor.execute(request.mTask);
+            } catch (final RejectedExecutionException e) {
+                request.mTask.reject(e);
+            }
+        }
+    }
+
+    /**
+     * @return The number of keys with a request in flight.
+     */
+    //@VisibleForTesting
+    int getInFlightCount() {
+        synchronized (mLock) {
+            return mParkedRequests.size();
+        }
+    }
+
+    /**
+     * @return The number of requests parked behind a request in flight.
+     */
+    //@VisibleForTesting
+    int getParkedCount() {
+        synchronized (mLock) {
+            int count = 0;
+            for (final Deque<ParkedRequest> parkedRequests : mParkedRequests.values()) {
+                count += parkedRequests.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Forgets every request in flight, and rejects the requests parked behind them. To be called
+     * when the executor the leaders run on is shut down, as their completion may never come.
+     */
+    void clear() {
+        final List<ParkedRequest> rejected = new ArrayList<>();
+        synchronized (mLock) {
+            for (final Deque<ParkedRequest> parkedRequests : mParkedRequests.values()) {
+                rejected.addAll(parkedRequests);
+            }
+            mParkedRequests.clear();
+        }
+
+        if (!rejected.isEmpty()) {
+            Logger.info(TAG + ":clear", "Rejecting " + rejected.size() + " parked request[s].");
+        }
+
+        final RejectedExecutionException e = new RejectedExecutionException("The request in flight was abandoned.");
+        for (final ParkedRequest request : rejected) {
+            request.mTask.reject(e);
+        }
+    }
+}
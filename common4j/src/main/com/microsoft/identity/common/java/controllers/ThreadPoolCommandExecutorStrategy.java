@@ -0,0 +1,165 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import com.microsoft.identity.common.java.logging.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NonNull;
+
+/**
+ * The default {@link ICommandExecutorStrategy}: fixed-size thread pools for silent and device code
+ * flow commands, and a single thread for interactive commands.
+ * <p>
+ * Without any setup, this strategy matches the dispatcher's historical behavior: five threads
+ * each for silent and device code flow commands, unbounded FIFO queues.
+ */
+@AllArgsConstructor
+@Builder
+public class ThreadPoolCommandExecutorStrategy implements ICommandExecutorStrategy {
+
+    private static final String TAG = ThreadPoolCommandExecutorStrategy.class.getSimpleName();
+
+    /**
+     * Number of threads running silent commands.
+     */
+    @Builder.Default
+    private final int silentThreadCount = 5;
+
+    /**
+     * Number of threads running device code flow commands.
+     */
+    @Builder.Default
+    private final int deviceCodeFlowThreadCount = 5;
+
+    /**
+     * Maximum number of tasks waiting for a silent or device code flow thread. Further tasks are
+     * rejected. Zero or less means unbounded.
+     */
+    @Builder.Default
+    private final int maxQueuedTasks = 0;
+
+    /**
+     * If true, queued foreground tasks start before queued background tasks
+     * (e.g. {@link CommandDispatcher#submitAndForget}).
+     */
+    @Builder.Default
+    private final boolean prioritizeForeground = false;
+
+    /**
+     * If true, and the runtime supports it (Java 21+), silent and device code flow commands run
+     * on a new virtual thread each. Tasks are then never queued, so thread counts, queue bound
+     * and priority do not apply. Falls back to thread pools on other runtimes.
+     */
+    @Builder.Default
+    private final boolean useVirtualThreads = false;
+
+    @Override
+    @NonNull
+    public ExecutorService createExecutor(@NonNull final CommandExecutorType type) {
+        switch (type) {
+            case INTERACTIVE:
+                return Executors.newSingleThreadExecutor();
+            case DEVICE_CODE_FLOW:
+                return createPooledExecutor(deviceCodeFlowThreadCount);
+            case SILENT:
+            default:
+                return createPooledExecutor(silentThreadCount);
+        }
+    }
+
+    @NonNull
+    private ExecutorService createPooledExecutor(final int threadCount) {
+        if (useVirtualThreads) {
+            final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+            if (null != virtualThreadExecutor) {
+                return virtualThreadExecutor;
+            }
+        }
+
+        return new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                newQueue()
+        );
+    }
+
+    @NonNull
+    private BlockingQueue<Runnable> newQueue() {
+        if (prioritizeForeground) {
+            return new BoundedPriorityBlockingQueue(maxQueuedTasks);
+        }
+
+        return maxQueuedTasks > 0
+                ? new ArrayBlockingQueue<Runnable>(maxQueuedTasks)
+                : new LinkedBlockingQueue<Runnable>();
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        final String methodTag = TAG + ":newVirtualThreadPerTaskExecutor";
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            Logger.warn(methodTag, "Virtual threads are not supported by this runtime, using a thread pool.");
+        } catch (final IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            Logger.error(methodTag, "Failed to create a virtual thread executor, using a thread pool.", e);
+        }
+        return null;
+    }
+
+    /**
+     * A {@link PriorityBlockingQueue} which refuses new elements once it holds the supplied
+     * number of them, so that the executor rejects further tasks.
+     */
+    private static final class BoundedPriorityBlockingQueue extends PriorityBlockingQueue<Runnable> {
+        private static final long serialVersionUID = 1L;
+
+        private final int mCapacity;
+
+        private BoundedPriorityBlockingQueue(final int capacity) {
+            mCapacity = capacity;
+        }
+
+        @Override
+        public synchronized boolean offer(final Runnable task) {
+            return (mCapacity <= 0 || size() < mCapacity) && super.offer(task);
+        }
+    }
+}
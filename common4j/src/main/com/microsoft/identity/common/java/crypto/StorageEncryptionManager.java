@@ -49,7 +49,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -94,6 +98,32 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
      */
     public static final int KEY_IDENTIFIER_LENGTH = 4;
 
+    /**
+     * Number of Base64 characters which encode at least {@link #KEY_IDENTIFIER_LENGTH} bytes.
+     */
+    private static final int KEY_IDENTIFIER_BASE64_LENGTH = 8;
+
+    /**
+     * {@link Cipher} and {@link Mac} instances are not thread safe, but they are (re)initialized
+     * before every use. Each thread therefore keeps one of each per algorithm, instead of going
+     * through {@link Cipher#getInstance(String)} and {@link Mac#getInstance(String)} per value.
+     */
+    private static final ThreadLocal<Map<String, Cipher>> sThreadCiphers = new ThreadLocal<Map<String, Cipher>>() {
+        @Override
+        protected Map<String, Cipher> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<Mac> sThreadMac = new ThreadLocal<>();
+
+    /**
+     * Keys derived from the current key of each key loader we've used.
+     * Weakly keyed, so that key loaders dropped by subclasses are not retained.
+     */
+    private final Map<AbstractSecretKeyLoader, DerivedKeys> mDerivedKeys =
+            Collections.synchronizedMap(new WeakHashMap<AbstractSecretKeyLoader, DerivedKeys>());
+
     /**
      * IV generator.
      */
@@ -135,17 +165,18 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
         }
 
         try {
-            final SecretKey encryptionKey = keyLoader.getKey();
-            final SecretKey encryptionHMACKey = KeyUtil.getHMacKey(encryptionKey);
-            final byte[] keyIdentifier = keyLoader.getKeyTypeIdentifier().getBytes(ENCODING_UTF8);
+            final DerivedKeys derivedKeys = getDerivedKeys(keyLoader);
+            final SecretKey encryptionKey = derivedKeys.mKey;
+            final SecretKey encryptionHMACKey = derivedKeys.mHmacKey;
+            final byte[] keyIdentifier = derivedKeys.mKeyIdentifier;
 
             // IV: Initialization vector that is needed to start CBC
             final byte[] iv = mGenerator.generate();
             final IvParameterSpec ivSpec = new IvParameterSpec(iv);
 
             // Set to encrypt mode
-            final Cipher cipher = Cipher.getInstance(keyLoader.getCipherAlgorithm());
-            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            final Cipher cipher = getCipher(keyLoader.getCipherAlgorithm());
+            final Mac mac = getMac();
             cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, ivSpec);
 
             final byte[] encrypted = cipher.doFinal(plaintext);
@@ -212,7 +243,10 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
             return cipherText;
         }
 
-        final List<AbstractSecretKeyLoader> keysForDecryption = getKeyLoaderForDecryption(cipherText);
+        final List<AbstractSecretKeyLoader> keysForDecryption = prioritizeByKeyIdentifier(
+                getKeyLoaderForDecryption(cipherText),
+                dataBytes
+        );
         if (keysForDecryption.size() == 0) {
             // Developer error. Throw.
             throw new IllegalStateException("Cannot find a matching Keyloader.");
@@ -224,7 +258,7 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
                 return decryptWithSecretKey(dataBytes, keyLoader);
             } catch (final Throwable e) {
                 Logger.warn(methodTag, "Failed to decrypt with key:" + keyLoader.getAlias() +
-                        " thumbprint : " + KeyUtil.getKeyThumbPrint(keyLoader));
+                        " thumbprint : " + getKeyThumbPrint(keyLoader));
                 suppressedException.add(e);
             }
         }
@@ -283,20 +317,21 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
         final String errCode;
         final Throwable exception;
         try {
-            final SecretKey secretKey = keyLoader.getKey();
-            final SecretKey hmacKey = KeyUtil.getHMacKey(secretKey);
+            final DerivedKeys derivedKeys = getDerivedKeys(keyLoader);
+            final SecretKey secretKey = derivedKeys.mKey;
+            final SecretKey hmacKey = derivedKeys.mHmacKey;
 
             // byte input array: [keyVersion][encryptedData][IV][macDigest]
             final int ivIndex = encryptedBlobWithoutEncodeVersion.length - IV_LENGTH - MAC_DIGEST_LENGTH;
             final int macDigestIndex = encryptedBlobWithoutEncodeVersion.length - MAC_DIGEST_LENGTH;
-            final int encryptedDataIndex = keyLoader.getKeyTypeIdentifier().getBytes(ENCODING_UTF8).length;
+            final int encryptedDataIndex = derivedKeys.mKeyIdentifier.length;
             final int encryptedDataLength = ivIndex - encryptedDataIndex;
 
             // Calculate digest again and compare to the appended value
             // incoming message: version+encryptedData+IV+Digest
             // Digest of EncryptedData+IV excluding the digest itself.
-            final Cipher cipher = Cipher.getInstance(keyLoader.getCipherAlgorithm());
-            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            final Cipher cipher = getCipher(keyLoader.getCipherAlgorithm());
+            final Mac mac = getMac();
             mac.init(hmacKey);
             mac.update(encryptedBlobWithoutEncodeVersion, 0, macDigestIndex);
             final byte[] macDigest = mac.doFinal();
@@ -356,6 +391,8 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
 
     /**
      * Returns Key identifier which was used for cipherText encryption.
+     * <p>
+     * Only the Base64 prefix holding the identifier is decoded, not the whole cipherText.
      *
      * @param cipherText    the cipherText to be verified against.
      */
@@ -363,18 +400,118 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
         final String methodName = ":getKeyIdentifierFromCipherText";
 
         try {
-            return new String(
-                    stripEncodeVersionFromCipherText(cipherText),
-                    0,
-                    KEY_IDENTIFIER_LENGTH,
-                    ENCODING_UTF8
-            );
+            if (cipherText.length < 1) {
+                throw new IllegalArgumentException("Input blob is null or length < 1");
+            }
+
+            final int encodeVersionLength = cipherText[0] - 'a';
+            final int prefixLength = 1 + encodeVersionLength + KEY_IDENTIFIER_BASE64_LENGTH;
+            if (encodeVersionLength <= 0 || cipherText.length < prefixLength) {
+                return getKeyIdentifier(stripEncodeVersionFromCipherText(cipherText));
+            }
+
+            final String prefix = new String(cipherText, 0, prefixLength, ENCODING_UTF8);
+            validateEncodeVersion(prefix, encodeVersionLength);
+            return getKeyIdentifier(Base64.decode(prefix.substring(1 + encodeVersionLength), Base64.DEFAULT));
         } catch (final Exception e) {
             Logger.verbose(TAG + methodName, e.getMessage());
             return "EXCEPTION OCCURRED GETTING KEY IDENTIFIER";
         }
     }
 
+    /**
+     * Reads the key identifier at the start of a blob which has already been stripped of its
+     * encode version and Base64 decoded.
+     */
+    private static String getKeyIdentifier(final byte[] encryptedBlobWithoutEncodeVersion) {
+        return new String(encryptedBlobWithoutEncodeVersion, 0, KEY_IDENTIFIER_LENGTH, ENCODING_UTF8);
+    }
+
+    /**
+     * Moves the key loaders whose key type identifier matches the one recorded in the blob to the
+     * front, so that the key which produced it is normally the first one tried. The other loaders
+     * are kept, in their original order, as a fallback.
+     */
+    private static List<AbstractSecretKeyLoader> prioritizeByKeyIdentifier(
+            @NonNull final List<AbstractSecretKeyLoader> keyLoaders,
+            final byte[] encryptedBlobWithoutEncodeVersion) {
+        if (keyLoaders.size() < 2 || encryptedBlobWithoutEncodeVersion.length < KEY_IDENTIFIER_LENGTH) {
+            return keyLoaders;
+        }
+
+        final String keyIdentifier = getKeyIdentifier(encryptedBlobWithoutEncodeVersion);
+        final List<AbstractSecretKeyLoader> matching = new ArrayList<>(keyLoaders.size());
+        final List<AbstractSecretKeyLoader> others = new ArrayList<>(keyLoaders.size());
+        for (final AbstractSecretKeyLoader keyLoader : keyLoaders) {
+            if (keyLoader != null && keyIdentifier.equals(keyLoader.getKeyTypeIdentifier())) {
+                matching.add(keyLoader);
+            } else {
+                others.add(keyLoader);
+            }
+        }
+
+        if (matching.isEmpty() || others.isEmpty()) {
+            return keyLoaders;
+        }
+
+        matching.addAll(others);
+        return matching;
+    }
+
+    /**
+     * Returns the keys derived from the current key of the given loader, deriving them again only
+     * if the loader now hands out a different key.
+     */
+    private DerivedKeys getDerivedKeys(@NonNull final AbstractSecretKeyLoader keyLoader)
+            throws ClientException, NoSuchAlgorithmException {
+        final SecretKey key = keyLoader.getKey();
+
+        final DerivedKeys cached = mDerivedKeys.get(keyLoader);
+        if (cached != null && cached.mKey == key) {
+            return cached;
+        }
+
+        final DerivedKeys derivedKeys = new DerivedKeys(
+                key,
+                KeyUtil.getHMacKey(key),
+                keyLoader.getKeyTypeIdentifier().getBytes(ENCODING_UTF8)
+        );
+        mDerivedKeys.put(keyLoader, derivedKeys);
+        return derivedKeys;
+    }
+
+    /**
+     * Thumbprint of the given loader's key, for logging.
+     */
+    private String getKeyThumbPrint(@NonNull final AbstractSecretKeyLoader keyLoader) {
+        try {
+            return getDerivedKeys(keyLoader).getThumbprint();
+        } catch (final Throwable e) {
+            // Let KeyUtil log why.
+            return KeyUtil.getKeyThumbPrint(keyLoader);
+        }
+    }
+
+    private static Cipher getCipher(@NonNull final String algorithm)
+            throws NoSuchAlgorithmException, NoSuchPaddingException {
+        final Map<String, Cipher> ciphers = sThreadCiphers.get();
+        Cipher cipher = ciphers.get(algorithm);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(algorithm);
+            ciphers.put(algorithm, cipher);
+        }
+        return cipher;
+    }
+
+    private static Mac getMac() throws NoSuchAlgorithmException {
+        Mac mac = sThreadMac.get();
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC_ALGORITHM);
+            sThreadMac.set(mac);
+        }
+        return mac;
+    }
+
     /**
      * Converts {@link StorageEncryptionManager#ENCODE_VERSION} string's length into a char -
      * to be prefixed in the encrypted string.
@@ -502,4 +639,31 @@ public abstract class StorageEncryptionManager implements IKeyAccessor {
      **/
     @NonNull
     abstract public List<AbstractSecretKeyLoader> getKeyLoaderForDecryption(final byte[] cipherText) throws ClientException;
+
+    /**
+     * Values derived from a key which only need computing once per key.
+     */
+    private static final class DerivedKeys {
+        private final SecretKey mKey;
+        private final SecretKey mHmacKey;
+        private final byte[] mKeyIdentifier;
+        private volatile String mThumbprint;
+
+        private DerivedKeys(@NonNull final SecretKey key,
+                            @NonNull final SecretKey hmacKey,
+                            @NonNull final byte[] keyIdentifier) {
+            mKey = key;
+            mHmacKey = hmacKey;
+            mKeyIdentifier = keyIdentifier;
+        }
+
+        private String getThumbprint() {
+            String thumbprint = mThumbprint;
+            if (thumbprint == null) {
+                thumbprint = KeyUtil.getKeyThumbPrintFromHmacKey(mHmacKey);
+                mThumbprint = thumbprint;
+            }
+            return thumbprint;
+        }
+    }
 }
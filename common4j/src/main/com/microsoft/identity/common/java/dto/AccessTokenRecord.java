@@ -161,6 +161,13 @@ public class AccessTokenRecord extends Credential {
     @SerializedName(TARGET)
     private String mTarget;
 
+    /**
+     * Normalized scopes of {@link #mTarget}, parsed on first use. Not serialized, and not part of
+     * equals/hashCode.
+     */
+    @Nullable
+    private transient volatile ScopeSet mScopeSet;
+
     /**
      * Token expiry time. This value should be calculated based on the current UTC time measured
      * locally and the value expires_in returned from the service. Measured in milliseconds from
@@ -271,6 +278,25 @@ public class AccessTokenRecord extends Credential {
      */
     public void setTarget(final String target) {
         mTarget = target;
+        mScopeSet = null;
+    }
+
+    /**
+     * Gets the normalized scopes of the target. The result is cached until the target changes.
+     *
+     * @return The scopes of this token.
+     */
+    public ScopeSet getScopeSet() {
+        final String target = mTarget;
+        ScopeSet scopeSet = mScopeSet;
+
+        // Compare by reference; the target may also be assigned reflectively during deserialization.
+        if (scopeSet == null || scopeSet.getSource() != target) {
+            scopeSet = ScopeSet.parse(target);
+            mScopeSet = scopeSet;
+        }
+
+        return scopeSet;
     }
 
     /**
@@ -24,6 +24,8 @@ package com.microsoft.identity.common.java.dto;
 
 import com.google.gson.annotations.SerializedName;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 import static com.microsoft.identity.common.java.dto.RefreshTokenRecord.SerializedNames.FAMILY_ID;
 import static com.microsoft.identity.common.java.dto.RefreshTokenRecord.SerializedNames.TARGET;
 
@@ -55,6 +57,13 @@ public class RefreshTokenRecord extends Credential {
     @SerializedName(TARGET)
     private String mTarget;
 
+    /**
+     * Normalized scopes of {@link #mTarget}, parsed on first use. Not serialized, and not part of
+     * equals/hashCode.
+     */
+    @Nullable
+    private transient volatile ScopeSet mScopeSet;
+
     /**
      * Gets the target.
      *
@@ -71,6 +80,24 @@ public class RefreshTokenRecord extends Credential {
      */
     public void setTarget(final String target) {
         mTarget = target;
+        mScopeSet = null;
+    }
+
+    /**
+     * Gets the normalized scopes of the target. The result is cached until the target changes.
+     *
+     * @return The scopes of this token.
+     */
+    public ScopeSet getScopeSet() {
+        final String target = mTarget;
+        ScopeSet scopeSet = mScopeSet;
+
+        if (scopeSet == null || scopeSet.getSource() != target) {
+            scopeSet = ScopeSet.parse(target);
+            mScopeSet = scopeSet;
+        }
+
+        return scopeSet;
     }
 
     /**
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.dto;
+
+import static com.microsoft.identity.common.java.AuthenticationConstants.DEFAULT_SCOPES;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * An immutable, normalized view of a whitespace-delimited target (scope) string.
+ * <p>
+ * Scopes are lowercased with {@link Locale#ROOT}, empty tokens are dropped, and every scope is
+ * interned so that the sets of many tokens for the same resource share their strings.
+ */
+public final class ScopeSet {
+
+    /**
+     * Upper bound on the number of distinct scopes kept in {@link #SCOPE_POOL}. Scopes seen after
+     * the pool is full are still normalized, just not shared.
+     */
+    private static final int MAX_POOLED_SCOPES = 1024;
+
+    private static final ConcurrentMap<String, String> SCOPE_POOL = new ConcurrentHashMap<>();
+
+    public static final ScopeSet EMPTY = new ScopeSet(null, Collections.<String>emptySet());
+
+    /**
+     * The target this set was parsed from.
+     */
+    @Nullable
+    private final String mSource;
+
+    private final Set<String> mScopes;
+
+    private final Set<String> mScopesWithoutDefaults;
+
+    private ScopeSet(@Nullable final String source, @NonNull final Set<String> scopes) {
+        mSource = source;
+        mScopes = Collections.unmodifiableSet(scopes);
+
+        if (Collections.disjoint(scopes, DEFAULT_SCOPES)) {
+            mScopesWithoutDefaults = mScopes;
+        } else {
+            final Set<String> scopesWithoutDefaults = new HashSet<>(scopes);
+            scopesWithoutDefaults.removeAll(DEFAULT_SCOPES);
+            mScopesWithoutDefaults = Collections.unmodifiableSet(scopesWithoutDefaults);
+        }
+    }
+
+    /**
+     * Parses the supplied target.
+     *
+     * @param target A whitespace-delimited list of scopes. May be null or empty.
+     * @return The normalized scopes of the target.
+     */
+    @NonNull
+    public static ScopeSet parse(@Nullable final String target) {
+        if (target == null) {
+            return EMPTY;
+        }
+
+        final Set<String> scopes = new HashSet<>();
+        final int length = target.length();
+        int start = 0;
+
+        // Equivalent to target.trim().split("\\s+"), without the regex.
+        while (start < length) {
+            while (start < length && isWhitespace(target.charAt(start))) {
+                start++;
+            }
+
+            int end = start;
+            while (end < length && !isWhitespace(target.charAt(end))) {
+                end++;
+            }
+
+            if (end > start) {
+                scopes.add(intern(target.substring(start, end).toLowerCase(Locale.ROOT)));
+            }
+
+            start = end;
+        }
+
+        return new ScopeSet(target, scopes);
+    }
+
+    /**
+     * Matches the \s character class.
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    @NonNull
+    private static String intern(@NonNull final String scope) {
+        final String pooled = SCOPE_POOL.get(scope);
+        if (pooled != null) {
+            return pooled;
+        }
+
+        if (SCOPE_POOL.size() >= MAX_POOLED_SCOPES) {
+            return scope;
+        }
+
+        final String existing = SCOPE_POOL.putIfAbsent(scope, scope);
+        return existing == null ? scope : existing;
+    }
+
+    /**
+     * @return The target this set was parsed from.
+     */
+    @Nullable
+    String getSource() {
+        return mSource;
+    }
+
+    /**
+     * Gets the scopes of this set.
+     *
+     * @param omitDefaultScopes True if MSAL's default scopes should be left out.
+     * @return An unmodifiable set of lowercased scopes.
+     */
+    @NonNull
+    public Set<String> getScopes(final boolean omitDefaultScopes) {
+        return omitDefaultScopes ? mScopesWithoutDefaults : mScopes;
+    }
+
+    /**
+     * @param other             The scopes sought.
+     * @param omitDefaultScopes True if MSAL's default scopes should be left out of the comparison.
+     * @return True if this set contains every scope of the other set.
+     */
+    public boolean containsAll(@NonNull final ScopeSet other, final boolean omitDefaultScopes) {
+        return getScopes(omitDefaultScopes).containsAll(other.getScopes(omitDefaultScopes));
+    }
+
+    /**
+     * @param other             The scopes to compare against.
+     * @param omitDefaultScopes True if MSAL's default scopes should be left out of the comparison.
+     * @return True if the two sets have at least one scope in common.
+     */
+    public boolean intersects(@NonNull final ScopeSet other, final boolean omitDefaultScopes) {
+        final Set<String> scopes = getScopes(omitDefaultScopes);
+        final Set<String> otherScopes = other.getScopes(omitDefaultScopes);
+
+        // Probe the larger set with the scopes of the smaller one.
+        final Set<String> smaller = scopes.size() <= otherScopes.size() ? scopes : otherScopes;
+        final Set<String> larger = smaller == scopes ? otherScopes : scopes;
+        for (final String scope : smaller) {
+            if (larger.contains(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return mScopes.toString();
+    }
+}
@@ -40,6 +40,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.NonNull;
@@ -59,8 +64,35 @@ public class EstsTelemetry {
     private static final String SUPPLEMENTAL_TELEMETRY_DATA_CACHE_FILE_NAME =
             "com.microsoft.identity.client.supplemental_telemetry_data_cache";
 
+    /**
+     * Changes to the last request telemetry are written to {@link #mLastRequestTelemetryCache}
+     * once none has been made for this long...
+     */
+    static final long PERSIST_DEBOUNCE_MILLIS = 1000;
+
+    /**
+     * ...but at most this long after the first change which was not written, which bounds what
+     * is lost if the process dies.
+     */
+    static final long MAX_PERSIST_DELAY_MILLIS = 5000;
+
+    /**
+     * Changes are written right away once this many have not been written.
+     */
+    static final int MAX_UNPERSISTED_CHANGES = 20;
+
+    private static final ScheduledExecutorService sPersistExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    final Thread thread = new Thread(r, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     private static volatile EstsTelemetry sEstsTelemetryInstance = null;
-    private LastRequestTelemetryCache mLastRequestTelemetryCache;
+    private volatile LastRequestTelemetryCache mLastRequestTelemetryCache;
     private final INameValueStorage<CurrentRequestTelemetry> mTelemetryMap;
     private final INameValueStorage<Set<FailedRequest>> mSentFailedRequests;
 
@@ -74,6 +106,22 @@ public class EstsTelemetry {
      */
     private INameValueStorage<String> mSupplementalTelemetryDataCache;
 
+    /**
+     * In-memory state of the last request telemetry, loaded from {@link #mLastRequestTelemetryCache}
+     * on first use so that flushing a command does not read and parse it from storage each time.
+     */
+    private final Object mLastRequestTelemetryLock = new Object();
+
+    // Guarded by mLastRequestTelemetryLock.
+    private LastRequestTelemetry mLastRequestTelemetry;
+    private boolean mIsLastRequestTelemetryLoaded;
+    private long mFirstUnpersistedChangeMillis;
+    private int mUnpersistedChangeCount;
+    private ScheduledFuture<?> mPendingPersist;
+
+    // Held while writing to mLastRequestTelemetryCache, so that writes land in order.
+    private final Object mPersistLock = new Object();
+
     EstsTelemetry() {
         this(new InMemoryStorage<CurrentRequestTelemetry>(),
                 new InMemoryStorage<Set<FailedRequest>>());
@@ -104,6 +152,11 @@ public class EstsTelemetry {
     public synchronized void clear() {
         mTelemetryMap.clear();
         mSentFailedRequests.clear();
+        synchronized (mLastRequestTelemetryLock) {
+            mLastRequestTelemetry = null;
+            mIsLastRequestTelemetryLoaded = false;
+            onLastRequestTelemetryPersistedLocked();
+        }
         if (mLastRequestTelemetryCache != null) {
             mLastRequestTelemetryCache.clear();
         }
@@ -252,10 +305,11 @@ public class EstsTelemetry {
     /**
      * Flush the telemetry data for the current request to the storage using the {@link LastRequestTelemetry}.
      * Removes the telemetry associated to the correlation id from the telemetry map,
-     * and saves it to the cache (SharedPreferences) as the last request telemetry.
+     * and updates the last request telemetry, which is saved to the cache (SharedPreferences)
+     * shortly after.
      */
-    public synchronized void flush(@NonNull final ICommand<?> command,
-                                   @NonNull final ICommandResult commandResult) {
+    public void flush(@NonNull final ICommand<?> command,
+                      @NonNull final ICommandResult commandResult) {
         final String methodName = ":flush";
 
         final String correlationId = command.getCorrelationId();
@@ -270,87 +324,158 @@ public class EstsTelemetry {
             return;
         }
 
-        // load the last request object from cache
-        LastRequestTelemetry lastRequestTelemetry = loadLastRequestTelemetryFromCache();
+        final boolean isTelemetryLoggedByServer = isTelemetryLoggedByServer(command, commandResult);
 
-        // We did not have a last request object in cache, let's create a new one and copySharedValues
-        // fields from current request where applicable
-        if (lastRequestTelemetry == null) {
-            lastRequestTelemetry = new LastRequestTelemetry(currentTelemetry.getSchemaVersion());
-            lastRequestTelemetry = (LastRequestTelemetry) lastRequestTelemetry.copySharedValues(currentTelemetry);
-        }
+        // get the error encountered during execution of this command
+        final String errorCode = getErrorCodeFromCommandResult(commandResult);
+
+        synchronized (mLastRequestTelemetryLock) {
+            LastRequestTelemetry lastRequestTelemetry = getLastRequestTelemetryLocked();
 
-        if (isTelemetryLoggedByServer(command, commandResult)) {
-            // telemetry headers have been sent to token endpoint and logged by sts
-            // this is the time to reset local telemetry state
+            // We did not have a last request object in cache, let's create a new one and copySharedValues
+            // fields from current request where applicable
+            if (lastRequestTelemetry == null) {
+                lastRequestTelemetry = new LastRequestTelemetry(currentTelemetry.getSchemaVersion());
+                lastRequestTelemetry = (LastRequestTelemetry) lastRequestTelemetry.copySharedValues(currentTelemetry);
+                mLastRequestTelemetry = lastRequestTelemetry;
+            }
 
-            // reset silent successful count as we just went to token endpoint
-            lastRequestTelemetry.resetSilentSuccessCount();
+            if (isTelemetryLoggedByServer) {
+                // telemetry headers have been sent to token endpoint and logged by sts
+                // this is the time to reset local telemetry state
 
-            // get the failed request set for this request. This includes all failed request
-            // data that has been sent to STS in this request.
-            Set<FailedRequest> failedRequestSentSet = mSentFailedRequests.get(correlationId);
+                // reset silent successful count as we just went to token endpoint
+                lastRequestTelemetry.resetSilentSuccessCount();
 
-            // headers have been logged by sts - we don't need to hold on to this data - let's wipe
-            lastRequestTelemetry.wipeFailedRequestAndErrorForSubList(failedRequestSentSet);
+                // get the failed request set for this request. This includes all failed request
+                // data that has been sent to STS in this request.
+                Set<FailedRequest> failedRequestSentSet = mSentFailedRequests.get(correlationId);
 
-            if (mSupplementalTelemetryDataCache != null) {
                 // headers have been logged by sts - we don't need to hold on to this data - let's wipe
-                mSupplementalTelemetryDataCache.clear();
+                lastRequestTelemetry.wipeFailedRequestAndErrorForSubList(failedRequestSentSet);
             }
-        }
 
-        // get the error encountered during execution of this command
-        final String errorCode = getErrorCodeFromCommandResult(commandResult);
+            if (errorCode != null) {
+                // we have an error, let's append it to the list
+                lastRequestTelemetry.appendFailedRequest(
+                        currentTelemetry.getApiId(),
+                        correlationId,
+                        errorCode);
+            } else if (commandResult.getResult() != null &&
+                    commandResult.getResult() instanceof ILocalAuthenticationResult) {
+                final ILocalAuthenticationResult localAuthenticationResult = (ILocalAuthenticationResult) commandResult.getResult();
+                if (localAuthenticationResult.isServicedFromCache()) {
+                    // we returned a token from cache, let's increment the silent success count
+                    lastRequestTelemetry.incrementSilentSuccessCount();
+                }
+            } // else leave everything as is
 
-        if (errorCode != null) {
-            // we have an error, let's append it to the list
-            lastRequestTelemetry.appendFailedRequest(
-                    currentTelemetry.getApiId(),
-                    correlationId,
-                    errorCode);
-        } else if (commandResult.getResult() != null &&
-                commandResult.getResult() instanceof ILocalAuthenticationResult) {
-            final ILocalAuthenticationResult localAuthenticationResult = (ILocalAuthenticationResult) commandResult.getResult();
-            if (localAuthenticationResult.isServicedFromCache()) {
-                // we returned a token from cache, let's increment the silent success count
-                lastRequestTelemetry.incrementSilentSuccessCount();
+            if (mLastRequestTelemetryCache != null) {
+                // save the (updated) telemetry object back to telemetry cache, soon
+                onLastRequestTelemetryChangedLocked();
+            } else {
+                Logger.warn(
+                        TAG + methodName,
+                        "Last Request Telemetry Cache object was null. " +
+                                "Unable to save request telemetry to cache."
+                );
             }
-        } // else leave everything as is
+        }
+
+        if (isTelemetryLoggedByServer) {
+            // headers have been logged by sts - we don't need to hold on to this data - let's wipe
+            clearSupplementalTelemetryCache();
+        }
 
         // we're done processing telemetry for this command, let's remove it from the map
         mTelemetryMap.remove(correlationId);
         mSentFailedRequests.remove(correlationId);
+    }
 
-        if (mLastRequestTelemetryCache != null) {
-            // save the (updated) telemetry object back to telemetry cache
-            mLastRequestTelemetryCache.saveRequestTelemetryToCache(lastRequestTelemetry);
-        } else {
-            Logger.warn(
-                    TAG + methodName,
-                    "Last Request Telemetry Cache object was null. " +
-                            "Unable to save request telemetry to cache."
-            );
+    /**
+     * Writes the last request telemetry to the cache now, if it has changes which were not
+     * written yet. Otherwise they are written on a timer, see {@link #PERSIST_DEBOUNCE_MILLIS}.
+     * Call this before the process goes away.
+     */
+    public void persistLastRequestTelemetry() {
+        synchronized (mPersistLock) {
+            final LastRequestTelemetry snapshot;
+            final LastRequestTelemetryCache lastRequestTelemetryCache = mLastRequestTelemetryCache;
+            synchronized (mLastRequestTelemetryLock) {
+                if (mFirstUnpersistedChangeMillis == 0
+                        || mLastRequestTelemetry == null
+                        || lastRequestTelemetryCache == null) {
+                    return;
+                }
+                snapshot = mLastRequestTelemetry.copy();
+                onLastRequestTelemetryPersistedLocked();
+            }
+
+            // Serialize and write outside of mLastRequestTelemetryLock, flush() does not wait for it.
+            lastRequestTelemetryCache.saveRequestTelemetryToCache(snapshot);
         }
     }
 
     /**
-     * Loads the last request telemetry instance from cache.
-     **/
+     * Returns the in-memory last request telemetry, loading it from the cache the first time.
+     */
     @Nullable
-    private LastRequestTelemetry loadLastRequestTelemetryFromCache() {
-        final String methodName = ":loadLastRequestTelemetry";
+    private LastRequestTelemetry getLastRequestTelemetryLocked() {
+        final String methodName = ":getLastRequestTelemetryLocked";
+
+        if (!mIsLastRequestTelemetryLoaded) {
+            final LastRequestTelemetryCache lastRequestTelemetryCache = mLastRequestTelemetryCache;
+            if (lastRequestTelemetryCache == null) {
+                Logger.verbose(
+                        TAG + methodName,
+                        "Last Request Telemetry Cache has not been initialized. " +
+                                "Cannot load Last Request Telemetry data from cache."
+                );
+                return mLastRequestTelemetry;
+            }
+            // Anything created before the cache was set up is replaced by what the cache holds.
+            mLastRequestTelemetry = lastRequestTelemetryCache.getRequestTelemetryFromCache();
+            mIsLastRequestTelemetryLoaded = true;
+        }
+        return mLastRequestTelemetry;
+    }
 
-        if (mLastRequestTelemetryCache == null) {
-            Logger.verbose(
-                    TAG + methodName,
-                    "Last Request Telemetry Cache has not been initialized. " +
-                            "Cannot load Last Request Telemetry data from cache."
-            );
-            return null;
+    private void onLastRequestTelemetryChangedLocked() {
+        final long nowMillis = System.currentTimeMillis();
+        if (mFirstUnpersistedChangeMillis == 0) {
+            mFirstUnpersistedChangeMillis = nowMillis;
+        }
+        mUnpersistedChangeCount++;
+
+        final long delayMillis = mUnpersistedChangeCount >= MAX_UNPERSISTED_CHANGES
+                ? 0
+                : Math.max(0, Math.min(PERSIST_DEBOUNCE_MILLIS,
+                mFirstUnpersistedChangeMillis + MAX_PERSIST_DELAY_MILLIS - nowMillis));
+
+        if (mPendingPersist != null) {
+            mPendingPersist.cancel(false);
         }
+        mPendingPersist = sPersistExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                persistLastRequestTelemetry();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onLastRequestTelemetryPersistedLocked() {
+        mFirstUnpersistedChangeMillis = 0;
+        mUnpersistedChangeCount = 0;
+        if (mPendingPersist != null) {
+            mPendingPersist.cancel(false);
+            mPendingPersist = null;
+        }
+    }
 
-        return mLastRequestTelemetryCache.getRequestTelemetryFromCache();
+    private synchronized void clearSupplementalTelemetryCache() {
+        if (mSupplementalTelemetryDataCache != null) {
+            mSupplementalTelemetryDataCache.clear();
+        }
     }
 
     /**
@@ -462,7 +587,11 @@ public class EstsTelemetry {
             return null;
         }
 
-        final LastRequestTelemetry lastRequestTelemetryFromCache = mLastRequestTelemetryCache.getRequestTelemetryFromCache();
+        final LastRequestTelemetry lastRequestTelemetryFromCache;
+        synchronized (mLastRequestTelemetryLock) {
+            final LastRequestTelemetry lastRequestTelemetry = getLastRequestTelemetryLocked();
+            lastRequestTelemetryFromCache = lastRequestTelemetry == null ? null : lastRequestTelemetry.copy();
+        }
         if (lastRequestTelemetryFromCache == null) {
             // we did not have anything in the telemetry cache for the last request
             // let's create a new object based on the data available from the current request object
@@ -112,6 +112,19 @@ public class LastRequestTelemetry extends RequestTelemetry {
         }
     }
 
+    /**
+     * @return a deep copy of this object, which can be serialized while this one keeps changing.
+     */
+    LastRequestTelemetry copy() {
+        final LastRequestTelemetry copy = new LastRequestTelemetry(getSchemaVersion());
+        copy.silentSuccessfulCount = silentSuccessfulCount;
+        if (failedRequests != null) {
+            copy.failedRequests.addAll(failedRequests);
+        }
+        copy.putAllInPlatformTelemetry(this);
+        return copy;
+    }
+
     @Override
     public IRequestTelemetry copySharedValues(@NonNull final IRequestTelemetry requestTelemetry) {
         if (requestTelemetry instanceof LastRequestTelemetry) {
@@ -64,6 +64,13 @@ public abstract class RequestTelemetry implements IRequestTelemetry {
         }
     }
 
+    /**
+     * Copies the platform telemetry fields of the supplied object into this one.
+     */
+    final void putAllInPlatformTelemetry(@NonNull final RequestTelemetry requestTelemetry) {
+        mPlatformTelemetry.putAll(requestTelemetry.mPlatformTelemetry);
+    }
+
     @Override
     public String getSchemaVersion() {
         return mSchemaVersion;
@@ -187,6 +187,11 @@ public class ClientException extends BaseException {
      */
     public static final String DUPLICATE_QUERY_PARAMETER = "duplicate_query_parameter";
 
+    /**
+     * The request was not accepted for execution, because its executor is saturated or shut down.
+     */
+    public static final String REQUEST_REJECTED = "request_rejected";
+
     /**
      * Used when base exception is not categorizable into any of the current error codes.
      */
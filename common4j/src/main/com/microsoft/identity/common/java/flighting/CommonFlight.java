@@ -83,7 +83,19 @@ public enum CommonFlight implements IFlightConfig {
     /**
      * Flight to enable the legacy FIDO security key additional logic. Default is true for common.
      */
-    ENABLE_LEGACY_FIDO_SECURITY_KEY_LOGIC("EnableLegacyFidoSecurityKeyLogic", true);
+    ENABLE_LEGACY_FIDO_SECURITY_KEY_LOGIC("EnableLegacyFidoSecurityKeyLogic", true),
+
+    /**
+     * Flight to coalesce concurrent identical silent requests, so that they redeem the refresh
+     * token once. Default is false.
+     */
+    ENABLE_SILENT_REQUEST_SINGLE_FLIGHT("EnableSilentRequestSingleFlight", false),
+
+    /**
+     * Flight to make the default http client retry with ScheduledRetryPolicy, which honors Retry-After,
+     * adds jitter and keeps a per-host retry budget. Read once, when the default client is created.
+     */
+    USE_SCHEDULED_RETRY_POLICY_FOR_DEFAULT_HTTP_CLIENT("UseScheduledRetryPolicyForDefaultHttpClient", false);
 
     private String key;
     private Object defaultValue;
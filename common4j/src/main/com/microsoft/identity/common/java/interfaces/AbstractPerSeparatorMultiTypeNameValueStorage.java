@@ -89,7 +89,7 @@ public abstract class AbstractPerSeparatorMultiTypeNameValueStorage<T> implement
 
     @Override
     public @NonNull Set<String> keySet(@NonNull final T separator) {
-        return getStoreForSeparator(separator).getAll().keySet();
+        return getStoreForSeparator(separator).keySet();
     }
 
     @Override
@@ -22,6 +22,8 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.java.interfaces;
 
+import com.microsoft.identity.common.java.storage.BulkReadStatistics;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.Iterator;
@@ -72,13 +74,58 @@ public interface INameValueStorage<T> {
 
     /**
      * Get all keys in this storage.
+     * <p>
+     * Implementations must not read or decode (e.g. decrypt) any value to answer this.
      */
     @NonNull
     Set<String> keySet();
 
     /**
+     * Returns an iterator over the entries whose key the predicate evaluates to true on.
+     * <p>
+     * The predicate is evaluated on keys alone. Implementations which decode (e.g. decrypt) their
+     * values must only do so for entries which pass it, and should do so lazily as the iterator
+     * advances.
      *
+     * @param keyFilter A predicate to use to evaluate the key, return true to include key value pair.
+     * @return an iterator over the matching entries.
      */
     Iterator<Map.Entry<String, T>> getAllFilteredByKey(Predicate<String> keyFilter);
-}
 
+    /**
+     * Passes every entry whose key the predicate evaluates to true on to the consumer, for bulk
+     * reads such as warming up an in-memory cache.
+     * <p>
+     * Implementations which decode (e.g. decrypt) their values may do so on several threads at
+     * once, in which case the consumer is called concurrently and must be thread-safe. Either way,
+     * this returns only once every entry has been passed to the consumer.
+     * <p>
+     * The default implementation walks {@link #getAllFilteredByKey(Predicate)} on the calling
+     * thread.
+     *
+     * @param keyFilter A predicate to use to evaluate the key, return true to include key value pair.
+     * @param consumer  receives each matching entry.
+     * @return the timings of the read.
+     */
+    @NonNull
+    default BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                    @NonNull final BiConsumer<String, T> consumer) {
+        final long start = System.nanoTime();
+        long consumerNanos = 0;
+        int count = 0;
+
+        final Iterator<Map.Entry<String, T>> iterator = getAllFilteredByKey(keyFilter);
+        while (iterator != null && iterator.hasNext()) {
+            final Map.Entry<String, T> entry = iterator.next();
+            if (entry.getValue() != null) {
+                final long consumerStart = System.nanoTime();
+                consumer.accept(entry.getKey(), entry.getValue());
+                consumerNanos += System.nanoTime() - consumerStart;
+                count++;
+            }
+        }
+
+        final long totalNanos = System.nanoTime() - start;
+        return new BulkReadStatistics(count, 1, totalNanos - consumerNanos, 0, totalNanos);
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.logging;
+
+/**
+ * What {@link Logger} does with a log record when its bounded queue of pending records is full.
+ */
+public enum LogOverflowPolicy {
+    /**
+     * Drop the new record. The caller never waits.
+     */
+    DROP,
+    /**
+     * Make the caller wait until the logging thread has delivered enough records to make room.
+     * A record logged from the logging thread itself (i.e. from an {@link ILoggerCallback}) is
+     * dropped instead.
+     */
+    BLOCK,
+    /**
+     * Once the queue is half full, only keep one {@link Logger.LogLevel#INFO} or
+     * {@link Logger.LogLevel#VERBOSE} record in every few, so that warnings and errors still find
+     * room. The new record is dropped when the queue is full.
+     */
+    SAMPLE
+}
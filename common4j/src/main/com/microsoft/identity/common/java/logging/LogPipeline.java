@@ -0,0 +1,342 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import lombok.NonNull;
+
+/**
+ * Bounded queue of pending log records, drained in batches by a single daemon thread.
+ * <p>
+ * The records live in a ring of preallocated slots which are overwritten in place, so publishing a
+ * record does not allocate. What happens when the ring is full is decided by the
+ * {@link LogOverflowPolicy}.
+ */
+final class LogPipeline {
+
+    /**
+     * Under {@link LogOverflowPolicy#SAMPLE}, one in this many INFO/VERBOSE records is kept once
+     * the ring is half full.
+     */
+    static final int SAMPLE_RATE = 10;
+
+    /**
+     * Receives the records drained by the logging thread. Called on the logging thread only.
+     */
+    interface IRecordSink {
+        /**
+         * Called before the records of a batch are delivered.
+         */
+        void beginBatch();
+
+        /**
+         * Delivers one record. The record is only valid for the duration of the call.
+         */
+        void deliver(@NonNull Record record);
+
+        /**
+         * Called once the records of a batch have been delivered.
+         *
+         * @param droppedCount The number of records dropped since the previous batch.
+         */
+        void endBatch(long droppedCount);
+    }
+
+    /**
+     * A slot of the ring.
+     */
+    static final class Record {
+        String mTag;
+        Logger.LogLevel mLogLevel;
+        String mDiagnosticMetadata;
+        String mMessage;
+        String mObjectToLog;
+        Throwable mThrowable;
+        boolean mContainsPII;
+        long mTimeMillis;
+
+        private void clear() {
+            mTag = null;
+            mLogLevel = null;
+            mDiagnosticMetadata = null;
+            mMessage = null;
+            mObjectToLog = null;
+            mThrowable = null;
+        }
+    }
+
+    private final Record[] mRing;
+    private final int mBatchSize;
+    private final IRecordSink mSink;
+
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Condition mNotEmpty = mLock.newCondition();
+    private final Condition mNotFull = mLock.newCondition();
+    private final Condition mIdle = mLock.newCondition();
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mUnreportedDroppedCount = new AtomicLong();
+
+    private volatile LogOverflowPolicy mOverflowPolicy;
+
+    // Guarded by mLock.
+    private int mHead;
+    private int mSize;
+    private int mSampleCounter;
+    private boolean mDelivering;
+    private Thread mThread;
+
+    LogPipeline(final int capacity,
+                final int batchSize,
+                @NonNull final LogOverflowPolicy overflowPolicy,
+                @NonNull final IRecordSink sink) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive.");
+        }
+
+        mRing = new Record[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mRing[i] = new Record();
+        }
+        mBatchSize = batchSize;
+        mOverflowPolicy = overflowPolicy;
+        mSink = sink;
+    }
+
+    void setOverflowPolicy(@NonNull final LogOverflowPolicy overflowPolicy) {
+        mOverflowPolicy = overflowPolicy;
+    }
+
+    @NonNull
+    LogOverflowPolicy getOverflowPolicy() {
+        return mOverflowPolicy;
+    }
+
+    /**
+     * @return The number of records dropped since this pipeline was created.
+     */
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Queues a record for delivery, subject to the {@link LogOverflowPolicy}.
+     *
+     * @return true if the record was queued, false if it was dropped.
+     */
+    boolean publish(final String tag,
+                    @NonNull final Logger.LogLevel logLevel,
+                    @Nullable final String diagnosticMetadata,
+                    @Nullable final String message,
+                    @Nullable final String objectToLog,
+                    @Nullable final Throwable throwable,
+                    final boolean containsPII,
+                    final long timeMillis) {
+        final LogOverflowPolicy overflowPolicy = mOverflowPolicy;
+        mLock.lock();
+        try {
+            if (!hasRoomLocked(overflowPolicy, logLevel)) {
+                onDropped();
+                return false;
+            }
+
+            final Record record = mRing[(mHead + mSize) % mRing.length];
+            record.mTag = tag;
+            record.mLogLevel = logLevel;
+            record.mDiagnosticMetadata = diagnosticMetadata;
+            record.mMessage = message;
+            record.mObjectToLog = objectToLog;
+            record.mThrowable = throwable;
+            record.mContainsPII = containsPII;
+            record.mTimeMillis = timeMillis;
+            mSize++;
+
+            if (mThread == null) {
+                startThreadLocked();
+            }
+            mNotEmpty.signal();
+            return true;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record queued so far has been delivered.
+     *
+     * @return false if the timeout elapsed first.
+     */
+    //@VisibleForTesting
+    boolean awaitIdle(final long timeoutMillis) throws InterruptedException {
+        long remainingNanos = timeoutMillis * 1000000L;
+        mLock.lock();
+        try {
+            while (mSize > 0 || mDelivering) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = mIdle.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    private boolean hasRoomLocked(@NonNull final LogOverflowPolicy overflowPolicy,
+                                  @NonNull final Logger.LogLevel logLevel) {
+        final int capacity = mRing.length;
+        switch (overflowPolicy) {
+            case BLOCK:
+                if (Thread.currentThread() == mThread) {
+                    // The logging thread would wait for itself.
+                    return mSize < capacity;
+                }
+                while (mSize == capacity) {
+                    if (mThread == null) {
+                        // The logging thread died and could not be replaced yet.
+                        startThreadLocked();
+                    }
+                    try {
+                        mNotFull.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+            case SAMPLE:
+                if (mSize == capacity) {
+                    return false;
+                }
+                if (mSize >= capacity / 2 && logLevel.compareTo(Logger.LogLevel.INFO) >= 0) {
+                    return mSampleCounter++ % SAMPLE_RATE == 0;
+                }
+                return true;
+            case DROP:
+            default:
+                return mSize < capacity;
+        }
+    }
+
+    private void onDropped() {
+        mDroppedCount.incrementAndGet();
+        mUnreportedDroppedCount.incrementAndGet();
+    }
+
+    private void startThreadLocked() {
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, Logger.class.getSimpleName());
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    private void drain() {
+        try {
+            drainBatches();
+        } finally {
+            // Only reached if a batch failed in a way deliverBatch() could not contain. Hand the
+            // ring over to a new thread, so that producers never wait on a dead one.
+            mLock.lock();
+            try {
+                mThread = null;
+                mDelivering = false;
+                if (mSize > 0) {
+                    startThreadLocked();
+                }
+                mNotFull.signalAll();
+                mIdle.signalAll();
+            } finally {
+                mLock.unlock();
+            }
+        }
+    }
+
+    private void drainBatches() {
+        while (true) {
+            final int start;
+            final int count;
+            mLock.lock();
+            try {
+                while (mSize == 0) {
+                    mDelivering = false;
+                    mIdle.signalAll();
+                    mNotEmpty.awaitUninterruptibly();
+                }
+                mDelivering = true;
+                start = mHead;
+                count = Math.min(mSize, mBatchSize);
+            } finally {
+                mLock.unlock();
+            }
+
+            try {
+                // Producers only write past mHead + mSize, so these slots can be read without the lock.
+                deliverBatch(start, count);
+            } finally {
+                mLock.lock();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        mRing[(start + i) % mRing.length].clear();
+                    }
+                    mHead = (start + count) % mRing.length;
+                    mSize -= count;
+                    mNotFull.signalAll();
+                } finally {
+                    mLock.unlock();
+                }
+            }
+        }
+    }
+
+    @SuppressFBWarnings(value = "DE_MIGHT_IGNORE",
+            justification = "If logging throws, there is nothing left to do but swallow the exception and move on.")
+    private void deliverBatch(final int start, final int count) {
+        // Errors are caught as well: this is the only thread delivering the records.
+        try {
+            mSink.beginBatch();
+            try {
+                for (int i = 0; i < count; i++) {
+                    try {
+                        mSink.deliver(mRing[(start + i) % mRing.length]);
+                    } catch (final Throwable t) {
+                        // Do nothing.
+                    }
+                }
+            } finally {
+                mSink.endBatch(mUnreportedDroppedCount.getAndSet(0));
+            }
+        } catch (final Throwable t) {
+            // Do nothing.
+        }
+    }
+}
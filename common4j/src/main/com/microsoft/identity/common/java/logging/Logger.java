@@ -32,8 +32,6 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -46,7 +44,7 @@ import lombok.experimental.Accessors;
 
 public class Logger {
 
-    private static final ExecutorService sLogExecutor = Executors.newSingleThreadExecutor();
+    private static final String TAG = Logger.class.getSimpleName();
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
     private static final String UNSET = "UNSET";
 
@@ -54,13 +52,13 @@ public class Logger {
     @Setter()
     @Getter()
     @Accessors(prefix = "s")
-    private static LogLevel sLogLevel = LogLevel.VERBOSE;
+    private static volatile LogLevel sLogLevel = LogLevel.VERBOSE;
 
     // Disable to log PII by default.
     @Setter()
     @Getter()
     @Accessors(prefix = "s")
-    private static boolean sAllowPii = false;
+    private static volatile boolean sAllowPii = false;
 
     @Accessors(prefix = "s")
     private static String sPlatformString = "";
@@ -69,6 +67,78 @@ public class Logger {
 
     private static final Map<String, ILoggerCallback> sLoggers = new HashMap<>();
 
+    // Copy of sLoggers.values(), guarded by sLoggersLock.
+    private static ILoggerCallback[] sLoggerCallbacks = new ILoggerCallback[0];
+
+    /**
+     * Maximum number of log records waiting to be delivered to the {@link ILoggerCallback}s.
+     */
+    private static final int LOG_QUEUE_CAPACITY = 4096;
+
+    /**
+     * Maximum number of log records delivered per acquisition of {@link #sLoggersLock}.
+     */
+    private static final int LOG_BATCH_SIZE = 64;
+
+    private static final LogOverflowPolicy DEFAULT_LOG_OVERFLOW_POLICY = LogOverflowPolicy.DROP;
+
+    private static final LogPipeline sLogPipeline = new LogPipeline(
+            LOG_QUEUE_CAPACITY,
+            LOG_BATCH_SIZE,
+            DEFAULT_LOG_OVERFLOW_POLICY,
+            new LogPipeline.IRecordSink() {
+                // Only used on the logging thread.
+                private final Date mDate = new Date();
+
+                @Override
+                public void beginBatch() {
+                    sLoggersLock.readLock().lock();
+                }
+
+                @Override
+                public void deliver(@NonNull final LogPipeline.Record record) {
+                    mDate.setTime(record.mTimeMillis);
+                    final String dateTimeStamp = sDateTimeFormatter.format(mDate);
+                    //Format the log message.
+                    final String logMessage = formatMessage(record.mDiagnosticMetadata, sPlatformString,
+                            record.mMessage, record.mObjectToLog, dateTimeStamp, record.mThrowable);
+                    deliverLocked(record.mTag, record.mLogLevel, logMessage, record.mContainsPII);
+                }
+
+                @Override
+                public void endBatch(final long droppedCount) {
+                    try {
+                        if (droppedCount > 0 && isLoggable(LogLevel.WARN, false)) {
+                            mDate.setTime(System.currentTimeMillis());
+                            final String logMessage = formatMessage(null, sPlatformString,
+                                    "Dropped " + droppedCount + " log records, the log queue was full.",
+                                    null, sDateTimeFormatter.format(mDate), null);
+                            deliverLocked(TAG, LogLevel.WARN, logMessage, false);
+                        }
+                    } finally {
+                        sLoggersLock.readLock().unlock();
+                    }
+                }
+            });
+
+    /**
+     * Placeholder for an argument in the message format of the parameterized methods, e.g.
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    private static final String ARGUMENT_PLACEHOLDER = "{}";
+
+    /**
+     * Builders above this capacity are not kept for reuse.
+     */
+    private static final int MAX_REUSED_BUILDER_CAPACITY = 1024;
+
+    private static final ThreadLocal<StringBuilder> sMessageBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
     private static final SimpleDateFormat sDateTimeFormatter;
     static {
         sDateTimeFormatter = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
@@ -120,9 +190,11 @@ public class Logger {
         sLoggersLock.writeLock().lock();
         try {
             sLoggers.clear();
+            sLoggerCallbacks = new ILoggerCallback[0];
             sAllowPii = false;
             sPlatformString = "";
             sLogLevel = LogLevel.VERBOSE;
+            sLogPipeline.setOverflowPolicy(DEFAULT_LOG_OVERFLOW_POLICY);
         } finally {
             sLoggersLock.writeLock().unlock();
         }
@@ -134,6 +206,7 @@ public class Logger {
         try {
             if (callback == null) {
                 sLoggers.remove(identifier);
+                sLoggerCallbacks = sLoggers.values().toArray(new ILoggerCallback[0]);
                 return true;
             }
 
@@ -142,12 +215,51 @@ public class Logger {
             }
 
             sLoggers.put(identifier, callback);
+            sLoggerCallbacks = sLoggers.values().toArray(new ILoggerCallback[0]);
             return true;
         } finally {
             sLoggersLock.writeLock().unlock();
         }
     }
 
+    /**
+     * Log records are delivered to the {@link ILoggerCallback}s on a background thread, through a
+     * bounded queue. Sets what happens to a record logged while that queue is full. Defaults to
+     * {@link LogOverflowPolicy#DROP}.
+     *
+     * @param overflowPolicy The policy to apply.
+     */
+    public static void setLogOverflowPolicy(@NonNull final LogOverflowPolicy overflowPolicy) {
+        sLogPipeline.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * @return The policy applied to a record logged while the queue of pending records is full.
+     */
+    @NonNull
+    public static LogOverflowPolicy getLogOverflowPolicy() {
+        return sLogPipeline.getOverflowPolicy();
+    }
+
+    /**
+     * @return The number of log records dropped by the {@link LogOverflowPolicy} since the process
+     * started. A warning with the count is also delivered to the {@link ILoggerCallback}s once the
+     * queue drains.
+     */
+    public static long getDroppedLogRecordCount() {
+        return sLogPipeline.getDroppedCount();
+    }
+
+    /**
+     * Waits until the records logged so far have been delivered to the {@link ILoggerCallback}s.
+     *
+     * @return false if the timeout elapsed first.
+     */
+    //@VisibleForTesting
+    static boolean awaitLogDelivery(final long timeoutMillis) throws InterruptedException {
+        return sLogPipeline.awaitIdle(timeoutMillis);
+    }
+
     /**
      * Get only the required metadata from the DiagnosticContext
      * to plug it in the log lines.
@@ -465,6 +577,196 @@ public class Logger {
         log(tag, LogLevel.VERBOSE, correlationID, message, null, null, true);
     }
 
+    /**
+     * Tells if a message of the supplied level would be logged. Use it to skip building a
+     * message which is expensive to compute, the parameterized methods (e.g.
+     * {@link #verboseFormat(String, String, Object)}) already check it.
+     *
+     * @param logLevel The level of the message.
+     * @return true if messages of this level are logged.
+     */
+    public static boolean isLoggable(@NonNull final LogLevel logLevel) {
+        return isLoggable(logLevel, false);
+    }
+
+    /**
+     * Tells if a message of the supplied level would be logged.
+     *
+     * @param logLevel    The level of the message.
+     * @param containsPII True if the message contains PII.
+     * @return true if such a message is logged.
+     */
+    public static boolean isLoggable(@NonNull final LogLevel logLevel, final boolean containsPII) {
+        final LogLevel currentLogLevel = sLogLevel;
+        return currentLogLevel != LogLevel.NO_LOG
+                && logLevel.compareTo(currentLogLevel) <= 0
+                && (sAllowPii || !containsPII);
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII. Each "{}" in the format is
+     * replaced with the next argument, and the message is only built if it is logged.
+     *
+     * @param tag    Used to identify the source of a log message. It usually identifies the class
+     *               or activity where the log call occurs.
+     * @param format The message to log, with a "{}" placeholder for each argument.
+     * @param arg    The argument.
+     */
+    public static void verboseFormat(final String tag, final String format, @Nullable final Object arg) {
+        if (isLoggable(LogLevel.VERBOSE, false)) {
+            log(tag, LogLevel.VERBOSE, null, format(format, 1, arg, null, null), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void verboseFormat(final String tag, final String format,
+                                     @Nullable final Object arg1, @Nullable final Object arg2) {
+        if (isLoggable(LogLevel.VERBOSE, false)) {
+            log(tag, LogLevel.VERBOSE, null, format(format, 2, arg1, arg2, null), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void verboseFormat(final String tag, final String format, @Nullable final Object... args) {
+        if (isLoggable(LogLevel.VERBOSE, false)) {
+            log(tag, LogLevel.VERBOSE, null, format(format, args != null ? args.length : 0, null, null, args), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message with PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void verbosePIIFormat(final String tag, final String format, @Nullable final Object arg) {
+        if (isLoggable(LogLevel.VERBOSE, true)) {
+            log(tag, LogLevel.VERBOSE, null, format(format, 1, arg, null, null), null, null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message with PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void verbosePIIFormat(final String tag, final String format,
+                                        @Nullable final Object arg1, @Nullable final Object arg2) {
+        if (isLoggable(LogLevel.VERBOSE, true)) {
+            log(tag, LogLevel.VERBOSE, null, format(format, 2, arg1, arg2, null), null, null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void infoFormat(final String tag, final String format, @Nullable final Object arg) {
+        if (isLoggable(LogLevel.INFO, false)) {
+            log(tag, LogLevel.INFO, null, format(format, 1, arg, null, null), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void infoFormat(final String tag, final String format,
+                                  @Nullable final Object arg1, @Nullable final Object arg2) {
+        if (isLoggable(LogLevel.INFO, false)) {
+            log(tag, LogLevel.INFO, null, format(format, 2, arg1, arg2, null), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void infoFormat(final String tag, final String format, @Nullable final Object... args) {
+        if (isLoggable(LogLevel.INFO, false)) {
+            log(tag, LogLevel.INFO, null, format(format, args != null ? args.length : 0, null, null, args), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message with PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void infoPIIFormat(final String tag, final String format, @Nullable final Object arg) {
+        if (isLoggable(LogLevel.INFO, true)) {
+            log(tag, LogLevel.INFO, null, format(format, 1, arg, null, null), null, null, true);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void warnFormat(final String tag, final String format, @Nullable final Object arg) {
+        if (isLoggable(LogLevel.WARN, false)) {
+            log(tag, LogLevel.WARN, null, format(format, 1, arg, null, null), null, null, false);
+        }
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message without PII, see
+     * {@link #verboseFormat(String, String, Object)}.
+     */
+    public static void warnFormat(final String tag, final String format,
+                                  @Nullable final Object arg1, @Nullable final Object arg2) {
+        if (isLoggable(LogLevel.WARN, false)) {
+            log(tag, LogLevel.WARN, null, format(format, 2, arg1, arg2, null), null, null, false);
+        }
+    }
+
+    /**
+     * Replaces each "{}" in the format with the next of the argCount arguments: arg1 and arg2 if
+     * args is null, args otherwise. Placeholders left without an argument are kept as is, extra
+     * arguments are ignored.
+     */
+    //@VisibleForTesting
+    static String format(@Nullable final String format,
+                         final int argCount,
+                         @Nullable final Object arg1,
+                         @Nullable final Object arg2,
+                         @Nullable final Object[] args) {
+        if (format == null) {
+            return null;
+        }
+
+        int placeholder = format.indexOf(ARGUMENT_PLACEHOLDER);
+        if (placeholder < 0) {
+            return format;
+        }
+
+        final StringBuilder builder = sMessageBuilder.get();
+        builder.setLength(0);
+
+        int start = 0;
+        int argIndex = 0;
+        while (placeholder >= 0 && argIndex < argCount) {
+            builder.append(format, start, placeholder);
+            if (args != null) {
+                builder.append(args[argIndex]);
+            } else {
+                builder.append(argIndex == 0 ? arg1 : arg2);
+            }
+            argIndex++;
+            start = placeholder + ARGUMENT_PLACEHOLDER.length();
+            placeholder = format.indexOf(ARGUMENT_PLACEHOLDER, start);
+        }
+        builder.append(format, start, format.length());
+
+        final String message = builder.toString();
+        if (builder.capacity() > MAX_REUSED_BUILDER_CAPACITY) {
+            sMessageBuilder.remove();
+        }
+        return message;
+    }
+
     private static void log(final String tag,
                             @NonNull final LogLevel logLevel,
                             final String correlationId,
@@ -472,39 +774,29 @@ public class Logger {
                             @Nullable final String objectToLog,
                             final Throwable throwable,
                             final boolean containsPII) {
-        if ((sLogLevel == LogLevel.NO_LOG) || logLevel.compareTo(sLogLevel) > 0 || (!sAllowPii && containsPII)) {
+        if (!isLoggable(logLevel, containsPII)) {
             return;
         }
 
-        final Date now = new Date();
         final String diagnosticMetadata = getDiagnosticContextMetadata(correlationId);
+        sLogPipeline.publish(tag, logLevel, diagnosticMetadata, message, objectToLog, throwable, containsPII,
+                System.currentTimeMillis());
+    }
 
-        sLogExecutor.execute(new Runnable() {
-            @Override
-            @SuppressFBWarnings(value = "DE_MIGHT_IGNORE",
-                    justification = "If logging throws, there is nothing left to do but swallow the exception and move on.")
-            public void run() {
-                final String dateTimeStamp = sDateTimeFormatter.format(now);
-                //Format the log message.
-                final String logMessage = formatMessage(diagnosticMetadata, sPlatformString, message, objectToLog, dateTimeStamp, throwable);
-
-                sLoggersLock.readLock().lock();
-                try {
-                    for (final String loggerCallbackKey : sLoggers.keySet()) {
-                        try {
-                            final ILoggerCallback callback = sLoggers.get(loggerCallbackKey);
-                            if (callback != null) {
-                                callback.log(tag, logLevel, logMessage, containsPII);
-                            }
-                        } catch (final Exception e) {
-                            // Do nothing.
-                        }
-                    }
-                } finally {
-                    sLoggersLock.readLock().unlock();
-                }
+    // Must hold the read lock of sLoggersLock.
+    @SuppressFBWarnings(value = "DE_MIGHT_IGNORE",
+            justification = "If logging throws, there is nothing left to do but swallow the exception and move on.")
+    private static void deliverLocked(final String tag,
+                                      @NonNull final LogLevel logLevel,
+                                      @NonNull final String logMessage,
+                                      final boolean containsPII) {
+        for (final ILoggerCallback callback : sLoggerCallbacks) {
+            try {
+                callback.log(tag, logLevel, logMessage, containsPII);
+            } catch (final Throwable t) {
+                // Do nothing.
             }
-        });
+        }
     }
 
     /**
@@ -548,7 +840,7 @@ public class Logger {
             }
         }
 
-        return String.format("%s: %s, %s: %s",
-                DiagnosticContext.THREAD_ID, threadId, DiagnosticContext.CORRELATION_ID, correlationId);
+        return DiagnosticContext.THREAD_ID + ": " + threadId + ", "
+                + DiagnosticContext.CORRELATION_ID + ": " + correlationId;
     }
 }
@@ -22,16 +22,24 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.java.net;
 
+import com.microsoft.identity.common.java.AuthenticationConstants;
 import com.microsoft.identity.common.java.util.StringUtil;
 
 import net.jcip.annotations.Immutable;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
 import lombok.NonNull;
 
 /**
@@ -41,7 +49,19 @@ import lombok.NonNull;
 public class HttpResponse {
 
     private final int mStatusCode;
-    private final String mResponseBody;
+
+    /**
+     * Raw response body, as received. Null if this response was created from a String.
+     */
+    private final byte[] mResponseBodyBytes;
+
+    /**
+     * Response body decoded as UTF-8. Decoded from {@link #mResponseBodyBytes} on first use, so
+     * callers which read the body through {@link #getBodyReader()} never build the String.
+     */
+    @SuppressFBWarnings(value = "JCIP_FIELD_ISNT_FINAL_IN_IMMUTABLE_CLASS",
+            justification = "Lazily decoded cache of the immutable response body bytes")
+    private volatile String mResponseBody;
     private final Map<String, List<String>> mResponseHeaders;
     private final Date mDate;
 
@@ -63,10 +83,32 @@ public class HttpResponse {
                         final Map<String, List<String>> headerFields) {
         mDate = new Date(date.getTime());
         mStatusCode = statusCode;
+        mResponseBodyBytes = null;
         mResponseBody = responseBody;
         mResponseHeaders = headerFields;
     }
 
+    /**
+     * Constructor for {@link HttpResponse} with a raw response body.
+     *
+     * @param date         The date of the server response.
+     * @param statusCode   The status code from the server response.
+     * @param responseBody Raw response body, UTF-8 encoded. Not copied, must not be modified afterwards.
+     * @param headerFields Response headers from the connection sent to the server.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",
+            justification = "The body is handed over by the http client, copying it is what this avoids")
+    public HttpResponse(@NonNull final Date date,
+                        final int statusCode,
+                        @NonNull final byte[] responseBody,
+                        final Map<String, List<String>> headerFields) {
+        mDate = new Date(date.getTime());
+        mStatusCode = statusCode;
+        mResponseBodyBytes = responseBody;
+        mResponseBody = null;
+        mResponseHeaders = headerFields;
+    }
+
     public Date getDate() {
         return new Date(mDate.getTime());
     }
@@ -82,7 +124,54 @@ public class HttpResponse {
      * @return The raw server response.
      */
     public String getBody() {
-        return mResponseBody;
+        String responseBody = mResponseBody;
+        if (responseBody == null && mResponseBodyBytes != null) {
+            responseBody = new String(mResponseBodyBytes, AuthenticationConstants.CHARSET_UTF8);
+            mResponseBody = responseBody;
+        }
+        return responseBody;
+    }
+
+    /**
+     * @return A new stream over the raw server response, which reads it without copying.
+     * Empty if there is no response body.
+     */
+    @NonNull
+    public InputStream getBodyStream() {
+        if (mResponseBodyBytes != null) {
+            return new ByteArrayInputStream(mResponseBodyBytes);
+        }
+        final String responseBody = mResponseBody;
+        return new ByteArrayInputStream(responseBody == null
+                ? new byte[0]
+                : responseBody.getBytes(AuthenticationConstants.CHARSET_UTF8));
+    }
+
+    /**
+     * @return A new reader over the server response, for parsers which consume it incrementally.
+     * Empty if there is no response body.
+     */
+    @NonNull
+    public Reader getBodyReader() {
+        if (mResponseBodyBytes != null && mResponseBody == null) {
+            return new InputStreamReader(
+                    new ByteArrayInputStream(mResponseBodyBytes),
+                    AuthenticationConstants.CHARSET_UTF8
+            );
+        }
+        final String responseBody = getBody();
+        return new StringReader(responseBody == null ? "" : responseBody);
+    }
+
+    /**
+     * @return The length of the server response in bytes if it was received as such, in chars otherwise.
+     */
+    public int getBodyLength() {
+        if (mResponseBodyBytes != null) {
+            return mResponseBodyBytes.length;
+        }
+        final String responseBody = mResponseBody;
+        return responseBody == null ? 0 : responseBody.length();
     }
 
     /**
@@ -138,7 +227,7 @@ public class HttpResponse {
     public String toString() {
         return "HttpResponse{" +
                 "mStatusCode=" + mStatusCode +
-                ", mResponseBody='" + mResponseBody + '\'' +
+                ", mResponseBody='" + getBody() + '\'' +
                 ", mResponseHeaders=" + mResponseHeaders +
                 '}';
     }
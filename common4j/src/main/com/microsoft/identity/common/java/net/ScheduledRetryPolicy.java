@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.net;
+
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.ported.Function;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.NonNull;
+
+/**
+ * A retry policy with the same knobs as {@link StatusCodeAndExceptionRetry}, which in addition
+ * <ul>
+ *     <li>waits at least as long as the Retry-After header of the response asks, and gives up if that
+ *     is longer than {@link #maxDelay},</li>
+ *     <li>randomizes each delay, so that callers which failed together do not retry together,</li>
+ *     <li>only retries while the host has retry budget left: each request adds
+ *     {@link #retryBudgetRatio} of a retry to the budget of its host, up to {@link #retryBudgetCapacity},
+ *     and each retry takes one. When a host fails every request, retries stop until it recovers.
+ *     Calls made through {@link #attempt(Callable)} do not say which host they go to, so only
+ *     {@link #number} limits their retries.</li>
+ * </ul>
+ * Like {@link StatusCodeAndExceptionRetry}, it waits between attempts on the calling thread.
+ */
+@AllArgsConstructor
+@Builder
+@ThreadSafe
+public class ScheduledRetryPolicy implements IHostRetryPolicy<HttpResponse> {
+    private static final String TAG = ScheduledRetryPolicy.class.getSimpleName();
+
+    static final String RETRY_AFTER = "Retry-After";
+
+    /**
+     * Logged as the host of calls made through {@link #attempt(Callable)}.
+     */
+    private static final String UNKNOWN_HOST = "unknown host";
+
+    private static final Random sRandom = new Random();
+
+    @Builder.Default
+    private final Function<Exception, Boolean> isRetryableException = new Function<Exception, Boolean>() {
+        @Override
+        public Boolean apply(Exception input) {
+            return Boolean.FALSE;
+        }
+    };
+    @Builder.Default
+    private final Function<HttpResponse, Boolean> isRetryable = new Function<HttpResponse, Boolean>() {
+        @Override
+        public Boolean apply(HttpResponse input) {
+            return Boolean.FALSE;
+        }
+    };
+    @Builder.Default
+    private final Function<HttpResponse, Boolean> isAcceptable = new Function<HttpResponse, Boolean>() {
+        @Override
+        public Boolean apply(HttpResponse input) {
+            return Boolean.TRUE;
+        }
+    };
+    @Builder.Default
+    private final int number = 1;
+    @Builder.Default
+    private final int initialDelay = 1000;
+    @Builder.Default
+    private final int extensionFactor = 2;
+    @Builder.Default
+    private final int maxDelay = 30000;
+    @Builder.Default
+    private final double retryBudgetRatio = 0.1;
+    @Builder.Default
+    private final double retryBudgetCapacity = 10;
+
+    private final ConcurrentMap<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    @Override
+    public HttpResponse attempt(@NonNull final Callable<HttpResponse> supplier) throws IOException {
+        return attempt(UNKNOWN_HOST, null, supplier);
+    }
+
+    @Override
+    public HttpResponse attempt(@NonNull final String host,
+                                @NonNull final Callable<HttpResponse> supplier) throws IOException {
+        final RetryBudget retryBudget = getRetryBudget(host);
+        retryBudget.onRequest();
+        return attempt(host, retryBudget, supplier);
+    }
+
+    private HttpResponse attempt(@NonNull final String host,
+                                 @Nullable final RetryBudget retryBudget,
+                                 @NonNull final Callable<HttpResponse> supplier) throws IOException {
+        int retryCount = 0;
+        while (true) {
+            HttpResponse response = null;
+            Exception exception = null;
+            try {
+                response = supplier.call();
+                if (isAcceptable.apply(response) || !isRetryable.apply(response)) {
+                    return response;
+                }
+            } catch (final Exception e) {
+                if (!isRetryableException.apply(e)) {
+                    throwFailure(e);
+                }
+                exception = e;
+            }
+
+            final long delayMillis = getRetryDelayMillis(host, retryBudget, retryCount, response);
+            if (delayMillis < 0 || !waited(delayMillis)) {
+                if (exception != null) {
+                    throwFailure(exception);
+                }
+                return response;
+            }
+            retryCount++;
+        }
+    }
+
+    /**
+     * Returns how long to wait before retrying, or -1 if this should not be retried. Takes one
+     * retry out of the budget of the host, if there is one, when it returns a delay.
+     */
+    private long getRetryDelayMillis(@NonNull final String host,
+                                     @Nullable final RetryBudget retryBudget,
+                                     final int retryCount,
+                                     @Nullable final HttpResponse response) {
+        final String methodTag = TAG + ":getRetryDelayMillis";
+
+        if (retryCount >= number) {
+            return -1;
+        }
+
+        long backoffMillis = initialDelay;
+        for (int i = 0; i < retryCount && backoffMillis < maxDelay; i++) {
+            backoffMillis *= extensionFactor;
+        }
+        backoffMillis = Math.min(backoffMillis, maxDelay);
+
+        final long jitterMillis = (long) (sRandom.nextDouble() * (backoffMillis / 2));
+        final long delayMillis;
+        final long retryAfterMillis = getRetryAfterMillis(response, System.currentTimeMillis());
+        if (retryAfterMillis < 0) {
+            // Wait between half and all of the backoff.
+            delayMillis = backoffMillis - jitterMillis;
+        } else if (retryAfterMillis > maxDelay) {
+            Logger.infoFormat(methodTag, "Not retrying, {} asked to retry after {} ms.", host, retryAfterMillis);
+            return -1;
+        } else {
+            delayMillis = retryAfterMillis + jitterMillis;
+        }
+
+        if (retryBudget != null && !retryBudget.tryAcquire()) {
+            Logger.infoFormat(methodTag, "Not retrying, retry budget of {} is used up.", host);
+            return -1;
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Parses the Retry-After header of the response, which holds either a number of seconds or a date.
+     * @return the time to wait in milliseconds, or -1 if the response has no valid Retry-After header.
+     */
+    static long getRetryAfterMillis(@Nullable final HttpResponse response, final long nowMillis) {
+        if (response == null || response.getHeaders() == null) {
+            return -1;
+        }
+
+        String retryAfter = null;
+        for (final Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            if (RETRY_AFTER.equalsIgnoreCase(header.getKey())
+                    && header.getValue() != null
+                    && !header.getValue().isEmpty()) {
+                retryAfter = header.getValue().get(0);
+                break;
+            }
+        }
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        retryAfter = retryAfter.trim();
+        try {
+            final long seconds = Long.parseLong(retryAfter);
+            return seconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(seconds);
+        } catch (final NumberFormatException e) {
+            // Not a number of seconds, try the date format.
+        }
+
+        final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, httpDateFormat.parse(retryAfter).getTime() - nowMillis);
+        } catch (final ParseException e) {
+            return -1;
+        }
+    }
+
+    private RetryBudget getRetryBudget(@NonNull final String host) {
+        RetryBudget retryBudget = retryBudgets.get(host);
+        if (retryBudget == null) {
+            final RetryBudget newRetryBudget = new RetryBudget(retryBudgetRatio, retryBudgetCapacity);
+            retryBudget = retryBudgets.putIfAbsent(host, newRetryBudget);
+            if (retryBudget == null) {
+                retryBudget = newRetryBudget;
+            }
+        }
+        return retryBudget;
+    }
+
+    private static void throwFailure(@NonNull final Exception e) throws IOException {
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        throw new RetryFailedException(e);
+    }
+
+    /**
+     * Just a sleep function that allows for a return to break the loop.
+     * @param delayMillis How long, in milliseconds, to pause.
+     * @return true if we successfully waited, false if interrupted.
+     */
+    private static boolean waited(final long delayMillis) {
+        try {
+            Thread.sleep(delayMillis);
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Retries a host may still make. Starts full, so that a host which has not been called much
+     * can still be retried.
+     */
+    static final class RetryBudget {
+        private final double mRatio;
+        private final double mCapacity;
+        private double mRetries;
+
+        RetryBudget(final double ratio, final double capacity) {
+            mRatio = ratio;
+            mCapacity = capacity;
+            mRetries = capacity;
+        }
+
+        synchronized void onRequest() {
+            mRetries = Math.min(mCapacity, mRetries + mRatio);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (mRetries < 1) {
+                return false;
+            }
+            mRetries -= 1;
+            return true;
+        }
+    }
+}
@@ -27,7 +27,6 @@ import static com.microsoft.identity.common.java.net.HttpConstants.HeaderField.C
 import static com.microsoft.identity.common.java.net.HttpConstants.HeaderField.XMS_CCS_REQUEST_ID;
 import static com.microsoft.identity.common.java.net.HttpConstants.HeaderField.XMS_CCS_REQUEST_SEQUENCE;
 
-import com.microsoft.identity.common.java.AuthenticationConstants;
 import com.microsoft.identity.common.java.flighting.CommonFlight;
 import com.microsoft.identity.common.java.flighting.CommonFlightsManager;
 import com.microsoft.identity.common.java.logging.Logger;
@@ -43,15 +42,14 @@ import com.microsoft.identity.common.java.util.ported.Supplier;
 
 import net.jcip.annotations.ThreadSafe;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -92,6 +90,11 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
     public static final int DEFAULT_READ_TIME_OUT_MS = 30000;
     protected static final int DEFAULT_STREAM_BUFFER_SIZE_BYTE = 1024;
 
+    /**
+     * Upper bound of the buffer allocated up front for a response body from its Content-Length.
+     */
+    private static final int MAX_INITIAL_BODY_BUFFER_SIZE = 1024 * 1024;
+
     private static final transient AtomicReference<UrlConnectionHttpClient> defaultReference = new AtomicReference<>(null);
 
     /**
@@ -179,32 +182,58 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
         UrlConnectionHttpClient reference = defaultReference.get();
         if (reference == null) {
             defaultReference.compareAndSet(null, UrlConnectionHttpClient.builder()
-                    .retryPolicy(StatusCodeAndExceptionRetry.builder()
-                            .number(1)
-                            .extensionFactor(2)
-                            .isAcceptable(new Function<HttpResponse, Boolean>() {
-                                public Boolean apply(HttpResponse response) {
-                                    return response != null && response.getStatusCode() < 400;
-                                }
-                            })
-                            .initialDelay(RETRY_TIME_WAITING_PERIOD_MSEC)
-                            .isRetryable(new Function<HttpResponse, Boolean>() {
-                                public Boolean apply(HttpResponse response) {
-                                    return response != null && isRetryableError(response.getStatusCode());
-                                }
-                            })
-                            .isRetryableException(new Function<Exception, Boolean>() {
-                                public Boolean apply(Exception e) {
-                                    return e instanceof SocketTimeoutException;
-                                }
-                            })
-                            .build())
+                    .retryPolicy(newDefaultRetryPolicy())
                     .build());
             reference = defaultReference.get();
         }
         return reference;
     }
 
+    /**
+     * Creates the retry policy of {@link #getDefaultInstance()}: a single retry of 5xx responses
+     * and socket timeouts. It is a {@link ScheduledRetryPolicy} if
+     * {@link CommonFlight#USE_SCHEDULED_RETRY_POLICY_FOR_DEFAULT_HTTP_CLIENT} is enabled.
+     */
+    //@VisibleForTesting
+    static IRetryPolicy<HttpResponse> newDefaultRetryPolicy() {
+        final Function<HttpResponse, Boolean> isAcceptable = new Function<HttpResponse, Boolean>() {
+            public Boolean apply(HttpResponse response) {
+                return response != null && response.getStatusCode() < 400;
+            }
+        };
+        final Function<HttpResponse, Boolean> isRetryable = new Function<HttpResponse, Boolean>() {
+            public Boolean apply(HttpResponse response) {
+                return response != null && isRetryableError(response.getStatusCode());
+            }
+        };
+        final Function<Exception, Boolean> isRetryableException = new Function<Exception, Boolean>() {
+            public Boolean apply(Exception e) {
+                return e instanceof SocketTimeoutException;
+            }
+        };
+
+        if (CommonFlightsManager.INSTANCE.getFlightsProvider()
+                .isFlightEnabled(CommonFlight.USE_SCHEDULED_RETRY_POLICY_FOR_DEFAULT_HTTP_CLIENT)) {
+            return ScheduledRetryPolicy.builder()
+                    .number(1)
+                    .extensionFactor(2)
+                    .isAcceptable(isAcceptable)
+                    .initialDelay(RETRY_TIME_WAITING_PERIOD_MSEC)
+                    .isRetryable(isRetryable)
+                    .isRetryableException(isRetryableException)
+                    .build();
+        }
+
+        return StatusCodeAndExceptionRetry.builder()
+                .number(1)
+                .extensionFactor(2)
+                .isAcceptable(isAcceptable)
+                .initialDelay(RETRY_TIME_WAITING_PERIOD_MSEC)
+                .isRetryable(isRetryable)
+                .isRetryableException(isRetryableException)
+                .build();
+    }
+
     /**
      * Record the beginning of an http request.
      */
@@ -252,16 +281,7 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
                                final byte[] requestContent) throws IOException {
         recordHttpTelemetryEventStart(httpMethod.name(), requestUrl, requestHeaders.get(CLIENT_REQUEST_ID));
         final HttpRequest request = constructHttpRequest(httpMethod, requestUrl, requestHeaders, requestContent);
-        return retryPolicy.attempt(new Callable<HttpResponse>() {
-            public HttpResponse call() throws IOException {
-                return executeHttpSend(request, new Consumer<HttpResponse>() {
-                    @Override
-                    public void accept(HttpResponse httpResponse) {
-                        recordHttpTelemetryEventEnd(httpResponse);
-                    }
-                });
-            }
-        });
+        return attempt(request);
     }
 
     /**
@@ -284,7 +304,22 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
                 requestContent,
                 null
         );
-        return retryPolicy.attempt(new Callable<HttpResponse>() {
+        return attempt(request);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpResponse attempt(@NonNull final HttpRequest request) throws IOException {
+        if (retryPolicy instanceof IHostRetryPolicy) {
+            return ((IHostRetryPolicy<HttpResponse>) retryPolicy).attempt(
+                    request.getRequestUrl().getHost(),
+                    newSendCallable(request)
+            );
+        }
+        return retryPolicy.attempt(newSendCallable(request));
+    }
+
+    private Callable<HttpResponse> newSendCallable(@NonNull final HttpRequest request) {
+        return new Callable<HttpResponse>() {
             public HttpResponse call() throws IOException {
                 return executeHttpSend(request, new Consumer<HttpResponse>() {
                     @Override
@@ -293,7 +328,7 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
                     }
                 });
             }
-        });
+        };
     }
 
     private static HttpRequest constructHttpRequest(@NonNull HttpClient.HttpMethod httpMethod,
@@ -322,25 +357,36 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
     }
 
     /**
-     * Convert stream into the string.
+     * Read the stream into a byte array, without decoding it.
      *
-     * @param inputStream {@link InputStream} to be converted to be a string.
-     * @return The converted string
+     * @param inputStream   {@link InputStream} to be read.
+     * @param contentLength The length announced by the server, or -1 if unknown.
+     * @return The bytes read.
      * @throws IOException Thrown when failing to access inputStream stream.
      */
-    private String convertStreamToString(final InputStream inputStream) throws IOException {
+    private byte[] readStreamToBytes(final InputStream inputStream, final int contentLength) throws IOException {
         try {
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
-                    AuthenticationConstants.CHARSET_UTF8));
-            final char[] buffer = new char[streamBufferSize];
-            final StringBuilder stringBuilder = new StringBuilder();
-            int charsRead;
-
-            while ((charsRead = reader.read(buffer)) > -1) {
-                stringBuilder.append(buffer, 0, charsRead);
+            // Trust the announced length for the first allocation only up to a limit, the body
+            // may still turn out to be shorter or longer.
+            byte[] buffer = new byte[contentLength > 0
+                    ? Math.min(contentLength, MAX_INITIAL_BODY_BUFFER_SIZE)
+                    : streamBufferSize];
+            int length = 0;
+            int bytesRead;
+
+            while ((bytesRead = inputStream.read(buffer, length, buffer.length - length)) > -1) {
+                length += bytesRead;
+                if (length == buffer.length) {
+                    final int next = inputStream.read();
+                    if (next == -1) {
+                        break;
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, DEFAULT_STREAM_BUFFER_SIZE_BYTE));
+                    buffer[length++] = (byte) next;
+                }
             }
 
-            return stringBuilder.toString();
+            return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
         } finally {
             safeCloseStream(inputStream);
         }
@@ -388,9 +434,9 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
             final int statusCode = urlConnection.getResponseCode();
             final Date date = new Date(urlConnection.getDate());
 
-            final String responseBody = responseStream == null
-                    ? ""
-                    : convertStreamToString(responseStream);
+            final byte[] responseBody = responseStream == null
+                    ? new byte[0]
+                    : readStreamToBytes(responseStream, urlConnection.getContentLength());
 
             response = new HttpResponse(
                     date,
@@ -420,7 +466,7 @@ public class UrlConnectionHttpClient extends AbstractHttpClient {
 
             span.setAttribute(
                     AttributeName.response_body_length.name(),
-                    responseBody.length()
+                    response.getBodyLength()
             );
             span.setAttribute(
                     AttributeName.http_status_code.name(),
@@ -27,6 +27,7 @@ import lombok.NonNull;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.microsoft.identity.common.java.authorities.Environment;
+import com.microsoft.identity.common.java.cache.AuthorityMetadataCache;
 import com.microsoft.identity.common.java.cache.HttpCache;
 import com.microsoft.identity.common.java.interfaces.IPlatformComponents;
 import com.microsoft.identity.common.java.logging.Logger;
@@ -181,13 +182,56 @@ public class AzureActiveDirectory
         }
     }
 
-    public static synchronized void performCloudDiscovery()
+    /**
+     * Loads the AAD clouds, from {@link AuthorityMetadataCache} if it has them and from the
+     * instance discovery endpoint otherwise. Clouds served from the cache after they stopped being
+     * fresh are refreshed in the background. The request is not made under the class lock, so
+     * readers of the clouds are not blocked by it.
+     */
+    public static void performCloudDiscovery()
             throws IOException, URISyntaxException {
         final String methodName = ":performCloudDiscovery";
         final URI instanceDiscoveryRequestUri = new CommonURIBuilder(getDefaultCloudUrl() + AAD_INSTANCE_DISCOVERY_ENDPOINT)
                 .setParameter(API_VERSION, API_VERSION_VALUE)
                 .setParameter(AUTHORIZATION_ENDPOINT, AUTHORIZATION_ENDPOINT_VALUE)
                 .build();
+        final String cacheKey = instanceDiscoveryRequestUri.toString();
+
+        final AuthorityMetadataCache.Entry cachedEntry = AuthorityMetadataCache.getInstance().get(cacheKey);
+        if (cachedEntry != null) {
+            Logger.info(TAG + methodName, "Using cached cloud metadata.");
+            AzureActiveDirectoryInstanceResponse instanceResponse =
+                    cachedEntry.getParsedValue(AzureActiveDirectoryInstanceResponse.class);
+            if (instanceResponse == null) {
+                instanceResponse = ObjectMapper.deserializeJsonStringToObject(
+                        cachedEntry.getBody(),
+                        AzureActiveDirectoryInstanceResponse.class
+                );
+                cachedEntry.setParsedValue(instanceResponse);
+            }
+            putDiscoveredClouds(instanceResponse);
+
+            if (!cachedEntry.isFresh(System.currentTimeMillis())) {
+                AuthorityMetadataCache.getInstance().refreshInBackground(cacheKey, new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            fetchCloudDiscovery(instanceDiscoveryRequestUri);
+                        } catch (final IOException e) {
+                            Logger.warn(TAG + methodName, "Failed to refresh cloud metadata: " + e.getMessage());
+                        }
+                    }
+                });
+            }
+            return;
+        }
+
+        fetchCloudDiscovery(instanceDiscoveryRequestUri);
+    }
+
+    private static void fetchCloudDiscovery(@NonNull final URI instanceDiscoveryRequestUri)
+            throws IOException {
+        final String methodName = ":fetchCloudDiscovery";
 
         final HttpResponse response =
                 httpClient.get(new URL(instanceDiscoveryRequestUri.toString()),
@@ -197,8 +241,8 @@ public class AzureActiveDirectory
             Logger.warn(TAG + methodName, "Error getting cloud information");
         } else {
             // Our request was successful. Flush the HTTP cache to disk. Should only happen once
-            // per app launch. Instance Discovery Metadata will be cached in-memory
-            // until the app is killed.
+            // per app launch. Instance Discovery Metadata is cached in AuthorityMetadataCache
+            // for as long as the response allows.
             HttpCache.flush();
 
             Logger.info(TAG + methodName, "Parsing response.");
@@ -210,15 +254,25 @@ public class AzureActiveDirectory
             Logger.info(TAG + methodName, "Discovered ["
                     + instanceResponse.getClouds().size() + "] clouds.");
 
-            for (final AzureActiveDirectoryCloud cloud : instanceResponse.getClouds()) {
-                cloud.setIsValidated(true); // Mark the deserialized Clouds as validated
-                for (final String alias : cloud.getHostAliases()) {
-                    sAadClouds.put(alias.toLowerCase(Locale.US), cloud);
-                }
+            if (!StringUtil.isNullOrEmpty(response.getBody())) {
+                AuthorityMetadataCache.getInstance()
+                        .put(instanceDiscoveryRequestUri.toString(), response)
+                        .setParsedValue(instanceResponse);
             }
 
-            sIsInitialized = true;
+            putDiscoveredClouds(instanceResponse);
+        }
+    }
+
+    private static synchronized void putDiscoveredClouds(@NonNull final AzureActiveDirectoryInstanceResponse instanceResponse) {
+        for (final AzureActiveDirectoryCloud cloud : instanceResponse.getClouds()) {
+            cloud.setIsValidated(true); // Mark the deserialized Clouds as validated
+            for (final String alias : cloud.getHostAliases()) {
+                sAadClouds.put(alias.toLowerCase(Locale.US), cloud);
+            }
         }
+
+        sIsInitialized = true;
     }
 
     public static synchronized Set<String> getHosts() {
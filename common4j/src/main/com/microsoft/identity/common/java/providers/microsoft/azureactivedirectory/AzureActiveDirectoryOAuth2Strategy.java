@@ -252,7 +252,7 @@ public class AzureActiveDirectoryOAuth2Strategy
             Logger.warn(TAG + ":" + methodName, "Status code was: " + response.getStatusCode());
             tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
         } else {
-            tokenResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), AzureActiveDirectoryTokenResponse.class);
+            tokenResponse = ObjectMapper.deserializeJsonReaderToObject(response.getBodyReader(), AzureActiveDirectoryTokenResponse.class);
         }
 
         final TokenResult result = new TokenResult(tokenResponse, tokenErrorResponse);
@@ -39,8 +39,8 @@ public class MicrosoftStsTokenResponseHandler extends AbstractMicrosoftStsTokenR
      */
     @Override
     protected MicrosoftStsTokenResponse getSuccessfulResponse(@NonNull final HttpResponse httpResponse) {
-        return ObjectMapper.deserializeJsonStringToObject(
-                httpResponse.getBody(),
+        return ObjectMapper.deserializeJsonReaderToObject(
+                httpResponse.getBodyReader(),
                 MicrosoftStsTokenResponse.class
         );
     }
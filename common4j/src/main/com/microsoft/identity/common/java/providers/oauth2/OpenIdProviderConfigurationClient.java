@@ -25,12 +25,14 @@ package com.microsoft.identity.common.java.providers.oauth2;
 import static com.microsoft.identity.common.java.exception.ServiceException.OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD;
 
 import com.google.gson.Gson;
+import com.microsoft.identity.common.java.cache.AuthorityMetadataCache;
 import com.microsoft.identity.common.java.exception.ServiceException;
 import com.microsoft.identity.common.java.logging.Logger;
 import com.microsoft.identity.common.java.net.HttpClient;
 import com.microsoft.identity.common.java.net.HttpResponse;
 import com.microsoft.identity.common.java.net.UrlConnectionHttpClient;
 import com.microsoft.identity.common.java.util.CommonURIBuilder;
+import com.microsoft.identity.common.java.util.ResultFuture;
 import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.TaskCompletedCallbackWithError;
 
@@ -39,7 +41,9 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -55,7 +59,9 @@ public class OpenIdProviderConfigurationClient {
     private static final String WELL_KNOWN_CONFIG_HOST = "login.microsoftonline.com";
     private static final String WELL_KNOWN_CONFIG_PATH = "/v2.0/.well-known/openid-configuration";
     private static final ExecutorService sBackgroundExecutor = Executors.newCachedThreadPool();
-    private static final Map<URI, OpenIdProviderConfiguration> sConfigCache = new HashMap<>();
+    private static final AuthorityMetadataCache sConfigCache = AuthorityMetadataCache.getInstance();
+    private static final ConcurrentMap<String, ResultFuture<OpenIdProviderConfiguration>> sLoadsInFlight =
+            new ConcurrentHashMap<>();
     private static final HttpClient httpClient = UrlConnectionHttpClient.getDefaultInstance();
 
     public interface OpenIdProviderConfigurationCallback
@@ -93,7 +99,7 @@ public class OpenIdProviderConfigurationClient {
      *
      * @return OpenIdProviderConfiguration
      */
-    public synchronized OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromTenant(@NonNull final String tenantIdentifier)
+    public OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromTenant(@NonNull final String tenantIdentifier)
             throws ServiceException {
         try {
             final String tenantedAuthorityUrl = new CommonURIBuilder()
@@ -116,7 +122,7 @@ public class OpenIdProviderConfigurationClient {
      *
      * @return OpenIdProviderConfiguration
      */
-    public synchronized OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromAuthority(@NonNull final String authorityUrl)
+    public OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromAuthority(@NonNull final String authorityUrl)
             throws ServiceException {
         return loadOpenIdProviderConfigurationInternal(authorityUrl, null);
     }
@@ -126,7 +132,7 @@ public class OpenIdProviderConfigurationClient {
      *
      * @return OpenIdProviderConfiguration
      */
-    public synchronized OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromAuthorityWithExtraParams(@NonNull final String authorityUrl, @NonNull final String extraParams)
+    public OpenIdProviderConfiguration loadOpenIdProviderConfigurationFromAuthorityWithExtraParams(@NonNull final String authorityUrl, @NonNull final String extraParams)
             throws ServiceException {
         return loadOpenIdProviderConfigurationInternal(authorityUrl, extraParams);
     }
@@ -136,7 +142,7 @@ public class OpenIdProviderConfigurationClient {
      *
      * @return OpenIdProviderConfiguration
      */
-    private synchronized OpenIdProviderConfiguration loadOpenIdProviderConfigurationInternal(@NonNull final String tenantedAuthorityString, final String extraParams)
+    private OpenIdProviderConfiguration loadOpenIdProviderConfigurationInternal(@NonNull final String tenantedAuthorityString, final String extraParams)
             throws ServiceException {
         final String methodName = ":loadOpenIdProviderConfiguration";
 
@@ -149,8 +155,8 @@ public class OpenIdProviderConfigurationClient {
             }
             final URI configUrl = new URI(uriString);
 
-            // Check first for a cached copy...
-            final OpenIdProviderConfiguration cacheResult = sConfigCache.get(configUrl);
+            // Check first for a cached copy, without waiting for loads of other configurations...
+            final OpenIdProviderConfiguration cacheResult = getCachedConfiguration(configUrl);
 
             // If we found a result, return it...
             if (null != cacheResult) {
@@ -161,6 +167,117 @@ public class OpenIdProviderConfigurationClient {
                 return cacheResult;
             }
 
+            return loadSingleFlight(configUrl);
+        } catch (final URISyntaxException e) {
+            throw new ServiceException(
+                    OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD,
+                    "IOException while requesting metadata",
+                    e
+            );
+        }
+    }
+
+    /**
+     * Fetches the configuration, unless a load of the same URL is already in flight, in which case
+     * its result is shared. Loads of different URLs run in parallel.
+     */
+    private OpenIdProviderConfiguration loadSingleFlight(@NonNull final URI configUrl)
+            throws ServiceException {
+        final String methodName = ":loadSingleFlight";
+
+        final ResultFuture<OpenIdProviderConfiguration> load = new ResultFuture<>();
+        final ResultFuture<OpenIdProviderConfiguration> loadInFlight =
+                sLoadsInFlight.putIfAbsent(configUrl.toString(), load);
+        if (null != loadInFlight) {
+            Logger.info(
+                    TAG + methodName,
+                    "Waiting for metadata load in flight."
+            );
+            return awaitLoad(loadInFlight);
+        }
+
+        try {
+            // A load may have completed between the cache lookup and claiming this one.
+            OpenIdProviderConfiguration config = getCachedConfiguration(configUrl);
+            if (null == config) {
+                config = fetchConfiguration(configUrl);
+            }
+            load.setResult(config);
+            return config;
+        } catch (final ServiceException | RuntimeException e) {
+            load.setException(e);
+            throw e;
+        } finally {
+            sLoadsInFlight.remove(configUrl.toString(), load);
+        }
+    }
+
+    private static OpenIdProviderConfiguration awaitLoad(@NonNull final ResultFuture<OpenIdProviderConfiguration> load)
+            throws ServiceException {
+        try {
+            return load.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(
+                    OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD,
+                    "Interrupted while waiting for metadata",
+                    e
+            );
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ServiceException) {
+                throw new ServiceException(
+                        ((ServiceException) cause).getErrorCode(),
+                        cause.getMessage(),
+                        cause
+                );
+            }
+            throw new ServiceException(
+                    OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD,
+                    "Failed to load metadata",
+                    cause
+            );
+        }
+    }
+
+    /**
+     * Returns the configuration cached for the URL, if any. If it is no longer fresh, it is still
+     * returned, and refreshed in the background.
+     */
+    private OpenIdProviderConfiguration getCachedConfiguration(@NonNull final URI configUrl) {
+        final String methodName = ":getCachedConfiguration";
+
+        final AuthorityMetadataCache.Entry entry = sConfigCache.get(configUrl.toString());
+        if (entry == null) {
+            return null;
+        }
+
+        if (!entry.isFresh(System.currentTimeMillis())) {
+            sConfigCache.refreshInBackground(configUrl.toString(), new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        fetchConfiguration(configUrl);
+                    } catch (final ServiceException e) {
+                        Logger.warn(TAG + methodName, "Failed to refresh metadata: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        OpenIdProviderConfiguration config = entry.getParsedValue(OpenIdProviderConfiguration.class);
+        if (config == null) {
+            config = parseMetadata(entry.getBody());
+            entry.setParsedValue(config);
+        }
+        return config;
+    }
+
+    private OpenIdProviderConfiguration fetchConfiguration(@NonNull final URI configUrl)
+            throws ServiceException {
+        final String methodName = ":fetchConfiguration";
+
+        try {
             Logger.verbose(
                     TAG + methodName,
                     "Config URL is valid."
@@ -190,11 +307,11 @@ public class OpenIdProviderConfigurationClient {
                     providerConfigResponse.getBody()
             );
 
-            // Cache our config in memory for later
-            cacheConfiguration(configUrl, parsedConfig);
+            // Cache our config for later
+            cacheConfiguration(configUrl, providerConfigResponse, parsedConfig);
 
             return parsedConfig;
-        } catch (final IOException | URISyntaxException e) {
+        } catch (final IOException e) {
             throw new ServiceException(
                     OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD,
                     "IOException while requesting metadata",
@@ -204,8 +321,9 @@ public class OpenIdProviderConfigurationClient {
     }
 
     private void cacheConfiguration(@NonNull final URI configUrl,
+                                    @NonNull final HttpResponse response,
                                     @NonNull final OpenIdProviderConfiguration parsedConfig) {
-        sConfigCache.put(configUrl, parsedConfig);
+        sConfigCache.put(configUrl.toString(), response).setParsedValue(parsedConfig);
     }
 
     private OpenIdProviderConfiguration parseMetadata(@NonNull final String body) {
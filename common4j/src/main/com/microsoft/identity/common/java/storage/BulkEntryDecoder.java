@@ -0,0 +1,227 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.storage;
+
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.BiConsumer;
+import com.microsoft.identity.common.java.util.ThreadUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Decodes (e.g. decrypts) a batch of raw name/value entries on a bounded pool of worker threads,
+ * and hands each decoded entry to a consumer as soon as it is ready. Backs the parallel
+ * implementations of {@link INameValueStorage#forEachFilteredByKey}.
+ * <p>
+ * The calling thread takes part in the work, so a batch always completes even if no worker is
+ * available, and the number of threads used grows with the number of cores.
+ */
+public final class BulkEntryDecoder {
+
+    private static final String TAG = BulkEntryDecoder.class.getSimpleName();
+
+    /**
+     * Entries are handed out to threads in chunks of this size.
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * Maximum number of threads used on top of the calling thread.
+     */
+    private static final int MAX_WORKER_COUNT =
+            Math.max(0, Math.min(Runtime.getRuntime().availableProcessors(), 8) - 1);
+
+    /**
+     * Threads are only started on demand and are released once idle. Submissions beyond
+     * {@link #MAX_WORKER_COUNT} busy threads are rejected, and their share of the work is done by
+     * the threads already running.
+     */
+    private static final ExecutorService sWorkers = MAX_WORKER_COUNT == 0
+            ? null
+            : ThreadUtils.getNamedThreadPoolExecutor(
+                    0, MAX_WORKER_COUNT, 0, 5, TimeUnit.SECONDS, TAG);
+
+    private BulkEntryDecoder() {
+    }
+
+    /**
+     * Decodes a raw value.
+     *
+     * @param <T> the type of the decoded value.
+     */
+    public interface IDecoder<T> {
+        /**
+         * @return the decoded value, or null to skip the entry.
+         */
+        @Nullable
+        T decode(@NonNull String name, @Nullable String rawValue);
+    }
+
+    /**
+     * Decodes the given raw entries and passes the decoded ones to the consumer, which may be
+     * called concurrently from several threads. Returns once every entry has been handled.
+     * <p>
+     * If the decoder or the consumer throws, the remaining entries are abandoned and the first
+     * failure is rethrown on the calling thread.
+     *
+     * @param entries   the raw entries.
+     * @param readNanos how long it took to read the raw entries, for the returned statistics.
+     * @param decoder   decodes each raw value.
+     * @param consumer  receives each decoded entry.
+     * @return the timings of the read and decode phases.
+     */
+    @NonNull
+    public static <T> BulkReadStatistics decodeAll(@NonNull final List<Map.Entry<String, String>> entries,
+                                                   final long readNanos,
+                                                   @NonNull final IDecoder<T> decoder,
+                                                   @NonNull final BiConsumer<String, T> consumer) {
+        final String methodTag = TAG + ":decodeAll";
+        final long start = System.nanoTime();
+
+        final Batch<T> batch = new Batch<>(entries, decoder, consumer);
+        final int chunkCount = (entries.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final int workerCount = sWorkers == null ? 0 : Math.min(chunkCount - 1, MAX_WORKER_COUNT);
+
+        final CountDownLatch workersDone = new CountDownLatch(Math.max(workerCount, 0));
+        for (int i = 0; i < workerCount; i++) {
+            try {
+                sWorkers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            batch.run();
+                        } finally {
+                            workersDone.countDown();
+                        }
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                // Every worker is busy, the threads already running will pick up the slack.
+                workersDone.countDown();
+            }
+        }
+
+        batch.run();
+
+        boolean interrupted = false;
+        while (workersDone.getCount() > 0) {
+            try {
+                workersDone.await();
+            } catch (final InterruptedException e) {
+                // The workers are using our entries and consumer, we can't leave before they do.
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final Throwable failure = batch.mFailure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        final BulkReadStatistics statistics = new BulkReadStatistics(
+                batch.mDecodedCount.get(),
+                Math.max(batch.mThreadCount.get(), 1),
+                readNanos,
+                batch.mDecodeNanos.get(),
+                readNanos + System.nanoTime() - start
+        );
+        Logger.verbose(methodTag, statistics.toString());
+        return statistics;
+    }
+
+    /**
+     * The shared state of one {@link #decodeAll} call.
+     */
+    private static final class Batch<T> implements Runnable {
+        private final List<Map.Entry<String, String>> mEntries;
+        private final IDecoder<T> mDecoder;
+        private final BiConsumer<String, T> mConsumer;
+        private final AtomicInteger mNextChunk = new AtomicInteger();
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+        private final AtomicInteger mDecodedCount = new AtomicInteger();
+        private final AtomicLong mDecodeNanos = new AtomicLong();
+        private final AtomicReference<Throwable> mFailure = new AtomicReference<>();
+
+        private Batch(@NonNull final List<Map.Entry<String, String>> entries,
+                      @NonNull final IDecoder<T> decoder,
+                      @NonNull final BiConsumer<String, T> consumer) {
+            mEntries = entries;
+            mDecoder = decoder;
+            mConsumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            boolean counted = false;
+            long decodeNanos = 0;
+            int decodedCount = 0;
+
+            try {
+                int chunk;
+                while (mFailure.get() == null
+                        && (chunk = mNextChunk.getAndIncrement()) * CHUNK_SIZE < mEntries.size()) {
+                    if (!counted) {
+                        mThreadCount.incrementAndGet();
+                        counted = true;
+                    }
+
+                    final int end = Math.min((chunk + 1) * CHUNK_SIZE, mEntries.size());
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        final Map.Entry<String, String> entry = mEntries.get(i);
+
+                        final long decodeStart = System.nanoTime();
+                        final T value = mDecoder.decode(entry.getKey(), entry.getValue());
+                        decodeNanos += System.nanoTime() - decodeStart;
+
+                        if (value != null) {
+                            mConsumer.accept(entry.getKey(), value);
+                            decodedCount++;
+                        }
+                    }
+                }
+            } catch (final Throwable t) {
+                mFailure.compareAndSet(null, t);
+            } finally {
+                mDecodeNanos.addAndGet(decodeNanos);
+                mDecodedCount.addAndGet(decodedCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.storage;
+
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings of a bulk read, see {@link INameValueStorage#forEachFilteredByKey}.
+ * <p>
+ * The read phase fetches the raw entries from the underlying storage. The decode phase turns
+ * them into values (e.g. decrypts them) and is summed across every thread which took part, so it
+ * may exceed the total (wall clock) time. Storages which don't separate the two phases report
+ * all of their time as read time.
+ */
+public class BulkReadStatistics {
+
+    private final int mEntryCount;
+    private final int mThreadCount;
+    private final long mReadNanos;
+    private final long mDecodeNanos;
+    private final long mTotalNanos;
+
+    public BulkReadStatistics(final int entryCount,
+                              final int threadCount,
+                              final long readNanos,
+                              final long decodeNanos,
+                              final long totalNanos) {
+        mEntryCount = entryCount;
+        mThreadCount = threadCount;
+        mReadNanos = readNanos;
+        mDecodeNanos = decodeNanos;
+        mTotalNanos = totalNanos;
+    }
+
+    /**
+     * @return The number of entries passed to the consumer.
+     */
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    /**
+     * @return The number of threads which decoded entries, including the calling thread.
+     */
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * @return The time spent reading raw entries, in milliseconds.
+     */
+    public long getReadTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mReadNanos);
+    }
+
+    /**
+     * @return The time spent decoding entries, summed across threads, in milliseconds.
+     */
+    public long getDecodeTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mDecodeNanos);
+    }
+
+    /**
+     * @return The wall clock time of the whole read, consumer included, in milliseconds.
+     */
+    public long getTotalTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mTotalNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkReadStatistics{" +
+                "entries=" + mEntryCount +
+                ", threads=" + mThreadCount +
+                ", readMs=" + getReadTimeMillis() +
+                ", decodeMs=" + getDecodeTimeMillis() +
+                ", totalMs=" + getTotalTimeMillis() +
+                '}';
+    }
+}
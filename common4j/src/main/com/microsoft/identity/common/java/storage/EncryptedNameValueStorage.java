@@ -27,12 +27,17 @@ import com.microsoft.identity.common.java.crypto.KeyAccessorStringAdapter;
 import com.microsoft.identity.common.java.exception.ClientException;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
 import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -88,22 +93,7 @@ public class EncryptedNameValueStorage<T> implements INameValueStorage<T> {
     @Nullable
     @Override
     public T get(@NonNull final String name) {
-        final String methodTag = TAG + ":get";
-
-        final String encryptedString = mRawNameValueStorage.get(name);
-        if (StringUtil.isNullOrEmpty(encryptedString)) {
-            Logger.info(methodTag, "Data associated to the given key is null or empty", null);
-            remove(name);
-            return null;
-        }
-
-        try {
-            final String decryptedString = mEncryptionManager.decrypt(encryptedString);
-            return mStringAdapter.adapt(decryptedString);
-        } catch (final ClientException e){
-            Logger.error(methodTag, "Failed to read encrypted value", null);
-            return null;
-        }
+        return decrypt(name, mRawNameValueStorage.get(name));
     }
 
     @Override
@@ -112,7 +102,7 @@ public class EncryptedNameValueStorage<T> implements INameValueStorage<T> {
         final Map<String, T> decryptedEntries = new HashMap<>();
 
         for (final Map.Entry<String, String> entry : stringEntries.entrySet()) {
-            final T decryptedValue = get(entry.getKey());
+            final T decryptedValue = decrypt(entry.getKey(), entry.getValue());
 
             if (decryptedValue != null) {
                 decryptedEntries.put(entry.getKey(), decryptedValue);
@@ -164,14 +154,95 @@ public class EncryptedNameValueStorage<T> implements INameValueStorage<T> {
         return mRawNameValueStorage.keySet();
     }
 
+    /**
+     * Returns a lazy view of the entries whose key passes the filter. Only those values are
+     * decrypted, and only as the iterator reaches them.
+     */
     @Override
     public Iterator<Map.Entry<String, T>> getAllFilteredByKey(@NonNull final Predicate<String> keyFilter) {
-        final Map<String, T> newMap = new HashMap<>();
-        for (final Map.Entry<String, T> entry : getAll().entrySet()) {
-            if (keyFilter.test(entry.getKey())) {
-                newMap.put(entry.getKey(), entry.getValue());
+        return new Iterator<Map.Entry<String, T>>() {
+            final Iterator<Map.Entry<String, String>> iterator = mRawNameValueStorage.getAllFilteredByKey(keyFilter);
+            Map.Entry<String, T> nextEntry = null;
+
+            @Override
+            public boolean hasNext() {
+                while (nextEntry == null && iterator.hasNext()) {
+                    final Map.Entry<String, String> nextElement = iterator.next();
+                    final T decryptedValue = decrypt(nextElement.getKey(), nextElement.getValue());
+                    if (decryptedValue != null) {
+                        nextEntry = new AbstractMap.SimpleEntry<>(nextElement.getKey(), decryptedValue);
+                    }
+                }
+                return nextEntry != null;
+            }
+
+            @Override
+            public Map.Entry<String, T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Map.Entry<String, T> tmp = nextEntry;
+                nextEntry = null;
+                return tmp;
             }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Removal is not supported");
+            }
+        };
+    }
+
+    /**
+     * Reads the raw entries whose key passes the filter, then decrypts them on a bounded pool of
+     * worker threads, see {@link BulkEntryDecoder}. The consumer is called concurrently.
+     */
+    @Override
+    public @NonNull BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                            @NonNull final BiConsumer<String, T> consumer) {
+        final long readStart = System.nanoTime();
+        final List<Map.Entry<String, String>> rawEntries = new ArrayList<>();
+        final List<String> emptyEntries = new ArrayList<>();
+        final Iterator<Map.Entry<String, String>> iterator = mRawNameValueStorage.getAllFilteredByKey(keyFilter);
+        while (iterator.hasNext()) {
+            final Map.Entry<String, String> entry = iterator.next();
+            if (StringUtil.isNullOrEmpty(entry.getValue())) {
+                emptyEntries.add(entry.getKey());
+            } else {
+                rawEntries.add(entry);
+            }
+        }
+
+        // Done here, rather than by the workers, as the raw storage isn't required to be thread-safe.
+        for (final String name : emptyEntries) {
+            decrypt(name, null);
+        }
+        final long readNanos = System.nanoTime() - readStart;
+
+        return BulkEntryDecoder.decodeAll(rawEntries, readNanos, new BulkEntryDecoder.IDecoder<T>() {
+            @Override
+            public T decode(@NonNull final String name, @Nullable final String rawValue) {
+                return decrypt(name, rawValue);
+            }
+        }, consumer);
+    }
+
+    @Nullable
+    private T decrypt(@NonNull final String name, @Nullable final String encryptedString) {
+        final String methodTag = TAG + ":decrypt";
+
+        if (StringUtil.isNullOrEmpty(encryptedString)) {
+            Logger.info(methodTag, "Data associated to the given key is null or empty", null);
+            remove(name);
+            return null;
+        }
+
+        try {
+            final String decryptedString = mEncryptionManager.decrypt(encryptedString);
+            return mStringAdapter.adapt(decryptedString);
+        } catch (final ClientException e){
+            Logger.error(methodTag, "Failed to read encrypted value", null);
+            return null;
         }
-        return newMap.entrySet().iterator();
     }
 }
@@ -0,0 +1,716 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.storage;
+
+import com.microsoft.identity.common.java.crypto.IKeyAccessor;
+import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.ported.Predicate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * A file backed {@link INameValueStorage} of Strings which persists every mutation by appending it
+ * to a single log file, instead of rewriting (and re-encrypting) the whole store.
+ * <p>
+ * The file is a short header followed by frames of the form {@code [length][crc32][body]}, where
+ * the body is a batch of put/remove records. When an {@link IKeyAccessor} is supplied, each body is
+ * encrypted as a whole, so loading the store costs one decryption per frame rather than one per
+ * entry. The whole file is read sequentially once, at construction; after that reads are served
+ * from memory.
+ * <p>
+ * Writes made within {@code groupCommitDelayMillis} of each other are coalesced into one frame.
+ * Once the log holds many more records than live entries it is compacted in the background into
+ * a fresh snapshot. The snapshot is written while writes keep going to the live log; the frames
+ * appended meanwhile are then copied to the snapshot, which atomically replaces the log. A torn or corrupted frame (for instance, after the process died mid-write)
+ * ends the log: it and everything after it are dropped on the next load. A batch which fails to be
+ * appended stays pending, and whatever it left in the file is cut off before the next append.
+ * <p>
+ * Wrap this with {@link MultiTypeNameValueStorage} to use it as an
+ * {@link com.microsoft.identity.common.java.cache.IMultiTypeNameValueStorage}.
+ */
+public class LogStructuredNameValueStorage implements INameValueStorage<String>, Closeable {
+
+    private static final String TAG = LogStructuredNameValueStorage.class.getSimpleName();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4C534E56; // "LSNV"
+    private static final byte VERSION = 1;
+    private static final byte FLAG_ENCRYPTED = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    /**
+     * Frames written during compaction are cut at roughly this many plaintext bytes, to bound the
+     * size of a single encryption/decryption call.
+     */
+    private static final int SNAPSHOT_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * The log is not compacted before it holds at least this many records.
+     */
+    private static final int COMPACTION_MIN_RECORDS = 512;
+
+    @NonNull
+    private final File mFile;
+
+    @Nullable
+    private final IKeyAccessor mKeyAccessor;
+
+    private final long mGroupCommitDelayMillis;
+
+    private final Map<String, String> mEntries = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the log file, the pending batch and the record count.
+     */
+    private final Object mLock = new Object();
+
+    private final ByteArrayOutputStream mPendingBatch = new ByteArrayOutputStream();
+
+    private final DataOutputStream mPendingBatchWriter = new DataOutputStream(mPendingBatch);
+
+    private int mPendingRecordCount;
+
+    private boolean mFlushScheduled;
+
+    private boolean mCompactionScheduled;
+
+    /**
+     * Serializes compactions, which run mostly outside of {@link #mLock}.
+     */
+    private final Object mCompactionLock = new Object();
+
+    /**
+     * While a compaction is writing its snapshot, the batches appended to the live log since the
+     * snapshot was taken, so that they can be copied over. Reset by {@link #clear()}, which
+     * abandons the compaction.
+     */
+    @Nullable
+    private ByteArrayOutputStream mCompactionDelta;
+
+    private int mCompactionDeltaRecordCount;
+
+    /**
+     * The number of records persisted in the log, live or superseded.
+     */
+    private long mLogRecordCount;
+
+    /**
+     * The length of the log up to the end of its last intact frame. Anything past it was left by
+     * a failed append and is cut off before the next one.
+     */
+    private long mCommittedLength;
+
+    @Nullable
+    private FileOutputStream mAppendStream;
+
+    @Nullable
+    private ScheduledExecutorService mExecutor;
+
+    private boolean mClosed;
+
+    /**
+     * Creates (or opens) a log structured storage in which every write is persisted before the
+     * call returns.
+     *
+     * @param file        the log file. Created if it does not exist.
+     * @param keyAccessor the {@link IKeyAccessor} used to encrypt the log, or null to store it in
+     *                    plain text.
+     */
+    public LogStructuredNameValueStorage(@NonNull final File file,
+                                         @Nullable final IKeyAccessor keyAccessor) {
+        this(file, keyAccessor, 0);
+    }
+
+    /**
+     * Creates (or opens) a log structured storage.
+     *
+     * @param file                   the log file. Created if it does not exist.
+     * @param keyAccessor            the {@link IKeyAccessor} used to encrypt the log, or null to
+     *                               store it in plain text.
+     * @param groupCommitDelayMillis how long a write may wait for others to share its frame.
+     *                               0 persists every write before the call returns.
+     */
+    public LogStructuredNameValueStorage(@NonNull final File file,
+                                         @Nullable final IKeyAccessor keyAccessor,
+                                         final long groupCommitDelayMillis) {
+        if (groupCommitDelayMillis < 0) {
+            throw new IllegalArgumentException("groupCommitDelayMillis must not be negative.");
+        }
+
+        mFile = file;
+        mKeyAccessor = keyAccessor;
+        mGroupCommitDelayMillis = groupCommitDelayMillis;
+
+        synchronized (mLock) {
+            load();
+        }
+    }
+
+    @Nullable
+    @Override
+    public String get(@NonNull final String name) {
+        return mEntries.get(name);
+    }
+
+    @Override
+    public @NonNull Map<String, String> getAll() {
+        return new HashMap<>(mEntries);
+    }
+
+    @Override
+    public void put(@NonNull final String name, @Nullable final String value) {
+        synchronized (mLock) {
+            if (value == null) {
+                mEntries.remove(name);
+            } else {
+                mEntries.put(name, value);
+            }
+            appendRecordLocked(name, value);
+        }
+    }
+
+    @Override
+    public void remove(@NonNull final String name) {
+        put(name, null);
+    }
+
+    @Override
+    public void clear() {
+        final String methodTag = TAG + ":clear";
+
+        synchronized (mLock) {
+            mEntries.clear();
+            mPendingBatch.reset();
+            mPendingRecordCount = 0;
+            mLogRecordCount = 0;
+            mCommittedLength = 0;
+            mCompactionDelta = null;
+            closeAppendStreamLocked();
+
+            try {
+                writeHeader(mFile);
+                mCommittedLength = HEADER_SIZE;
+            } catch (final IOException e) {
+                Logger.error(methodTag, "Failed to reset the storage file.", e);
+            }
+        }
+    }
+
+    @Override
+    public @NonNull Set<String> keySet() {
+        return new HashSet<>(mEntries.keySet());
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> getAllFilteredByKey(@NonNull final Predicate<String> keyFilter) {
+        final Map<String, String> newMap = new HashMap<>();
+        for (final Map.Entry<String, String> entry : mEntries.entrySet()) {
+            if (keyFilter.test(entry.getKey())) {
+                newMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return newMap.entrySet().iterator();
+    }
+
+    /**
+     * Persists any writes still waiting for their group commit.
+     */
+    public void flush() {
+        synchronized (mLock) {
+            writePendingBatchLocked();
+        }
+    }
+
+    /**
+     * Persists any pending writes and releases the log file and the background thread.
+     * Writes made after this call are kept in memory only.
+     */
+    @Override
+    public void close() {
+        final ScheduledExecutorService executor;
+        synchronized (mLock) {
+            writePendingBatchLocked();
+            closeAppendStreamLocked();
+            mClosed = true;
+            executor = mExecutor;
+            mExecutor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Rewrites the log so that it only holds the live entries. Normally triggered in the
+     * background, exposed for tests.
+     * <p>
+     * The snapshot is encrypted and synced without holding {@link #mLock}, so writes are only
+     * blocked while the batches they appended in the meantime are copied over and the snapshot
+     * is renamed over the log. The live log is never removed before its replacement is in place:
+     * if the rename fails, the compaction is abandoned.
+     */
+    //@VisibleForTesting
+    void compact() {
+        final String methodTag = TAG + ":compact";
+
+        synchronized (mCompactionLock) {
+            final Map<String, String> snapshot;
+            final ByteArrayOutputStream delta = new ByteArrayOutputStream();
+            synchronized (mLock) {
+                if (mClosed) {
+                    mCompactionScheduled = false;
+                    return;
+                }
+
+                writePendingBatchLocked();
+                snapshot = new HashMap<>(mEntries);
+                mCompactionDelta = delta;
+                mCompactionDeltaRecordCount = 0;
+            }
+
+            final File compacted = new File(mFile.getPath() + ".compact");
+            try {
+                writeSnapshot(compacted, snapshot);
+
+                synchronized (mLock) {
+                    try {
+                        if (mClosed || mCompactionDelta != delta) {
+                            Logger.info(methodTag, "Storage was closed or cleared, "
+                                    + "abandoning the compaction.");
+                            deleteCompactionFile(compacted);
+                            return;
+                        }
+
+                        if (delta.size() > 0) {
+                            final FileOutputStream out = new FileOutputStream(compacted, true);
+                            try {
+                                writeFrame(out, delta.toByteArray());
+                                out.flush();
+                                out.getFD().sync();
+                            } finally {
+                                out.close();
+                            }
+                        }
+
+                        closeAppendStreamLocked();
+                        if (!compacted.renameTo(mFile)) {
+                            throw new IOException("Failed to replace the storage file.");
+                        }
+                        mLogRecordCount = snapshot.size() + mCompactionDeltaRecordCount;
+                        mCommittedLength = mFile.length();
+                    } finally {
+                        mCompactionDelta = null;
+                        mCompactionScheduled = false;
+                    }
+                }
+            } catch (final IOException | ClientException e) {
+                Logger.error(methodTag, "Failed to compact the storage file.", e);
+                synchronized (mLock) {
+                    if (mCompactionDelta == delta) {
+                        mCompactionDelta = null;
+                    }
+                    mCompactionScheduled = false;
+                }
+                deleteCompactionFile(compacted);
+            }
+        }
+    }
+
+    private static void deleteCompactionFile(@NonNull final File compacted) {
+        if (compacted.exists() && !compacted.delete()) {
+            Logger.warn(TAG + ":deleteCompactionFile", "Failed to delete the partial compaction file.");
+        }
+    }
+
+    /**
+     * @return the number of records in the log, including superseded ones.
+     */
+    //@VisibleForTesting
+    long getLogRecordCount() {
+        synchronized (mLock) {
+            return mLogRecordCount + mPendingRecordCount;
+        }
+    }
+
+    private void appendRecordLocked(@NonNull final String name, @Nullable final String value) {
+        final String methodTag = TAG + ":appendRecordLocked";
+
+        if (mClosed) {
+            Logger.warn(methodTag, "Storage is closed, the write is kept in memory only.");
+            return;
+        }
+
+        try {
+            writeRecord(mPendingBatchWriter, name, value);
+        } catch (final IOException e) {
+            // Writing to a ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        mPendingRecordCount++;
+
+        if (mGroupCommitDelayMillis == 0) {
+            writePendingBatchLocked();
+        } else if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            getExecutorLocked().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, mGroupCommitDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePendingBatchLocked() {
+        final String methodTag = TAG + ":writePendingBatchLocked";
+
+        mFlushScheduled = false;
+        if (mPendingRecordCount == 0) {
+            return;
+        }
+
+        final int recordCount = mPendingRecordCount;
+        try {
+            if (mAppendStream == null) {
+                if (!mFile.exists() || mCommittedLength < HEADER_SIZE) {
+                    writeHeader(mFile);
+                    mCommittedLength = HEADER_SIZE;
+                } else if (mFile.length() != mCommittedLength) {
+                    // Cut off what a failed append left behind, or it would hide this frame.
+                    setLength(mFile, mCommittedLength);
+                }
+                mAppendStream = new FileOutputStream(mFile, true);
+            }
+            writeFrame(mAppendStream, mPendingBatch.toByteArray());
+            mAppendStream.flush();
+            mAppendStream.getFD().sync();
+            mCommittedLength = mAppendStream.getChannel().position();
+            mLogRecordCount += recordCount;
+            if (mCompactionDelta != null) {
+                mPendingBatch.writeTo(mCompactionDelta);
+                mCompactionDeltaRecordCount += recordCount;
+            }
+        } catch (final IOException | ClientException e) {
+            // Keep the batch pending, so that it is retried with the next write or flush.
+            Logger.error(methodTag, "Failed to persist " + recordCount + " record(s), "
+                    + "they are kept pending.", e);
+            closeAppendStreamLocked();
+            return;
+        }
+
+        mPendingBatch.reset();
+        mPendingRecordCount = 0;
+
+        if (!mCompactionScheduled
+                && mLogRecordCount >= COMPACTION_MIN_RECORDS
+                && mLogRecordCount > 2L * mEntries.size()) {
+            mCompactionScheduled = true;
+            getExecutorLocked().execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            });
+        }
+    }
+
+    private void closeAppendStreamLocked() {
+        final String methodTag = TAG + ":closeAppendStreamLocked";
+
+        if (mAppendStream != null) {
+            try {
+                mAppendStream.close();
+            } catch (final IOException e) {
+                Logger.warn(methodTag, "Failed to close the storage file: " + e.getMessage());
+            }
+            mAppendStream = null;
+        }
+    }
+
+    @NonNull
+    private ScheduledExecutorService getExecutorLocked() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull final Runnable r) {
+                    final Thread thread = new Thread(r, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+    /**
+     * Reads the whole log into memory. A frame which is torn, fails its checksum or cannot be
+     * decrypted ends the log, and the file is truncated there.
+     */
+    private void load() {
+        final String methodTag = TAG + ":load";
+
+        if (!mFile.exists()) {
+            return;
+        }
+
+        final byte[] content;
+        try {
+            content = readFully(mFile);
+        } catch (final IOException e) {
+            Logger.error(methodTag, "Failed to read the storage file, starting empty.", e);
+            return;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (content.length < HEADER_SIZE
+                || buffer.getInt() != MAGIC
+                || buffer.get() != VERSION
+                || (buffer.get() == FLAG_ENCRYPTED) != (mKeyAccessor != null)) {
+            Logger.warn(methodTag, "Unrecognized storage file, starting empty.");
+            clear();
+            return;
+        }
+
+        int validLength = HEADER_SIZE;
+        final CRC32 crc = new CRC32();
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+
+            crc.reset();
+            crc.update(content, buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            final byte[] frame = new byte[length];
+            buffer.get(frame);
+
+            try {
+                mLogRecordCount += applyBatch(
+                        mKeyAccessor == null ? frame : mKeyAccessor.decrypt(frame));
+            } catch (final ClientException | RuntimeException e) {
+                Logger.error(methodTag, "Failed to read a frame of the storage file.", e);
+                break;
+            }
+            validLength = buffer.position();
+        }
+
+        mCommittedLength = validLength;
+        if (validLength < content.length) {
+            Logger.warn(methodTag, "Dropping " + (content.length - validLength)
+                    + " unreadable byte(s) at the end of the storage file.");
+            try {
+                setLength(mFile, validLength);
+            } catch (final IOException e) {
+                // The next append retries it.
+                Logger.error(methodTag, "Failed to truncate the storage file.", e);
+            }
+        }
+    }
+
+    private int applyBatch(@NonNull final byte[] batch) {
+        final ByteBuffer buffer = ByteBuffer.wrap(batch);
+        final Map<String, String> changes = new HashMap<>();
+
+        int recordCount = 0;
+        while (buffer.hasRemaining()) {
+            final byte op = buffer.get();
+            final String name = readString(buffer);
+            if (op == OP_PUT) {
+                changes.put(name, readString(buffer));
+            } else if (op == OP_REMOVE) {
+                changes.put(name, null);
+            } else {
+                throw new IllegalStateException("Unknown record type " + op);
+            }
+            recordCount++;
+        }
+
+        // Only apply the batch once all of it has been parsed.
+        for (final Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                mEntries.remove(change.getKey());
+            } else {
+                mEntries.put(change.getKey(), change.getValue());
+            }
+        }
+        return recordCount;
+    }
+
+    private void writeSnapshot(@NonNull final File target,
+                               @NonNull final Map<String, String> entries) throws IOException, ClientException {
+        final FileOutputStream out = new FileOutputStream(target);
+        try {
+            writeHeader(out);
+
+            final ByteArrayOutputStream batch = new ByteArrayOutputStream(SNAPSHOT_FRAME_SIZE);
+            final DataOutputStream batchWriter = new DataOutputStream(batch);
+            for (final Map.Entry<String, String> entry : entries.entrySet()) {
+                writeRecord(batchWriter, entry.getKey(), entry.getValue());
+                if (batch.size() >= SNAPSHOT_FRAME_SIZE) {
+                    writeFrame(out, batch.toByteArray());
+                    batch.reset();
+                }
+            }
+            if (batch.size() > 0) {
+                writeFrame(out, batch.toByteArray());
+            }
+
+            out.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeHeader(@NonNull final File target) throws IOException {
+        final FileOutputStream out = new FileOutputStream(target);
+        try {
+            writeHeader(out);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeHeader(@NonNull final FileOutputStream out) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.put(mKeyAccessor == null ? 0 : FLAG_ENCRYPTED);
+        out.write(header.array());
+    }
+
+    //@VisibleForTesting
+    void writeFrame(@NonNull final FileOutputStream out,
+                    @NonNull final byte[] batch) throws IOException, ClientException {
+        final byte[] body = mKeyAccessor == null ? batch : mKeyAccessor.encrypt(batch);
+
+        final CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        final ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + body.length);
+        frame.putInt(body.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(body);
+        out.write(frame.array());
+    }
+
+    private static void writeRecord(@NonNull final DataOutputStream out,
+                                    @NonNull final String name,
+                                    @Nullable final String value) throws IOException {
+        out.writeByte(value == null ? OP_REMOVE : OP_PUT);
+        writeString(out, name);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(@NonNull final DataOutputStream out,
+                                    @NonNull final String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Invalid string length " + length);
+        }
+        final String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @NonNull
+    private static byte[] readFully(@NonNull final File file) throws IOException {
+        final long fileLength = file.length();
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IOException("Storage file is too large: " + fileLength);
+        }
+
+        final byte[] content = new byte[(int) fileLength];
+        final InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                final int read = in.read(content, offset, content.length - offset);
+                if (read < 0) {
+                    throw new EOFException("Storage file shrank while being read.");
+                }
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return content;
+    }
+
+    private static void setLength(@NonNull final File file, final long length) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
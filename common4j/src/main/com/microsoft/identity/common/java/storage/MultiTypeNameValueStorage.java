@@ -24,11 +24,13 @@ package com.microsoft.identity.common.java.storage;
 
 import com.microsoft.identity.common.java.cache.IMultiTypeNameValueStorage;
 import com.microsoft.identity.common.java.interfaces.INameValueStorage;
+import com.microsoft.identity.common.java.util.BiConsumer;
 import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.util.ported.Predicate;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.AllArgsConstructor;
@@ -85,11 +87,22 @@ public class MultiTypeNameValueStorage implements IMultiTypeNameValueStorage {
         return mNameValueStringStorage.getAll();
     }
 
+    @Override
+    public Set<String> keySet() {
+        return mNameValueStringStorage.keySet();
+    }
+
     @Override
     public Iterator<Map.Entry<String, String>> getAllFilteredByKey(@NonNull final Predicate<String> keyFilter) {
         return mNameValueStringStorage.getAllFilteredByKey(keyFilter);
     }
 
+    @Override
+    public BulkReadStatistics forEachFilteredByKey(@NonNull final Predicate<String> keyFilter,
+                                                   @NonNull final BiConsumer<String, String> consumer) {
+        return mNameValueStringStorage.forEachFilteredByKey(keyFilter, consumer);
+    }
+
     @Override
     public boolean contains(@NonNull final String key) {
         return !StringUtil.isNullOrEmpty(getString(key));
@@ -23,12 +23,12 @@
 package com.microsoft.identity.common.java.telemetry;
 
 import static com.microsoft.identity.common.java.logging.DiagnosticContext.CORRELATION_ID;
-import static com.microsoft.identity.common.java.telemetry.TelemetryEventStrings.Key;
 
 import com.microsoft.identity.common.java.WarningType;
 import com.microsoft.identity.common.java.logging.DiagnosticContext;
 import com.microsoft.identity.common.java.logging.Logger;
 import com.microsoft.identity.common.java.telemetry.adapter.BrokerTelemetryAdapter;
+import com.microsoft.identity.common.java.telemetry.adapter.ITelemetryAdapter;
 import com.microsoft.identity.common.java.telemetry.adapter.TelemetryAggregationAdapter;
 import com.microsoft.identity.common.java.telemetry.adapter.TelemetryDefaultAdapter;
 import com.microsoft.identity.common.java.telemetry.events.BaseEvent;
@@ -38,6 +38,7 @@ import com.microsoft.identity.common.java.telemetry.observers.ITelemetryDefaultO
 import com.microsoft.identity.common.java.telemetry.observers.ITelemetryObserver;
 import com.microsoft.identity.common.java.telemetry.rules.TelemetryPiiOiiRules;
 import com.microsoft.identity.common.java.util.StringUtil;
+import com.microsoft.identity.common.java.util.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -46,9 +47,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
 import lombok.NonNull;
 
 /**
@@ -64,7 +73,35 @@ public class Telemetry {
     @SuppressWarnings(WarningType.rawtype_warning)
     private static Queue<ITelemetryObserver> mObservers;
 
-    private Queue<Map<String, String>> mTelemetryRawDataMap;
+    // The adapter of each observer in mObservers, created once per observer.
+    @SuppressWarnings(WarningType.rawtype_warning)
+    private static final Map<ITelemetryObserver, ITelemetryAdapter<List<Map<String, String>>>> sObserverAdapters =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Applies the PII/OII rules and delivers flushed events to the observers, so that flush() does
+     * not hold up the request which called it. Its single thread goes away when idle.
+     */
+    private static final ExecutorService sDispatchExecutor = ThreadUtils.getNamedThreadPoolExecutor(
+            0, 1, -1, 30, TimeUnit.SECONDS, "telemetry-dispatch");
+
+    private static final Queue<PendingFlush> sPendingFlushes = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean sDispatchScheduled = new AtomicBoolean();
+
+    /**
+     * Events of a flushed request waiting for {@link #sDispatchExecutor}.
+     */
+    private static final class PendingFlush {
+        final Telemetry mTelemetry;
+        final List<Map<String, String>> mEvents;
+
+        PendingFlush(@NonNull final Telemetry telemetry, @NonNull final List<Map<String, String>> events) {
+            mTelemetry = telemetry;
+            mEvents = events;
+        }
+    }
+
+    private TelemetryEventBuffer mTelemetryRawDataMap;
     private TelemetryConfiguration mDefaultConfiguration;
     private AbstractTelemetryContext mTelemetryContext;
     private boolean mIsDebugging;
@@ -93,7 +130,7 @@ public class Telemetry {
             mDefaultConfiguration = builder.mDefaultConfiguration;
             mTelemetryContext = builder.mTelemetryContext;
             mIsDebugging = builder.mIsDebugging;
-            mTelemetryRawDataMap = new ConcurrentLinkedQueue<>();
+            mTelemetryRawDataMap = new TelemetryEventBuffer();
         }
     }
 
@@ -120,10 +157,26 @@ public class Telemetry {
         return sTelemetryInstance;
     }
 
-    private synchronized Queue<Map<String, String>> getRequestMap() {
+    private synchronized TelemetryEventBuffer getRequestMap() {
         return mTelemetryRawDataMap;
     }
 
+    /**
+     * @return The number of telemetry events dropped to keep the buffer of not yet flushed events
+     * under its cap.
+     */
+    public long getEvictedEventCount() {
+        return mIsTelemetryEnabled ? mTelemetryRawDataMap.getEvictedEventCount() : 0;
+    }
+
+    /**
+     * @return The number of telemetry events dropped because they could never be flushed: events
+     * without a correlation id, and events of requests which were not flushed in time.
+     */
+    public long getOrphanedEventCount() {
+        return mIsTelemetryEnabled ? mTelemetryRawDataMap.getOrphanedEventCount() : 0;
+    }
+
     /**
      * Register the observer to upload the telemetry data.
      *
@@ -139,8 +192,13 @@ public class Telemetry {
             mObservers = new ConcurrentLinkedQueue<>();
         }
 
-        if (!mObservers.contains(observer))
+        if (!mObservers.contains(observer)) {
             mObservers.add(observer);
+            final ITelemetryAdapter<List<Map<String, String>>> adapter = createAdapter(observer);
+            if (adapter != null) {
+                sObserverAdapters.put(observer, adapter);
+            }
+        }
     }
 
     /**
@@ -163,9 +221,11 @@ public class Telemetry {
         @SuppressWarnings(WarningType.rawtype_warning) final Iterator<ITelemetryObserver> observerIterator = mObservers.iterator();
 
         while (observerIterator.hasNext()) {
-            if (observerIterator.next().getClass() == cls) {
+            @SuppressWarnings(WarningType.rawtype_warning) final ITelemetryObserver observer = observerIterator.next();
+            if (observer.getClass() == cls) {
                 Logger.verbose(TAG, "The [" + cls.getSimpleName() + "] observer is removed.");
                 observerIterator.remove();
+                sObserverAdapters.remove(observer);
             }
         }
     }
@@ -187,6 +247,7 @@ public class Telemetry {
         }
 
         mObservers.remove(observer);
+        sObserverAdapters.remove(observer);
     }
 
     // Visible for testing.
@@ -196,6 +257,7 @@ public class Telemetry {
         }
 
         mObservers.clear();
+        sObserverAdapters.clear();
     }
 
     /**
@@ -239,7 +301,8 @@ public class Telemetry {
     }
 
     /**
-     * Flush the telemetry data based on the correlation id to the observers.
+     * Flush the telemetry data based on the correlation id to the observers. The observers are
+     * called asynchronously, on a background thread.
      *
      * @param correlationId The correlation id should either passed by the client app through the API call
      *                      or generated by the API dispatcher.
@@ -259,44 +322,123 @@ public class Telemetry {
             return;
         }
 
-        final List<Map<String, String>> finalRawMap = new CopyOnWriteArrayList<>();
+        // The PII/OII rules and the observers run on sDispatchExecutor.
+        sPendingFlushes.add(new PendingFlush(this, mTelemetryRawDataMap.remove(correlationId)));
+        if (sDispatchScheduled.compareAndSet(false, true)) {
+            sDispatchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchPendingFlushes();
+                }
+            });
+        }
+    }
 
-        for (Iterator<Map<String, String>> iterator = mTelemetryRawDataMap.iterator(); iterator.hasNext(); ) {
-            Map<String, String> event = iterator.next();
-            if (correlationId.equalsIgnoreCase(event.get(Key.CORRELATION_ID))) {
-                finalRawMap.add(applyPiiOiiRule(event));
-                iterator.remove();
+    /**
+     * Delivers every pending flush, taking one snapshot of the observers per batch.
+     */
+    @SuppressWarnings(WarningType.rawtype_warning)
+    private static void dispatchPendingFlushes() {
+        while (true) {
+            try {
+                if (!sPendingFlushes.isEmpty()) {
+                    final List<ITelemetryObserver> observers = mObservers == null
+                            ? Collections.<ITelemetryObserver>emptyList()
+                            : new ArrayList<>(mObservers);
+
+                    PendingFlush pendingFlush;
+                    while ((pendingFlush = sPendingFlushes.poll()) != null) {
+                        try {
+                            pendingFlush.mTelemetry.processRawMap(pendingFlush.mEvents, observers);
+                        } catch (final RuntimeException e) {
+                            Logger.error(TAG, "Failed to dispatch the telemetry of a flush.", e);
+                        }
+                    }
+                }
+            } finally {
+                // Otherwise no later flush would ever be dispatched.
+                sDispatchScheduled.set(false);
+            }
+
+            // A flush may have been queued after the last poll(), but before the flag was cleared.
+            if (sPendingFlushes.isEmpty() || !sDispatchScheduled.compareAndSet(false, true)) {
+                return;
             }
         }
+    }
 
-        processRawMap(finalRawMap);
+    /**
+     * Waits until the flushes made so far have been delivered to the observers.
+     *
+     * @return false if the timeout elapsed first.
+     */
+    //@VisibleForTesting
+    static boolean awaitDispatch(final long timeoutMillis) throws InterruptedException {
+        // The executor has a single thread, so this runs after the dispatch already queued.
+        final Future<?> marker = sDispatchExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        try {
+            marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final ExecutionException | TimeoutException e) {
+            return false;
+        }
     }
 
     /**
      * Pass the final raw map to the observers.
      */
-    private void processRawMap(final List<Map<String, String>> finalRawMap) {
+    @SuppressWarnings(WarningType.rawtype_warning)
+    private void processRawMap(@NonNull final List<Map<String, String>> rawEvents,
+                               @NonNull final List<ITelemetryObserver> observers) {
+        final List<Map<String, String>> finalRawMap = new CopyOnWriteArrayList<>();
+        for (final Map<String, String> event : rawEvents) {
+            finalRawMap.add(applyPiiOiiRule(event));
+        }
+
         //Add the telemetry context to the telemetry data
         finalRawMap.add(applyPiiOiiRule(mTelemetryContext.getProperties()));
 
-        if (null == mObservers) {
+        if (observers.isEmpty()) {
             Logger.warn(TAG, "No telemetry observer set.");
             return;
         }
 
-        for (@SuppressWarnings(WarningType.rawtype_warning) ITelemetryObserver observer : mObservers) {
-            if (observer instanceof IBrokerTelemetryObserver) {
-                new BrokerTelemetryAdapter((IBrokerTelemetryObserver) observer).process(finalRawMap);
-            } else if (observer instanceof ITelemetryAggregatedObserver) {
-                new TelemetryAggregationAdapter((ITelemetryAggregatedObserver) observer).process(finalRawMap);
-            } else if (observer instanceof ITelemetryDefaultObserver) {
-                new TelemetryDefaultAdapter((ITelemetryDefaultObserver) observer).process(finalRawMap);
-            } else {
+        for (final ITelemetryObserver observer : observers) {
+            ITelemetryAdapter<List<Map<String, String>>> adapter = sObserverAdapters.get(observer);
+            if (adapter == null) {
+                adapter = createAdapter(observer);
+            }
+
+            if (adapter == null) {
                 Logger.warn(TAG, "Unknown observer type: " + observer.getClass());
+                continue;
+            }
+
+            try {
+                adapter.process(finalRawMap);
+            } catch (final RuntimeException e) {
+                Logger.error(TAG, "Telemetry observer " + observer.getClass() + " failed.", e);
             }
         }
     }
 
+    @Nullable
+    @SuppressWarnings(WarningType.rawtype_warning)
+    private static ITelemetryAdapter<List<Map<String, String>>> createAdapter(@NonNull final ITelemetryObserver observer) {
+        if (observer instanceof IBrokerTelemetryObserver) {
+            return new BrokerTelemetryAdapter((IBrokerTelemetryObserver) observer);
+        } else if (observer instanceof ITelemetryAggregatedObserver) {
+            return new TelemetryAggregationAdapter((ITelemetryAggregatedObserver) observer);
+        } else if (observer instanceof ITelemetryDefaultObserver) {
+            return new TelemetryDefaultAdapter((ITelemetryDefaultObserver) observer);
+        }
+        return null;
+    }
+
     /**
      * Get telemetry data of current correlation id.
      */
@@ -331,11 +473,8 @@ public class Telemetry {
 
         List<Map<String, String>> finalRawMap = new ArrayList<>();
 
-        for (final Iterator<Map<String, String>> iterator = mTelemetryRawDataMap.iterator(); iterator.hasNext(); ) {
-            final Map<String, String> event = iterator.next();
-            if (correlationId.equalsIgnoreCase(event.get(Key.CORRELATION_ID))) {
-                finalRawMap.add(applyPiiOiiRule(event));
-            }
+        for (final Map<String, String> event : mTelemetryRawDataMap.get(correlationId)) {
+            finalRawMap.add(applyPiiOiiRule(event));
         }
         return finalRawMap;
     }
@@ -346,9 +485,10 @@ public class Telemetry {
             return properties;
         }
 
+        final TelemetryPiiOiiRules piiOiiRules = TelemetryPiiOiiRules.getInstance();
         final Map<String, String> nonPiiProperties = new HashMap<>();
         for (final Map.Entry<String, String> entry : properties.entrySet()) {
-            if (!TelemetryPiiOiiRules.getInstance().isPiiOrOii(entry.getKey())) {
+            if (!piiOiiRules.isPiiOrOii(entry.getKey())) {
                 nonPiiProperties.put(entry.getKey(), entry.getValue());
             }
         }
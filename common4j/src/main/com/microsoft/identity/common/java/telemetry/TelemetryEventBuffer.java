@@ -0,0 +1,254 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.telemetry;
+
+import static com.microsoft.identity.common.java.telemetry.TelemetryEventStrings.Key;
+
+import com.microsoft.identity.common.java.logging.Logger;
+import com.microsoft.identity.common.java.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lombok.NonNull;
+
+/**
+ * Holds the telemetry events emitted until the request they belong to is flushed, partitioned by
+ * correlation id, so that flushing a request only touches its own events.
+ * <p>
+ * Requests which are never flushed do not accumulate: a partition expires once no event has been
+ * added to it for {@link #DEFAULT_TTL_MILLIS}, and the oldest partition is evicted whenever the
+ * total number of buffered events exceeds the cap. Events without a correlation id can never be
+ * flushed, so they are not buffered at all.
+ */
+class TelemetryEventBuffer {
+    private static final String TAG = TelemetryEventBuffer.class.getSimpleName();
+
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final int DEFAULT_MAX_EVENTS = 2000;
+
+    private static final class Partition {
+        final List<Map<String, String>> mEvents = new ArrayList<>();
+        final long mCreatedMillis;
+        long mLastAddedMillis;
+        // Set once the partition is no longer in mPartitions, events must then go to a new one.
+        boolean mClosed;
+
+        Partition(final long nowMillis) {
+            mCreatedMillis = nowMillis;
+            mLastAddedMillis = nowMillis;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Partition> mPartitions = new ConcurrentHashMap<>();
+    private final AtomicInteger mEventCount = new AtomicInteger();
+    private final AtomicLong mEvictedEventCount = new AtomicLong();
+    private final AtomicLong mOrphanedEventCount = new AtomicLong();
+    private final AtomicLong mLastSweepMillis = new AtomicLong();
+    private final long mTtlMillis;
+    private final int mMaxEvents;
+
+    TelemetryEventBuffer() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_EVENTS);
+    }
+
+    TelemetryEventBuffer(final long ttlMillis, final int maxEvents) {
+        mTtlMillis = ttlMillis;
+        mMaxEvents = maxEvents;
+    }
+
+    /**
+     * Buffers an event under the correlation id it carries.
+     */
+    void add(@NonNull final Map<String, String> event) {
+        final String correlationId = event.get(Key.CORRELATION_ID);
+        if (StringUtil.isNullOrEmpty(correlationId)) {
+            mOrphanedEventCount.incrementAndGet();
+            return;
+        }
+
+        final long nowMillis = currentTimeMillis();
+        final String key = toKey(correlationId);
+        while (true) {
+            Partition partition = mPartitions.get(key);
+            if (partition == null) {
+                final Partition newPartition = new Partition(nowMillis);
+                partition = mPartitions.putIfAbsent(key, newPartition);
+                if (partition == null) {
+                    partition = newPartition;
+                }
+            }
+
+            synchronized (partition) {
+                if (partition.mClosed) {
+                    // Flushed or evicted meanwhile.
+                    continue;
+                }
+                partition.mEvents.add(event);
+                partition.mLastAddedMillis = nowMillis;
+            }
+            break;
+        }
+
+        if (mEventCount.incrementAndGet() > mMaxEvents) {
+            sweep(nowMillis);
+            evictOldestUntilUnderCap();
+        } else if (nowMillis - mLastSweepMillis.get() >= mTtlMillis) {
+            sweep(nowMillis);
+        }
+    }
+
+    /**
+     * Removes and returns the events of the supplied correlation id, in the order they were added.
+     */
+    @NonNull
+    List<Map<String, String>> remove(@NonNull final String correlationId) {
+        final Partition partition = mPartitions.remove(toKey(correlationId));
+        if (partition == null) {
+            return Collections.emptyList();
+        }
+        return close(partition);
+    }
+
+    /**
+     * Returns a copy of the events of the supplied correlation id, in the order they were added.
+     */
+    @NonNull
+    List<Map<String, String>> get(@NonNull final String correlationId) {
+        final Partition partition = mPartitions.get(toKey(correlationId));
+        if (partition == null) {
+            return Collections.emptyList();
+        }
+        synchronized (partition) {
+            return new ArrayList<>(partition.mEvents);
+        }
+    }
+
+    /**
+     * @return The number of events currently buffered.
+     */
+    int size() {
+        return mEventCount.get();
+    }
+
+    /**
+     * @return The number of events dropped to keep the buffer under its cap.
+     */
+    long getEvictedEventCount() {
+        return mEvictedEventCount.get();
+    }
+
+    /**
+     * @return The number of events dropped because they could never be flushed: events without a
+     * correlation id, and events of requests which were not flushed within the TTL.
+     */
+    long getOrphanedEventCount() {
+        return mOrphanedEventCount.get();
+    }
+
+    //@VisibleForTesting
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @NonNull
+    private List<Map<String, String>> close(@NonNull final Partition partition) {
+        final List<Map<String, String>> events;
+        synchronized (partition) {
+            partition.mClosed = true;
+            events = new ArrayList<>(partition.mEvents);
+            partition.mEvents.clear();
+        }
+        mEventCount.addAndGet(-events.size());
+        return events;
+    }
+
+    private void sweep(final long nowMillis) {
+        final long lastSweepMillis = mLastSweepMillis.get();
+        if (!mLastSweepMillis.compareAndSet(lastSweepMillis, nowMillis)) {
+            // Another thread is sweeping.
+            return;
+        }
+
+        int expired = 0;
+        for (final Iterator<Map.Entry<String, Partition>> iterator = mPartitions.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<String, Partition> entry = iterator.next();
+            final Partition partition = entry.getValue();
+            final boolean isExpired;
+            synchronized (partition) {
+                isExpired = nowMillis - partition.mLastAddedMillis >= mTtlMillis;
+            }
+            if (isExpired && mPartitions.remove(entry.getKey(), partition)) {
+                expired += close(partition).size();
+            }
+        }
+
+        if (expired > 0) {
+            mOrphanedEventCount.addAndGet(expired);
+            Logger.warnFormat(TAG, "Dropped [{}] telemetry events of requests which were never flushed.", expired);
+        }
+    }
+
+    private void evictOldestUntilUnderCap() {
+        int evicted = 0;
+        while (mEventCount.get() > mMaxEvents) {
+            final Map.Entry<String, Partition> oldest = findOldestPartition();
+            if (oldest == null) {
+                break;
+            }
+            if (mPartitions.remove(oldest.getKey(), oldest.getValue())) {
+                evicted += close(oldest.getValue()).size();
+            }
+        }
+
+        if (evicted > 0) {
+            mEvictedEventCount.addAndGet(evicted);
+            Logger.warnFormat(TAG, "Evicted [{}] telemetry events, the telemetry buffer is full.", evicted);
+        }
+    }
+
+    @Nullable
+    private Map.Entry<String, Partition> findOldestPartition() {
+        Map.Entry<String, Partition> oldest = null;
+        for (final Map.Entry<String, Partition> entry : mPartitions.entrySet()) {
+            if (oldest == null || entry.getValue().mCreatedMillis < oldest.getValue().mCreatedMillis) {
+                oldest = entry;
+            }
+        }
+        return oldest;
+    }
+
+    @NonNull
+    private static String toKey(@NonNull final String correlationId) {
+        return correlationId.toLowerCase(Locale.ROOT);
+    }
+}
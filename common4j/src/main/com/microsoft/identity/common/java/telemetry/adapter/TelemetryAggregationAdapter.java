@@ -95,10 +95,11 @@ public class TelemetryAggregationAdapter implements ITelemetryAdapter<List<Map<S
     }
 
     protected Map<String, String> applyAggregationRule(@NonNull final Map<String, String> properties) {
+        final TelemetryAggregationRules aggregationRules = TelemetryAggregationRules.getInstance();
         final Map<String, String> nonPiiProperties = new HashMap<>();
         for (Map.Entry<String, String> entry : properties.entrySet()) {
             if (!StringUtil.isNullOrEmpty(entry.getValue())
-                    && !TelemetryAggregationRules.getInstance().isRedundant(entry.getKey())) {
+                    && !aggregationRules.isRedundant(entry.getKey())) {
                 nonPiiProperties.put(entry.getKey(), entry.getValue());
             }
         }
@@ -34,8 +34,8 @@ import static com.microsoft.identity.common.java.telemetry.TelemetryEventStrings
 
 @Deprecated
 public class TelemetryAggregationRules {
-    private static TelemetryAggregationRules sInstance;
-    private Set<String> aggregatedPropertiesSet;
+    private static final TelemetryAggregationRules sInstance = new TelemetryAggregationRules();
+    private final Set<String> aggregatedPropertiesSet;
 
     final private String[] aggregatedArray = {
             Key.EVENT_NAME,
@@ -49,11 +49,7 @@ public class TelemetryAggregationRules {
     }
 
     @NonNull
-    public synchronized static TelemetryAggregationRules getInstance() {
-        if (sInstance == null) {
-            sInstance = new TelemetryAggregationRules();
-        }
-
+    public static TelemetryAggregationRules getInstance() {
         return sInstance;
     }
 
@@ -28,6 +28,7 @@ import com.microsoft.identity.common.java.util.StringUtil;
 import com.microsoft.identity.common.java.telemetry.TelemetryEventStrings;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,9 +37,11 @@ import static com.microsoft.identity.common.java.telemetry.TelemetryEventStrings
 
 @Deprecated
 final public class TelemetryPiiOiiRules {
-    private static TelemetryPiiOiiRules sInstance;
-    private Set<String> piiPropertiesSet;
-    private Set<String> oiiPropertiesSet;
+    private static final TelemetryPiiOiiRules sInstance = new TelemetryPiiOiiRules();
+    private final Set<String> piiPropertiesSet;
+    private final Set<String> oiiPropertiesSet;
+    // Union of the two sets above, so that isPiiOrOii() is a single lookup.
+    private final Set<String> piiOrOiiPropertiesSet;
 
     final private String[] piiArray = {
             Key.USER_ID,
@@ -64,16 +67,16 @@ final public class TelemetryPiiOiiRules {
     };
 
     private TelemetryPiiOiiRules() {
-        piiPropertiesSet = new HashSet<>(Arrays.asList(piiArray));
-        oiiPropertiesSet = new HashSet<>(Arrays.asList(oiiArray));
+        piiPropertiesSet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(piiArray)));
+        oiiPropertiesSet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(oiiArray)));
+
+        final Set<String> piiOrOiiProperties = new HashSet<>(piiPropertiesSet);
+        piiOrOiiProperties.addAll(oiiPropertiesSet);
+        piiOrOiiPropertiesSet = Collections.unmodifiableSet(piiOrOiiProperties);
     }
 
     @NonNull
-    public synchronized static TelemetryPiiOiiRules getInstance() {
-        if (sInstance == null) {
-            sInstance = new TelemetryPiiOiiRules();
-        }
-
+    public static TelemetryPiiOiiRules getInstance() {
         return sInstance;
     }
 
@@ -106,6 +109,10 @@ final public class TelemetryPiiOiiRules {
      * @return true if the property belongs to PII/OII. False otherwise.
      */
     public boolean isPiiOrOii(final String propertyName) {
-        return isPii(propertyName) || isOii(propertyName);
+        if (StringUtil.isNullOrEmpty(propertyName)) {
+            return false;
+        }
+
+        return piiOrOiiPropertiesSet.contains(propertyName);
     }
 }
\ No newline at end of file
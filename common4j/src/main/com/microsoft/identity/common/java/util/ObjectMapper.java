@@ -230,6 +230,18 @@ public final class ObjectMapper {
         return GSON.fromJson(json, objectClass);
     }
 
+    /**
+     * Deserialize Json read from a {@link Reader} to Object, without building the Json String first.
+     *
+     * @param json        Reader positioned at the start of the Json
+     * @param objectClass object class
+     * @param <T>         type T
+     * @return object, or null if the reader is empty
+     */
+    public static <T> T deserializeJsonReaderToObject(@NonNull final Reader json, Class<T> objectClass) {
+        return GSON.fromJson(json, objectClass);
+    }
+
     /**
      * Method for serializing the contents of an object as a Url Encoded string.  Important to the implementation of
      * this method is the behavior of GSON which excludes null fields from the resulting JSON.  A TreeMap was used to
@@ -0,0 +1,206 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.net.HttpResponse;
+import com.microsoft.identity.common.java.util.ported.InMemoryStorage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link AuthorityMetadataCache}.
+ */
+public class AuthorityMetadataCacheTest {
+    private static final String KEY = "https://login.microsoftonline.com/common/v2.0/.well-known/openid-configuration";
+    private static final String BODY = "{\"issuer\":\"https://login.microsoftonline.com/{tenantid}/v2.0\"}";
+
+    private InMemoryStorage<String> mStorage;
+    private AuthorityMetadataCache mCache;
+
+    @Before
+    public void setUp() {
+        mStorage = new InMemoryStorage<>();
+        mCache = new AuthorityMetadataCache();
+        mCache.setStorage(mStorage);
+    }
+
+    @Test
+    public void testEntryWithoutCacheHeadersIsFreshForDefaultMaxAge() {
+        final long now = System.currentTimeMillis();
+        final AuthorityMetadataCache.Entry entry = mCache.put(KEY, newResponse(null, null));
+
+        Assert.assertSame(entry, mCache.get(KEY));
+        Assert.assertEquals(BODY, entry.getBody());
+        Assert.assertTrue(entry.isFresh(now + AuthorityMetadataCache.DEFAULT_MAX_AGE_MILLIS - 60_000));
+        Assert.assertFalse(entry.isFresh(now + AuthorityMetadataCache.DEFAULT_MAX_AGE_MILLIS + 60_000));
+    }
+
+    @Test
+    public void testMaxAgeDrivesFreshness() {
+        final long now = System.currentTimeMillis();
+        final AuthorityMetadataCache.Entry entry = mCache.put(KEY, newResponse("public, max-age=60", null));
+
+        Assert.assertTrue(entry.isFresh(now + 30_000));
+        Assert.assertFalse(entry.isFresh(now + 90_000));
+    }
+
+    @Test
+    public void testExpiresDrivesFreshnessWithoutMaxAge() {
+        final long now = System.currentTimeMillis();
+        final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        final String expires = httpDateFormat.format(new Date(now + TimeUnit.HOURS.toMillis(1)));
+
+        final AuthorityMetadataCache.Entry entry = mCache.put(KEY, newResponse(null, expires));
+
+        Assert.assertTrue(entry.isFresh(now + TimeUnit.MINUTES.toMillis(30)));
+        Assert.assertFalse(entry.isFresh(now + TimeUnit.MINUTES.toMillis(90)));
+    }
+
+    @Test
+    public void testStaleEntryIsServedUntilStaleWindowEnds() {
+        mCache.put(KEY, newResponse("max-age=0, stale-while-revalidate=60", null));
+
+        final AuthorityMetadataCache.Entry entry = mCache.get(KEY);
+        Assert.assertNotNull(entry);
+        Assert.assertFalse(entry.isFresh(System.currentTimeMillis()));
+
+        mCache.put(KEY, newResponse("max-age=0, stale-while-revalidate=0", null));
+        Assert.assertNull(mCache.get(KEY));
+    }
+
+    @Test
+    public void testEntryIsNotServedStaleWithoutStaleWhileRevalidate() {
+        mCache.put(KEY, newResponse("max-age=0", null));
+        Assert.assertNull(mCache.get(KEY));
+
+        final long now = System.currentTimeMillis();
+        mCache.put(KEY, newResponse(null, null));
+        final AuthorityMetadataCache.Entry entry = mCache.get(KEY);
+        Assert.assertNotNull(entry);
+        Assert.assertFalse(entry.isUsable(now + AuthorityMetadataCache.DEFAULT_MAX_AGE_MILLIS + 60_000));
+    }
+
+    @Test
+    public void testNoCacheResponseIsNotServedStale() {
+        mCache.put(KEY, newResponse("no-cache, stale-while-revalidate=60", null));
+
+        Assert.assertNull(mCache.get(KEY));
+    }
+
+    @Test
+    public void testEntryIsLoadedFromStorage() {
+        final AuthorityMetadataCache.Entry entry = mCache.put(KEY, newResponse("max-age=3600", null));
+        entry.setParsedValue(new Object());
+
+        final AuthorityMetadataCache reloaded = new AuthorityMetadataCache();
+        reloaded.setStorage(mStorage);
+
+        final AuthorityMetadataCache.Entry loaded = reloaded.get(KEY);
+        Assert.assertNotNull(loaded);
+        Assert.assertNotSame(entry, loaded);
+        Assert.assertEquals(BODY, loaded.getBody());
+        Assert.assertTrue(loaded.isFresh(System.currentTimeMillis()));
+        Assert.assertNull(loaded.getParsedValue(Object.class));
+    }
+
+    @Test
+    public void testNoStoreResponseIsNotCached() {
+        mCache.put(KEY, newResponse("max-age=3600", null));
+
+        final AuthorityMetadataCache.Entry entry =
+                mCache.put(KEY, newResponse("no-store, stale-while-revalidate=60", null));
+        Assert.assertEquals(BODY, entry.getBody());
+        Assert.assertNull(mCache.get(KEY));
+        Assert.assertNull(mStorage.get(KEY));
+    }
+
+    @Test
+    public void testUnreadableStoredEntryIsDropped() {
+        mStorage.put(KEY, "not json {");
+
+        Assert.assertNull(mCache.get(KEY));
+        Assert.assertNull(mStorage.get(KEY));
+    }
+
+    @Test
+    public void testClearRemovesMemoryAndStorage() {
+        mCache.put(KEY, newResponse(null, null));
+        mCache.clear();
+
+        Assert.assertNull(mCache.get(KEY));
+        Assert.assertNull(mStorage.get(KEY));
+    }
+
+    @Test
+    public void testConcurrentRefreshesAreDeduplicated() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        final Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < 5; i++) {
+            mCache.refreshInBackground(KEY, refresh);
+        }
+        release.countDown();
+
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, runs.get());
+    }
+
+    private static HttpResponse newResponse(final String cacheControl, final String expires) {
+        final Map<String, List<String>> headers = new HashMap<>();
+        if (cacheControl != null) {
+            headers.put(AuthorityMetadataCache.CACHE_CONTROL, Collections.singletonList(cacheControl));
+        }
+        if (expires != null) {
+            headers.put(AuthorityMetadataCache.EXPIRES, Collections.singletonList(expires));
+        }
+        return new HttpResponse(200, BODY, headers);
+    }
+}
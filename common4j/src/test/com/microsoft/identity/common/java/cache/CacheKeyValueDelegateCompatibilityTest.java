@@ -0,0 +1,194 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Verifies that {@link CacheKeyValueDelegate#generateCacheKey} produces exactly the keys of the
+ * template-based implementation, which persisted caches were written with.
+ */
+public class CacheKeyValueDelegateCompatibilityTest {
+
+    private static final int CASES_PER_TYPE = 2000;
+
+    /**
+     * Values covering the branches of the key builder: nulls and blanks, surrounding whitespace,
+     * mixed case, locale-sensitive lowercasing, and values containing template placeholders.
+     */
+    private static final String[] VALUES = {
+            null,
+            "",
+            "   ",
+            "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031",
+            "login.microsoftonline.com",
+            "Login.MicrosoftOnline.COM",
+            "\r\f\n\t0287f963-2d72-4363-9e3a-5705c5b0f031\r\f\n\t",
+            "user.read User.Write https://graph.windows.net/.default",
+            "  offline_access openid profile ",
+            "İSTANBUL",
+            "ΟΔΟΣ ΣΑΣ",
+            "cafÉ",
+            "<environment>",
+            "a<realm>b",
+            "<target>",
+            "<client_id>",
+            "<application_identifier>",
+            "x<",
+            "$1 \\ $",
+            "pop",
+            "PoP",
+            "Bearer",
+    };
+
+    private static final String[] FAMILY_IDS = {
+            null,
+            "",
+            " ",
+            "1",
+            "foci-1",
+            "foci-foci-1",
+            "FOCI-1",
+            "<realm>",
+    };
+
+    private static final String[] CREDENTIAL_TYPES = {
+            CredentialType.AccessToken.name(),
+            CredentialType.AccessToken_With_AuthScheme.name(),
+            CredentialType.RefreshToken.name(),
+            CredentialType.IdToken.name(),
+            CredentialType.V1IdToken.name(),
+            CredentialType.PrimaryRefreshToken.name(),
+            "  ACCESSTOKEN ",
+    };
+
+    private final CacheKeyValueDelegate mDelegate = new CacheKeyValueDelegate();
+    private final Random mRandom = new Random(42);
+
+    @Test
+    public void testAccountKeys() {
+        for (int i = 0; i < CASES_PER_TYPE; i++) {
+            final AccountRecord account = new AccountRecord();
+            account.setHomeAccountId(randomValue());
+            account.setEnvironment(randomValue());
+            account.setRealm(randomValue());
+
+            Assert.assertEquals(
+                    mDelegate.generateCacheKeyFromTemplate(account),
+                    mDelegate.generateCacheKey(account)
+            );
+        }
+    }
+
+    @Test
+    public void testAccessTokenKeys() {
+        for (int i = 0; i < CASES_PER_TYPE; i++) {
+            final AccessTokenRecord accessToken = new AccessTokenRecord();
+            populate(accessToken);
+            accessToken.setRealm(randomValue());
+            accessToken.setTarget(randomValue());
+            accessToken.setApplicationIdentifier(randomValue());
+            accessToken.setMamEnrollmentIdentifier(randomValue());
+            accessToken.setAccessTokenType(randomValue());
+            accessToken.setRequestedClaims(randomValue());
+
+            assertSameKey(accessToken);
+        }
+    }
+
+    @Test
+    public void testRefreshTokenKeys() {
+        for (int i = 0; i < CASES_PER_TYPE; i++) {
+            final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+            populate(refreshToken);
+            refreshToken.setTarget(randomValue());
+            refreshToken.setFamilyId(FAMILY_IDS[mRandom.nextInt(FAMILY_IDS.length)]);
+
+            assertSameKey(refreshToken);
+        }
+    }
+
+    @Test
+    public void testIdTokenKeys() {
+        for (int i = 0; i < CASES_PER_TYPE; i++) {
+            final IdTokenRecord idToken = new IdTokenRecord();
+            populate(idToken);
+            idToken.setRealm(randomValue());
+
+            assertSameKey(idToken);
+        }
+    }
+
+    @Test
+    public void testPrimaryRefreshTokenKeys() {
+        for (int i = 0; i < CASES_PER_TYPE; i++) {
+            final PrimaryRefreshTokenRecord primaryRefreshToken = new PrimaryRefreshTokenRecord();
+            populate(primaryRefreshToken);
+
+            assertSameKey(primaryRefreshToken);
+        }
+    }
+
+    @Test
+    public void testUnknownCredentialKeepsPlaceholders() {
+        final Credential credential = new Credential() {
+            @Override
+            public boolean isExpired() {
+                return false;
+            }
+        };
+        populate(credential);
+
+        assertSameKey(credential);
+        Assert.assertTrue(mDelegate.generateCacheKey(credential).endsWith("-<realm>-<target>"));
+    }
+
+    private void assertSameKey(final Credential credential) {
+        Assert.assertEquals(
+                mDelegate.generateCacheKeyFromTemplate(credential),
+                mDelegate.generateCacheKey(credential)
+        );
+    }
+
+    private void populate(final Credential credential) {
+        credential.setHomeAccountId(randomValue());
+        credential.setEnvironment(randomValue());
+        credential.setCredentialType(CREDENTIAL_TYPES[mRandom.nextInt(CREDENTIAL_TYPES.length)]);
+        credential.setClientId(randomValue());
+    }
+
+    private String randomValue() {
+        return VALUES[mRandom.nextInt(VALUES.length)];
+    }
+}
@@ -0,0 +1,250 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.AccountCredentialBase;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Random;
+
+/**
+ * Verifies that {@link CacheRecordTypeAdapter} reads and writes cache values exactly like the
+ * Gson object model path, which persisted caches were written with.
+ */
+public class CacheRecordTypeAdapterCompatibilityTest {
+
+    private static final int CASES_PER_TYPE = 500;
+
+    private static final Class<?>[] RECORD_TYPES = {
+            AccountRecord.class,
+            AccessTokenRecord.class,
+            RefreshTokenRecord.class,
+            IdTokenRecord.class,
+            PrimaryRefreshTokenRecord.class
+    };
+
+    private static final String[] VALUES = {
+            null,
+            "",
+            "login.microsoftonline.com",
+            "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031",
+            "user.read openid <script>&amp;='quoted'",
+            "\"escaped\" \\ \n\t  ",
+            "ünïcödé ΟΔΟΣ 日本語 😀",
+            "1616161616",
+    };
+
+    private static final String[] ADDITIONAL_NAMES = {
+            "extra",
+            "ext_expires_on",
+            "access_token_type",
+            "with <html> & = '",
+            "nested",
+    };
+
+    private static class AccessTokenSubclass extends AccessTokenRecord {
+        @SerializedName("subclass_field")
+        private String mSubclassField = "value";
+    }
+
+    private final CacheKeyValueDelegate mDelegate = new CacheKeyValueDelegate();
+    private final Random mRandom = new Random(42);
+
+    @Test
+    public void testRandomRecordsRoundTrip() throws Exception {
+        for (final Class<?> type : RECORD_TYPES) {
+            for (int i = 0; i < CASES_PER_TYPE; i++) {
+                final AccountCredentialBase record = newRandomRecord(type);
+                final String legacyValue = mDelegate.generateCacheValueWithObjectModel(record);
+
+                Assert.assertEquals(legacyValue, generateCacheValue(record));
+                assertSameRead(legacyValue, type);
+            }
+        }
+    }
+
+    @Test
+    public void testAdditionalFieldNamedLikeDeclaredField() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setRealm("realm");
+        accessToken.setSecret("secret");
+        accessToken.getAdditionalFields().put(AccessTokenRecord.SerializedNames.REALM, new JsonPrimitive("override"));
+        accessToken.getAdditionalFields().put(AccessTokenRecord.SerializedNames.TARGET, new JsonPrimitive("appended"));
+
+        Assert.assertEquals(
+                mDelegate.generateCacheValueWithObjectModel(accessToken),
+                mDelegate.generateCacheValue(accessToken)
+        );
+    }
+
+    @Test
+    public void testLegacyAccessTokenTypeName() {
+        assertSameRead("{\"access_token_type\":\"Bearer\",\"secret\":\"s\"}", AccessTokenRecord.class);
+        assertSameRead("{\"token_type\":\"pop\",\"access_token_type\":\"Bearer\"}", AccessTokenRecord.class);
+        assertSameRead("{\"access_token_type\":\"Bearer\",\"token_type\":\"pop\"}", AccessTokenRecord.class);
+        assertSameRead("{\"access_token_type\":null}", AccessTokenRecord.class);
+        assertSameRead("{\"access_token_type\":{\"a\":1}}", AccessTokenRecord.class);
+
+        final AccessTokenRecord accessToken = mDelegate.fromCacheValue(
+                "{\"access_token_type\":\"Bearer\"}",
+                AccessTokenRecord.class
+        );
+        Assert.assertEquals("Bearer", accessToken.getAccessTokenType());
+    }
+
+    @Test
+    public void testNonStringValues() {
+        assertSameRead("{\"secret\":12345678901234567890,\"cached_at\":1.50,\"client_id\":true}", RefreshTokenRecord.class);
+        assertSameRead("{\"secret\":null,\"extra\":null,\"nested\":{\"a\":[1,null,{\"b\":null}]}}", IdTokenRecord.class);
+        assertSameRead("{\"realm\":{\"a\":1}}", AccountRecord.class);
+        assertSameRead("{\"realm\":[\"a\"]}", AccountRecord.class);
+    }
+
+    @Test
+    public void testMalformedValues() {
+        final String[] values = {
+                null,
+                "",
+                "   ",
+                "{",
+                "{\"realm\":",
+                "{\"realm\":\"a\"} trailing",
+                "{\"realm\":\"a\"}{}",
+                "[]",
+                "\"string\"",
+                "42",
+                "not json",
+                "{'realm':'single quoted', unquoted:value}",
+                "{\"realm\":\"duplicate\",\"realm\":\"last\"}",
+        };
+
+        for (final String value : values) {
+            for (final Class<?> type : RECORD_TYPES) {
+                assertSameRead(value, type);
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedTypeUsesObjectModel() {
+        final AccessTokenRecord subclassRecord = new AccessTokenSubclass();
+        subclassRecord.setSecret("secret");
+
+        Assert.assertNull(CacheRecordTypeAdapter.forClass(subclassRecord.getClass()));
+        Assert.assertTrue(generateCacheValue(subclassRecord).contains("\"subclass_field\":\"value\""));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertSameRead(final String value, final Class<?> type) {
+        final Class<? extends AccountCredentialBase> recordType = (Class<? extends AccountCredentialBase>) type;
+        final AccountCredentialBase expected = mDelegate.fromCacheValueWithObjectModel(value, recordType);
+        final AccountCredentialBase actual = mDelegate.fromCacheValue(value, recordType);
+
+        if (null == expected) {
+            Assert.assertNull(value, actual);
+            return;
+        }
+
+        Assert.assertNotNull(value, actual);
+        Assert.assertEquals(value, expected.getClass(), actual.getClass());
+        Assert.assertEquals(value, expected.getAdditionalFields(), actual.getAdditionalFields());
+        Assert.assertEquals(
+                value,
+                mDelegate.generateCacheValueWithObjectModel(expected),
+                mDelegate.generateCacheValueWithObjectModel(actual)
+        );
+    }
+
+    private String generateCacheValue(final AccountCredentialBase record) {
+        return record instanceof AccountRecord
+                ? mDelegate.generateCacheValue((AccountRecord) record)
+                : mDelegate.generateCacheValue((Credential) record);
+    }
+
+    private AccountCredentialBase newRandomRecord(final Class<?> type) throws Exception {
+        final AccountCredentialBase record = (AccountCredentialBase) type.newInstance();
+
+        for (final Method method : type.getMethods()) {
+            if (method.getName().startsWith("set")
+                    && method.getParameterTypes().length == 1
+                    && method.getParameterTypes()[0] == String.class) {
+                method.invoke(record, randomValue());
+            }
+        }
+
+        final int additionalFieldCount = mRandom.nextInt(4);
+        for (int i = 0; i < additionalFieldCount; i++) {
+            record.getAdditionalFields().put(
+                    ADDITIONAL_NAMES[mRandom.nextInt(ADDITIONAL_NAMES.length)],
+                    randomElement(2)
+            );
+        }
+
+        return record;
+    }
+
+    private String randomValue() {
+        return VALUES[mRandom.nextInt(VALUES.length)];
+    }
+
+    private JsonElement randomElement(final int depth) {
+        switch (mRandom.nextInt(depth > 0 ? 7 : 5)) {
+            case 0:
+                return JsonNull.INSTANCE;
+            case 1:
+                return new JsonPrimitive(mRandom.nextBoolean());
+            case 2:
+                return new JsonPrimitive(mRandom.nextInt() / 7.0);
+            case 3:
+                return new JsonPrimitive(mRandom.nextLong());
+            case 4:
+                final String value = randomValue();
+                return null == value ? JsonNull.INSTANCE : new JsonPrimitive(value);
+            case 5:
+                final JsonArray array = new JsonArray();
+                array.add(randomElement(depth - 1));
+                array.add(randomElement(depth - 1));
+                return array;
+            default:
+                final JsonObject object = new JsonObject();
+                object.add("a", randomElement(depth - 1));
+                object.add("b <&>", randomElement(depth - 1));
+                return object;
+        }
+    }
+}
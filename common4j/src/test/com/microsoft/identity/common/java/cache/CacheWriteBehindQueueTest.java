@@ -0,0 +1,119 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.java.util.ported.InMemoryStorage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link CacheWriteBehindQueue}.
+ */
+public class CacheWriteBehindQueueTest {
+
+    private final ICacheKeyValueDelegate mDelegate = new CacheKeyValueDelegate();
+
+    private AtomicInteger mFailuresLeft;
+    private AtomicInteger mPutCount;
+    private InMemoryStorage<String> mStorage;
+
+    @Before
+    public void setUp() {
+        mFailuresLeft = new AtomicInteger();
+        mPutCount = new AtomicInteger();
+        mStorage = new InMemoryStorage<String>() {
+            @Override
+            public void put(final String key, final String value) {
+                mPutCount.incrementAndGet();
+                if (mFailuresLeft.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Storage unavailable.");
+                }
+                super.put(key, value);
+            }
+        };
+    }
+
+    @Test
+    public void testFailedBackgroundDrainIsRetried() throws InterruptedException {
+        mFailuresLeft.set(2);
+        final CacheWriteBehindQueue queue = new CacheWriteBehindQueue(mStorage, mDelegate, 10);
+
+        final RefreshTokenRecord rt = buildRefreshToken();
+        final String cacheKey = mDelegate.generateCacheKey(rt);
+        queue.enqueueSave(cacheKey, rt);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (mStorage.get(cacheKey) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(mStorage.get(cacheKey));
+        Assert.assertFalse(queue.hasPendingWrite(cacheKey));
+        Assert.assertEquals(3, mPutCount.get());
+    }
+
+    @Test
+    public void testWritesMadeDuringBackoffWaitForTheRetry() throws InterruptedException {
+        mFailuresLeft.set(1);
+        final CacheWriteBehindQueue queue = new CacheWriteBehindQueue(mStorage, mDelegate, 60000);
+
+        final RefreshTokenRecord rt = buildRefreshToken();
+        final String cacheKey = mDelegate.generateCacheKey(rt);
+        queue.enqueueSave(cacheKey, rt);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (mPutCount.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // The retry is a minute away; this write must not trigger a drain of its own.
+        final RefreshTokenRecord otherRt = buildRefreshToken();
+        otherRt.setClientId("other-client-id");
+        final String otherCacheKey = mDelegate.generateCacheKey(otherRt);
+        queue.enqueueSave(otherCacheKey, otherRt);
+        Thread.sleep(100);
+        Assert.assertEquals(1, mPutCount.get());
+        Assert.assertTrue(queue.hasPendingWrite(cacheKey));
+        Assert.assertTrue(queue.hasPendingWrite(otherCacheKey));
+
+        // An explicit flush does not wait for the retry.
+        queue.flush();
+        Assert.assertNotNull(mStorage.get(cacheKey));
+        Assert.assertNotNull(mStorage.get(otherCacheKey));
+    }
+
+    private static RefreshTokenRecord buildRefreshToken() {
+        final RefreshTokenRecord rt = new RefreshTokenRecord();
+        rt.setCredentialType(CredentialType.RefreshToken.name());
+        rt.setHomeAccountId("uid.utid");
+        rt.setEnvironment("login.microsoftonline.com");
+        rt.setClientId("client-id");
+        rt.setSecret("secret");
+        return rt;
+    }
+}
@@ -0,0 +1,195 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests for {@link CredentialCacheIndex}.
+ */
+public class CredentialCacheIndexTest {
+    private static final String HOME_ACCOUNT_ID = "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String CLIENT_ID_2 = "b3e4f2a1-5c6d-4e7f-8a9b-0c1d2e3f4a5b";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String REALM_2 = "20d3e9fa-982a-40bc-bea4-26bbe3fd332e";
+
+    private static final String AT_KEY = "at-key";
+    private static final String AT_KEY_2 = "at-key-2";
+    private static final String RT_KEY = "rt-key";
+    private static final String ID_TOKEN_KEY = "id-token-key";
+
+    private CredentialCacheIndex mIndex;
+    private AccessTokenRecord mAccessToken;
+
+    @Before
+    public void setUp() {
+        mIndex = new CredentialCacheIndex();
+
+        mAccessToken = newAccessToken(CLIENT_ID, REALM, "openid User.Read Mail.Read");
+        mIndex.add(AT_KEY, mAccessToken);
+        mIndex.add(AT_KEY_2, newAccessToken(CLIENT_ID_2, REALM_2, "user.read calendars.read"));
+        mIndex.add(RT_KEY, newRefreshToken());
+    }
+
+    @Test
+    public void testNoCriteriaReturnsNull() {
+        Assert.assertNull(mIndex.getCandidateKeys(null, "", null, null, null, null));
+    }
+
+    @Test
+    public void testMatchIsCaseInsensitiveAndTrimmed() {
+        final Set<String> keys = mIndex.getCandidateKeys(
+                " " + HOME_ACCOUNT_ID.toUpperCase() + " ",
+                ENVIRONMENT.toUpperCase(),
+                CredentialType.AccessToken,
+                CLIENT_ID,
+                null,
+                null
+        );
+        Assert.assertEquals(setOf(AT_KEY), keys);
+    }
+
+    @Test
+    public void testRealmDoesNotFilterRefreshTokens() {
+        final Set<String> keys = mIndex.getCandidateKeys(HOME_ACCOUNT_ID, null, null, null, REALM, null);
+        Assert.assertEquals(setOf(AT_KEY, RT_KEY), keys);
+    }
+
+    @Test
+    public void testUnknownValueReturnsEmptySet() {
+        final Set<String> keys = mIndex.getCandidateKeys(null, null, null, "unknown-client", null, null);
+        Assert.assertNotNull(keys);
+        Assert.assertTrue(keys.isEmpty());
+    }
+
+    @Test
+    public void testTargetMustContainAllScopes() {
+        final Set<String> keys = mIndex.getCandidateKeys(null, null, CredentialType.AccessToken, null, null, "mail.read USER.READ");
+        Assert.assertEquals(setOf(AT_KEY), keys);
+    }
+
+    @Test
+    public void testTargetDoesNotFilterCredentialsWithoutTarget() {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        populate(idToken, CredentialType.IdToken, CLIENT_ID);
+        idToken.setRealm(REALM);
+        mIndex.add(ID_TOKEN_KEY, idToken);
+
+        final Set<String> keys = mIndex.getCandidateKeys(HOME_ACCOUNT_ID, null, null, CLIENT_ID, null, "user.read");
+        Assert.assertEquals(setOf(AT_KEY, RT_KEY, ID_TOKEN_KEY), keys);
+    }
+
+    @Test
+    public void testTargetIgnoresDefaultScopes() {
+        Assert.assertNull(mIndex.getCandidateKeys(null, null, null, null, null, "openid offline_access profile"));
+
+        final Set<String> keys = mIndex.getCandidateKeys(null, null, null, null, null, "offline_access calendars.read");
+        Assert.assertEquals(setOf(AT_KEY_2), keys);
+    }
+
+    @Test
+    public void testUnknownScopeOnlyMatchesCredentialsWithoutTarget() {
+        final Set<String> keys = mIndex.getCandidateKeys(HOME_ACCOUNT_ID, null, null, null, null, "files.read");
+        Assert.assertNotNull(keys);
+        Assert.assertTrue(keys.isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        mIndex.remove(AT_KEY, mAccessToken);
+
+        final Set<String> keys = mIndex.getCandidateKeys(null, null, CredentialType.AccessToken, null, null, null);
+        Assert.assertEquals(setOf(AT_KEY_2), keys);
+        Assert.assertTrue(mIndex.getCandidateKeys(null, null, null, null, null, "mail.read").isEmpty());
+    }
+
+    @Test
+    public void testCopyIsNotAffectedByWritesToTheOriginal() {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        populate(idToken, CredentialType.IdToken, CLIENT_ID);
+        idToken.setRealm(REALM);
+
+        final CredentialCacheIndex copy = mIndex.copy();
+        mIndex.remove(AT_KEY, mAccessToken);
+        mIndex.add(ID_TOKEN_KEY, idToken);
+
+        Assert.assertEquals(setOf(AT_KEY, AT_KEY_2),
+                copy.getCandidateKeys(null, null, CredentialType.AccessToken, null, null, null));
+        Assert.assertTrue(copy.getCandidateKeys(null, null, CredentialType.IdToken, null, null, null).isEmpty());
+        Assert.assertEquals(setOf(AT_KEY_2),
+                mIndex.getCandidateKeys(null, null, CredentialType.AccessToken, null, null, null));
+    }
+
+    @Test
+    public void testClear() {
+        mIndex.clear();
+
+        final Set<String> keys = mIndex.getCandidateKeys(HOME_ACCOUNT_ID, null, null, null, null, null);
+        Assert.assertNotNull(keys);
+        Assert.assertTrue(keys.isEmpty());
+    }
+
+    private static AccessTokenRecord newAccessToken(final String clientId,
+                                                    final String realm,
+                                                    final String target) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        populate(accessToken, CredentialType.AccessToken, clientId);
+        accessToken.setRealm(realm);
+        accessToken.setTarget(target);
+        return accessToken;
+    }
+
+    private static RefreshTokenRecord newRefreshToken() {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        populate(refreshToken, CredentialType.RefreshToken, CLIENT_ID);
+        refreshToken.setTarget("user.read offline_access");
+        return refreshToken;
+    }
+
+    private static void populate(final Credential credential,
+                                 final CredentialType type,
+                                 final String clientId) {
+        credential.setHomeAccountId(HOME_ACCOUNT_ID);
+        credential.setEnvironment(ENVIRONMENT);
+        credential.setCredentialType(type.name());
+        credential.setClientId(clientId);
+    }
+
+    private static Set<String> setOf(final String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.java.dto.AccessTokenRecord;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.dto.Credential;
+import com.microsoft.identity.common.java.dto.CredentialType;
+import com.microsoft.identity.common.java.dto.IdTokenRecord;
+import com.microsoft.identity.common.java.dto.PrimaryRefreshTokenRecord;
+import com.microsoft.identity.common.java.dto.RefreshTokenRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CredentialCacheKeyClassifier}.
+ */
+public class CredentialCacheKeyClassifierTest {
+    private static final String HOME_ACCOUNT_ID = "29f3807a-4fb0-42f2-a44a-236aa0cb3f97.0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String ENVIRONMENT = "login.microsoftonline.com";
+    private static final String CLIENT_ID = "0287f963-2d72-4363-9e3a-5705c5b0f031";
+    private static final String REALM = "3c62ac97-29eb-4aed-a3c8-add0298508d";
+    private static final String TARGET = "user.read user.write";
+
+    private final CacheKeyValueDelegate mDelegate = new CacheKeyValueDelegate();
+
+    @Test
+    public void testGeneratedCredentialKeys() {
+        assertClassifiedAs(CredentialType.AccessToken, new AccessTokenRecord());
+        assertClassifiedAs(CredentialType.AccessToken_With_AuthScheme, new AccessTokenRecord());
+        assertClassifiedAs(CredentialType.RefreshToken, new RefreshTokenRecord());
+        assertClassifiedAs(CredentialType.IdToken, new IdTokenRecord());
+        assertClassifiedAs(CredentialType.V1IdToken, new IdTokenRecord());
+        assertClassifiedAs(CredentialType.PrimaryRefreshToken, new PrimaryRefreshTokenRecord());
+    }
+
+    @Test
+    public void testAccountKeyIsNotACredential() {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(HOME_ACCOUNT_ID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(REALM);
+
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType(mDelegate.generateCacheKey(account)));
+    }
+
+    @Test
+    public void testUnsupportedTypeIsNotACredential() {
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("uid.utid-login.windows.net-password-client-"));
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("uid.utid-login.windows.net-cookie-client-"));
+    }
+
+    @Test
+    public void testTypeMustBeAnInnerSegment() {
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("accesstoken-login.windows.net"));
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("login.windows.net-accesstoken"));
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("accesstoken"));
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("uid-xaccesstoken-client"));
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("uid-accesstokenx-client"));
+        Assert.assertEquals(
+                CredentialType.AccessToken,
+                CredentialCacheKeyClassifier.getCredentialType("--accesstoken-")
+        );
+    }
+
+    @Test
+    public void testMatchIsCaseSensitive() {
+        // Cache keys are always lowercased when generated.
+        Assert.assertNull(CredentialCacheKeyClassifier.getCredentialType("uid-env-AccessToken-client"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKeyIsRejected() {
+        CredentialCacheKeyClassifier.getCredentialType("");
+    }
+
+    private void assertClassifiedAs(final CredentialType type, final Credential credential) {
+        credential.setHomeAccountId(HOME_ACCOUNT_ID);
+        credential.setEnvironment(ENVIRONMENT);
+        credential.setCredentialType(type.name());
+        credential.setClientId(CLIENT_ID);
+
+        if (credential instanceof AccessTokenRecord) {
+            ((AccessTokenRecord) credential).setRealm(REALM);
+            ((AccessTokenRecord) credential).setTarget(TARGET);
+        }
+
+        Assert.assertEquals(
+                type,
+                CredentialCacheKeyClassifier.getCredentialType(mDelegate.generateCacheKey(credential))
+        );
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link PersistentHashMap} and {@link PersistentHashSet}.
+ */
+public class PersistentHashMapTest {
+
+    /**
+     * A key whose hash code is chosen by the test, so that keys can be made to collide.
+     */
+    private static final class Key {
+        final int mId;
+        final int mHash;
+
+        Key(final int id, final int hash) {
+            mId = id;
+            mHash = hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Key && ((Key) other).mId == mId;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+
+    @Test
+    public void testMatchesHashMapUnderRandomWrites() {
+        final Random random = new Random(42);
+        final Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+
+        for (int i = 0; i < 20000; i++) {
+            final int id = random.nextInt(2000);
+            // Few distinct hashes, so that many keys share a collision node or a long prefix.
+            final Key key = new Key(id, id % 3 == 0 ? id % 7 : id * 31);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(expected, map);
+        for (int id = 0; id < 2000; id++) {
+            final Key key = new Key(id, id % 3 == 0 ? id % 7 : id * 31);
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void testWritesLeaveTheOriginalUnchanged() {
+        PersistentHashMap<String, String> original = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            original = original.plus("key" + i, "value" + i);
+        }
+
+        final PersistentHashMap<String, String> updated = original
+                .plus("key0", "updated")
+                .plus("key100", "value100")
+                .minus("key1");
+
+        Assert.assertEquals(100, original.size());
+        Assert.assertEquals("value0", original.get("key0"));
+        Assert.assertEquals("value1", original.get("key1"));
+        Assert.assertNull(original.get("key100"));
+
+        Assert.assertEquals(100, updated.size());
+        Assert.assertEquals("updated", updated.get("key0"));
+        Assert.assertNull(updated.get("key1"));
+        Assert.assertEquals("value100", updated.get("key100"));
+    }
+
+    @Test
+    public void testUnchangedWritesReturnTheSameMap() {
+        final String value = "value";
+        final PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("key", value);
+
+        Assert.assertSame(map, map.plus("key", value));
+        Assert.assertSame(map, map.minus("other"));
+        Assert.assertTrue(map.minus("key").isEmpty());
+    }
+
+    @Test
+    public void testSet() {
+        final PersistentHashSet<String> set = PersistentHashSet.<String>empty().plus("a").plus("b");
+        final PersistentHashSet<String> smaller = set.minus("a");
+
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.contains("a"));
+        Assert.assertEquals(1, smaller.size());
+        Assert.assertFalse(smaller.contains("a"));
+        Assert.assertTrue(smaller.contains("b"));
+        Assert.assertSame(smaller, smaller.minus("a"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMapIsNotMutable() {
+        PersistentHashMap.<String, String>empty().plus("key", "value").put("other", "value");
+    }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.cache;
+
+import com.microsoft.identity.common.components.MockPlatformComponentsFactory;
+import com.microsoft.identity.common.java.dto.AccountRecord;
+import com.microsoft.identity.common.java.interfaces.IPlatformComponents;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ProcessUidCacheRegistry}.
+ */
+public class ProcessUidCacheRegistryTest {
+    private static final int UID_1 = 10001;
+    private static final int UID_2 = 10002;
+    private static final int UID_3 = 10003;
+
+    private IPlatformComponents mComponents;
+    private ProcessUidCacheRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mComponents = MockPlatformComponentsFactory.getNonFunctionalBuilder().build();
+        mRegistry = new ProcessUidCacheRegistry(2);
+    }
+
+    @Test
+    public void testRepeatRequestIsServedFromMemory() {
+        final MsalOAuth2TokenCache first = mRegistry.getTokenCache(mComponents, UID_1);
+        final MsalOAuth2TokenCache second = mRegistry.getTokenCache(mComponents, UID_1);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, mRegistry.getHitCount());
+        Assert.assertEquals(1, mRegistry.getMissCount());
+        Assert.assertEquals(0.5, mRegistry.getHitRate(), 0);
+        Assert.assertEquals(1, mRegistry.getResidentUidCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedUidIsEvicted() {
+        final MsalOAuth2TokenCache uid1Cache = mRegistry.getTokenCache(mComponents, UID_1);
+        mRegistry.getTokenCache(mComponents, UID_2);
+
+        // Touch UID_1 so that UID_2 becomes the eldest entry.
+        mRegistry.getTokenCache(mComponents, UID_1);
+        mRegistry.getTokenCache(mComponents, UID_3);
+
+        Assert.assertEquals(2, mRegistry.getResidentUidCount());
+        Assert.assertEquals(1, mRegistry.getEvictionCount());
+        Assert.assertSame(uid1Cache, mRegistry.getTokenCache(mComponents, UID_1));
+
+        final long missesBefore = mRegistry.getMissCount();
+        mRegistry.getTokenCache(mComponents, UID_2);
+        Assert.assertEquals(missesBefore + 1, mRegistry.getMissCount());
+    }
+
+    @Test
+    public void testInvalidate() {
+        final MsalOAuth2TokenCache uid1Cache = mRegistry.getTokenCache(mComponents, UID_1);
+        mRegistry.getTokenCache(mComponents, UID_2);
+
+        mRegistry.invalidate(UID_1);
+        Assert.assertEquals(1, mRegistry.getResidentUidCount());
+        Assert.assertNotSame(uid1Cache, mRegistry.getTokenCache(mComponents, UID_1));
+
+        mRegistry.invalidateAll();
+        Assert.assertEquals(0, mRegistry.getResidentUidCount());
+    }
+
+    @Test
+    public void testWritesThroughAnEvictedCacheReachTheResidentOne() {
+        final MsalOAuth2TokenCache evicted = mRegistry.getTokenCache(mComponents, UID_1);
+        mRegistry.getTokenCache(mComponents, UID_2);
+        mRegistry.getTokenCache(mComponents, UID_3);
+
+        final MsalOAuth2TokenCache resident = mRegistry.getTokenCache(mComponents, UID_1);
+        Assert.assertTrue(resident.getAccountCredentialCache().getAccounts().isEmpty());
+
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid.utid");
+        account.setEnvironment("login.windows.net");
+        account.setRealm("utid");
+        evicted.getAccountCredentialCache().saveAccount(account);
+
+        Assert.assertEquals(1, resident.getAccountCredentialCache().getAccounts().size());
+    }
+
+    @Test
+    public void testReadsThroughAnInvalidatedCacheObserveLaterWrites() {
+        final MsalOAuth2TokenCache invalidated = mRegistry.getTokenCache(mComponents, UID_1);
+        mRegistry.invalidate(UID_1);
+
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid.utid");
+        account.setEnvironment("login.windows.net");
+        account.setRealm("utid");
+        mRegistry.getTokenCache(mComponents, UID_1).getAccountCredentialCache().saveAccount(account);
+
+        Assert.assertEquals(1, invalidated.getAccountCredentialCache().getAccounts().size());
+    }
+
+    @Test
+    public void testHitRateIsZeroWithoutRequests() {
+        Assert.assertEquals(0, mRegistry.getHitRate(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveBoundIsRejected() {
+        new ProcessUidCacheRegistry(0);
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class CommandExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private CommandExecutor mExecutor;
+
+    @After
+    public void tearDown() {
+        if (null != mExecutor) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMetricsAreRecorded() throws Exception {
+        mExecutor = newSilentExecutor(ThreadPoolCommandExecutorStrategy.builder().silentThreadCount(1).build());
+        final CountDownLatch done = new CountDownLatch(2);
+
+        mExecutor.execute(sleep(20, done), CommandExecutor.Priority.FOREGROUND);
+        mExecutor.execute(sleep(20, done), CommandExecutor.Priority.FOREGROUND);
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        awaitTermination();
+
+        final CommandExecutorMetrics metrics = mExecutor.getMetrics();
+        Assert.assertEquals(2, metrics.getSubmittedCount());
+        Assert.assertEquals(2, metrics.getCompletedCount());
+        Assert.assertEquals(0, metrics.getQueueDepth());
+        Assert.assertEquals(0, metrics.getActiveCount());
+        Assert.assertTrue(metrics.getMaxRunTimeMillis() >= 20);
+        // The second task waited for the first one.
+        Assert.assertTrue(metrics.getMaxWaitTimeMillis() >= 10);
+    }
+
+    @Test
+    public void testBoundedQueueRejectsTasks() throws Exception {
+        mExecutor = newSilentExecutor(ThreadPoolCommandExecutorStrategy.builder()
+                .silentThreadCount(1)
+                .maxQueuedTasks(1)
+                .build());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        mExecutor.execute(block(started, release), CommandExecutor.Priority.FOREGROUND);
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mExecutor.execute(noop(), CommandExecutor.Priority.FOREGROUND);
+
+        try {
+            mExecutor.execute(noop(), CommandExecutor.Priority.FOREGROUND);
+            Assert.fail("Expected the task to be rejected.");
+        } catch (final RejectedExecutionException e) {
+            // Expected
+        }
+
+        final CommandExecutorMetrics metrics = mExecutor.getMetrics();
+        Assert.assertEquals(1, metrics.getRejectedCount());
+        Assert.assertEquals(1, metrics.getQueueDepth());
+        Assert.assertEquals(1, metrics.getActiveCount());
+        release.countDown();
+    }
+
+    @Test
+    public void testForegroundTasksStartFirst() throws Exception {
+        mExecutor = newSilentExecutor(ThreadPoolCommandExecutorStrategy.builder()
+                .silentThreadCount(1)
+                .prioritizeForeground(true)
+                .build());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        mExecutor.execute(block(started, release), CommandExecutor.Priority.FOREGROUND);
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mExecutor.execute(record(order, "background-1"), CommandExecutor.Priority.BACKGROUND);
+        mExecutor.execute(record(order, "foreground"), CommandExecutor.Priority.FOREGROUND);
+        mExecutor.execute(record(order, "background-2"), CommandExecutor.Priority.BACKGROUND);
+        release.countDown();
+        awaitTermination();
+
+        Assert.assertEquals(Arrays.asList("foreground", "background-1", "background-2"), order);
+    }
+
+    @Test
+    public void testShutdownNowDropsQueuedTasksFromQueueDepth() throws Exception {
+        mExecutor = newSilentExecutor(ThreadPoolCommandExecutorStrategy.builder().silentThreadCount(1).build());
+        final CountDownLatch started = new CountDownLatch(1);
+
+        mExecutor.execute(block(started, new CountDownLatch(1)), CommandExecutor.Priority.FOREGROUND);
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final Runnable queued = noop();
+        mExecutor.execute(queued, CommandExecutor.Priority.FOREGROUND);
+
+        final List<Runnable> dropped = mExecutor.shutdownNow();
+        Assert.assertEquals(1, dropped.size());
+        Assert.assertSame(queued, dropped.get(0));
+        Assert.assertEquals(0, mExecutor.getMetrics().getQueueDepth());
+    }
+
+    @Test
+    public void testVirtualThreadsFallBackOrRunTasks() throws Exception {
+        mExecutor = newSilentExecutor(ThreadPoolCommandExecutorStrategy.builder().useVirtualThreads(true).build());
+        final CountDownLatch done = new CountDownLatch(1);
+
+        mExecutor.execute(sleep(0, done), CommandExecutor.Priority.FOREGROUND);
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static CommandExecutor newSilentExecutor(final ICommandExecutorStrategy strategy) {
+        return new CommandExecutor(
+                strategy.createExecutor(CommandExecutorType.SILENT),
+                new CommandExecutorMetrics(CommandExecutorType.SILENT)
+        );
+    }
+
+    private void awaitTermination() throws InterruptedException {
+        mExecutor.shutdown();
+        Assert.assertTrue(mExecutor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static Runnable noop() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
+    private static Runnable sleep(final long millis, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(millis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static Runnable record(final List<String> order, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+}
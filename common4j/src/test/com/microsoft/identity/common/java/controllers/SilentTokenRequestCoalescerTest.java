@@ -0,0 +1,271 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.controllers;
+
+import com.microsoft.identity.common.java.commands.ICommandResult;
+import com.microsoft.identity.common.java.result.FinalizableResultFuture;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@RunWith(JUnit4.class)
+public class SilentTokenRequestCoalescerTest {
+
+    private static final String KEY = "home-account-id|https://login.microsoftonline.com/common|client-id|com.contoso";
+    private static final String OTHER_KEY = "other-home-account-id|https://login.microsoftonline.com/common|client-id|com.contoso";
+
+    private static final Executor REJECTING_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            throw new RejectedExecutionException("Executor is shut down.");
+        }
+    };
+
+    private SilentTokenRequestCoalescer mCoalescer;
+    private QueuingExecutor mExecutor;
+    private List<String> mExecuted;
+    private List<String> mRejected;
+
+    @Before
+    public void setUp() {
+        mCoalescer = new SilentTokenRequestCoalescer();
+        mExecutor = new QueuingExecutor();
+        mExecuted = new ArrayList<>();
+        mRejected = new ArrayList<>();
+    }
+
+    @Test
+    public void testRequestWithoutKeyIsNotCoalesced() {
+        mCoalescer.execute(null, task("first"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(null, task("second"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+
+        Assert.assertEquals(2, mExecutor.size());
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testRequestsForSameKeyWaitForLeader() {
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, mExecutor);
+        mCoalescer.execute(KEY, task("follower-1"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(KEY, task("follower-2"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+
+        Assert.assertEquals(1, mExecutor.size());
+        Assert.assertEquals(2, mCoalescer.getParkedCount());
+
+        mExecutor.runAll();
+        leader.setResult(result(ICommandResult.ResultStatus.COMPLETED));
+
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+        Assert.assertEquals(2, mExecutor.size());
+        mExecutor.runAll();
+        Assert.assertEquals(Arrays.asList("leader", "follower-1", "follower-2"), mExecuted);
+    }
+
+    @Test
+    public void testRequestsForDifferentKeysAreNotCoalesced() {
+        mCoalescer.execute(KEY, task("first"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(OTHER_KEY, task("second"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+
+        Assert.assertEquals(2, mExecutor.size());
+        Assert.assertEquals(2, mCoalescer.getInFlightCount());
+        Assert.assertEquals(0, mCoalescer.getParkedCount());
+    }
+
+    @Test
+    public void testFailedLeaderReleasesEveryParkedRequest() {
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, mExecutor);
+        mCoalescer.execute(KEY, task("follower-1"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(KEY, task("follower-2"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mExecutor.runAll();
+
+        leader.setException(new ExecutionException(new RuntimeException("invalid_grant")));
+
+        Assert.assertEquals(2, mExecutor.size());
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+        mExecutor.runAll();
+
+        Assert.assertEquals(Arrays.asList("leader", "follower-1", "follower-2"), mExecuted);
+    }
+
+    @Test
+    public void testNewRequestLeadsOnceFlightCompletes() {
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, mExecutor);
+        mExecutor.runAll();
+        leader.setResult(result(ICommandResult.ResultStatus.COMPLETED));
+
+        mCoalescer.execute(KEY, task("next"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+
+        Assert.assertEquals(1, mExecutor.size());
+        Assert.assertEquals(1, mCoalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testRejectedRequestWithoutKeyIsRejected() {
+        mCoalescer.execute(null, task("first"), new FinalizableResultFuture<CommandResult>(), REJECTING_EXECUTOR);
+
+        Assert.assertEquals(Arrays.asList("first"), mRejected);
+    }
+
+    @Test
+    public void testRejectedLeaderDoesNotBlockKey() {
+        mCoalescer.execute(KEY, task("leader"), new FinalizableResultFuture<CommandResult>(), REJECTING_EXECUTOR);
+
+        Assert.assertEquals(Arrays.asList("leader"), mRejected);
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+        mCoalescer.execute(KEY, task("next"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        Assert.assertEquals(1, mExecutor.size());
+    }
+
+    @Test
+    public void testRejectedParkedRequestIsRejected() {
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, mExecutor);
+        mCoalescer.execute(KEY, task("follower"), new FinalizableResultFuture<CommandResult>(), REJECTING_EXECUTOR);
+
+        leader.setResult(result(ICommandResult.ResultStatus.COMPLETED));
+
+        Assert.assertEquals(Arrays.asList("follower"), mRejected);
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testParkedRequestRejectedAfterFailedLeaderDoesNotStopTheOthers() {
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, mExecutor);
+        mCoalescer.execute(KEY, task("follower-1"), new FinalizableResultFuture<CommandResult>(), REJECTING_EXECUTOR);
+        mCoalescer.execute(KEY, task("follower-2"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mExecutor.runAll();
+
+        leader.setResult(result(ICommandResult.ResultStatus.ERROR));
+
+        Assert.assertEquals(Arrays.asList("follower-1"), mRejected);
+        Assert.assertEquals(1, mExecutor.size());
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testClearRejectsParkedRequests() {
+        mCoalescer.execute(KEY, task("leader"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(KEY, task("follower-1"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(OTHER_KEY, task("other"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(OTHER_KEY, task("follower-2"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+
+        mCoalescer.clear();
+
+        Assert.assertEquals(2, mRejected.size());
+        Assert.assertTrue(mRejected.containsAll(Arrays.asList("follower-1", "follower-2")));
+        Assert.assertEquals(0, mCoalescer.getInFlightCount());
+        Assert.assertEquals(0, mCoalescer.getParkedCount());
+    }
+
+    @Test
+    public void testLeaderCompletingAfterClearDoesNotReleaseNextFlight() {
+        final FinalizableResultFuture<CommandResult> abandonedLeader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("abandoned-leader"), abandonedLeader, mExecutor);
+        mCoalescer.clear();
+
+        mCoalescer.execute(KEY, task("leader"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        mCoalescer.execute(KEY, task("follower"), new FinalizableResultFuture<CommandResult>(), mExecutor);
+        abandonedLeader.setResult(result(ICommandResult.ResultStatus.COMPLETED));
+
+        Assert.assertEquals(1, mCoalescer.getInFlightCount());
+        Assert.assertEquals(1, mCoalescer.getParkedCount());
+        Assert.assertEquals(2, mExecutor.size());
+    }
+
+    @Test
+    public void testReleasedRequestGoesToExecutorCurrentAtRelease() {
+        final QueuingExecutor replacementExecutor = new QueuingExecutor();
+        final QueuingExecutor[] currentExecutor = {mExecutor};
+        final Executor executorView = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                currentExecutor[0].execute(command);
+            }
+        };
+        final FinalizableResultFuture<CommandResult> leader = new FinalizableResultFuture<>();
+        mCoalescer.execute(KEY, task("leader"), leader, executorView);
+        mCoalescer.execute(KEY, task("follower"), new FinalizableResultFuture<CommandResult>(), executorView);
+
+        currentExecutor[0] = replacementExecutor;
+        leader.setResult(result(ICommandResult.ResultStatus.COMPLETED));
+
+        Assert.assertEquals(1, mExecutor.size());
+        Assert.assertEquals(1, replacementExecutor.size());
+    }
+
+    private IRejectableTask task(final String name) {
+        return new IRejectableTask() {
+            @Override
+            public void run() {
+                mExecuted.add(name);
+            }
+
+            @Override
+            public void reject(final RejectedExecutionException e) {
+                mRejected.add(name);
+            }
+        };
+    }
+
+    private static CommandResult result(final ICommandResult.ResultStatus status) {
+        return new CommandResult<>(status, "result");
+    }
+
+    /**
+     * Holds tasks until the test runs them.
+     */
+    private static class QueuingExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(final Runnable command) {
+            mTasks.add(command);
+        }
+
+        int size() {
+            return mTasks.size();
+        }
+
+        void runAll() {
+            final List<Runnable> tasks = new ArrayList<>(mTasks);
+            mTasks.clear();
+            for (final Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+}
@@ -33,6 +33,12 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.crypto.SecretKey;
+
+import lombok.NonNull;
 
 import static com.microsoft.identity.common.java.AuthenticationConstants.ENCODING_UTF8;
 import static com.microsoft.identity.common.java.crypto.MockData.PREDEFINED_KEY;
@@ -207,4 +213,93 @@ public class StorageEncryptionManagerTest {
             Assert.assertEquals(DATA_MALFORMED, e.getErrorCode());
         }
     }
+
+    @Test
+    public void testGetKeyIdentifierFromCipherText() {
+        Assert.assertEquals(PREDEFINED_KEY_IDENTIFIER,
+                StorageEncryptionManager.getKeyIdentifierFromCipherText(TEXT_ENCRYPTED_BY_PREDEFINED_KEY));
+        Assert.assertEquals(ANDROID_WRAPPED_KEY_IDENTIFIER,
+                StorageEncryptionManager.getKeyIdentifierFromCipherText(TEXT_ENCRYPTED_BY_ANDROID_WRAPPED_KEY));
+        Assert.assertEquals("EXCEPTION OCCURRED GETTING KEY IDENTIFIER",
+                StorageEncryptionManager.getKeyIdentifierFromCipherText(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY));
+    }
+
+    @Test
+    public void testDecryptTriesKeyWithMatchingIdentifierFirst() throws ClientException {
+        final AtomicInteger otherKeyLoads = new AtomicInteger();
+        final AES256KeyLoader otherKeyLoader = new MockAES256KeyLoader(ANDROID_WRAPPED_KEY, ANDROID_WRAPPED_KEY_IDENTIFIER) {
+            @Override
+            public @NonNull SecretKey getKey() {
+                otherKeyLoads.incrementAndGet();
+                return super.getKey();
+            }
+        };
+        final AES256KeyLoader matchingKeyLoader = new MockAES256KeyLoader(PREDEFINED_KEY, PREDEFINED_KEY_IDENTIFIER);
+
+        final StorageEncryptionManager manager = new MockStorageEncryptionManager(PREDEFINED_KEY_IV, null,
+                new ArrayList<AbstractSecretKeyLoader>(){{
+                    add(otherKeyLoader);
+                    add(matchingKeyLoader);
+                }});
+
+        Assert.assertArrayEquals(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY, manager.decrypt(TEXT_ENCRYPTED_BY_PREDEFINED_KEY));
+        Assert.assertEquals(0, otherKeyLoads.get());
+    }
+
+    @Test
+    public void testRotatedKeyIsPickedUp() throws ClientException {
+        final AES256KeyLoader predefinedKey = new MockAES256KeyLoader(PREDEFINED_KEY, PREDEFINED_KEY_IDENTIFIER);
+        final AES256KeyLoader rotatedKey = new MockAES256KeyLoader(ANDROID_WRAPPED_KEY, PREDEFINED_KEY_IDENTIFIER);
+        final AtomicReference<SecretKey> currentKey = new AtomicReference<>(predefinedKey.getKey());
+        final AES256KeyLoader keyLoader = new MockAES256KeyLoader(PREDEFINED_KEY, PREDEFINED_KEY_IDENTIFIER) {
+            @Override
+            public @NonNull SecretKey getKey() {
+                return currentKey.get();
+            }
+        };
+        final StorageEncryptionManager manager = new MockStorageEncryptionManager(PREDEFINED_KEY_IV, keyLoader);
+        Assert.assertArrayEquals(TEXT_ENCRYPTED_BY_PREDEFINED_KEY, manager.encrypt(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY));
+
+        currentKey.set(rotatedKey.getKey());
+        try {
+            manager.decrypt(TEXT_ENCRYPTED_BY_PREDEFINED_KEY);
+            Assert.fail("decrypt() should throw an exception but it succeeds.");
+        } catch (final ClientException e){
+            Assert.assertEquals(HMAC_MISMATCH, e.getErrorCode());
+        }
+
+        final byte[] encryptedWithRotatedKey = manager.encrypt(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY);
+        Assert.assertFalse(Arrays.equals(TEXT_ENCRYPTED_BY_PREDEFINED_KEY, encryptedWithRotatedKey));
+        Assert.assertArrayEquals(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY, manager.decrypt(encryptedWithRotatedKey));
+    }
+
+    @Test
+    public void testConcurrentEncryptDecrypt() throws Exception {
+        final StorageEncryptionManager manager = new MockStorageEncryptionManager(PREDEFINED_KEY_IV, new MockAES256KeyLoader(PREDEFINED_KEY, PREDEFINED_KEY_IDENTIFIER));
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final byte[] plainText = ("TEXT_OF_THREAD_" + i).getBytes(ENCODING_UTF8);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 200; j++) {
+                            Assert.assertArrayEquals(plainText, manager.decrypt(manager.encrypt(plainText)));
+                            Assert.assertArrayEquals(TEXT_TO_BE_ENCRYPTED_WITH_PREDEFINED_KEY, manager.decrypt(TEXT_ENCRYPTED_BY_PREDEFINED_KEY));
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertNull(failure.get());
+    }
 }
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.dto;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScopeSetTest {
+
+    @Test
+    public void testParseNormalizesScopes() {
+        final ScopeSet scopes = ScopeSet.parse("  User.Read\tMAIL.read \n user.read ");
+        assertEquals(new HashSet<>(Arrays.asList("user.read", "mail.read")), scopes.getScopes(false));
+    }
+
+    @Test
+    public void testParseEmptyTarget() {
+        assertTrue(ScopeSet.parse(null).getScopes(false).isEmpty());
+        assertTrue(ScopeSet.parse("").getScopes(false).isEmpty());
+        assertTrue(ScopeSet.parse("   ").getScopes(false).isEmpty());
+    }
+
+    @Test
+    public void testScopesAreInterned() {
+        final String first = ScopeSet.parse("Calendars.Read").getScopes(false).iterator().next();
+        final String second = ScopeSet.parse("calendars.read").getScopes(false).iterator().next();
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testDefaultScopesCanBeOmitted() {
+        final ScopeSet scopes = ScopeSet.parse("openid profile offline_access user.read");
+        assertEquals(4, scopes.getScopes(false).size());
+        assertEquals(new HashSet<>(Arrays.asList("user.read")), scopes.getScopes(true));
+    }
+
+    @Test
+    public void testContainsAll() {
+        final ScopeSet scopes = ScopeSet.parse("user.read mail.read");
+        assertTrue(scopes.containsAll(ScopeSet.parse("MAIL.READ"), true));
+        assertTrue(scopes.containsAll(ScopeSet.parse("openid mail.read"), true));
+        assertFalse(scopes.containsAll(ScopeSet.parse("openid mail.read"), false));
+        assertFalse(scopes.containsAll(ScopeSet.parse("mail.read files.read"), true));
+    }
+
+    @Test
+    public void testIntersects() {
+        final ScopeSet scopes = ScopeSet.parse("openid user.read");
+        assertTrue(scopes.intersects(ScopeSet.parse("User.Read files.read"), true));
+        assertTrue(scopes.intersects(ScopeSet.parse("openid"), false));
+        assertFalse(scopes.intersects(ScopeSet.parse("openid"), true));
+    }
+
+    @Test
+    public void testAccessTokenCachesScopeSetUntilTargetChanges() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setTarget("user.read");
+
+        final ScopeSet scopes = accessToken.getScopeSet();
+        assertSame(scopes, accessToken.getScopeSet());
+
+        accessToken.setTarget("mail.read");
+        final ScopeSet updatedScopes = accessToken.getScopeSet();
+        assertNotSame(scopes, updatedScopes);
+        assertEquals(new HashSet<>(Arrays.asList("mail.read")), updatedScopes.getScopes(false));
+    }
+
+    @Test
+    public void testScopeSetIsNotPartOfEquality() {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setTarget("user.read");
+        final AccessTokenRecord other = new AccessTokenRecord();
+        other.setTarget("user.read");
+
+        accessToken.getScopeSet();
+
+        assertEquals(accessToken, other);
+        assertEquals(accessToken.hashCode(), other.hashCode());
+    }
+}
@@ -428,6 +428,59 @@ public class EstsTelemetryTest {
         Assert.assertEquals("2|2|||2,1", headers.get(LAST_REQUEST_HEADER_NAME));
     }
 
+    @Test
+    public void testFlushWritesLastRequestTelemetryToCacheLater() throws InterruptedException {
+        final InMemoryStorage<String> lastRequestTelemetryMap = new InMemoryStorage<>();
+        final EstsTelemetry telemetry = getTelemetry(null, null, lastRequestTelemetryMap);
+
+        flushCachedCommand(telemetry);
+        Assert.assertEquals(0, lastRequestTelemetryMap.size());
+
+        final long deadline = System.currentTimeMillis() + EstsTelemetry.MAX_PERSIST_DELAY_MILLIS * 2;
+        while (lastRequestTelemetryMap.size() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        final LastRequestTelemetry lastRequestTelemetry =
+                new LastRequestTelemetryCache(lastRequestTelemetryMap).getRequestTelemetryFromCache();
+        Assert.assertNotNull(lastRequestTelemetry);
+        Assert.assertTrue(lastRequestTelemetry.getCompleteHeaderString().startsWith("2|1|"));
+    }
+
+    @Test
+    public void testPersistLastRequestTelemetryWritesPendingChanges() {
+        final InMemoryStorage<String> lastRequestTelemetryMap = new InMemoryStorage<>();
+        final EstsTelemetry telemetry = getTelemetry(null, null, lastRequestTelemetryMap);
+
+        for (int i = 0; i < 3; i++) {
+            flushCachedCommand(telemetry);
+        }
+        telemetry.persistLastRequestTelemetry();
+
+        final LastRequestTelemetry lastRequestTelemetry =
+                new LastRequestTelemetryCache(lastRequestTelemetryMap).getRequestTelemetryFromCache();
+        Assert.assertNotNull(lastRequestTelemetry);
+        Assert.assertTrue(lastRequestTelemetry.getCompleteHeaderString().startsWith("2|3|"));
+    }
+
+    private void flushCachedCommand(@NonNull final EstsTelemetry telemetry) {
+        final ICommand<Boolean> mockCommand = MockCommand.builder()
+                .correlationId(correlationId)
+                .isEligibleForEstsTelemetry(true)
+                .build();
+
+        final ICommandResult mockCommandResult =
+                MockCommandResult.<ILocalAuthenticationResult>builder()
+                        .correlationId(correlationId)
+                        .result(MockAuthenticationResult.builder().isServicedFromCache(true).build())
+                        .resultStatus(ICommandResult.ResultStatus.COMPLETED)
+                        .build();
+
+        telemetry.initTelemetryForCommand(mockCommand);
+        telemetry.emitApiId(apiId);
+        telemetry.flush(mockCommand, mockCommandResult);
+    }
+
     private void flush(@NonNull ICommand<Boolean> mockCommand,
                        @NonNull ICommandResult mockCommandResult,
                        @Nullable InMemoryStorage<CurrentRequestTelemetry> inMemoryTelemetryMap,
@@ -438,6 +491,7 @@ public class EstsTelemetryTest {
 
         final EstsTelemetry telemetry = getTelemetry(inMemoryTelemetryMap, sentFailedRequestsMap, lastRequestTelemetryMap);
         telemetry.flush(mockCommand, mockCommandResult);
+        telemetry.persistLastRequestTelemetry();
         Assert.assertEquals(inMemoryTelemetryMap.size(), 0);
     }
 
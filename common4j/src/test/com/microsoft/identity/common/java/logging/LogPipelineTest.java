@@ -0,0 +1,241 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.logging;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.NonNull;
+
+public class LogPipelineTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final RecordingSink mSink = new RecordingSink();
+
+    @After
+    public void tearDown() {
+        mSink.mRelease.countDown();
+    }
+
+    @Test
+    public void testRecordsAreDeliveredInOrder() throws InterruptedException {
+        final LogPipeline pipeline = new LogPipeline(4, 2, LogOverflowPolicy.DROP, mSink);
+        mSink.mRelease.countDown();
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "message " + i));
+            Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+        }
+
+        Assert.assertEquals(10, mSink.mMessages.size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("message " + i, mSink.mMessages.get(i));
+        }
+        Assert.assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testDropPolicyDropsWhenFullAndReportsCount() throws InterruptedException {
+        final LogPipeline pipeline = new LogPipeline(5, 64, LogOverflowPolicy.DROP, mSink);
+        blockFirstRecord(pipeline);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "queued " + i));
+        }
+        Assert.assertFalse(publish(pipeline, Logger.LogLevel.ERROR, "dropped"));
+        Assert.assertEquals(1, pipeline.getDroppedCount());
+
+        mSink.mRelease.countDown();
+        Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(5, mSink.mMessages.size());
+        Assert.assertFalse(mSink.mMessages.contains("dropped"));
+        Assert.assertEquals(1, mSink.mReportedDroppedCount.get());
+    }
+
+    @Test
+    public void testBlockPolicyWaitsForRoom() throws InterruptedException {
+        final LogPipeline pipeline = new LogPipeline(3, 64, LogOverflowPolicy.BLOCK, mSink);
+        blockFirstRecord(pipeline);
+        Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "queued 0"));
+        Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "queued 1"));
+
+        final CountDownLatch published = new CountDownLatch(1);
+        final AtomicBoolean result = new AtomicBoolean();
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(publish(pipeline, Logger.LogLevel.INFO, "blocked"));
+                published.countDown();
+            }
+        });
+        producer.start();
+
+        Assert.assertFalse(published.await(100, TimeUnit.MILLISECONDS));
+
+        mSink.mRelease.countDown();
+        Assert.assertTrue(published.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(result.get());
+        Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+        Assert.assertEquals(4, mSink.mMessages.size());
+        Assert.assertEquals("blocked", mSink.mMessages.get(3));
+        Assert.assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testSamplePolicyKeepsWarningsOnceHalfFull() throws InterruptedException {
+        final LogPipeline pipeline = new LogPipeline(40, 64, LogOverflowPolicy.SAMPLE, mSink);
+        blockFirstRecord(pipeline);
+
+        // The record being delivered keeps its slot, so these fill half of the ring.
+        for (int i = 0; i < 19; i++) {
+            Assert.assertTrue(publish(pipeline, Logger.LogLevel.VERBOSE, "before"));
+        }
+        int sampled = 0;
+        for (int i = 0; i < 2 * LogPipeline.SAMPLE_RATE; i++) {
+            if (publish(pipeline, Logger.LogLevel.VERBOSE, "sampled")) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(2, sampled);
+        Assert.assertTrue(publish(pipeline, Logger.LogLevel.WARN, "warning"));
+        Assert.assertEquals(2 * LogPipeline.SAMPLE_RATE - 2, pipeline.getDroppedCount());
+
+        mSink.mRelease.countDown();
+        Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+        Assert.assertTrue(mSink.mMessages.contains("warning"));
+    }
+
+    @Test
+    public void testQueuedRecordsAreDeliveredInOneBatch() throws InterruptedException {
+        final LogPipeline pipeline = new LogPipeline(64, 64, LogOverflowPolicy.DROP, mSink);
+        blockFirstRecord(pipeline);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "queued " + i));
+        }
+
+        mSink.mRelease.countDown();
+        Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+        Assert.assertEquals(11, mSink.mMessages.size());
+        Assert.assertEquals(2, mSink.mBatchCount.get());
+    }
+
+    @Test
+    public void testErrorFromSinkDoesNotStopBlockedProducers() throws InterruptedException {
+        final RecordingSink sink = new RecordingSink() {
+            @Override
+            public void deliver(@NonNull final LogPipeline.Record record) {
+                if ("fatal".equals(record.mMessage)) {
+                    throw new StackOverflowError();
+                }
+                super.deliver(record);
+            }
+
+            @Override
+            public void endBatch(final long droppedCount) {
+                super.endBatch(droppedCount);
+                if (mBatchCount.get() == 1) {
+                    throw new StackOverflowError();
+                }
+            }
+        };
+        sink.mRelease.countDown();
+        final LogPipeline pipeline = new LogPipeline(2, 1, LogOverflowPolicy.BLOCK, sink);
+
+        final CountDownLatch published = new CountDownLatch(1);
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                publish(pipeline, Logger.LogLevel.ERROR, "fatal");
+                for (int i = 0; i < 10; i++) {
+                    publish(pipeline, Logger.LogLevel.INFO, "after " + i);
+                }
+                published.countDown();
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+
+        Assert.assertTrue(published.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(pipeline.awaitIdle(TIMEOUT_MILLIS));
+        Assert.assertEquals(10, sink.mMessages.size());
+        Assert.assertEquals("after 9", sink.mMessages.get(9));
+    }
+
+    /**
+     * Publishes a record and waits until the logging thread is stuck delivering it, so that the
+     * following records stay queued until {@link RecordingSink#mRelease} is counted down. The
+     * record keeps its slot of the ring meanwhile.
+     */
+    private void blockFirstRecord(@NonNull final LogPipeline pipeline) throws InterruptedException {
+        Assert.assertTrue(publish(pipeline, Logger.LogLevel.INFO, "first"));
+        Assert.assertTrue(mSink.mFirstDelivered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private static boolean publish(@NonNull final LogPipeline pipeline,
+                                   @NonNull final Logger.LogLevel logLevel,
+                                   @NonNull final String message) {
+        return pipeline.publish("TAG", logLevel, null, message, null, null, false, System.currentTimeMillis());
+    }
+
+    private static class RecordingSink implements LogPipeline.IRecordSink {
+        final List<String> mMessages = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch mFirstDelivered = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        final AtomicInteger mBatchCount = new AtomicInteger();
+        final AtomicLong mReportedDroppedCount = new AtomicLong();
+
+        @Override
+        public void beginBatch() {
+            mBatchCount.incrementAndGet();
+        }
+
+        @Override
+        public void deliver(@NonNull final LogPipeline.Record record) {
+            mMessages.add(record.mMessage);
+            mFirstDelivered.countDown();
+            try {
+                mRelease.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void endBatch(final long droppedCount) {
+            mReportedDroppedCount.addAndGet(droppedCount);
+        }
+    }
+}
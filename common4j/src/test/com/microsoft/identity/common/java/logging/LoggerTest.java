@@ -491,4 +491,113 @@ public class LoggerTest {
             Assert.assertEquals(result_containsPII[0], expectedContainsPii);
         }
     }
+
+    @Test
+    public void testFormatReplacesPlaceholdersInOrder() {
+        Assert.assertEquals("Found [3] of [5]", Logger.format("Found [{}] of [{}]", 2, 3, 5, null));
+        Assert.assertEquals("a=1, b=null, c=x", Logger.format("a={}, b={}, c={}", 3, null, null, new Object[]{1, null, "x"}));
+        Assert.assertEquals("No placeholder", Logger.format("No placeholder", 1, "unused", null, null));
+    }
+
+    @Test
+    public void testFormatKeepsPlaceholdersWithoutArgument() {
+        Assert.assertEquals("[1] [{}]", Logger.format("[{}] [{}]", 1, 1, null, null));
+        Assert.assertEquals("[a] [null]", Logger.format("[{}] [{}]", 2, "a", null, null));
+    }
+
+    @Test
+    public void testIsLoggable() {
+        Logger.setLogLevel(Logger.LogLevel.INFO);
+        Assert.assertTrue(Logger.isLoggable(Logger.LogLevel.ERROR));
+        Assert.assertTrue(Logger.isLoggable(Logger.LogLevel.INFO));
+        Assert.assertFalse(Logger.isLoggable(Logger.LogLevel.VERBOSE));
+        Assert.assertFalse(Logger.isLoggable(Logger.LogLevel.INFO, true));
+
+        Logger.setAllowPii(true);
+        Assert.assertTrue(Logger.isLoggable(Logger.LogLevel.INFO, true));
+
+        Logger.setLogLevel(Logger.LogLevel.NO_LOG);
+        Assert.assertFalse(Logger.isLoggable(Logger.LogLevel.ERROR));
+    }
+
+    @Test(timeout = TEST_TIME_OUT_IN_MILLISECONDS)
+    public void testFormattedMessageIsLogged() throws InterruptedException {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final String[] result_logMessage = {null};
+
+        Logger.setLogger("TEST", new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                result_logMessage[0] = message;
+                countDownLatch.countDown();
+            }
+        });
+
+        Logger.verboseFormat(tag, "Found [{}] matching Credentials...", 7);
+
+        Assert.assertTrue(countDownLatch.await(TEST_TIME_OUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(result_logMessage[0].contains("Found [7] matching Credentials..."));
+    }
+
+    @Test
+    public void testDisabledFormattedMessageDoesNotFormatArguments() throws InterruptedException {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final boolean[] toStringCalled = {false};
+
+        Logger.setLogger("TEST", new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                countDownLatch.countDown();
+            }
+        });
+        Logger.setLogLevel(Logger.LogLevel.INFO);
+
+        final Object argument = new Object() {
+            @Override
+            public String toString() {
+                toStringCalled[0] = true;
+                return "argument";
+            }
+        };
+        Logger.verboseFormat(tag, "Argument: {}", argument);
+        Logger.infoPIIFormat(tag, "Argument: {}", argument);
+
+        Assert.assertFalse(countDownLatch.await(DISCARDED_TIME_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(toStringCalled[0]);
+    }
+
+    @Test
+    public void testOverflowingRecordsAreDroppedAndReported() throws InterruptedException {
+        final CountDownLatch firstDelivered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final String[] result_dropWarning = {null};
+
+        Logger.setLogger("TEST", new ILoggerCallback() {
+            @Override
+            public void log(String tag, Logger.LogLevel logLevel, String message, boolean containsPII) {
+                if (message.contains("Dropped ")) {
+                    result_dropWarning[0] = message;
+                }
+                firstDelivered.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Assert.assertEquals(LogOverflowPolicy.DROP, Logger.getLogOverflowPolicy());
+
+        final long droppedBefore = Logger.getDroppedLogRecordCount();
+        Logger.info(tag, message);
+        Assert.assertTrue(firstDelivered.await(TEST_TIME_OUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 5000; i++) {
+            Logger.info(tag, message);
+        }
+        release.countDown();
+
+        Assert.assertTrue(Logger.awaitLogDelivery(TEST_TIME_OUT_IN_MILLISECONDS));
+        Assert.assertTrue(Logger.getDroppedLogRecordCount() > droppedBefore);
+        Assert.assertNotNull(result_dropWarning[0]);
+    }
 }
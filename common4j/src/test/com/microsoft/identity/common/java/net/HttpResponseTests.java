@@ -25,9 +25,14 @@ package com.microsoft.identity.common.java.net;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -63,6 +68,29 @@ public final class HttpResponseTests {
         Assert.assertNull(response.getHeaders());
     }
 
+    @Test
+    public void testHttpResponseWithByteBody() throws IOException {
+        final String body = "{\"name\":\"n\u00e4me\"}";
+        final HttpResponse response = new HttpResponse(new Date(), HttpURLConnection.HTTP_OK,
+                body.getBytes(StandardCharsets.UTF_8), Collections.<String, List<String>>emptyMap());
+
+        Assert.assertEquals(body.getBytes(StandardCharsets.UTF_8).length, response.getBodyLength());
+        Assert.assertEquals(body, new BufferedReader(response.getBodyReader()).readLine());
+        Assert.assertEquals(body, response.getBody());
+
+        final InputStream stream = response.getBodyStream();
+        Assert.assertEquals('{', stream.read());
+    }
+
+    @Test
+    public void testHttpResponseBodyReaderWithNullBody() throws IOException {
+        final HttpResponse response = new HttpResponse(HttpURLConnection.HTTP_OK, null,
+                Collections.<String, List<String>>emptyMap());
+        Assert.assertEquals(-1, response.getBodyReader().read());
+        Assert.assertEquals(-1, response.getBodyStream().read());
+        Assert.assertEquals(0, response.getBodyLength());
+    }
+
     @Test
     public void testGetHeaderValue() {
         final String requestId = UUID.randomUUID().toString();
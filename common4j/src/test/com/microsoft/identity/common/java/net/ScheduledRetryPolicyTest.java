@@ -0,0 +1,184 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.net;
+
+import com.microsoft.identity.common.java.util.ported.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ScheduledRetryPolicy}.
+ */
+public class ScheduledRetryPolicyTest {
+
+    private static final String HOST = "login.microsoftonline.com";
+
+    private static final HttpResponse OK = new HttpResponse(HttpURLConnection.HTTP_OK, "ok", null);
+    private static final HttpResponse UNAVAILABLE = new HttpResponse(HttpURLConnection.HTTP_UNAVAILABLE, "", null);
+
+    private static ScheduledRetryPolicy.ScheduledRetryPolicyBuilder newPolicyBuilder() {
+        return ScheduledRetryPolicy.builder()
+                .number(1)
+                .initialDelay(50)
+                .isAcceptable(new Function<HttpResponse, Boolean>() {
+                    @Override
+                    public Boolean apply(HttpResponse response) {
+                        return response != null && response.getStatusCode() < 400;
+                    }
+                })
+                .isRetryable(new Function<HttpResponse, Boolean>() {
+                    @Override
+                    public Boolean apply(HttpResponse response) {
+                        return response != null && UrlConnectionHttpClient.isRetryableError(response.getStatusCode());
+                    }
+                })
+                .isRetryableException(new Function<Exception, Boolean>() {
+                    @Override
+                    public Boolean apply(Exception e) {
+                        return e instanceof SocketTimeoutException;
+                    }
+                });
+    }
+
+    private static Callable<HttpResponse> respondWith(final AtomicInteger calls, final HttpResponse... responses) {
+        return new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() {
+                final int call = calls.getAndIncrement();
+                return responses[Math.min(call, responses.length - 1)];
+            }
+        };
+    }
+
+    private static HttpResponse withRetryAfter(final int statusCode, final String retryAfter) {
+        return new HttpResponse(statusCode, "",
+                Collections.singletonMap("retry-after", Collections.singletonList(retryAfter)));
+    }
+
+    @Test
+    public void testRetriesRetryableResponse() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        final HttpResponse response = newPolicyBuilder().build()
+                .attempt(HOST, respondWith(calls, UNAVAILABLE, OK));
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testRetriesRetryableException() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        final HttpResponse response = newPolicyBuilder().build().attempt(HOST, new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() throws Exception {
+                if (calls.getAndIncrement() == 0) {
+                    throw new SocketTimeoutException();
+                }
+                return OK;
+            }
+        });
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testDoesNotRetryWhenRetryAfterIsTooLong() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        final HttpResponse response = newPolicyBuilder().maxDelay(1000).build()
+                .attempt(HOST, respondWith(calls, withRetryAfter(429, "120"), OK));
+
+        Assert.assertEquals(429, response.getStatusCode());
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testStopsRetryingWhenRetryBudgetIsUsedUp() throws IOException {
+        final ScheduledRetryPolicy policy = newPolicyBuilder()
+                .retryBudgetCapacity(2)
+                .retryBudgetRatio(0)
+                .build();
+
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE,
+                    policy.attempt(HOST, respondWith(calls, UNAVAILABLE)).getStatusCode());
+        }
+        // Two requests were retried, the other two were not.
+        Assert.assertEquals(6, calls.get());
+
+        // Other hosts have their own budget.
+        final AtomicInteger otherHostCalls = new AtomicInteger();
+        policy.attempt("other.host", respondWith(otherHostCalls, UNAVAILABLE));
+        Assert.assertEquals(2, otherHostCalls.get());
+    }
+
+    @Test
+    public void testCallsWithoutHostDoNotShareRetryBudget() throws IOException {
+        final ScheduledRetryPolicy policy = newPolicyBuilder()
+                .retryBudgetCapacity(1)
+                .retryBudgetRatio(0)
+                .build();
+
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE,
+                    policy.attempt(respondWith(calls, UNAVAILABLE)).getStatusCode());
+        }
+        // Every request was retried.
+        Assert.assertEquals(6, calls.get());
+
+        // And they did not use up the budget of a known host.
+        final AtomicInteger hostCalls = new AtomicInteger();
+        policy.attempt(HOST, respondWith(hostCalls, UNAVAILABLE));
+        Assert.assertEquals(2, hostCalls.get());
+    }
+
+    @Test
+    public void testGetRetryAfterMillis() {
+        final long now = System.currentTimeMillis();
+        Assert.assertEquals(-1, ScheduledRetryPolicy.getRetryAfterMillis(null, now));
+        Assert.assertEquals(-1, ScheduledRetryPolicy.getRetryAfterMillis(UNAVAILABLE, now));
+        Assert.assertEquals(-1, ScheduledRetryPolicy.getRetryAfterMillis(withRetryAfter(429, "soon"), now));
+        Assert.assertEquals(-1, ScheduledRetryPolicy.getRetryAfterMillis(withRetryAfter(429, "-1"), now));
+        Assert.assertEquals(5000, ScheduledRetryPolicy.getRetryAfterMillis(withRetryAfter(429, " 5 "), now));
+
+        final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        final long nowSeconds = now / 1000 * 1000;
+        final String date = httpDateFormat.format(new Date(nowSeconds + 30000));
+        Assert.assertEquals(30000, ScheduledRetryPolicy.getRetryAfterMillis(withRetryAfter(503, date), nowSeconds));
+    }
+}
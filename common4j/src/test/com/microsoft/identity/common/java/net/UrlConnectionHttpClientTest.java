@@ -28,6 +28,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.microsoft.identity.common.java.flighting.CommonFlight;
+import com.microsoft.identity.common.java.flighting.CommonFlightsManager;
+import com.microsoft.identity.common.java.flighting.MockFlightsManager;
+import com.microsoft.identity.common.java.flighting.MockFlightsProvider;
 import com.microsoft.identity.common.java.net.util.MockConnection;
 import com.microsoft.identity.common.java.net.util.ResponseBody;
 
@@ -38,6 +42,7 @@ import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
@@ -1262,4 +1267,57 @@ public final class UrlConnectionHttpClientTest {
 
         Assert.assertEquals(200, response.getStatusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDefaultRetryPolicyIsScheduledWhenFlightIsEnabled() {
+        assertTrue(UrlConnectionHttpClient.newDefaultRetryPolicy() instanceof StatusCodeAndExceptionRetry);
+
+        final MockFlightsProvider flightsProvider = new MockFlightsProvider();
+        flightsProvider.addFlight(CommonFlight.USE_SCHEDULED_RETRY_POLICY_FOR_DEFAULT_HTTP_CLIENT.getKey(), "true");
+        final MockFlightsManager flightsManager = new MockFlightsManager();
+        flightsManager.setMockBrokerFlightsProvider(flightsProvider);
+        CommonFlightsManager.INSTANCE.initializeCommonFlightsManager(flightsManager);
+        try {
+            assertTrue(UrlConnectionHttpClient.newDefaultRetryPolicy() instanceof ScheduledRetryPolicy);
+        } finally {
+            CommonFlightsManager.INSTANCE.resetFlightsManager();
+        }
+    }
+
+    @Test
+    public void testReadsResponseBodyLongerThanContentLength() throws IOException {
+        testReadsResponseBody(5000, 16);
+    }
+
+    @Test
+    public void testReadsResponseBodyWithoutContentLength() throws IOException {
+        testReadsResponseBody(5000, -1);
+    }
+
+    @Test
+    public void testReadsResponseBodyShorterThanContentLength() throws IOException {
+        testReadsResponseBody(100, 5000);
+    }
+
+    private void testReadsResponseBody(final int bodyLength, final int contentLength) throws IOException {
+        final char[] chars = new char[bodyLength];
+        Arrays.fill(chars, 'a');
+        final String body = new String(chars);
+
+        final HttpURLConnection connection = MockConnection.getMockedHttpConnection();
+        Mockito.when(connection.getInputStream())
+                .thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        Mockito.when(connection.getContentLength()).thenReturn(contentLength);
+        HttpUrlConnectionFactory.addMockedConnection(connection);
+
+        final HttpResponse response = sNoRetryClient.method(
+                HttpClient.HttpMethod.GET,
+                new URL("http://www.somewebsite.com/"),
+                new LinkedHashMap<String, String>(),
+                null
+        );
+
+        Assert.assertEquals(bodyLength, response.getBodyLength());
+        Assert.assertEquals(body, response.getBody());
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.providers.oauth2;
+
+import com.microsoft.identity.common.java.cache.AuthorityMetadataCache;
+import com.microsoft.identity.common.java.exception.ServiceException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link OpenIdProviderConfigurationClient}, against a local stub OpenID provider which
+ * answers after {@link #SERVER_LATENCY_MILLIS}.
+ */
+public class OpenIdProviderConfigurationClientTest {
+
+    private static final int PARALLEL_LOADS = 8;
+    private static final long SERVER_LATENCY_MILLIS = 300;
+    private static final String TENANT_1 = "tenant-1";
+    private static final String TENANT_2 = "tenant-2";
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mRequestsInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxRequestsInFlight = new AtomicInteger();
+    private volatile int mStatusCode = 200;
+
+    private HttpServer mServer;
+    private ExecutorService mServerExecutor;
+    private ExecutorService mLoadExecutor;
+    private String mAuthorityPrefix;
+
+    @Before
+    public void setUp() throws IOException {
+        AuthorityMetadataCache.getInstance().clear();
+
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                final int inFlight = mRequestsInFlight.incrementAndGet();
+                int max;
+                while ((max = mMaxRequestsInFlight.get()) < inFlight
+                        && !mMaxRequestsInFlight.compareAndSet(max, inFlight)) {
+                    // Retry until the maximum is recorded.
+                }
+                try {
+                    Thread.sleep(SERVER_LATENCY_MILLIS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                mRequestsInFlight.decrementAndGet();
+
+                final String tenant = exchange.getRequestURI().getPath().split("/")[1];
+                final byte[] body = ("{\"issuer\":\"" + mAuthorityPrefix + tenant + "/v2.0\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(mStatusCode, body.length);
+                final OutputStream responseBody = exchange.getResponseBody();
+                responseBody.write(body);
+                responseBody.close();
+            }
+        });
+        mServerExecutor = Executors.newFixedThreadPool(PARALLEL_LOADS);
+        mServer.setExecutor(mServerExecutor);
+        mServer.start();
+        mAuthorityPrefix = "http://localhost:" + mServer.getAddress().getPort() + "/";
+
+        mLoadExecutor = Executors.newFixedThreadPool(PARALLEL_LOADS);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mServerExecutor.shutdownNow();
+        mLoadExecutor.shutdownNow();
+        AuthorityMetadataCache.getInstance().clear();
+    }
+
+    @Test
+    public void testParallelColdLoadsOfSameAuthorityShareOneRequest() throws Exception {
+        final List<Future<OpenIdProviderConfiguration>> loads = startLoads(TENANT_1, TENANT_1);
+
+        for (final Future<OpenIdProviderConfiguration> load : loads) {
+            Assert.assertEquals(mAuthorityPrefix + TENANT_1 + "/v2.0", load.get(10, TimeUnit.SECONDS).getIssuer());
+        }
+        Assert.assertEquals(1, mRequestCount.get());
+
+        // Later loads are served from the cache.
+        new OpenIdProviderConfigurationClient().loadOpenIdProviderConfigurationFromAuthority(mAuthorityPrefix + TENANT_1);
+        Assert.assertEquals(1, mRequestCount.get());
+    }
+
+    @Test
+    public void testParallelColdLoadsOfDifferentAuthoritiesRunInParallel() throws Exception {
+        final List<Future<OpenIdProviderConfiguration>> loads = startLoads(TENANT_1, TENANT_2);
+
+        for (int i = 0; i < loads.size(); i++) {
+            final String tenant = i % 2 == 0 ? TENANT_1 : TENANT_2;
+            Assert.assertEquals(mAuthorityPrefix + tenant + "/v2.0", loads.get(i).get(10, TimeUnit.SECONDS).getIssuer());
+        }
+        Assert.assertEquals(2, mRequestCount.get());
+        Assert.assertEquals(2, mMaxRequestsInFlight.get());
+    }
+
+    @Test
+    public void testFailedLoadIsSharedButNotCached() throws Exception {
+        mStatusCode = 404;
+        final List<Future<OpenIdProviderConfiguration>> loads = startLoads(TENANT_1, TENANT_1);
+
+        for (final Future<OpenIdProviderConfiguration> load : loads) {
+            try {
+                load.get(10, TimeUnit.SECONDS);
+                Assert.fail("Expected the load to fail.");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof ServiceException);
+                Assert.assertEquals(ServiceException.OPENID_PROVIDER_CONFIGURATION_FAILED_TO_LOAD,
+                        ((ServiceException) e.getCause()).getErrorCode());
+            }
+        }
+        Assert.assertEquals(1, mRequestCount.get());
+
+        mStatusCode = 200;
+        new OpenIdProviderConfigurationClient().loadOpenIdProviderConfigurationFromAuthority(mAuthorityPrefix + TENANT_1);
+        Assert.assertEquals(2, mRequestCount.get());
+    }
+
+    /**
+     * Starts {@link #PARALLEL_LOADS} loads at once, alternating between the two tenants, each
+     * through its own client.
+     */
+    private List<Future<OpenIdProviderConfiguration>> startLoads(final String evenTenant, final String oddTenant) {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<OpenIdProviderConfiguration>> loads = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_LOADS; i++) {
+            final String authority = mAuthorityPrefix + (i % 2 == 0 ? evenTenant : oddTenant);
+            loads.add(mLoadExecutor.submit(new Callable<OpenIdProviderConfiguration>() {
+                @Override
+                public OpenIdProviderConfiguration call() throws Exception {
+                    start.await();
+                    return new OpenIdProviderConfigurationClient().loadOpenIdProviderConfigurationFromAuthority(authority);
+                }
+            }));
+        }
+        start.countDown();
+        return loads;
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.storage;
+
+import com.microsoft.identity.common.java.crypto.StorageEncryptionManager;
+import com.microsoft.identity.common.java.crypto.key.AbstractSecretKeyLoader;
+import com.microsoft.identity.common.java.crypto.key.PredefinedKeyLoader;
+import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.util.BiConsumer;
+import com.microsoft.identity.common.java.util.ported.InMemoryStorage;
+import com.microsoft.identity.common.java.util.ported.Predicate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+
+/**
+ * Tests for {@link EncryptedNameValueStorage}.
+ */
+public class EncryptedNameValueStorageTest {
+
+    private static final byte[] KEY_BYTES = new byte[]{
+            22, 78, -69, -66, 84, -65, 119, -9, -34, -80, 60, 67, -12, -117, 86, -47,
+            -84, -24, -18, 121, 70, 32, -110, 51, -93, -10, -93, -72, -13, -92, 18, 117};
+
+    private static final Predicate<String> MATCHING_KEYS = new Predicate<String>() {
+        @Override
+        public boolean test(String value) {
+            return value.startsWith("match");
+        }
+    };
+
+    private final AtomicInteger mDecryptCount = new AtomicInteger();
+    private InMemoryStorage<String> mRawStorage;
+    private EncryptedNameValueStorage<Long> mStorage;
+
+    @Before
+    public void setUp() {
+        final AbstractSecretKeyLoader keyLoader = new PredefinedKeyLoader("MOCK_ALIAS", KEY_BYTES);
+        final StorageEncryptionManager encryptionManager = new StorageEncryptionManager() {
+            @Override
+            public byte[] decrypt(final byte[] cipherText) throws ClientException {
+                mDecryptCount.incrementAndGet();
+                return super.decrypt(cipherText);
+            }
+
+            @Override
+            public @NonNull AbstractSecretKeyLoader getKeyLoaderForEncryption() {
+                return keyLoader;
+            }
+
+            @Override
+            public @NonNull List<AbstractSecretKeyLoader> getKeyLoaderForDecryption(@NonNull final byte[] cipherText) {
+                return Collections.singletonList(keyLoader);
+            }
+        };
+
+        mRawStorage = new InMemoryStorage<>();
+        mStorage = new EncryptedNameValueStorage<>(
+                mRawStorage, encryptionManager, IGenericTypeStringAdapter.LongStringAdapter);
+
+        mStorage.put("match-1", 1L);
+        mStorage.put("match-2", 2L);
+        mStorage.put("other-1", 3L);
+        mStorage.put("other-2", 4L);
+        mDecryptCount.set(0);
+    }
+
+    @Test
+    public void testValuesAreEncrypted() {
+        Assert.assertNotEquals("1", mRawStorage.get("match-1"));
+        Assert.assertEquals(Long.valueOf(1L), mStorage.get("match-1"));
+        Assert.assertEquals(4, mStorage.getAll().size());
+    }
+
+    @Test
+    public void testKeySetDoesNotDecrypt() {
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList("match-1", "match-2", "other-1", "other-2")),
+                mStorage.keySet());
+        Assert.assertEquals(0, mDecryptCount.get());
+    }
+
+    @Test
+    public void testFilteredIterationOnlyDecryptsMatchingEntries() {
+        final Iterator<Map.Entry<String, Long>> iterator = mStorage.getAllFilteredByKey(MATCHING_KEYS);
+        Assert.assertEquals(0, mDecryptCount.get());
+
+        long sum = 0;
+        int count = 0;
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            Assert.assertTrue(entry.getKey().startsWith("match"));
+            sum += entry.getValue();
+            count++;
+            Assert.assertEquals(count, mDecryptCount.get());
+        }
+
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(3L, sum);
+    }
+
+    @Test
+    public void testFilteredIterationSkipsEmptyValues() {
+        mRawStorage.put("match-empty", "");
+
+        final Iterator<Map.Entry<String, Long>> iterator = mStorage.getAllFilteredByKey(MATCHING_KEYS);
+        int count = 0;
+        while (iterator.hasNext()) {
+            Assert.assertNotNull(iterator.next().getValue());
+            count++;
+        }
+
+        Assert.assertEquals(2, count);
+        Assert.assertNull(mRawStorage.get("match-empty"));
+    }
+
+    @Test
+    public void testForEachFilteredByKeyDecryptsEveryMatchingEntry() {
+        for (long i = 0; i < 500; i++) {
+            mStorage.put("match-bulk-" + i, i);
+        }
+        mRawStorage.put("match-empty", "");
+        mDecryptCount.set(0);
+
+        final Map<String, Long> result = new ConcurrentHashMap<>();
+        final BulkReadStatistics statistics = mStorage.forEachFilteredByKey(MATCHING_KEYS, new BiConsumer<String, Long>() {
+            @Override
+            public void accept(final String name, final Long value) {
+                result.put(name, value);
+            }
+        });
+
+        Assert.assertEquals(502, result.size());
+        Assert.assertEquals(502, statistics.getEntryCount());
+        Assert.assertEquals(502, mDecryptCount.get());
+        Assert.assertTrue(statistics.getThreadCount() >= 1);
+        for (long i = 0; i < 500; i++) {
+            Assert.assertEquals(Long.valueOf(i), result.get("match-bulk-" + i));
+        }
+        Assert.assertEquals(Long.valueOf(1L), result.get("match-1"));
+        Assert.assertFalse(result.containsKey("other-1"));
+        Assert.assertNull(mRawStorage.get("match-empty"));
+    }
+
+    @Test
+    public void testForEachFilteredByKeyRethrowsConsumerFailure() {
+        for (long i = 0; i < 100; i++) {
+            mStorage.put("match-bulk-" + i, i);
+        }
+
+        try {
+            mStorage.forEachFilteredByKey(MATCHING_KEYS, new BiConsumer<String, Long>() {
+                @Override
+                public void accept(final String name, final Long value) {
+                    if ("match-bulk-42".equals(name)) {
+                        throw new IllegalStateException("Expected");
+                    }
+                }
+            });
+            Assert.fail("Expected the consumer failure to be rethrown.");
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals("Expected", e.getMessage());
+        }
+    }
+}
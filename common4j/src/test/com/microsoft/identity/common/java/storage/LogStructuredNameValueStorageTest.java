@@ -0,0 +1,418 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.storage;
+
+import com.microsoft.identity.common.java.crypto.StorageEncryptionManager;
+import com.microsoft.identity.common.java.crypto.key.AbstractSecretKeyLoader;
+import com.microsoft.identity.common.java.crypto.key.PredefinedKeyLoader;
+import com.microsoft.identity.common.java.exception.ClientException;
+import com.microsoft.identity.common.java.cache.IMultiTypeNameValueStorage;
+import com.microsoft.identity.common.java.util.ported.Predicate;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.NonNull;
+
+/**
+ * Tests for {@link LogStructuredNameValueStorage}.
+ */
+public class LogStructuredNameValueStorageTest {
+
+    private static final byte[] KEY_BYTES = new byte[]{
+            22, 78, -69, -66, 84, -65, 119, -9, -34, -80, 60, 67, -12, -117, 86, -47,
+            -84, -24, -18, 121, 70, 32, -110, 51, -93, -10, -93, -72, -13, -92, 18, 117};
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mFile;
+    private LogStructuredNameValueStorage mStorage;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mTemporaryFolder.getRoot(), "storage.log");
+    }
+
+    @After
+    public void tearDown() {
+        if (mStorage != null) {
+            mStorage.close();
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        mStorage.remove("key1");
+        mStorage.put("key2", null);
+        mStorage.put("key3", "value3");
+
+        Assert.assertNull(mStorage.get("key1"));
+        Assert.assertNull(mStorage.get("key2"));
+        Assert.assertEquals("value3", mStorage.get("key3"));
+        Assert.assertEquals(Collections.singleton("key3"), mStorage.keySet());
+    }
+
+    @Test
+    public void testEntriesSurviveReopen() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        mStorage.put("key1", "value1-updated");
+        mStorage.remove("key2");
+        mStorage.put("unicode", "é中😀");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        final Map<String, String> all = mStorage.getAll();
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals("value1-updated", all.get("key1"));
+        Assert.assertEquals("é中😀", all.get("unicode"));
+    }
+
+    @Test
+    public void testEncryptedEntriesSurviveReopen() throws IOException {
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager());
+        mStorage.put("key1", "secret-value");
+        mStorage.close();
+
+        Assert.assertFalse(new String(readFile(mFile), "UTF-8").contains("secret-value"));
+
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager());
+        Assert.assertEquals("secret-value", mStorage.get("key1"));
+    }
+
+    @Test
+    public void testFileWithMismatchedEncryptionStartsEmpty() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager());
+        Assert.assertTrue(mStorage.getAll().isEmpty());
+
+        mStorage.put("key2", "value2");
+        mStorage.close();
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager());
+        Assert.assertEquals("value2", mStorage.get("key2"));
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        mStorage.close();
+
+        // Simulate a crash in the middle of writing the last frame.
+        final long intactLength = mFile.length();
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(intactLength - 3);
+        file.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertEquals("value1", mStorage.get("key1"));
+        Assert.assertNull(mStorage.get("key2"));
+
+        // The torn frame must not hide writes appended after recovery.
+        mStorage.put("key3", "value3");
+        mStorage.close();
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertEquals("value1", mStorage.get("key1"));
+        Assert.assertEquals("value3", mStorage.get("key3"));
+    }
+
+    @Test
+    public void testFailedAppendIsKeptPendingAndItsTornBytesAreCutOff() {
+        final AtomicBoolean failWrites = new AtomicBoolean();
+        mStorage = new LogStructuredNameValueStorage(mFile, null) {
+            @Override
+            void writeFrame(@NonNull final FileOutputStream out,
+                            @NonNull final byte[] batch) throws IOException, ClientException {
+                if (failWrites.get()) {
+                    // Leave half a frame behind, as a full disk would.
+                    out.write(new byte[]{0, 0, 0, 42, 1, 2});
+                    throw new IOException("No space left on device");
+                }
+                super.writeFrame(out, batch);
+            }
+        };
+        mStorage.put("key1", "value1");
+
+        failWrites.set(true);
+        mStorage.put("key2", "value2");
+        Assert.assertEquals("value2", mStorage.get("key2"));
+
+        failWrites.set(false);
+        mStorage.put("key3", "value3");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertEquals("value1", mStorage.get("key1"));
+        Assert.assertEquals("value2", mStorage.get("key2"));
+        Assert.assertEquals("value3", mStorage.get("key3"));
+        Assert.assertEquals(3, mStorage.getLogRecordCount());
+    }
+
+    @Test
+    public void testCorruptedFrameIsDropped() throws IOException {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        mStorage.close();
+
+        final byte[] content = readFile(mFile);
+        content[content.length - 1] ^= 0xFF;
+        final FileOutputStream out = new FileOutputStream(mFile);
+        out.write(content);
+        out.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertEquals("value1", mStorage.get("key1"));
+        Assert.assertNull(mStorage.get("key2"));
+    }
+
+    @Test
+    public void testClear() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("key1", "value1");
+        mStorage.clear();
+        mStorage.put("key2", "value2");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertNull(mStorage.get("key1"));
+        Assert.assertEquals("value2", mStorage.get("key2"));
+    }
+
+    @Test
+    public void testCompactionKeepsLiveEntries() {
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager(), 1000);
+        // Stay below the background compaction threshold, so that it cannot compact first.
+        for (int i = 0; i < 500; i++) {
+            mStorage.put("key" + (i % 10), "value" + i);
+        }
+        mStorage.remove("key0");
+        mStorage.flush();
+        final long sizeBeforeCompaction = mFile.length();
+
+        mStorage.compact();
+        Assert.assertEquals(9, mStorage.getLogRecordCount());
+        Assert.assertTrue(mFile.length() < sizeBeforeCompaction);
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, newEncryptionManager());
+        Assert.assertEquals(9, mStorage.getAll().size());
+        Assert.assertNull(mStorage.get("key0"));
+        Assert.assertEquals("value499", mStorage.get("key9"));
+    }
+
+    @Test
+    public void testWritesAreNotBlockedByCompactionAndSurviveIt() throws InterruptedException {
+        final AtomicBoolean writeDuringSnapshot = new AtomicBoolean();
+        final AtomicBoolean writeCompleted = new AtomicBoolean();
+        mStorage = new LogStructuredNameValueStorage(mFile, null) {
+            @Override
+            void writeFrame(@NonNull final FileOutputStream out,
+                            @NonNull final byte[] batch) throws IOException, ClientException {
+                if (writeDuringSnapshot.getAndSet(false)) {
+                    final Thread writer = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            put("key1", "updated");
+                            remove("key2");
+                            put("key4", "value4");
+                            writeCompleted.set(true);
+                        }
+                    });
+                    writer.start();
+                    try {
+                        writer.join(5000);
+                    } catch (final InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                super.writeFrame(out, batch);
+            }
+        };
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        mStorage.put("key3", "value3");
+
+        writeDuringSnapshot.set(true);
+        mStorage.compact();
+        Assert.assertTrue(writeCompleted.get());
+        Assert.assertEquals(6, mStorage.getLogRecordCount());
+        Assert.assertFalse(new File(mFile.getPath() + ".compact").exists());
+
+        mStorage.put("key5", "value5");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertEquals("updated", mStorage.get("key1"));
+        Assert.assertNull(mStorage.get("key2"));
+        Assert.assertEquals("value3", mStorage.get("key3"));
+        Assert.assertEquals("value4", mStorage.get("key4"));
+        Assert.assertEquals("value5", mStorage.get("key5"));
+        Assert.assertEquals(7, mStorage.getLogRecordCount());
+    }
+
+    @Test
+    public void testCompactionIsAbandonedWhenStorageIsCleared() {
+        final AtomicBoolean clearDuringSnapshot = new AtomicBoolean();
+        mStorage = new LogStructuredNameValueStorage(mFile, null) {
+            @Override
+            void writeFrame(@NonNull final FileOutputStream out,
+                            @NonNull final byte[] batch) throws IOException, ClientException {
+                if (clearDuringSnapshot.getAndSet(false)) {
+                    clear();
+                    put("key2", "value2");
+                }
+                super.writeFrame(out, batch);
+            }
+        };
+        mStorage.put("key1", "value1");
+
+        clearDuringSnapshot.set(true);
+        mStorage.compact();
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        Assert.assertNull(mStorage.get("key1"));
+        Assert.assertEquals("value2", mStorage.get("key2"));
+        Assert.assertEquals(1, mStorage.getLogRecordCount());
+    }
+
+    @Test
+    public void testCompactionIsTriggeredInTheBackground() throws InterruptedException {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        for (int i = 0; i < 600; i++) {
+            mStorage.put("key", "value" + i);
+        }
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (mStorage.getLogRecordCount() > 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(mStorage.getLogRecordCount() <= 100);
+        Assert.assertEquals("value599", mStorage.get("key"));
+    }
+
+    @Test
+    public void testGroupCommitPersistsOnFlush() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null, 60000);
+        mStorage.put("key1", "value1");
+        mStorage.put("key2", "value2");
+        Assert.assertEquals("value1", mStorage.get("key1"));
+
+        // Nothing has reached the file yet.
+        Assert.assertTrue(new LogStructuredNameValueStorage(mFile, null).getAll().isEmpty());
+
+        mStorage.flush();
+        Assert.assertEquals(2, new LogStructuredNameValueStorage(mFile, null).getAll().size());
+    }
+
+    @Test
+    public void testGroupCommitPersistsAfterDelay() throws InterruptedException {
+        mStorage = new LogStructuredNameValueStorage(mFile, null, 10);
+        mStorage.put("key1", "value1");
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (mStorage.getLogRecordCount() == 0 || mFile.length() == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("value1", new LogStructuredNameValueStorage(mFile, null).get("key1"));
+    }
+
+    @Test
+    public void testGetAllFilteredByKey() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        mStorage.put("match-1", "value1");
+        mStorage.put("other", "value2");
+
+        final Iterator<Map.Entry<String, String>> iterator = mStorage.getAllFilteredByKey(new Predicate<String>() {
+            @Override
+            public boolean test(String value) {
+                return value.startsWith("match");
+            }
+        });
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("value1", iterator.next().getValue());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testUsableAsMultiTypeStorage() {
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        final IMultiTypeNameValueStorage multiTypeStorage = new MultiTypeNameValueStorage(mStorage);
+        multiTypeStorage.putLong("long", 42L);
+        multiTypeStorage.putString("string", "value");
+        mStorage.close();
+
+        mStorage = new LogStructuredNameValueStorage(mFile, null);
+        final IMultiTypeNameValueStorage reopened = new MultiTypeNameValueStorage(mStorage);
+        Assert.assertEquals(42L, reopened.getLong("long"));
+        Assert.assertEquals("value", reopened.getString("string"));
+    }
+
+    static StorageEncryptionManager newEncryptionManager() {
+        final AbstractSecretKeyLoader keyLoader = new PredefinedKeyLoader("MOCK_ALIAS", KEY_BYTES);
+        return new StorageEncryptionManager() {
+            @Override
+            public @NonNull AbstractSecretKeyLoader getKeyLoaderForEncryption() {
+                return keyLoader;
+            }
+
+            @Override
+            public @NonNull List<AbstractSecretKeyLoader> getKeyLoaderForDecryption(@NonNull final byte[] cipherText) {
+                return Collections.singletonList(keyLoader);
+            }
+        };
+    }
+
+    private static byte[] readFile(final File file) throws IOException {
+        final byte[] content = new byte[(int) file.length()];
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        randomAccessFile.readFully(content);
+        randomAccessFile.close();
+        return content;
+    }
+}
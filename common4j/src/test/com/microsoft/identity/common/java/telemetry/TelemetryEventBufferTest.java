@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.java.telemetry;
+
+import com.microsoft.identity.common.java.telemetry.TelemetryEventStrings.Key;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TelemetryEventBufferTest {
+
+    private static final long TTL_MILLIS = 1000;
+
+    private long mNowMillis = 1;
+
+    private final TelemetryEventBuffer mBuffer = new TelemetryEventBuffer(TTL_MILLIS, 5) {
+        @Override
+        long currentTimeMillis() {
+            return mNowMillis;
+        }
+    };
+
+    @Test
+    public void testRemoveReturnsOnlyEventsOfCorrelationIdInOrder() {
+        mBuffer.add(event("A", "1"));
+        mBuffer.add(event("B", "2"));
+        mBuffer.add(event("a", "3"));
+
+        final List<Map<String, String>> events = mBuffer.remove("A");
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("1", events.get(0).get(Key.EVENT_NAME));
+        Assert.assertEquals("3", events.get(1).get(Key.EVENT_NAME));
+
+        Assert.assertTrue(mBuffer.remove("A").isEmpty());
+        Assert.assertEquals(1, mBuffer.size());
+        Assert.assertEquals(1, mBuffer.get("B").size());
+        Assert.assertEquals(1, mBuffer.get("B").size());
+    }
+
+    @Test
+    public void testEventsWithoutCorrelationIdAreOrphaned() {
+        mBuffer.add(event(null, "1"));
+
+        Assert.assertEquals(0, mBuffer.size());
+        Assert.assertEquals(1, mBuffer.getOrphanedEventCount());
+    }
+
+    @Test
+    public void testExpiredPartitionsAreOrphaned() {
+        mBuffer.add(event("A", "1"));
+        mBuffer.add(event("A", "2"));
+
+        mNowMillis += TTL_MILLIS / 2;
+        mBuffer.add(event("B", "3"));
+
+        mNowMillis += TTL_MILLIS;
+        mBuffer.add(event("C", "4"));
+
+        Assert.assertTrue(mBuffer.get("A").isEmpty());
+        Assert.assertTrue(mBuffer.get("B").isEmpty());
+        Assert.assertEquals(1, mBuffer.get("C").size());
+        Assert.assertEquals(3, mBuffer.getOrphanedEventCount());
+        Assert.assertEquals(0, mBuffer.getEvictedEventCount());
+    }
+
+    @Test
+    public void testOldestPartitionIsEvictedOverCap() {
+        mBuffer.add(event("A", "1"));
+        mBuffer.add(event("A", "2"));
+        mNowMillis++;
+        mBuffer.add(event("B", "3"));
+        mBuffer.add(event("B", "4"));
+        mNowMillis++;
+        mBuffer.add(event("C", "5"));
+        mBuffer.add(event("C", "6"));
+
+        Assert.assertTrue(mBuffer.get("A").isEmpty());
+        Assert.assertEquals(2, mBuffer.get("B").size());
+        Assert.assertEquals(2, mBuffer.get("C").size());
+        Assert.assertEquals(4, mBuffer.size());
+        Assert.assertEquals(2, mBuffer.getEvictedEventCount());
+    }
+
+    private static Map<String, String> event(final String correlationId, final String name) {
+        final Map<String, String> event = new HashMap<>();
+        if (correlationId != null) {
+            event.put(Key.CORRELATION_ID, correlationId);
+        }
+        event.put(Key.EVENT_NAME, name);
+        return event;
+    }
+}
@@ -36,11 +36,17 @@ import org.junit.Test;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.fail;
 
 public class TelemetryTest {
 
+    private static final long TIMEOUT_MILLIS = 5000;
+
     @Before
     public void setup() {
         new Telemetry.Builder()
@@ -150,22 +156,27 @@ public class TelemetryTest {
     }
 
     @Test
-    public void testBasicDeviceInfoPresentInTelemetry() {
+    public void testBasicDeviceInfoPresentInTelemetry() throws InterruptedException {
+        final List<List<Map<String, String>>> received = new CopyOnWriteArrayList<>();
         Telemetry.getInstance().addObserver(new ITelemetryDefaultObserver() {
             @Override
             public void onReceived(List<Map<String, String>> telemetryData) {
-                final Map<String, String> mapWithDeviceInfo = telemetryData.get(0);
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.App.NAME));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.App.BUILD));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.MODEL));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.NAME));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Os.NAME));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Os.VERSION));
-                Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.TIMEZONE));
+                received.add(telemetryData);
             }
         });
 
         Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(1, received.size());
+        final Map<String, String> mapWithDeviceInfo = received.get(0).get(0);
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.App.NAME));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.App.BUILD));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.MODEL));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.NAME));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Os.NAME));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Os.VERSION));
+        Assert.assertTrue(mapWithDeviceInfo.containsKey(TelemetryEventStrings.Device.TIMEZONE));
     }
 
 
@@ -183,29 +194,30 @@ public class TelemetryTest {
     }
 
     @Test
-    public void testITelemetryAggregatedObserver() {
+    public void testITelemetryAggregatedObserver() throws InterruptedException {
+        final List<Map<String, String>> received = new CopyOnWriteArrayList<>();
         Telemetry.getInstance().addObserver(new ITelemetryAggregatedObserver() {
             @Override
             public void onReceived(Map<String, String> telemetryData) {
-                final String errorDomain = telemetryData.get(TelemetryEventStrings.Key.HTTP_ERROR_DOMAIN);
-                Assert.assertEquals("TESTDOMAIN", errorDomain);
+                received.add(telemetryData);
             }
         });
 
         Telemetry.emit(new HttpStartEvent().putErrorDomain("TESTDOMAIN"));
         Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals("TESTDOMAIN", received.get(0).get(TelemetryEventStrings.Key.HTTP_ERROR_DOMAIN));
     }
 
     @Test
-    public void testITelemetryDefaultObserver() {
+    public void testITelemetryDefaultObserver() throws InterruptedException {
+        final List<List<Map<String, String>>> received = new CopyOnWriteArrayList<>();
         Telemetry.getInstance().addObserver(new ITelemetryDefaultObserver() {
             @Override
             public void onReceived(List<Map<String, String>> telemetryData) {
-                final Map<String, String> mapWithExpectedInfo = telemetryData.get(0);
-                final String errorDomain = mapWithExpectedInfo.get(TelemetryEventStrings.Key.HTTP_ERROR_DOMAIN);
-                final String method = mapWithExpectedInfo.get(TelemetryEventStrings.Key.HTTP_METHOD);
-                Assert.assertEquals("TESTDOMAIN", errorDomain);
-                Assert.assertEquals("TESTMETHOD", method);
+                received.add(telemetryData);
             }
         });
 
@@ -213,6 +225,102 @@ public class TelemetryTest {
                 .putErrorDomain("TESTDOMAIN")
                 .putMethod("TESTMETHOD"));
         Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(1, received.size());
+        final Map<String, String> mapWithExpectedInfo = received.get(0).get(0);
+        Assert.assertEquals("TESTDOMAIN", mapWithExpectedInfo.get(TelemetryEventStrings.Key.HTTP_ERROR_DOMAIN));
+        Assert.assertEquals("TESTMETHOD", mapWithExpectedInfo.get(TelemetryEventStrings.Key.HTTP_METHOD));
+    }
+
+    @Test
+    public void testFlushDoesNotWaitForObservers() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<List<Map<String, String>>> received = new CopyOnWriteArrayList<>();
+        Telemetry.getInstance().addObserver(new ITelemetryDefaultObserver() {
+            @Override
+            public void onReceived(List<Map<String, String>> telemetryData) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(telemetryData);
+            }
+        });
+
+        Telemetry.emit(new HttpStartEvent().putMethod("GET"));
+        Telemetry.getInstance().flush();
+        Telemetry.emit(new HttpStartEvent().putMethod("POST"));
+        Telemetry.getInstance().flush();
+        Assert.assertTrue(received.isEmpty());
+
+        release.countDown();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals("GET", received.get(0).get(0).get(TelemetryEventStrings.Key.HTTP_METHOD));
+        Assert.assertEquals("POST", received.get(1).get(0).get(TelemetryEventStrings.Key.HTTP_METHOD));
+    }
+
+    @Test
+    public void testFailingObserverDoesNotStopOtherObservers() throws InterruptedException {
+        final List<Map<String, String>> received = new CopyOnWriteArrayList<>();
+        Telemetry.getInstance().addObserver(new ITelemetryDefaultObserver() {
+            @Override
+            public void onReceived(List<Map<String, String>> telemetryData) {
+                throw new IllegalStateException("Observer failure");
+            }
+        });
+        Telemetry.getInstance().addObserver(new ITelemetryAggregatedObserver() {
+            @Override
+            public void onReceived(Map<String, String> telemetryData) {
+                received.add(telemetryData);
+            }
+        });
+
+        Telemetry.emit(new HttpStartEvent().putMethod("GET"));
+        Telemetry.getInstance().flush();
+        Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(2, received.size());
+    }
+
+    @Test
+    public void testFailingFlushDoesNotStopLaterFlushes() throws InterruptedException {
+        final List<List<Map<String, String>>> received = new CopyOnWriteArrayList<>();
+        Telemetry.getInstance().addObserver(new ITelemetryDefaultObserver() {
+            @Override
+            public void onReceived(List<Map<String, String>> telemetryData) {
+                received.add(telemetryData);
+            }
+        });
+
+        // The PII/OII rules fail to read the properties of this event.
+        final HttpStartEvent unreadableEvent = new HttpStartEvent();
+        final ConcurrentHashMap<String, String> unreadableProperties =
+                new ConcurrentHashMap<String, String>(unreadableEvent.getProperties()) {
+                    @Override
+                    public Set<Map.Entry<String, String>> entrySet() {
+                        throw new IllegalStateException("Unreadable properties");
+                    }
+                };
+        Telemetry.emit(new HttpStartEvent() {
+            @Override
+            public ConcurrentHashMap<String, String> getProperties() {
+                return unreadableProperties;
+            }
+        });
+        Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+        Assert.assertTrue(received.isEmpty());
+
+        Telemetry.emit(new HttpStartEvent().putMethod("POST"));
+        Telemetry.getInstance().flush();
+        Assert.assertTrue(Telemetry.awaitDispatch(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals("POST", received.get(0).get(0).get(TelemetryEventStrings.Key.HTTP_METHOD));
     }
 
 }
@@ -33,6 +33,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.Iterator;
 import java.util.Map;
@@ -82,6 +83,15 @@ public class ObjectMapperTest {
         Assert.assertEquals(CLIENT_ID, tr.getClientId());
     }
 
+    @Test
+    public void test_JsonReaderToObjectMS() {
+        MicrosoftTokenRequest tr = ObjectMapper.deserializeJsonReaderToObject(new StringReader(JSON_TOKEN_REQUEST), MicrosoftTokenRequest.class);
+
+        Assert.assertEquals(CLIENT_ID, tr.getClientId());
+        final Map.Entry<String, String> param = tr.getExtraParameters().iterator().next();
+        Assert.assertEquals("id_token", param.getKey());
+        Assert.assertEquals("idtokenval", param.getValue());
+    }
     @Test
     public void test_JsonToObjectMS() {
         MicrosoftTokenRequest tr = ObjectMapper.deserializeJsonStringToObject(JSON_TOKEN_REQUEST, MicrosoftTokenRequest.class);